@@ -26,17 +26,20 @@ import org.apache.openejb.core.InstanceContext;
 import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
 import org.apache.openejb.core.cmp.KeyGenerator;
+import org.apache.openejb.core.interceptor.InterceptorChain;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorInstance;
 import org.apache.openejb.core.interceptor.InterceptorStack;
 import org.apache.openejb.core.ivm.ContextHandler;
 import org.apache.openejb.core.ivm.EjbHomeProxyHandler;
+import org.apache.openejb.core.ivm.IntraVmCopyPlan;
 import org.apache.openejb.core.timer.EjbTimerService;
 import org.apache.openejb.core.transaction.EjbTransactionUtil;
 import org.apache.openejb.core.transaction.TransactionPolicy;
 import org.apache.openejb.core.transaction.TransactionPolicyFactory;
 import org.apache.openejb.core.transaction.TransactionType;
 import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.monitoring.InvocationTimings;
 import org.apache.openejb.util.Duration;
 import org.apache.openejb.util.Index;
 import org.apache.openejb.util.LogCategory;
@@ -90,6 +93,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -169,6 +173,7 @@ public class BeanContext extends DeploymentContext {
                 cdiInterceptors.add(interceptorData);
             }
         }
+        clearInterceptorChains();
 
         for (final Map.Entry<Method, InterceptorResolutionService.BusinessMethodInterceptorInfo> entry : info.getBusinessMethodsInfo().entrySet()) {
             final Interceptor<?>[] interceptors = entry.getValue().getCdiInterceptors();
@@ -335,6 +340,8 @@ public class BeanContext extends DeploymentContext {
     private final List<Injection> injections = new ArrayList<>();
     private final Map<Class, InterfaceType> interfaces = new HashMap<>();
     private final Map<Class, ExceptionType> exceptions = new ConcurrentHashMap<>();
+    private final Map<Method, IntraVmCopyPlan> copyPlans = new ConcurrentHashMap<>();
+    private final Map<Method, InvocationTimings> invocationTimings = new ConcurrentHashMap<>();
 
     private final boolean localbean;
     private Duration accessTimeout;
@@ -1037,6 +1044,28 @@ public class BeanContext extends DeploymentContext {
         return methodContext;
     }
 
+    /**
+     * @param method the invoked interface method
+     * @return how arguments and returned value are copied when this method is called through a remote view in the same VM
+     */
+    public IntraVmCopyPlan getCopyPlan(final Method method) {
+        final IntraVmCopyPlan plan = copyPlans.get(method);
+        return plan != null ? plan : copyPlans.computeIfAbsent(method, IntraVmCopyPlan::new);
+    }
+
+    public Collection<IntraVmCopyPlan> getCopyPlans() {
+        return copyPlans.values();
+    }
+
+    public InvocationTimings getInvocationTimings(final Method method) {
+        final InvocationTimings timings = invocationTimings.get(method);
+        return timings != null ? timings : invocationTimings.computeIfAbsent(method, m -> new InvocationTimings());
+    }
+
+    public Map<Method, InvocationTimings> getInvocationTimings() {
+        return Collections.unmodifiableMap(invocationTimings);
+    }
+
     // TODO The MethodContext object has Method as a variable, so we could change this
     // to simply return methodContextMap.values() which would be cleaner
     public Iterator<Entry<Method, MethodContext>> iteratorMethodContext() {
@@ -1126,14 +1155,17 @@ public class BeanContext extends DeploymentContext {
 
     public void addSystemInterceptor(final Object interceptor) {
         systemInterceptors.add(new InterceptorInstance(interceptor));
+        clearInterceptorChains();
     }
 
     public void addFirstSystemInterceptor(final Object interceptor) {
         systemInterceptors.add(0, new InterceptorInstance(interceptor));
+        clearInterceptorChains();
     }
 
     public void addUserInterceptor(final Object interceptor) {
         userInterceptors.add(new InterceptorInstance(interceptor));
+        clearInterceptorChains();
     }
 
     public List<InterceptorInstance> getUserAndSystemInterceptors() {
@@ -1173,9 +1205,20 @@ public class BeanContext extends DeploymentContext {
     public void setCdiInterceptors(final List<InterceptorData> cdiInterceptors) {
         this.cdiInterceptors.clear();
         this.cdiInterceptors.addAll(cdiInterceptors);
+        clearInterceptorChains();
         this.instanceScopedInterceptors.addAll(cdiInterceptors);
     }
 
+    public InterceptorChain getInterceptorChain(final Method method, final Operation operation) {
+        return getMethodContext(method).getInterceptorChain(operation);
+    }
+
+    private void clearInterceptorChains() {
+        for (final MethodContext methodContext : methodContextMap.values()) {
+            methodContext.clearInterceptorChains();
+        }
+    }
+
     public List<InterceptorData> getMethodInterceptors(final Method method) {
         return getMethodContext(method).getInterceptors();
     }
@@ -17,6 +17,8 @@
 
 package org.apache.openejb;
 
+import org.apache.openejb.core.Operation;
+import org.apache.openejb.core.interceptor.InterceptorChain;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.timer.ScheduleData;
 import org.apache.openejb.core.transaction.TransactionType;
@@ -28,6 +30,8 @@ import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @version $Rev$ $Date$
@@ -38,6 +42,7 @@ public class MethodContext {
     private final List<ScheduleData> schedules = new ArrayList<>();
     private final List<InterceptorData> interceptors = new ArrayList<>();
     private final Set<InterceptorData> cdiInterceptors = new LinkedHashSet<>();
+    private final ConcurrentMap<Operation, InterceptorChain> interceptorChains = new ConcurrentHashMap<>();
     private InterceptorData self = null;
     private LockType lockType;
     private TransactionType transactionType;
@@ -51,6 +56,7 @@ public class MethodContext {
 
     public void setSelfInterception(final InterceptorData data) {
         self = data;
+        clearInterceptorChains();
     }
 
     public void setAccessTimeout(final Duration accessTimeout) {
@@ -71,11 +77,13 @@ public class MethodContext {
 
     public void addCdiInterceptor(final InterceptorData data) {
         cdiInterceptors.add(data);
+        clearInterceptorChains();
     }
 
     public void setInterceptors(final List<InterceptorData> interceptors) {
         this.interceptors.clear();
         this.interceptors.addAll(interceptors);
+        clearInterceptorChains();
     }
 
     public List<InterceptorData> getInterceptors() {
@@ -89,6 +97,21 @@ public class MethodContext {
         return datas;
     }
 
+    /**
+     * @return the interceptors of the given operation, resolved on the first invocation
+     */
+    public InterceptorChain getInterceptorChain(final Operation operation) {
+        final InterceptorChain chain = interceptorChains.get(operation);
+        if (chain != null) {
+            return chain;
+        }
+        return interceptorChains.computeIfAbsent(operation, op -> InterceptorChain.of(getInterceptors(), op));
+    }
+
+    public void clearInterceptorChains() {
+        interceptorChains.clear();
+    }
+
     public LockType getLockType() {
         return lockType != null ? lockType : beanContext.getLockType();
     }
@@ -88,6 +88,7 @@ import org.apache.openejb.core.ivm.IntraVmProxy;
 import org.apache.openejb.core.ivm.naming.ContextualJndiReference;
 import org.apache.openejb.core.ivm.naming.IvmContext;
 import org.apache.openejb.core.ivm.naming.IvmJndiFactory;
+import org.apache.openejb.core.ivm.naming.JndiLookupMetrics;
 import org.apache.openejb.core.ivm.naming.JndiUrlReference;
 import org.apache.openejb.core.ivm.naming.LazyObjectReference;
 import org.apache.openejb.core.ivm.naming.Reference;
@@ -110,6 +111,7 @@ import org.apache.openejb.loader.Options;
 import org.apache.openejb.loader.ProvisioningUtil;
 import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.monitoring.DynamicMBeanWrapper;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.monitoring.LocalMBeanServer;
 import org.apache.openejb.monitoring.MBeanPojoWrapper;
 import org.apache.openejb.monitoring.ObjectNameBuilder;
@@ -277,6 +279,7 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
     private static final ReentrantLock lock = new ReentrantLock(true);
     public static final String OPENEJB_TIMERS_ON = "openejb.timers.on";
     static final String FORCE_READ_ONLY_APP_NAMING = "openejb.forceReadOnlyAppNamingContext";
+    public static final String JNDI_LOOKUP_METRICS = "openejb.jndi.lookup.metrics";
 
     public static final Class<?>[] VALIDATOR_FACTORY_INTERFACES = new Class<?>[]{ValidatorFactory.class, Serializable.class};
     public static final Class<?>[] VALIDATOR_INTERFACES = new Class<?>[]{Validator.class};
@@ -363,6 +366,10 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
         system.setComponent(ContainerSystem.class, containerSystem);
 
         jndiBuilder = new JndiBuilder(containerSystem.getJNDIContext());
+        if (system.getOptions().get(JNDI_LOOKUP_METRICS, false)) {
+            registerJndiLookupMetrics();
+        }
+        registerInvocationMetrics(system.getOptions().get(InvocationMetrics.ACTIVE, false));
 
         setConfiguration(new OpenEjbConfiguration());
 
@@ -1907,6 +1914,8 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
                 }
             }
 
+            IvmContext.setLookupMetrics(null);
+            InvocationMetrics.setActive(false);
             final Iterator<ObjectName> it = containerObjectNames.iterator();
             final MBeanServer server = LocalMBeanServer.get();
             while (it.hasNext()) {
@@ -2877,6 +2886,43 @@ public class Assembler extends AssemblerTool implements org.apache.openejb.spi.A
         }
     }
 
+    private void registerJndiLookupMetrics() {
+        final JndiLookupMetrics metrics = new JndiLookupMetrics();
+        IvmContext.setLookupMetrics(metrics);
+        if (LocalMBeanServer.isJMXActive()) {
+            final ObjectNameBuilder jmxName = new ObjectNameBuilder("openejb.management");
+            jmxName.set("ObjectType", "jndi");
+            jmxName.set("name", "lookups");
+            final ObjectName objectName = jmxName.build();
+            try {
+                LocalMBeanServer.get().registerMBean(new DynamicMBeanWrapper(metrics), objectName);
+                containerObjectNames.add(objectName);
+            } catch (final Exception | NoClassDefFoundError e) {
+                logger.warning("Can't register the JNDI lookup metrics MBean", e);
+            }
+        }
+    }
+
+    private void registerInvocationMetrics(final boolean active) {
+        InvocationMetrics.setActive(active);
+        if (LocalMBeanServer.isJMXActive()) { // registered even if inactive to be able to activate it at runtime
+            final ObjectNameBuilder jmxName = new ObjectNameBuilder("openejb.management");
+            jmxName.set("ObjectType", "invocations");
+            jmxName.set("name", "phases");
+            final ObjectName objectName = jmxName.build();
+            try {
+                final MBeanServer server = LocalMBeanServer.get();
+                if (server.isRegistered(objectName)) { // previous assembler not destroyed
+                    server.unregisterMBean(objectName);
+                }
+                server.registerMBean(new DynamicMBeanWrapper(new InvocationMetrics()), objectName);
+                containerObjectNames.add(objectName);
+            } catch (final Exception | NoClassDefFoundError e) {
+                logger.warning("Can't register the invocation metrics MBean", e);
+            }
+        }
+    }
+
     private void bindService(final ServiceInfo serviceInfo, final Object service) throws OpenEJBException {
         try {
             this.containerSystem.getJNDIContext().bind(JAVA_OPENEJB_NAMING_CONTEXT + serviceInfo.service + "/" + serviceInfo.id, service);
@@ -268,6 +268,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 import static java.util.Arrays.asList;
 
@@ -458,6 +459,10 @@ public class AnnotationDeployer implements DynamicDeployer {
                 }
             }
 
+            if (ParallelDeployment.isEnabled()) {
+                createFinders(appModule);
+            }
+
             for (final EjbModule ejbModule : appModule.getEjbModules()) {
                 ejbModule.initAppModule(appModule);
                 setModule(ejbModule);
@@ -501,6 +506,46 @@ public class AnnotationDeployer implements DynamicDeployer {
             return appModule;
         }
 
+        /**
+         * Scans the ejb and web modules concurrently, they are then processed one by one with these finders.
+         * A module failing here is scanned again by its own deploy method which reports the error.
+         */
+        private void createFinders(final AppModule appModule) {
+            final List<DeploymentModule> modules = new ArrayList<>();
+            for (final EjbModule ejbModule : appModule.getEjbModules()) {
+                if (ejbModule.getFinder() == null && (ejbModule.getEjbJar() == null || !ejbModule.getEjbJar().isMetadataComplete())) {
+                    ejbModule.initAppModule(appModule);
+                    modules.add(ejbModule);
+                }
+            }
+            for (final WebModule webModule : appModule.getWebModules()) {
+                if (webModule.getFinder() == null && (webModule.getWebApp() == null || !webModule.getWebApp().isMetadataComplete())) {
+                    webModule.initAppModule(appModule);
+                    modules.add(webModule);
+                }
+            }
+
+            final List<Future<IAnnotationFinder>> finders = ParallelDeployment.submit(modules, new ParallelDeployment.Task<DeploymentModule, IAnnotationFinder>() {
+                @Override
+                public IAnnotationFinder call(final DeploymentModule module) throws Exception {
+                    return FinderFactory.createFinder(module);
+                }
+            });
+            for (int i = 0; i < modules.size(); i++) {
+                final DeploymentModule module = modules.get(i);
+                try {
+                    final IAnnotationFinder finder = ParallelDeployment.join(finders.get(i));
+                    if (module instanceof EjbModule) {
+                        ((EjbModule) module).setFinder(finder);
+                    } else {
+                        ((WebModule) module).setFinder(finder);
+                    }
+                } catch (final OpenEJBException | RuntimeException e) {
+                    logger.debug("Can't scan " + module.getModuleId() + " concurrently: " + e.getMessage());
+                }
+            }
+        }
+
         public ClientModule deploy(final ClientModule clientModule) throws OpenEJBException {
 
             if (clientModule.getApplicationClient() == null) {
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.core.EmptyResourcesClassLoader;
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.URLs;
+import org.apache.xbean.asm9.ClassReader;
+import org.apache.xbean.asm9.ClassWriter;
+import org.apache.xbean.finder.archive.Archive;
+import org.apache.xbean.finder.archive.ClasspathArchive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Build time replacement of the bytecode scanning of an archive: {@link #write(File)} stores in
+ * META-INF/tomee-annotations.idx the classes of a folder stripped of their code and debug information,
+ * i.e. only what the annotation finder reads (names, inheritance, annotations of the classes, fields,
+ * methods and parameters), and the size and checksum of each class file.
+ *
+ * At deploy time {@link #archive(ClassLoader, URL)} serves these classes when the archive still contains
+ * exactly the indexed class files, so the finder parses one small file instead of every class of the archive.
+ * A stale index is ignored. Set openejb.annotation-index to false to never use it.
+ */
+public final class AnnotationIndex {
+    public static final String INDEX = "META-INF/tomee-annotations.idx";
+    public static final String ACTIVE = "openejb.annotation-index";
+
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_STARTUP_CONFIG, AnnotationIndex.class);
+
+    static final int MAGIC = 0x544f4d45;
+    static final int VERSION = 1;
+
+    private static final String CLASS = ".class";
+    // real classes are far smaller, a bigger size can only come from a corrupted index
+    private static final int MAX_CLASS_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_PRESIZE = 1024;
+
+    private AnnotationIndex() {
+        // no-op
+    }
+
+    /**
+     * @return an archive backed by the index of the location if there is a fresh one, null otherwise
+     */
+    public static Archive archive(final ClassLoader loader, final URL location) {
+        if (!SystemInstance.get().getOptions().get(ACTIVE, true)) {
+            return null;
+        }
+        if ("jar".equals(location.getProtocol()) && !location.getFile().endsWith("!/")) {
+            return null; // a folder of a jar, the index is for the whole jar
+        }
+
+        final File file;
+        try {
+            file = URLs.toFile(location);
+        } catch (final RuntimeException e) { // not a local archive
+            return null;
+        }
+
+        try {
+            if (file.isDirectory()) {
+                final File index = new File(file, INDEX);
+                if (!index.isFile()) {
+                    return null;
+                }
+                try (final InputStream is = new FileInputStream(index)) {
+                    final Index read = read(is);
+                    if (!read.matches(file, index.lastModified())) {
+                        LOGGER.info("Ignoring stale annotation index " + index.getAbsolutePath());
+                        return null;
+                    }
+                    return new IndexedArchive(loader, read.classes);
+                }
+            } else if (file.isFile()) {
+                try (final ZipFile zip = new ZipFile(file)) {
+                    final ZipEntry index = zip.getEntry(INDEX);
+                    if (index == null) {
+                        return null;
+                    }
+                    try (final InputStream is = zip.getInputStream(index)) {
+                        final Index read = read(is);
+                        if (!read.matches(zip)) {
+                            LOGGER.info("Ignoring stale annotation index of " + file.getAbsolutePath());
+                            return null;
+                        }
+                        return new IndexedArchive(loader, read.classes);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.warning("Can't read the annotation index of " + file.getAbsolutePath() + ", scanning it", e);
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the classes of a folder, typically the output directory of a build before it is packaged.
+     *
+     * @return the index file
+     */
+    public static File write(final File directory) throws IOException {
+        final Map<String, long[]> files = new HashMap<>();
+        listFiles(directory, "", files, true);
+
+        final URL url = directory.toURI().toURL();
+        final Map<String, byte[]> classes = new LinkedHashMap<>();
+        try (final URLClassLoader loader = new URLClassLoader(new URL[]{url}, new EmptyResourcesClassLoader())) {
+            for (final Archive.Entry entry : ClasspathArchive.archive(loader, url)) {
+                try (final InputStream bytecode = entry.getBytecode()) {
+                    classes.put(entry.getName(), strip(IO.readBytes(bytecode)));
+                }
+            }
+        }
+
+        final File index = new File(directory, INDEX);
+        if (!index.getParentFile().isDirectory() && !index.getParentFile().mkdirs()) {
+            throw new IOException("Can't create " + index.getParentFile().getAbsolutePath());
+        }
+        try (final DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(index))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(files.size());
+            for (final Map.Entry<String, long[]> file : files.entrySet()) {
+                out.writeUTF(file.getKey());
+                out.writeLong(file.getValue()[0]);
+                out.writeLong(file.getValue()[1]);
+            }
+            out.writeInt(classes.size());
+            for (final Map.Entry<String, byte[]> clazz : classes.entrySet()) {
+                out.writeUTF(clazz.getKey());
+                out.writeInt(clazz.getValue().length);
+                out.write(clazz.getValue());
+            }
+        }
+        return index;
+    }
+
+    // the finder reads the classes with SKIP_CODE, SKIP_DEBUG and SKIP_FRAMES so the rest is useless
+    private static byte[] strip(final byte[] bytecode) {
+        final ClassWriter writer = new ClassWriter(0);
+        new ClassReader(bytecode).accept(writer, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return writer.toByteArray();
+    }
+
+    private static Index read(final InputStream is) throws IOException {
+        final DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(is)));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported annotation index format");
+        }
+
+        final int fileCount = checkSize(in.readInt(), Integer.MAX_VALUE, "class files");
+        final Map<String, long[]> files = new HashMap<>(Math.min(fileCount, MAX_PRESIZE) * 2);
+        for (int i = 0; i < fileCount; i++) {
+            files.put(in.readUTF(), new long[]{in.readLong(), in.readLong()});
+        }
+
+        final int classCount = checkSize(in.readInt(), Integer.MAX_VALUE, "classes");
+        final Map<String, byte[]> classes = new LinkedHashMap<>(Math.min(classCount, MAX_PRESIZE) * 2);
+        for (int i = 0; i < classCount; i++) {
+            final String name = in.readUTF();
+            final byte[] bytecode = new byte[checkSize(in.readInt(), MAX_CLASS_SIZE, "bytes for " + name)];
+            in.readFully(bytecode);
+            classes.put(name, bytecode);
+        }
+        return new Index(files, classes);
+    }
+
+    // the sizes are not trusted: a corrupted index must be ignored like a truncated one, not allocate blindly
+    private static int checkSize(final int size, final int max, final String what) throws IOException {
+        if (size < 0 || size > max) {
+            throw new IOException("Corrupted annotation index: " + size + " " + what);
+        }
+        return size;
+    }
+
+    private static void listFiles(final File directory, final String prefix, final Map<String, long[]> files, final boolean crc) throws IOException {
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (final File child : children) {
+            final String path = prefix + child.getName();
+            if (child.isDirectory()) {
+                listFiles(child, path + '/', files, crc);
+            } else if (path.endsWith(CLASS)) {
+                files.put(path, new long[]{child.length(), crc ? crc(child) : -1});
+            }
+        }
+    }
+
+    private static long crc(final File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        crc.update(IO.readBytes(file));
+        return crc.getValue();
+    }
+
+    private static final class Index {
+        private final Map<String, long[]> files;
+        private final Map<String, byte[]> classes;
+
+        private Index(final Map<String, long[]> files, final Map<String, byte[]> classes) {
+            this.files = files;
+            this.classes = classes;
+        }
+
+        private boolean matches(final ZipFile zip) {
+            int count = 0;
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(CLASS)) {
+                    continue;
+                }
+                final long[] indexed = files.get(entry.getName());
+                if (indexed == null || indexed[0] != entry.getSize() || indexed[1] != entry.getCrc()) {
+                    return false;
+                }
+                count++;
+            }
+            return count == files.size();
+        }
+
+        // checksums are only computed for the files modified after the index
+        private boolean matches(final File directory, final long indexDate) throws IOException {
+            final Map<String, long[]> current = new HashMap<>();
+            listFiles(directory, "", current, false);
+            if (current.size() != files.size()) {
+                return false;
+            }
+            for (final Map.Entry<String, long[]> file : current.entrySet()) {
+                final long[] indexed = files.get(file.getKey());
+                if (indexed == null || indexed[0] != file.getValue()[0]) {
+                    return false;
+                }
+                final File classFile = new File(directory, file.getKey());
+                if (classFile.lastModified() > indexDate && indexed[1] != crc(classFile)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class IndexedArchive implements Archive {
+        private final ClassLoader loader;
+        private final Map<String, byte[]> classes;
+
+        private IndexedArchive(final ClassLoader loader, final Map<String, byte[]> classes) {
+            this.loader = loader;
+            this.classes = classes;
+        }
+
+        @Override
+        public InputStream getBytecode(final String className) throws IOException, ClassNotFoundException {
+            String name = className;
+            final int generics = name.indexOf('<');
+            if (generics > 0) {
+                name = name.substring(0, generics);
+            }
+            final byte[] bytecode = classes.get(name);
+            if (bytecode == null) {
+                throw new ClassNotFoundException(className);
+            }
+            return new ByteArrayInputStream(bytecode);
+        }
+
+        @Override
+        public Class<?> loadClass(final String className) throws ClassNotFoundException {
+            return loader.loadClass(className);
+        }
+
+        @Override
+        public Iterator<Entry> iterator() {
+            final Iterator<Map.Entry<String, byte[]>> delegate = classes.entrySet().iterator();
+            return new Iterator<Entry>() {
+                @Override
+                public boolean hasNext() {
+                    return delegate.hasNext();
+                }
+
+                @Override
+                public Entry next() {
+                    final Map.Entry<String, byte[]> next = delegate.next();
+                    return new Entry() {
+                        @Override
+                        public String getName() {
+                            return next.getKey();
+                        }
+
+                        @Override
+                        public InputStream getBytecode() {
+                            return new ByteArrayInputStream(next.getValue());
+                        }
+                    };
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.Extensions;
+import org.apache.openejb.assembler.classic.AppInfo;
+import org.apache.openejb.assembler.classic.ServiceInfo;
+import org.apache.openejb.core.ObjectInputStreamFiltered;
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+import org.apache.openejb.util.OpenEjbVersion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Opt-in on disk snapshot of the AppInfo built for an archive so a restart skips the descriptor parsing,
+ * the scanning and the auto configuration of an unchanged application.
+ *
+ * A snapshot is keyed by the checksum of the archive content, the openejb version, the system properties
+ * and the resources and containers available before the configuration. Any difference is a miss and the
+ * changed parts of the key are logged. Containers and resources created by the auto configuration are part of the snapshot
+ * and installed again when it is used.
+ *
+ * Options:
+ * <ul>
+ *     <li>openejb.appinfo.cache: false</li>
+ *     <li>openejb.appinfo.cache.dir: ${openejb.base}/data/appinfo</li>
+ * </ul>
+ */
+public class AppInfoCache {
+    public static final String ACTIVE = "openejb.appinfo.cache";
+    public static final String DIRECTORY = ACTIVE + ".dir";
+
+    private static final Logger LOGGER = Logger.getInstance(LogCategory.OPENEJB_STARTUP_CONFIG, AppInfoCache.class);
+
+    private static final String EXTENSIONS = "org.apache.openejb.extension";
+    private static final String PROPERTY = "property ";
+    private static final Collection<String> JVM_PROPERTIES = Arrays.asList(
+        "awt.", "file.", "java.", "jdk.", "line.", "os.", "path.", "sun.", "user.");
+
+    private final File directory;
+
+    public AppInfoCache(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the cache to use or null if disabled
+     */
+    public static AppInfoCache get() {
+        final SystemInstance system = SystemInstance.get();
+        if (!system.getOptions().get(ACTIVE, false)) {
+            return null;
+        }
+        try {
+            final String dir = system.getProperty(DIRECTORY);
+            return new AppInfoCache(dir != null ? new File(dir) : system.getBase().getDirectory("data/appinfo", true));
+        } catch (final IOException e) {
+            LOGGER.warning("Can't create the AppInfo cache directory, the cache is disabled", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param key the key computed before the configuration of the application with {@link #key(File, Collection, Collection)}
+     * @return the snapshot of this archive or null if missing or not matching the key
+     */
+    public Snapshot load(final File archive, final Map<String, String> key) {
+        final File file = file(archive);
+        if (!file.isFile()) {
+            LOGGER.info("No AppInfo snapshot for " + archive.getAbsolutePath());
+            return null;
+        }
+
+        try (final ObjectInputStream in = new ObjectInputStreamFiltered(new BufferedInputStream(new FileInputStream(file)))) {
+            final Snapshot snapshot = Snapshot.class.cast(in.readObject());
+            final Collection<String> changes = new TreeSet<>();
+            for (final Map.Entry<String, String> entry : key.entrySet()) {
+                if (!entry.getValue().equals(snapshot.key.get(entry.getKey()))) {
+                    changes.add(entry.getKey());
+                }
+            }
+            for (final String name : snapshot.key.keySet()) {
+                if (!key.containsKey(name)) {
+                    changes.add(name);
+                }
+            }
+            if (!changes.isEmpty()) {
+                LOGGER.info("AppInfo snapshot of " + archive.getAbsolutePath() + " is stale, changed: " + changes);
+                return null;
+            }
+            LOGGER.info("Using the AppInfo snapshot of " + archive.getAbsolutePath());
+            return snapshot;
+        } catch (final Exception e) {
+            LOGGER.warning("Can't read the AppInfo snapshot " + file.getAbsolutePath() + ", ignoring it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the AppInfo of an archive if it can be used without the AppModule it was built from.
+     */
+    public void store(final File archive, final Map<String, String> key, final AppModule appModule,
+                      final AppInfo appInfo, final List<ServiceInfo> installed) {
+        final String notCacheable = notCacheable(appModule);
+        if (notCacheable != null) {
+            LOGGER.info("No AppInfo snapshot for " + archive.getAbsolutePath() + ": " + notCacheable);
+            return;
+        }
+
+        final File file = file(archive);
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeObject(new Snapshot(key, appInfo, installed));
+            }
+            if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+                throw new IOException("Can't rename " + tmp.getAbsolutePath() + " to " + file.getName());
+            }
+        } catch (final IOException e) { // NotSerializableException mainly
+            LOGGER.warning("Can't write the AppInfo snapshot of " + archive.getAbsolutePath() + ": " + e.getMessage());
+            if (tmp.exists() && !tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * @param resources the resource ids existing before the configuration
+     * @param containers the container ids existing before the configuration
+     */
+    public static Map<String, String> key(final File archive, final Collection<String> resources, final Collection<String> containers) throws IOException {
+        final CRC32 crc = new CRC32();
+        checksum(archive, archive.getName(), crc);
+
+        final Map<String, String> key = new LinkedHashMap<>();
+        key.put("version", OpenEjbVersion.get().getVersion());
+        key.put("archive", Long.toHexString(crc.getValue()));
+        key.put("resources", new TreeSet<>(resources).toString());
+        key.put("containers", new TreeSet<>(containers).toString());
+
+        final Properties properties = SystemInstance.get().getProperties();
+        for (final String name : new TreeSet<>(properties.stringPropertyNames())) {
+            if (!isJvmProperty(name)) {
+                key.put(PROPERTY + name, properties.getProperty(name));
+            }
+        }
+        return key;
+    }
+
+    private static boolean isJvmProperty(final String name) {
+        for (final String prefix : JVM_PROPERTIES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checksum(final File file, final String path, final CRC32 crc) throws IOException {
+        crc.update(path.getBytes("UTF-8"));
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (final File child : children) {
+                    checksum(child, path + '/' + child.getName(), crc);
+                }
+            }
+        } else if (file.isFile()) {
+            final byte[] buffer = new byte[8192];
+            try (final InputStream in = IO.read(file)) {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    // web modules hand their finder to the web container and extensions are observers of this boot only
+    private static String notCacheable(final AppModule appModule) {
+        if (!appModule.getWebModules().isEmpty()) {
+            return "web modules are not cached";
+        }
+        final List<URL> urls = new ArrayList<>(appModule.getAdditionalLibraries());
+        for (final EjbModule ejbModule : appModule.getEjbModules()) {
+            try {
+                if (ejbModule.getModuleUri().isAbsolute()) {
+                    urls.add(ejbModule.getModuleUri().toURL());
+                }
+            } catch (final Exception e) {
+                // no-op: same as the extension lookup of ConfigurationFactory
+            }
+        }
+        try {
+            if (!new Extensions.Finder("META-INF", false, urls.toArray(new URL[urls.size()])).findAvailableStrings(EXTENSIONS).isEmpty()) {
+                return "the application declares server extensions";
+            }
+        } catch (final IOException e) {
+            return "can't look for server extensions";
+        }
+        return null;
+    }
+
+    private File file(final File archive) {
+        final String path = archive.getAbsolutePath();
+        return new File(directory, archive.getName().replaceAll("[^a-zA-Z0-9._-]", "_") + "-" + Integer.toHexString(path.hashCode()) + ".ser");
+    }
+
+    public static final class Snapshot implements Serializable {
+        private final Map<String, String> key;
+        private final AppInfo appInfo;
+        private final List<ServiceInfo> installed;
+
+        private Snapshot(final Map<String, String> key, final AppInfo appInfo, final List<ServiceInfo> installed) {
+            this.key = new LinkedHashMap<>(key);
+            this.appInfo = appInfo;
+            this.installed = new ArrayList<>(installed);
+        }
+
+        public AppInfo getAppInfo() {
+            return appInfo;
+        }
+
+        /**
+         * @return the containers and resources created by the auto configuration of the application
+         */
+        public List<ServiceInfo> getInstalled() {
+            return installed;
+        }
+    }
+}
@@ -82,7 +82,7 @@ public class ConfigurableClasspathArchive extends CompositeArchive implements Sc
         try {
             final URL scanXml = new URLClassLoader(new URL[]{location}, new EmptyResourcesClassLoader()).getResource(name);
             if (scanXml == null && !forceDescriptor) {
-                return ClasspathArchive.archive(loader, location);
+                return classpathArchive(loader, location);
             } else if (scanXml == null) {
                 return new ClassesArchive();
             }
@@ -102,10 +102,19 @@ public class ConfigurableClasspathArchive extends CompositeArchive implements Sc
             if (forceDescriptor) {
                 return new ClassesArchive();
             }
-            return ClasspathArchive.archive(loader, location);
+            return classpathArchive(loader, location);
         }
     }
 
+    // the build time annotation index when there is a fresh one, avoids to read all the classes
+    private static Archive classpathArchive(final ClassLoader loader, final URL location) {
+        final Archive indexed = AnnotationIndex.archive(loader, location);
+        if (indexed != null) {
+            return indexed;
+        }
+        return ClasspathArchive.archive(loader, location);
+    }
+
     private static String name() {
         return SystemInstance.get().getProperty(SCAN_XML_PROPERTY, SCAN_XML_NAME);
     }
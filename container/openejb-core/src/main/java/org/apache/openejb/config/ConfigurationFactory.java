@@ -122,6 +122,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.openejb.config.DeploymentsResolver.DEPLOYMENTS_CLASSPATH_PROPERTY;
 import static org.apache.openejb.config.ServiceUtils.implies;
@@ -130,6 +131,7 @@ import static org.apache.openejb.config.ServiceUtils.implies;
 public class ConfigurationFactory implements OpenEjbConfigurationFactory {
 
     public static final String OPENEJB_JDBC_DATASOURCE_CREATOR = "openejb.jdbc.datasource-creator";
+    public static final String DEPLOYMENT_TIMINGS = "openejb.deployment.timings";
 
     public static final String ADDITIONAL_DEPLOYMENTS = "conf/deployments.xml";
     static final String CONFIGURATION_PROPERTY = "openejb.configuration";
@@ -149,6 +151,7 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     private final DeploymentLoader deploymentLoader;
     private final boolean offline;
     private final boolean serviceTypeIsAdjustable; // offline is a bit different from this and offline could be off and this on
+    private final ThreadLocal<List<ServiceInfo>> installed = new ThreadLocal<>(); // recorded for the AppInfo cache
 
     private static final String CLASSPATH_AS_EAR = "openejb.deployments.classpath.ear";
     static final String WEBSERVICES_ENABLED = "openejb.webservices.enabled";
@@ -416,9 +419,26 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
 
         @Override
         public AppModule deploy(AppModule appModule) throws OpenEJBException {
+            if (!SystemInstance.get().getOptions().get(DEPLOYMENT_TIMINGS, ParallelDeployment.isEnabled())) {
+                for (final DynamicDeployer deployer : chain) {
+                    appModule = deployer.deploy(appModule);
+                }
+                return appModule;
+            }
+
+            final StringBuilder timings = new StringBuilder();
+            final long begin = System.nanoTime();
             for (final DynamicDeployer deployer : chain) {
+                final long start = System.nanoTime();
                 appModule = deployer.deploy(appModule);
+                final long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (duration > 0) { // skip the noise of the trivial deployers
+                    final String name = deployer.getClass().getSimpleName();
+                    timings.append(", ").append(name.isEmpty() ? deployer.getClass().getName() : name).append('=').append(duration).append("ms");
+                }
             }
+            logger.info("Configured " + appModule.getModuleId() + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) + "ms"
+                    + (timings.length() > 0 ? " (" + timings.substring(2) + ")" : ""));
             return appModule;
         }
     }
@@ -440,6 +460,7 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     }
 
     protected void install(final ContainerInfo serviceInfo) throws OpenEJBException {
+        record(serviceInfo);
         if (sys != null) {
             sys.containerSystem.containers.add(serviceInfo);
         } else if (!offline) {
@@ -453,6 +474,7 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     }
 
     protected void install(final ResourceInfo serviceInfo) throws OpenEJBException {
+        record(serviceInfo);
         if (sys != null) {
             sys.facilities.resources.add(serviceInfo);
         } else if (!offline) {
@@ -460,6 +482,13 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
         }
     }
 
+    private void record(final ServiceInfo serviceInfo) {
+        final List<ServiceInfo> infos = installed.get();
+        if (infos != null) {
+            infos.add(serviceInfo);
+        }
+    }
+
     void doInstall(final ResourceInfo serviceInfo) throws OpenEJBException {
         final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
         if (assembler != null) {
@@ -847,6 +876,24 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
     public AppInfo configureApplication(final File jarFile) throws OpenEJBException {
         logger.debug("Beginning load: " + jarFile.getAbsolutePath());
 
+        final AppInfoCache cache = AppInfoCache.get();
+        Map<String, String> cacheKey = null;
+        if (cache != null) {
+            try {
+                cacheKey = AppInfoCache.key(jarFile, getResourceIds(), getContainerIds());
+            } catch (final IOException e) {
+                logger.warning("Can't compute the AppInfo snapshot key of " + jarFile.getAbsolutePath(), e);
+            }
+            if (cacheKey != null) {
+                final AppInfoCache.Snapshot snapshot = cache.load(jarFile, cacheKey);
+                if (snapshot != null) {
+                    installAll(snapshot.getInstalled());
+                    return snapshot.getAppInfo();
+                }
+                installed.set(new ArrayList<ServiceInfo>());
+            }
+        }
+
         try {
             final AppModule appModule = deploymentLoader.load(jarFile, null);
             final AppInfo appInfo = configureApplication(appModule);
@@ -866,6 +913,10 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
             // TODO This is temporary -- we need to do this in AppInfoBuilder
             appInfo.paths.add(appInfo.path);
             appInfo.paths.add(jarFile.getAbsolutePath());
+
+            if (cacheKey != null) {
+                cache.store(jarFile, cacheKey, appModule, appInfo, installed.get());
+            }
             return appInfo;
         } catch (final ValidationFailedException e) {
             logger.warning("configureApplication.loadFailed", jarFile.getAbsolutePath(), e.getMessage()); // DO not include the stacktrace in the message
@@ -875,6 +926,21 @@ public class ConfigurationFactory implements OpenEjbConfigurationFactory {
             // removing this message causes NO messages to be printed when embedded
             logger.warning("configureApplication.loadFailed", e, jarFile.getAbsolutePath(), e.getMessage());
             throw e;
+        } finally {
+            installed.remove();
+        }
+    }
+
+    // containers and resources auto configured when the snapshot was taken
+    private void installAll(final List<ServiceInfo> infos) throws OpenEJBException {
+        for (final ServiceInfo info : infos) {
+            if (ContainerInfo.class.isInstance(info)) {
+                if (!getContainerIds().contains(info.id)) {
+                    install(ContainerInfo.class.cast(info));
+                }
+            } else if (ResourceInfo.class.isInstance(info) && getResourceInfo(info.id) == null) {
+                install(ResourceInfo.class.cast(info));
+            }
         }
     }
 
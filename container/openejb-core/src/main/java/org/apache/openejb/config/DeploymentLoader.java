@@ -88,6 +88,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -557,9 +558,11 @@ public class DeploymentLoader implements DeploymentFilterable {
                 });
             }
 
-            // EJB modules
-            for (final Map.Entry<String, URL> stringURLEntry : ejbModules.entrySet()) {
-                try {
+            // EJB modules, the jars are read concurrently when the parallel deployment is active
+            final List<Map.Entry<String, URL>> ejbModuleEntries = new ArrayList<>(ejbModules.entrySet());
+            final List<Future<EjbModule>> loadedEjbModules = ParallelDeployment.submit(ejbModuleEntries, new ParallelDeployment.Task<Map.Entry<String, URL>, EjbModule>() {
+                @Override
+                public EjbModule call(final Map.Entry<String, URL> stringURLEntry) throws Exception {
                     URL ejbUrl = stringURLEntry.getValue();
                     // we should try to use a reference to the temp classloader
                     if (ClassLoaderUtil.isUrlCached(appModule.getJarLocation(), ejbUrl)) {
@@ -573,10 +576,14 @@ public class DeploymentLoader implements DeploymentFilterable {
                     final File ejbFile = URLs.toFile(ejbUrl);
                     final String absolutePath = ejbFile.getAbsolutePath();
 
-                    final EjbModule ejbModule = createEjbModule(ejbUrl, absolutePath, appClassLoader);
-                    appModule.getEjbModules().add(ejbModule);
+                    return createEjbModule(ejbUrl, absolutePath, appClassLoader);
+                }
+            });
+            for (int i = 0; i < ejbModuleEntries.size(); i++) {
+                try {
+                    appModule.getEjbModules().add(ParallelDeployment.join(loadedEjbModules.get(i)));
                 } catch (final OpenEJBException e) {
-                    LOGGER.error("Unable to load EJBs from EAR: " + appId + ", module: " + stringURLEntry.getKey() + ". Exception: " + e.getMessage(), e);
+                    LOGGER.error("Unable to load EJBs from EAR: " + appId + ", module: " + ejbModuleEntries.get(i).getKey() + ". Exception: " + e.getMessage(), e);
                 }
             }
 
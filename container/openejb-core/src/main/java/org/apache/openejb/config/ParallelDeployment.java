@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.OpenEJBException;
+import org.apache.openejb.loader.SystemInstance;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Opt-in concurrency for applications with a lot of modules: the work done for each module (reading its
+ * descriptors, scanning its classes) is run on a bounded fork-join pool and the results are merged
+ * by the caller in the module order, so the resulting AppModule is the one of a sequential deployment.
+ * Options:
+ * <ul>
+ *     <li>openejb.deployment.parallel: false</li>
+ *     <li>openejb.deployment.parallel.threads: number of cores</li>
+ * </ul>
+ */
+public final class ParallelDeployment {
+    public static final String PARALLEL = "openejb.deployment.parallel";
+    public static final String THREADS = PARALLEL + ".threads";
+
+    private static volatile ForkJoinPool pool;
+
+    private ParallelDeployment() {
+        // no-op
+    }
+
+    public interface Task<T, R> {
+        R call(T item) throws Exception;
+    }
+
+    public static boolean isEnabled() {
+        return SystemInstance.get().getOptions().get(PARALLEL, false);
+    }
+
+    /**
+     * @return one future per item in the iteration order of the items, when the parallel deployment
+     * is disabled the tasks are already executed in the caller thread
+     */
+    public static <T, R> List<Future<R>> submit(final Collection<T> items, final Task<T, R> task) {
+        final boolean parallel = items.size() > 1 && isEnabled();
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+        final List<Future<R>> futures = new ArrayList<>(items.size());
+        for (final T item : items) {
+            final Callable<R> callable = new Callable<R>() {
+                @Override
+                public R call() throws Exception {
+                    final Thread thread = Thread.currentThread();
+                    final ClassLoader old = thread.getContextClassLoader();
+                    thread.setContextClassLoader(loader);
+                    try {
+                        return task.call(item);
+                    } finally {
+                        thread.setContextClassLoader(old);
+                    }
+                }
+            };
+
+            final FutureTask<R> future = new FutureTask<>(callable); // keeps checked exceptions as the cause
+            if (parallel) {
+                pool().execute(future);
+            } else {
+                future.run();
+            }
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for all the futures before failing with the first error, to not let tasks run in background.
+     */
+    public static <R> List<R> joinAll(final List<Future<R>> futures) throws OpenEJBException {
+        final List<R> results = new ArrayList<>(futures.size());
+        Exception error = null;
+        for (final Future<R> future : futures) {
+            try {
+                results.add(join(future));
+            } catch (final OpenEJBException | RuntimeException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        if (error instanceof OpenEJBException) {
+            throw (OpenEJBException) error;
+        }
+        if (error != null) {
+            throw (RuntimeException) error;
+        }
+        return results;
+    }
+
+    public static <R> R join(final Future<R> future) throws OpenEJBException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenEJBException(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof OpenEJBException) {
+                throw (OpenEJBException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new OpenEJBException(cause);
+        }
+    }
+
+    private static ForkJoinPool pool() {
+        if (pool == null) {
+            synchronized (ParallelDeployment.class) {
+                if (pool == null) {
+                    final int threads = SystemInstance.get().getOptions().get(THREADS, Runtime.getRuntime().availableProcessors());
+                    pool = new ForkJoinPool(Math.max(1, threads), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        @Override
+                        public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+                            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName("openejb-deployment-" + thread.getPoolIndex());
+                            return thread;
+                        }
+                    }, null, false);
+                }
+            }
+        }
+        return pool;
+    }
+}
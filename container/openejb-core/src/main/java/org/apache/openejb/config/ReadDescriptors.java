@@ -80,9 +80,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 public class ReadDescriptors implements DynamicDeployer {
     private static final Logger logger = Logger.getInstance(LogCategory.OPENEJB_STARTUP, ReadDescriptors.class);
@@ -93,98 +95,31 @@ public class ReadDescriptors implements DynamicDeployer {
 
     @SuppressWarnings({"unchecked"})
     public AppModule deploy(final AppModule appModule) throws OpenEJBException {
-        for (final EjbModule ejbModule : appModule.getEjbModules()) {
-
-            if (ejbModule.getEjbJar() == null) {
-                readEjbJar(ejbModule, appModule);
-            }
-
-            if (ejbModule.getOpenejbJar() == null) {
-                readOpenejbJar(ejbModule);
-            }
-
-            if (ejbModule.getBeans() == null) {
-                readBeans(ejbModule);
+        // each module only reads its own descriptors so they can be read concurrently
+        final List<Module> modules = new ArrayList<>();
+        modules.addAll(appModule.getEjbModules());
+        modules.addAll(appModule.getClientModules());
+        modules.addAll(appModule.getConnectorModules());
+        modules.addAll(appModule.getWebModules());
+        ParallelDeployment.joinAll(ParallelDeployment.submit(modules, new ParallelDeployment.Task<Module, Void>() {
+            @Override
+            public Void call(final Module module) throws Exception {
+                readModule(module, appModule);
+                return null;
             }
-
-            readValidationConfigType(ejbModule);
-            readCmpOrm(ejbModule);
-            readResourcesXml(ejbModule);
-        }
-
-        for (final ClientModule clientModule : appModule.getClientModules()) {
-            readAppClient(clientModule, appModule);
-            readValidationConfigType(clientModule);
-            readResourcesXml(clientModule);
-        }
-
-        for (final ConnectorModule connectorModule : appModule.getConnectorModules()) {
-            readConnector(connectorModule, appModule);
-            readValidationConfigType(connectorModule);
-            readResourcesXml(connectorModule);
-        }
-
-        for (final WebModule webModule : appModule.getWebModules()) {
-            readWebApp(webModule, appModule);
-            readValidationConfigType(webModule);
-            readResourcesXml(webModule);
-        }
+        }));
 
         final List<Object> persistenceUrls = (List<Object>) appModule.getAltDDs().get("persistence.xml");
         if (persistenceUrls != null) {
-            for (final Object persistenceUrl : persistenceUrls) {
-                final boolean url = persistenceUrl instanceof URL;
-                final Source source = getSource(persistenceUrl);
-
-                final String moduleName;
-                final String path;
-                final String rootUrl;
-                if (url) {
-                    final URL pUrl = (URL) persistenceUrl;
-                    File file = URLs.toFile(pUrl);
-                    path = file.getAbsolutePath();
-
-                    if (file.getName().endsWith("persistence.xml")) {
-                        final File parentFile = file.getParentFile();
-                        final String parent = parentFile.getName();
-                        if (parent.equalsIgnoreCase("WEB-INF") || parent.equalsIgnoreCase("META-INF")) {
-                            file = parentFile.getParentFile();
-                        } else { // we don't really know so simply go back (users will often put persistence.xml in root resource folder with arquillian)
-                            file = file.getParentFile();
-                        }
-                    }
-                    moduleName = file.toURI().toString();
-
-                    String tmpRootUrl = moduleName;
-
-                    final String extForm = pUrl.toExternalForm();
-                    if (extForm.contains("WEB-INF/classes/META-INF/")) {
-                        if (!ROOT_URL_FROM_WEBINF) {
-                            tmpRootUrl = extForm.substring(0, extForm.indexOf("/META-INF"));
-                        } else {
-                            tmpRootUrl = extForm.substring(0, extForm.indexOf("/classes/META-INF"));
-                        }
-                    }
-                    if (tmpRootUrl.endsWith(".war")) {
-                        tmpRootUrl = tmpRootUrl.substring(0, tmpRootUrl.length() - ".war".length());
-                    }
-                    rootUrl = tmpRootUrl;
-                } else {
-                    moduleName = "";
-                    rootUrl = "";
-                    path = null;
+            final List<Future<PersistenceModule>> persistenceModules = ParallelDeployment.submit(persistenceUrls, new ParallelDeployment.Task<Object, PersistenceModule>() {
+                @Override
+                public PersistenceModule call(final Object persistenceUrl) {
+                    return readPersistenceModule(appModule, persistenceUrl);
                 }
-
-                try {
-                    final Persistence persistence = JaxbPersistenceFactory.getPersistence(Persistence.class, source.get());
-                    final PersistenceModule persistenceModule = new PersistenceModule(appModule, rootUrl, persistence);
-                    persistenceModule.getWatchedResources().add(moduleName);
-                    if (url && "file".equals(((URL) persistenceUrl).getProtocol())) {
-                        persistenceModule.getWatchedResources().add(path);
-                    }
+            });
+            for (final PersistenceModule persistenceModule : ParallelDeployment.joinAll(persistenceModules)) {
+                if (persistenceModule != null) {
                     appModule.addPersistenceModule(persistenceModule);
-                } catch (final Exception e1) {
-                    DeploymentLoader.LOGGER.error("Unable to load Persistence Unit from EAR: " + appModule.getJarLocation() + ", module: " + moduleName + ". Exception: " + e1.getMessage(), e1);
                 }
             }
         }
@@ -246,6 +181,93 @@ public class ReadDescriptors implements DynamicDeployer {
         return appModule;
     }
 
+    private void readModule(final Module module, final AppModule appModule) throws OpenEJBException {
+        if (module instanceof EjbModule) {
+            final EjbModule ejbModule = (EjbModule) module;
+            if (ejbModule.getEjbJar() == null) {
+                readEjbJar(ejbModule, appModule);
+            }
+
+            if (ejbModule.getOpenejbJar() == null) {
+                readOpenejbJar(ejbModule);
+            }
+
+            if (ejbModule.getBeans() == null) {
+                readBeans(ejbModule);
+            }
+
+            readValidationConfigType(ejbModule);
+            readCmpOrm(ejbModule);
+        } else if (module instanceof ClientModule) {
+            readAppClient((ClientModule) module, appModule);
+            readValidationConfigType(module);
+        } else if (module instanceof ConnectorModule) {
+            readConnector((ConnectorModule) module, appModule);
+            readValidationConfigType(module);
+        } else if (module instanceof WebModule) {
+            readWebApp((WebModule) module, appModule);
+            readValidationConfigType(module);
+        }
+        readResourcesXml(module);
+    }
+
+    private static PersistenceModule readPersistenceModule(final AppModule appModule, final Object persistenceUrl) {
+        final boolean url = persistenceUrl instanceof URL;
+        final Source source = getSource(persistenceUrl);
+
+        final String moduleName;
+        final String path;
+        final String rootUrl;
+        if (url) {
+            final URL pUrl = (URL) persistenceUrl;
+            File file = URLs.toFile(pUrl);
+            path = file.getAbsolutePath();
+
+            if (file.getName().endsWith("persistence.xml")) {
+                final File parentFile = file.getParentFile();
+                final String parent = parentFile.getName();
+                if (parent.equalsIgnoreCase("WEB-INF") || parent.equalsIgnoreCase("META-INF")) {
+                    file = parentFile.getParentFile();
+                } else { // we don't really know so simply go back (users will often put persistence.xml in root resource folder with arquillian)
+                    file = file.getParentFile();
+                }
+            }
+            moduleName = file.toURI().toString();
+
+            String tmpRootUrl = moduleName;
+
+            final String extForm = pUrl.toExternalForm();
+            if (extForm.contains("WEB-INF/classes/META-INF/")) {
+                if (!ROOT_URL_FROM_WEBINF) {
+                    tmpRootUrl = extForm.substring(0, extForm.indexOf("/META-INF"));
+                } else {
+                    tmpRootUrl = extForm.substring(0, extForm.indexOf("/classes/META-INF"));
+                }
+            }
+            if (tmpRootUrl.endsWith(".war")) {
+                tmpRootUrl = tmpRootUrl.substring(0, tmpRootUrl.length() - ".war".length());
+            }
+            rootUrl = tmpRootUrl;
+        } else {
+            moduleName = "";
+            rootUrl = "";
+            path = null;
+        }
+
+        try {
+            final Persistence persistence = JaxbPersistenceFactory.getPersistence(Persistence.class, source.get());
+            final PersistenceModule persistenceModule = new PersistenceModule(appModule, rootUrl, persistence);
+            persistenceModule.getWatchedResources().add(moduleName);
+            if (url && "file".equals(((URL) persistenceUrl).getProtocol())) {
+                persistenceModule.getWatchedResources().add(path);
+            }
+            return persistenceModule;
+        } catch (final Exception e1) {
+            DeploymentLoader.LOGGER.error("Unable to load Persistence Unit from EAR: " + appModule.getJarLocation() + ", module: " + moduleName + ". Exception: " + e1.getMessage(), e1);
+            return null;
+        }
+    }
+
     public static void readResourcesXml(final Module module) {
         { // xml
             final Source url = getSource(module.getAltDDs().get("resources.xml"));
@@ -37,6 +37,8 @@ public class SingletonContainerBuilder extends Container {
     @XmlJavaTypeAdapter(DurationAdapter.class)
     @XmlAttribute
     private Duration accessTimeout = Duration.parse("30 seconds");
+    @XmlAttribute
+    private String lockStrategy = "reentrant";
 
     public SingletonContainerBuilder() {
         setClassName("org.apache.openejb.core.singleton.SingletonContainer");
@@ -73,6 +75,19 @@ public class SingletonContainerBuilder extends Container {
         setAccessTimeout(new Duration(time, unit));
     }
 
+    public SingletonContainerBuilder withLockStrategy(final String lockStrategy) {
+        this.lockStrategy = lockStrategy;
+        return this;
+    }
+
+    public void setLockStrategy(final String lockStrategy) {
+        this.lockStrategy = lockStrategy;
+    }
+
+    public String getLockStrategy() {
+        return lockStrategy;
+    }
+
     public Properties getProperties() {
         return Builders.getProperties(this);
     }
@@ -43,6 +43,8 @@ public class StatelessContainerBuilder extends Container {
     private int minSize;
     @XmlAttribute
     private boolean strictPooling = true;
+    @XmlAttribute
+    private boolean stripedPooling;
     @XmlJavaTypeAdapter(DurationAdapter.class)
     @XmlAttribute
     private Duration maxAge = Duration.parse("0 hours");
@@ -140,6 +142,19 @@ public class StatelessContainerBuilder extends Container {
         return strictPooling;
     }
 
+    public StatelessContainerBuilder withStripedPooling(final boolean stripedPooling) {
+        this.stripedPooling = stripedPooling;
+        return this;
+    }
+
+    public void setStripedPooling(final boolean stripedPooling) {
+        this.stripedPooling = stripedPooling;
+    }
+
+    public boolean getStripedPooling() {
+        return stripedPooling;
+    }
+
     public StatelessContainerBuilder withMaxAge(final Duration maxAge) {
         this.maxAge = maxAge;
         return this;
@@ -194,7 +194,7 @@ public class CoreContainerSystem implements ContainerSystem {
         return context;
     }
 
-    public synchronized Object[] getAppContextKeys() {
+    public Object[] getAppContextKeys() {
         return apps.keySet().toArray();
     }
 }
@@ -59,11 +59,11 @@ import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.openejb.core.transaction.EjbTransactionUtil.afterInvoke;
 import static org.apache.openejb.core.transaction.EjbTransactionUtil.createTransactionPolicy;
@@ -81,14 +81,14 @@ public class CmpContainer implements RpcContainer {
     /**
      * Index used for getDeployments() and getDeploymentInfo(deploymentId).
      */
-    protected final Map<Object, BeanContext> deploymentsById = new HashMap<>();
+    protected final Map<Object, BeanContext> deploymentsById = new ConcurrentHashMap<>();
 
     /**
      * When events are fired from the CMP engine only an entity bean instance is returned.  The type of the bean is used
      * to find the deployment info.  This means that when the same type is used multiple ejb deployments a random deployment
      * will be selected to handle the ejb callback.
      */
-    protected final Map<Class, BeanContext> beansByClass = new HashMap<>();
+    protected final Map<Class, BeanContext> beansByClass = new ConcurrentHashMap<>();
 
     /**
      * The CmpEngine which performs the actual persistence operations
@@ -145,12 +145,12 @@ public class CmpContainer implements RpcContainer {
     }
 
     @Override
-    public synchronized BeanContext[] getBeanContexts() {
+    public BeanContext[] getBeanContexts() {
         return deploymentsById.values().toArray(new BeanContext[deploymentsById.size()]);
     }
 
     @Override
-    public synchronized BeanContext getBeanContext(final Object deploymentID) {
+    public BeanContext getBeanContext(final Object deploymentID) {
         return deploymentsById.get(deploymentID);
     }
 
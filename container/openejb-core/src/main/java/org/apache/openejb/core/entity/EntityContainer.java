@@ -52,10 +52,10 @@ import java.lang.reflect.Method;
 import java.rmi.NoSuchObjectException;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.openejb.core.transaction.EjbTransactionUtil.afterInvoke;
 import static org.apache.openejb.core.transaction.EjbTransactionUtil.createTransactionPolicy;
@@ -69,7 +69,7 @@ public class EntityContainer implements RpcContainer {
 
     private final EntityInstanceManager instanceManager;
 
-    private final Map<String, BeanContext> deploymentRegistry = new HashMap<>();
+    private final Map<String, BeanContext> deploymentRegistry = new ConcurrentHashMap<>();
 
     private final Object containerID;
 
@@ -90,12 +90,12 @@ public class EntityContainer implements RpcContainer {
     }
 
     @Override
-    public synchronized BeanContext[] getBeanContexts() {
+    public BeanContext[] getBeanContexts() {
         return deploymentRegistry.values().toArray(new BeanContext[deploymentRegistry.size()]);
     }
 
     @Override
-    public synchronized BeanContext getBeanContext(final Object deploymentID) {
+    public BeanContext getBeanContext(final Object deploymentID) {
         final String id = (String) deploymentID;
         return deploymentRegistry.get(id);
     }
@@ -112,10 +112,8 @@ public class EntityContainer implements RpcContainer {
 
     @Override
     public void deploy(final BeanContext beanContext) throws OpenEJBException {
-        synchronized (this) {
-            deploymentRegistry.put((String) beanContext.getDeploymentID(), beanContext);
-            beanContext.setContainer(this);
-        }
+        deploymentRegistry.put((String) beanContext.getDeploymentID(), beanContext);
+        beanContext.setContainer(this);
         instanceManager.deploy(beanContext);
     }
 
@@ -136,11 +134,9 @@ public class EntityContainer implements RpcContainer {
     public void undeploy(final BeanContext info) throws OpenEJBException {
         instanceManager.undeploy(info);
 
-        synchronized (this) {
-            final String id = (String) info.getDeploymentID();
-            deploymentRegistry.remove(id);
-            info.setContainer(null);
-        }
+        final String id = (String) info.getDeploymentID();
+        deploymentRegistry.remove(id);
+        info.setContainer(null);
     }
 
     @Override
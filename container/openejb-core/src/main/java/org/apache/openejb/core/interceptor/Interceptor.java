@@ -24,7 +24,7 @@ import java.lang.reflect.Method;
  */
 public class Interceptor {
     private final Object instance;
-    private final Method method;
+    private final MethodInvoker invoker;
 
     public Interceptor(final Object instance, final Method method) {
         if (instance == null) {
@@ -34,7 +34,18 @@ public class Interceptor {
             throw new NullPointerException("method is null");
         }
         this.instance = instance;
-        this.method = method;
+        this.invoker = MethodInvoker.of(method);
+    }
+
+    public Interceptor(final Object instance, final MethodInvoker invoker) {
+        if (instance == null) {
+            throw new NullPointerException("instance is null");
+        }
+        if (invoker == null) {
+            throw new NullPointerException("invoker is null");
+        }
+        this.instance = instance;
+        this.invoker = invoker;
     }
 
     public Object getInstance() {
@@ -42,6 +53,10 @@ public class Interceptor {
     }
 
     public Method getMethod() {
-        return method;
+        return invoker.getMethod();
+    }
+
+    public MethodInvoker getInvoker() {
+        return invoker;
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.interceptor;
+
+import org.apache.openejb.core.Operation;
+import org.apache.openejb.util.proxy.DynamicProxyImplFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The interceptor methods applying to one operation of a bean method, resolved once
+ * and bound to the interceptor instances of a bean instance on each invocation.
+ */
+public final class InterceptorChain {
+    private final String[] types;
+    private final MethodInvoker[] invokers;
+
+    private InterceptorChain(final String[] types, final MethodInvoker[] invokers) {
+        this.types = types;
+        this.invokers = invokers;
+    }
+
+    public static InterceptorChain of(final List<InterceptorData> interceptorData, final Operation operation) {
+        if (interceptorData == null) {
+            throw new NullPointerException("interceptorData is null");
+        }
+
+        final List<String> types = new ArrayList<>();
+        final List<MethodInvoker> invokers = new ArrayList<>();
+        for (final InterceptorData data : interceptorData) {
+            final Set<Method> methods = data.getMethods(operation);
+            for (final Method method : methods) {
+                types.add(data.getInterceptorClass().getName());
+                invokers.add(MethodInvoker.of(method));
+            }
+        }
+        return new InterceptorChain(types.toArray(new String[types.size()]), invokers.toArray(new MethodInvoker[invokers.size()]));
+    }
+
+    public boolean isEmpty() {
+        return types.length == 0;
+    }
+
+    public List<Interceptor> bind(final Map<String, Object> interceptorInstances) {
+        if (interceptorInstances == null) {
+            throw new NullPointerException("interceptorInstances is null");
+        }
+        if (types.length == 0) {
+            return Collections.emptyList();
+        }
+
+        final List<Interceptor> interceptors = new ArrayList<>(types.length);
+        for (int i = 0; i < types.length; i++) {
+            final Object interceptorInstance = interceptorInstances.get(types[i]);
+            if (interceptorInstance == null) {
+                throw new IllegalArgumentException("No interceptor of type " + types[i]);
+            }
+
+            final MethodInvoker invoker = invokers[i];
+            final Object handler = DynamicProxyImplFactory.realHandler(interceptorInstance);
+            if (handler != null && invoker.getMethod().getDeclaringClass().equals(handler.getClass())) { // dynamic impl
+                interceptors.add(new Interceptor(handler, invoker));
+            } else {
+                interceptors.add(new Interceptor(interceptorInstance, invoker));
+            }
+        }
+        return interceptors;
+    }
+}
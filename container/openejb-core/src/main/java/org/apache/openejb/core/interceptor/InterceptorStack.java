@@ -19,6 +19,7 @@ package org.apache.openejb.core.interceptor;
 
 import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.util.proxy.DynamicProxyImplFactory;
 
 import javax.interceptor.InvocationContext;
@@ -58,9 +59,13 @@ public class InterceptorStack {
             }
 
             final Set<Method> methods = data.getMethods(operation);
+            if (methods.isEmpty()) {
+                continue;
+            }
+
+            final Object handler = DynamicProxyImplFactory.realHandler(interceptorInstance);
             for (final Method method : methods) {
                 final Interceptor interceptor;
-                final Object handler = DynamicProxyImplFactory.realHandler(interceptorInstance);
                 if (handler != null && method.getDeclaringClass().equals(handler.getClass())) { // dynamic impl
                     interceptor = new Interceptor(handler, method);
                 } else {
@@ -72,11 +77,19 @@ public class InterceptorStack {
 
     }
 
+    public InterceptorStack(final Object beanInstance, final Method targetMethod, final Operation operation, final InterceptorChain chain, final Map<String, Object> interceptorInstances) {
+        this.beanInstance = beanInstance;
+        this.targetMethod = targetMethod;
+        this.operation = operation;
+        this.interceptors = chain.bind(interceptorInstances);
+    }
+
     public InvocationContext createInvocationContext(final Object... parameters) {
         return new ReflectionInvocationContext(operation, interceptors, beanInstance, targetMethod, parameters);
     }
 
     public Object invoke(final Object... parameters) throws Exception {
+        final long start = operation == Operation.BUSINESS ? InvocationMetrics.start() : 0;
         try {
             final InvocationContext invocationContext = createInvocationContext(parameters);
             if (ThreadContext.getThreadContext() != null) {
@@ -87,6 +100,7 @@ public class InterceptorStack {
             if (ThreadContext.getThreadContext() != null) {
                 ThreadContext.getThreadContext().remove(InvocationContext.class);
             }
+            InvocationMetrics.record(InvocationMetrics.Phase.INTERCEPTORS, start);
         }
     }
 
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.interceptor;
+
+import org.apache.openejb.loader.SystemInstance;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Invokes a bean or interceptor method through a {@link MethodHandle} compiled once per method.
+ *
+ * The handle is spread to a {@code (Object, Object[])Object} shape so the invocation chain can call
+ * {@link MethodHandle#invokeExact} without going through {@link Method#invoke} on every step.
+ * Invokers are cached per declaring class so they are released with the application class loader.
+ *
+ * Exceptions thrown by the target are rethrown as they are, the reflection {@link InvocationTargetException}
+ * wrapping is not used. Set {@code openejb.interceptor.method-handles=false} to fall back on reflection.
+ */
+public abstract class MethodInvoker {
+    public static final String METHOD_HANDLES = "openejb.interceptor.method-handles";
+
+    private static final MethodType GENERIC = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private static final ClassValue<ConcurrentMap<Method, MethodInvoker>> CACHE = new ClassValue<ConcurrentMap<Method, MethodInvoker>>() {
+        @Override
+        protected ConcurrentMap<Method, MethodInvoker> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    protected final Method method;
+
+    protected MethodInvoker(final Method method) {
+        this.method = method;
+    }
+
+    public static MethodInvoker of(final Method method) {
+        final ConcurrentMap<Method, MethodInvoker> invokers = CACHE.get(method.getDeclaringClass());
+        final MethodInvoker invoker = invokers.get(method);
+        if (invoker != null) {
+            return invoker;
+        }
+        return invokers.computeIfAbsent(method, MethodInvoker::create);
+    }
+
+    private static MethodInvoker create(final Method method) {
+        if (!SystemInstance.get().getOptions().get(METHOD_HANDLES, true)) {
+            return new ReflectionMethodInvoker(method);
+        }
+        try {
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity(); // varargs are already an array in args
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            handle = handle.asSpreader(Object[].class, method.getParameterCount()).asType(GENERIC);
+            return new HandleMethodInvoker(method, handle);
+        } catch (final IllegalAccessException | SecurityException e) {
+            return new ReflectionMethodInvoker(method);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @param target the instance the method is invoked on
+     * @param args   the method arguments, must match the method arity
+     * @return the method result, {@code null} for void methods
+     * @throws Exception the exception thrown by the target method itself
+     */
+    public abstract Object invoke(Object target, Object[] args) throws Exception;
+
+    private static Exception rethrow(final Throwable throwable) {
+        if (throwable instanceof Exception) {
+            return (Exception) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        throw new AssertionError(throwable);
+    }
+
+    private static final class HandleMethodInvoker extends MethodInvoker {
+        private final MethodHandle handle;
+
+        private HandleMethodInvoker(final Method method, final MethodHandle handle) {
+            super(method);
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object[] args) throws Exception {
+            try {
+                return handle.invokeExact(target, args);
+            } catch (final Throwable throwable) {
+                throw rethrow(throwable);
+            }
+        }
+    }
+
+    private static final class ReflectionMethodInvoker extends MethodInvoker {
+        private ReflectionMethodInvoker(final Method method) {
+            super(method);
+        }
+
+        @Override
+        public Object invoke(final Object target, final Object[] args) throws Exception {
+            try {
+                return method.invoke(target, args);
+            } catch (final InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause == null) {
+                    throw e;
+                }
+                throw rethrow(cause);
+            }
+        }
+    }
+}
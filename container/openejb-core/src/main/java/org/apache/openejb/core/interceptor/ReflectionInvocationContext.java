@@ -18,11 +18,11 @@
 package org.apache.openejb.core.interceptor;
 
 import org.apache.openejb.core.Operation;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.util.Classes;
 
 import javax.interceptor.InvocationContext;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.List;
@@ -33,6 +33,8 @@ import java.util.TreeMap;
  * @version $Rev$ $Date$
  */
 public class ReflectionInvocationContext implements InvocationContext {
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
     private final Iterator<Interceptor> interceptors;
     private final Object target;
     private final Method method;
@@ -154,23 +156,24 @@ public class ReflectionInvocationContext implements InvocationContext {
         if (interceptors.hasNext()) {
             final Interceptor interceptor = interceptors.next();
             final Object nextInstance = interceptor.getInstance();
-            final Method nextMethod = interceptor.getMethod();
+            final MethodInvoker nextInvoker = interceptor.getInvoker();
+            final Method nextMethod = nextInvoker.getMethod();
 
-            if (nextMethod.getParameterTypes().length == 1 && nextMethod.getParameterTypes()[0] == InvocationContext.class) {
-                return new InterceptorInvocation(nextInstance, nextMethod, this);
+            if (nextMethod.getParameterCount() == 1 && nextMethod.getParameterTypes()[0] == InvocationContext.class) {
+                return new InterceptorInvocation(nextInstance, nextInvoker, this);
             } else {
-                return new LifecycleInvocation(nextInstance, nextMethod, this, parameters);
+                return new LifecycleInvocation(nextInstance, nextInvoker, this, parameters);
             }
         } else if (method != null) {
             //EJB 3.1, it is allowed that timeout method does not have parameter Timer.class,
             //However, while invoking the timeout method, the timer value is passed, as it is also required by InnvocationContext.getTimer() method
             final Object[] methodParameters;
-            if (operation.equals(Operation.TIMEOUT) && method.getParameterTypes().length == 0) {
-                methodParameters = new Object[0];
+            if (operation.equals(Operation.TIMEOUT) && method.getParameterCount() == 0) {
+                methodParameters = NO_PARAMETERS;
             } else {
                 methodParameters = parameters;
             }
-            return new BeanInvocation(target, method, methodParameters);
+            return new BeanInvocation(target, MethodInvoker.of(method), methodParameters, operation == Operation.BUSINESS);
         } else {
             return new NoOpInvocation();
         }
@@ -181,54 +184,65 @@ public class ReflectionInvocationContext implements InvocationContext {
         // The bulk of the logic of this method has intentionally been moved
         // out so stepping through a large stack in a debugger can be done quickly.
         // Simply put one break point on 'next.invoke()' or one inside that method.
-        try {
-            final Invocation next = next();
-            return next.invoke();
-        } catch (final InvocationTargetException e) {
-            throw unwrapInvocationTargetException(e);
-        }
+        // Exceptions of the target come unwrapped from the MethodInvoker.
+        final Invocation next = next();
+        return next.invoke();
     }
 
     private abstract static class Invocation {
-        private final Method method;
+        private final MethodInvoker invoker;
         private final Object[] args;
         private final Object target;
 
-        public Invocation(final Object target, final Method method, final Object[] args) {
+        public Invocation(final Object target, final MethodInvoker invoker, final Object[] args) {
             this.target = target;
-            this.method = method;
+            this.invoker = invoker;
             this.args = args;
         }
 
         public Object invoke() throws Exception {
 
-            final Object value = method.invoke(target, args);
+            final Object value = invoker.invoke(target, args);
             return value;
         }
 
 
         public String toString() {
+            final Method method = invoker.getMethod();
             return method.getDeclaringClass().getName() + "." + method.getName();
         }
     }
 
     private static class BeanInvocation extends Invocation {
-        public BeanInvocation(final Object target, final Method method, final Object[] args) {
-            super(target, method, args);
+        private final boolean business;
+
+        public BeanInvocation(final Object target, final MethodInvoker invoker, final Object[] args, final boolean business) {
+            super(target, invoker, args);
+            this.business = business;
+        }
+
+        @Override
+        public Object invoke() throws Exception {
+            final long start = business ? InvocationMetrics.start() : 0;
+            try {
+                return super.invoke();
+            } finally {
+                InvocationMetrics.record(InvocationMetrics.Phase.BEAN, start);
+            }
         }
     }
 
     private static class InterceptorInvocation extends Invocation {
-        public InterceptorInvocation(final Object target, final Method method, final InvocationContext invocationContext) {
-            super(target, method, new Object[]{invocationContext});
+        public InterceptorInvocation(final Object target, final MethodInvoker invoker, final InvocationContext invocationContext) {
+            super(target, invoker, new Object[]{invocationContext});
         }
     }
 
     private static class LifecycleInvocation extends Invocation {
         private final InvocationContext invocationContext;
 
-        public LifecycleInvocation(final Object target, final Method method, final InvocationContext invocationContext, final Object[] args) {
-            super(target, method, args);
+        public LifecycleInvocation(final Object target, final MethodInvoker invoker, final InvocationContext invocationContext, final Object[] args) {
+            super(target, invoker, args);
             this.invocationContext = invocationContext;
         }
 
@@ -247,34 +261,11 @@ public class ReflectionInvocationContext implements InvocationContext {
             super(null, null, null);
         }
 
-        public Object invoke() throws IllegalAccessException, InvocationTargetException {
+        public Object invoke() {
             return null;
         }
     }
 
-    // todo verify excpetion types
-
-    /**
-     * Business method interceptors can only throw exception allowed by the target business method.
-     * Lifecycle interceptors can only throw RuntimeException.
-     *
-     * @param e the invocation target exception of a reflection method invoke
-     * @return the cause of the exception
-     * @throws AssertionError if the cause is not an Exception or Error.
-     */
-    private Exception unwrapInvocationTargetException(final InvocationTargetException e) {
-        final Throwable cause = e.getCause();
-        if (cause == null) {
-            return e;
-        } else if (cause instanceof Exception) {
-            return (Exception) cause;
-        } else if (cause instanceof Error) {
-            throw (Error) cause;
-        } else {
-            throw new AssertionError(cause);
-        }
-    }
-
     public String toString() {
         final String methodName = method != null ? method.getName() : null;
 
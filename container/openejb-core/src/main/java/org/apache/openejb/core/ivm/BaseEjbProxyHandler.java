@@ -27,6 +27,7 @@ import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
 import org.apache.openejb.core.ThreadContextListener;
 import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.spi.ContainerSystem;
 import org.apache.openejb.spi.SecurityService;
 import org.apache.openejb.util.proxy.LocalBeanProxyFactory;
@@ -60,7 +61,6 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.math.BigDecimal;
 import java.rmi.AccessException;
 import java.rmi.NoSuchObjectException;
 import java.rmi.Remote;
@@ -308,6 +308,8 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
 
         Class interfce = getInvokedInterface(method);
 
+        final Method invoked = method;
+        final InvocationMetrics.Invocation metrics = InvocationMetrics.enter();
         final ThreadContext callContext = ThreadContext.getThreadContext();
         final Object localClientIdentity = ClientSecurity.getIdentity();
         try {
@@ -315,27 +317,34 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
                 final SecurityService securityService = SystemInstance.get().getComponent(SecurityService.class);
                 securityService.associate(localClientIdentity);
             }
+            IntraVmCopyPlan plan = null;
             if (strategy == CLASSLOADER_COPY || getBeanContext().getInterfaceType(interfce) == InterfaceType.BUSINESS_REMOTE) {
 
+                final long copyStart = InvocationMetrics.start();
+                plan = getBeanContext().getCopyPlan(method);
                 IntraVmCopyMonitor.pre(strategy);
                 final ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
                 Thread.currentThread().setContextClassLoader(getBeanContext().getClassLoader());
                 try {
-                    args = copyArgs(args);
+                    args = copyArgs(plan, args);
                     method = copyMethod(method);
                     interfce = copyObj(interfce);
                 } finally {
                     Thread.currentThread().setContextClassLoader(oldClassLoader);
                     IntraVmCopyMonitor.post();
+                    InvocationMetrics.record(InvocationMetrics.Phase.COPY, copyStart);
                 }
 
             } else if (strategy == COPY && args != null && args.length > 0) {
 
+                final long copyStart = InvocationMetrics.start();
+                plan = getBeanContext().getCopyPlan(method);
                 IntraVmCopyMonitor.pre(strategy);
                 try {
-                    args = copyArgs(args);
+                    args = copyArgs(plan, args);
                 } finally {
                     IntraVmCopyMonitor.post();
+                    InvocationMetrics.record(InvocationMetrics.Phase.COPY, copyStart);
                 }
             }
 
@@ -346,10 +355,25 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
 
             try {
 
-                final Object returnValue = _invoke(proxy, interfce, method, args);
-                return copy(strategy, returnValue);
+                final long containerStart = InvocationMetrics.start();
+                final Object returnValue;
+                try {
+                    returnValue = _invoke(proxy, interfce, method, args);
+                } finally {
+                    InvocationMetrics.container(metrics, containerStart);
+                }
+                if (returnValue != null && strategy.isCopy()) {
+                    if (plan == null) {
+                        plan = getBeanContext().getCopyPlan(method);
+                    }
+                    if (plan.isImmutableReturn(strategy == CLASSLOADER_COPY)) {
+                        plan.count(IntraVmCopyPlan.Path.REFERENCE);
+                        return returnValue;
+                    }
+                }
+                return copy(strategy, plan, returnValue);
             } catch (Throwable throwable) {
-                throwable = copy(strategy, throwable);
+                throwable = copy(strategy, plan, throwable);
                 throw convertException(throwable, method, interfce);
             } finally {
                 strategy = oldStrategy;
@@ -360,19 +384,22 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
                 final SecurityService securityService = SystemInstance.get().getComponent(SecurityService.class);
                 securityService.disassociate();
             }
+            InvocationMetrics.exit(metrics, beanContextRef.get(), invoked);
         }
     }
 
-    private <T> T copy(final IntraVmCopyMonitor.State strategy, final T object) throws IOException, ClassNotFoundException {
+    private <T> T copy(final IntraVmCopyMonitor.State strategy, final IntraVmCopyPlan plan, final T object) throws IOException, ClassNotFoundException {
         if (object == null || !strategy.isCopy()) {
             return object;
         }
 
+        final long start = InvocationMetrics.start();
         IntraVmCopyMonitor.pre(strategy);
         try {
-            return copyObj(object);
+            return copyObj(object, plan);
         } finally {
             IntraVmCopyMonitor.post();
+            InvocationMetrics.record(InvocationMetrics.Phase.COPY, start);
         }
     }
 
@@ -564,33 +591,55 @@ public abstract class BaseEjbProxyHandler implements InvocationHandler, Serializ
         return objects;
     }
 
+    private Object[] copyArgs(final IntraVmCopyPlan plan, final Object[] objects) throws IOException, ClassNotFoundException {
+        if (objects == null) {
+            return objects;
+        }
+
+        final boolean crossClassLoader = IntraVmCopyMonitor.isCrossClassLoaderOperation();
+        for (int i = 0; i < objects.length; i++) {
+            if (objects[i] != null && plan.isImmutableParameter(i, crossClassLoader)) {
+                plan.count(IntraVmCopyPlan.Path.REFERENCE);
+            } else {
+                objects[i] = copyObj(objects[i], plan);
+            }
+        }
+
+        return objects;
+    }
+
     /* change dereference to copy */
     protected <T> T copyObj(final T object) throws IOException, ClassNotFoundException {
-        // Check for primitive and other known class types that are immutable.  If detected
-        // we can safely return them.
+        return copyObj(object, null);
+    }
+
+    private <T> T copyObj(final T object, final IntraVmCopyPlan plan) throws IOException, ClassNotFoundException {
+        // Check for known class types that are immutable or cheap to clone.  If detected
+        // we can safely skip the serialization.
         if (object == null) {
             return null;
         }
-        final Class ooc = object.getClass();
-        if (ooc == int.class ||
-            ooc == String.class ||
-            ooc == long.class ||
-            ooc == boolean.class ||
-            ooc == byte.class ||
-            ooc == float.class ||
-            ooc == double.class ||
-            ooc == short.class ||
-            ooc == Long.class ||
-            ooc == Boolean.class ||
-            ooc == Byte.class ||
-            ooc == Character.class ||
-            ooc == Float.class ||
-            ooc == Double.class ||
-            ooc == Short.class ||
-            ooc == BigDecimal.class) {
+
+        final boolean crossClassLoader = IntraVmCopyMonitor.isCrossClassLoaderOperation();
+        if (IntraVmCopyPlan.isImmutable(object, crossClassLoader)) {
+            if (plan != null) {
+                plan.count(IntraVmCopyPlan.Path.REFERENCE);
+            }
             return object;
         }
 
+        final Object clone = IntraVmCopyPlan.cloneStructure(object, crossClassLoader);
+        if (clone != null) {
+            if (plan != null) {
+                plan.count(IntraVmCopyPlan.Path.CLONE);
+            }
+            return (T) clone;
+        }
+
+        if (plan != null) {
+            plan.count(IntraVmCopyPlan.Path.SERIALIZATION);
+        }
+
         final ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
         try {
             final ObjectOutputStream out = new ObjectOutputStream(baos);
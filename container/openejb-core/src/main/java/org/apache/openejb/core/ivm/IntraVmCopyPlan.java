@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.ivm;
+
+import org.apache.openejb.monitoring.Managed;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How the arguments and the returned value of a remote business method are copied for an intra-VM call.
+ *
+ * The declared types are resolved once per method: a parameter declared with an immutable type is always
+ * passed by reference. Other values are checked at invocation time, immutable instances are passed by reference,
+ * JDK collections and arrays only holding immutable values are cloned and anything else goes through
+ * java serialization as before.
+ *
+ * Application types (enums typically) are never shared across classloaders, in that case they are serialized.
+ */
+public final class IntraVmCopyPlan {
+
+    public enum Path {
+        REFERENCE, CLONE, SERIALIZATION
+    }
+
+    private static final Class<?>[] IMMUTABLES = {
+        String.class, Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class,
+        Float.class, Double.class, BigDecimal.class, BigInteger.class, UUID.class,
+        Instant.class, Duration.class, Period.class, LocalDate.class, LocalTime.class, LocalDateTime.class,
+        OffsetTime.class, OffsetDateTime.class, ZonedDateTime.class, ZoneOffset.class,
+        Year.class, YearMonth.class, MonthDay.class
+    };
+
+    private final Method method;
+    // Used as the prefix for the MBeanAttributeInfo
+    private final String signature;
+    private final boolean[] immutableParameters;
+    private final boolean[] sharedParameters;
+    private final boolean immutableReturn;
+    private final boolean sharedReturn;
+    private final LongAdder[] counters = new LongAdder[Path.values().length];
+
+    public IntraVmCopyPlan(final Method method) {
+        this.method = method;
+
+        final Class<?>[] types = method.getParameterTypes();
+        final StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        for (int i = 0; i < types.length; i++) {
+            signature.append(i == 0 ? "" : ",").append(types[i].getSimpleName());
+        }
+        this.signature = signature.append(')').toString();
+
+        this.immutableParameters = new boolean[types.length];
+        this.sharedParameters = new boolean[types.length];
+        for (int i = 0; i < types.length; i++) {
+            immutableParameters[i] = isImmutableType(types[i], false);
+            sharedParameters[i] = isImmutableType(types[i], true);
+        }
+        this.immutableReturn = isImmutableType(method.getReturnType(), false);
+        this.sharedReturn = isImmutableType(method.getReturnType(), true);
+
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return true if the declared type of the parameter guarantees it can be passed by reference
+     */
+    public boolean isImmutableParameter(final int index, final boolean crossClassLoader) {
+        return index < immutableParameters.length && (crossClassLoader ? sharedParameters[index] : immutableParameters[index]);
+    }
+
+    public boolean isImmutableReturn(final boolean crossClassLoader) {
+        return crossClassLoader ? sharedReturn : immutableReturn;
+    }
+
+    @Managed
+    public long getReferenceCount() {
+        return getCount(Path.REFERENCE);
+    }
+
+    @Managed
+    public long getCloneCount() {
+        return getCount(Path.CLONE);
+    }
+
+    @Managed
+    public long getSerializationCount() {
+        return getCount(Path.SERIALIZATION);
+    }
+
+    public long getCount(final Path path) {
+        return counters[path.ordinal()].sum();
+    }
+
+    public void count(final Path path) {
+        counters[path.ordinal()].increment();
+    }
+
+    @Override
+    public String toString() {
+        return method.getDeclaringClass().getName() + "." + method.getName()
+            + "{reference=" + getCount(Path.REFERENCE)
+            + ", clone=" + getCount(Path.CLONE)
+            + ", serialization=" + getCount(Path.SERIALIZATION) + "}";
+    }
+
+    /**
+     * @return true if the instance can be shared between the caller and the bean
+     */
+    public static boolean isImmutable(final Object value, final boolean crossClassLoader) {
+        return value == null || isImmutableValueClass(value.getClass(), crossClassLoader);
+    }
+
+    /**
+     * Copies JDK collections and arrays only holding immutable values without serializing them.
+     *
+     * @return the copy or null if the value needs a serialization round trip
+     */
+    public static Object cloneStructure(final Object value, final boolean crossClassLoader) {
+        final Class<?> type = value.getClass();
+        if (type.isArray()) {
+            final Class<?> component = type.getComponentType();
+            if (component.isPrimitive()) {
+                final int length = Array.getLength(value);
+                final Object copy = Array.newInstance(component, length);
+                System.arraycopy(value, 0, copy, 0, length);
+                return copy;
+            }
+            if (crossClassLoader && component.getClassLoader() != null) {
+                return null;
+            }
+            final Object[] array = (Object[]) value;
+            for (final Object item : array) {
+                if (!isImmutable(item, crossClassLoader)) {
+                    return null;
+                }
+            }
+            return Arrays.copyOf(array, array.length);
+        }
+
+        if (type == ArrayList.class || type == LinkedList.class || type == HashSet.class
+            || type == LinkedHashSet.class || type == ArrayDeque.class) {
+            final Collection<?> collection = (Collection<?>) value;
+            for (final Object item : collection) {
+                if (!isImmutable(item, crossClassLoader)) {
+                    return null;
+                }
+            }
+            if (type == ArrayList.class) {
+                return new ArrayList<>(collection);
+            } else if (type == LinkedList.class) {
+                return new LinkedList<>(collection);
+            } else if (type == HashSet.class) {
+                return new HashSet<>(collection);
+            } else if (type == LinkedHashSet.class) {
+                return new LinkedHashSet<>(collection);
+            }
+            return new ArrayDeque<>(collection);
+        }
+
+        if (type == HashMap.class || type == LinkedHashMap.class) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!isImmutable(entry.getKey(), crossClassLoader) || !isImmutable(entry.getValue(), crossClassLoader)) {
+                    return null;
+                }
+            }
+            return type == HashMap.class ? new HashMap<>(map) : new LinkedHashMap<>(map);
+        }
+
+        return null;
+    }
+
+    private static boolean isImmutableType(final Class<?> type, final boolean crossClassLoader) {
+        return type.isPrimitive() || (Modifier.isFinal(type.getModifiers()) || type.isEnum()) && isImmutableValueClass(type, crossClassLoader);
+    }
+
+    private static boolean isImmutableValueClass(final Class<?> type, final boolean crossClassLoader) {
+        for (final Class<?> immutable : IMMUTABLES) {
+            if (immutable == type) {
+                return true;
+            }
+        }
+        // serialization resolves enum constants by name so in the same classloader it is the same instance anyway
+        return !crossClassLoader && (type.isEnum() || type.getSuperclass() != null && type.getSuperclass().isEnum());
+    }
+}
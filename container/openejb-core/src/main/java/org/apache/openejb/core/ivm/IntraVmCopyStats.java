@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.ivm;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.monitoring.Managed;
+import org.apache.openejb.monitoring.ManagedCollection;
+
+import java.util.Collection;
+
+/**
+ * How the values of the intra-VM remote calls of a bean were copied, per method.
+ */
+public class IntraVmCopyStats {
+    private final BeanContext beanContext;
+
+    public IntraVmCopyStats(final BeanContext beanContext) {
+        this.beanContext = beanContext;
+    }
+
+    /**
+     * @return true if the bean has a remote view, the only one whose values are copied
+     */
+    public static boolean isCopied(final BeanContext beanContext) {
+        return beanContext.getRemoteInterface() != null || !beanContext.getBusinessRemoteInterfaces().isEmpty();
+    }
+
+    @Managed
+    public long getReferenceCount() {
+        return count(IntraVmCopyPlan.Path.REFERENCE);
+    }
+
+    @Managed
+    public long getCloneCount() {
+        return count(IntraVmCopyPlan.Path.CLONE);
+    }
+
+    @Managed
+    public long getSerializationCount() {
+        return count(IntraVmCopyPlan.Path.SERIALIZATION);
+    }
+
+    @ManagedCollection(type = IntraVmCopyPlan.class, key = "signature")
+    public Collection<IntraVmCopyPlan> plans() {
+        return beanContext.getCopyPlans();
+    }
+
+    private long count(final IntraVmCopyPlan.Path path) {
+        long count = 0;
+        for (final IntraVmCopyPlan plan : beanContext.getCopyPlans()) {
+            count += plan.getCount(path);
+        }
+        return count;
+    }
+}
@@ -17,19 +17,32 @@
 
 package org.apache.openejb.core.ivm.naming;
 
+import org.apache.openejb.JndiConstants;
+import org.apache.openejb.core.ivm.IntraVmProxy;
 import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.spi.ContainerSystem;
 import org.apache.openejb.util.Strings;
 
+import javax.naming.Context;
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class IntraVmJndiReference extends Reference {
+    public static final String CACHE_RESOLVED_REFERENCES = "openejb.jndi.reference.cache";
 
     private final String jndiName;
 
+    // resources and persistence units are bound once in the global tree so their resolution can be kept,
+    // opt-in since a resource can be bound as a reference creating a new instance for each lookup
+    private final boolean cacheable;
+    private transient volatile IvmContext.CachedBinding cached;
+
     public IntraVmJndiReference(final String jndiName) {
         this.jndiName = jndiName;
+        this.cacheable = (jndiName.startsWith(JndiConstants.OPENEJB_RESOURCE_JNDI_PREFIX)
+            || jndiName.startsWith(JndiConstants.PERSISTENCE_UNIT_NAMING_CONTEXT))
+            && SystemInstance.get().getOptions().get(CACHE_RESOLVED_REFERENCES, false);
     }
 
     public String getJndiName() {
@@ -37,9 +50,25 @@ public class IntraVmJndiReference extends Reference {
     }
 
     public Object getObject() throws NamingException {
+        final IvmContext.CachedBinding binding = cached;
+        if (binding != null && binding.isValid()) {
+            final JndiLookupMetrics metrics = IvmContext.getLookupMetrics();
+            if (metrics != null) {
+                metrics.referenceCacheHit();
+            }
+            return binding.value;
+        }
+
         final ContainerSystem containerSystem = SystemInstance.get().getComponent(ContainerSystem.class);
         try {
-            return containerSystem.getJNDIContext().lookup(jndiName);
+            final Context context = containerSystem.getJNDIContext();
+            final AtomicLong tree = cacheable && context instanceof IvmContext ? IvmContext.class.cast(context).generation() : null;
+            final long generation = tree != null ? tree.get() : 0;
+            final Object value = context.lookup(jndiName);
+            if (tree != null && value != null && !(value instanceof IntraVmProxy) && !(value instanceof ContextualJndiReference)) {
+                cached = new IvmContext.CachedBinding(value, tree, generation);
+            }
+            return value;
         } catch (final NameNotFoundException e) { // EE.5.18: try using java:module/<shortName> prefix
             return containerSystem.getJNDIContext().lookup("java:module/" + Strings.lastPart(getClassName(), '.'));
         } catch (final NamingException e) {
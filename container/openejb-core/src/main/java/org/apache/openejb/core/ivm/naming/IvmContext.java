@@ -58,6 +58,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
 * This class wrappers a specific NameNode which is the data model for the JNDI
@@ -72,10 +73,19 @@ public class IvmContext implements Context, Serializable {
     private static final long serialVersionUID = -626353930051783641L;
     Hashtable<String, Object> myEnv;
     boolean readOnly;
-    Map<String, Object> fastCache = new ConcurrentHashMap<>();
+    Map<String, CachedBinding> fastCache = new ConcurrentHashMap<>();
     static final String JNDI_EXCEPTION_ON_FAILED_WRITE = "openejb.jndiExceptionOnFailedWrite";
     public NameNode mynode;
 
+    /*
+     * "java:" and "openejb:" names are parsed once, the set of names used by an application is small
+     * but we don't want to grow forever with generated names.
+     */
+    private static final int MAX_PREFIXED_NAMES = 4096;
+    private static final Map<String, PrefixedName> PREFIXED_NAMES = new ConcurrentHashMap<>();
+
+    private static volatile JndiLookupMetrics lookupMetrics;
+
     public static IvmContext createRootContext() {
         return new IvmContext();
     }
@@ -108,7 +118,46 @@ public class IvmContext implements Context, Serializable {
 
     }
 
+    public static JndiLookupMetrics getLookupMetrics() {
+        return lookupMetrics;
+    }
+
+    /**
+     * @param metrics the metrics to record the lookups in or null to stop recording them
+     */
+    public static void setLookupMetrics(final JndiLookupMetrics metrics) {
+        lookupMetrics = metrics;
+    }
+
+    /*
+     * Bumped by every change of the tree of this context, cached lookups of an older generation are resolved again.
+     */
+    AtomicLong generation() {
+        return mynode.getGeneration();
+    }
+
+    private void changed() {
+        generation().incrementAndGet();
+    }
+
     public Object lookup(final String compositName) throws NamingException {
+        final JndiLookupMetrics metrics = lookupMetrics;
+        if (metrics == null) {
+            return doLookup(compositName);
+        }
+
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Object obj = doLookup(compositName);
+            failed = false;
+            return obj;
+        } finally {
+            metrics.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Object doLookup(final String compositName) throws NamingException {
         if (compositName.isEmpty()) {
             return this;
         }
@@ -116,27 +165,12 @@ public class IvmContext implements Context, Serializable {
         final String compoundName;
         final int index = compositName.indexOf(':');
         if (index > -1) {
-
-            final String prefix = compositName.substring(0, index);
-
-            String path = compositName.substring(index + 1);
-            final ParsedName name = new ParsedName(path);
-
-            if (prefix.equals("openejb")) {
-                path = name.path();
-                return openejbURLContextFactory.getContext().lookup(path);
-            } else if (prefix.equals("java")) {
-                if (name.getComponent().equals("openejb")) {
-                    path = name.remaining().path();
-                    return openejbURLContextFactory.getContext().lookup(path);
-                } else {
-                    path = name.path();
-                    return javaURLContextFactory.getContext().lookup(path);
-                }
-            } else {
-                // we don't know what the prefix means, throw an exception
-                throw new NamingException("Unknown JNDI name prefix '" + prefix + ":'");
+            final PrefixedName name = prefixedName(compositName, index);
+            final Context context = name.openejb ? openejbURLContextFactory.getContext() : javaURLContextFactory.getContext();
+            if (context.getClass() == IvmContext.class) { // already measured
+                return IvmContext.class.cast(context).doLookup(name.path);
             }
+            return context.lookup(name.path);
         } else {
             /*
               the resolve method always starts with the comparison assuming that the first
@@ -151,8 +185,17 @@ public class IvmContext implements Context, Serializable {
            it will be in the fastCache which is significantly faster then peruse the Node graph.
            80 ms compared to 300 ms for a full node path search.
         */
-        Object obj = fastCache.get(compoundName);
-        if (obj == null) {
+        final CachedBinding cached = fastCache.get(compoundName);
+        Object obj;
+        if (cached != null && cached.isValid()) {
+            obj = cached.value;
+            final JndiLookupMetrics metrics = lookupMetrics;
+            if (metrics != null) {
+                metrics.cacheHit();
+            }
+        } else {
+            final AtomicLong tree = generation();
+            final long generation = tree.get();
             try {
                 obj = mynode.resolve(new ParsedName(compoundName), readOnly);
             } catch (final NameNotFoundException nnfe) {
@@ -160,8 +203,8 @@ public class IvmContext implements Context, Serializable {
             }
 
             // don't cache proxies
-            if (!(obj instanceof IntraVmProxy) && !(obj instanceof ContextualJndiReference)) {
-                fastCache.put(compoundName, obj);
+            if (obj != null && !(obj instanceof IntraVmProxy) && !(obj instanceof ContextualJndiReference)) {
+                fastCache.put(compoundName, new CachedBinding(obj, tree, generation));
             }
         }
 
@@ -186,11 +229,38 @@ public class IvmContext implements Context, Serializable {
                 obj = ((Reference)obj).getObject();
             }
         } else if (obj instanceof LinkRef) {
-            obj = lookup(((LinkRef) obj).getLinkName());
+            obj = doLookup(((LinkRef) obj).getLinkName());
         }
         return obj;
     }
 
+    private static PrefixedName prefixedName(final String compositName, final int index) throws NamingException {
+        PrefixedName name = PREFIXED_NAMES.get(compositName);
+        if (name != null) {
+            return name;
+        }
+
+        final String prefix = compositName.substring(0, index);
+        final ParsedName parsed = new ParsedName(compositName.substring(index + 1));
+        if (prefix.equals("openejb")) {
+            name = new PrefixedName(true, parsed.path());
+        } else if (prefix.equals("java")) {
+            if (parsed.getComponent().equals("openejb")) {
+                name = new PrefixedName(true, parsed.remaining().path());
+            } else {
+                name = new PrefixedName(false, parsed.path());
+            }
+        } else {
+            // we don't know what the prefix means, throw an exception
+            throw new NamingException("Unknown JNDI name prefix '" + prefix + ":'");
+        }
+
+        if (PREFIXED_NAMES.size() < MAX_PREFIXED_NAMES) {
+            PREFIXED_NAMES.put(compositName, name);
+        }
+        return name;
+    }
+
     protected Object federate(final String compositName) throws NamingException {
         final ObjectFactory[] factories = getFederatedFactories();
         for (final ObjectFactory factory : factories) {
@@ -320,6 +390,7 @@ public class IvmContext implements Context, Serializable {
         } else {
             final ParsedName parsedName = getParsedNameFor(name);
             mynode.bind(parsedName, obj);
+            changed();
         }
     }
 
@@ -360,6 +431,7 @@ public class IvmContext implements Context, Serializable {
         mynode.clearCache();
 
         mynode.unbind(getParsedNameFor(name));
+        changed();
     }
 
     public void unbind(final Name name) throws NamingException {
@@ -373,6 +445,7 @@ public class IvmContext implements Context, Serializable {
 
     public void prune() throws NamingException {
         mynode.prune();
+        changed();
     }
 
     public void rename(final String oldname, final String newname) throws NamingException {
@@ -433,7 +506,9 @@ public class IvmContext implements Context, Serializable {
         if (fastCache.containsKey(name)) {
             throw new NameAlreadyBoundException();
         } else {
-            return mynode.createSubcontext(getParsedNameFor(name), readOnly);
+            final IvmContext subcontext = mynode.createSubcontext(getParsedNameFor(name), readOnly);
+            changed();
+            return subcontext;
         }
     }
 
@@ -673,6 +748,35 @@ public class IvmContext implements Context, Serializable {
                 '}';
     }
 
+    /*
+     * A resolved binding and the generation of the tree it was resolved from.
+     */
+    static final class CachedBinding {
+        final Object value;
+        private final AtomicLong tree;
+        private final long generation;
+
+        CachedBinding(final Object value, final AtomicLong tree, final long generation) {
+            this.value = value;
+            this.tree = tree;
+            this.generation = generation;
+        }
+
+        boolean isValid() {
+            return generation == tree.get();
+        }
+    }
+
+    private static final class PrefixedName {
+        private final boolean openejb;
+        private final String path;
+
+        private PrefixedName(final boolean openejb, final String path) {
+            this.openejb = openejb;
+            this.path = path;
+        }
+    }
+
     protected Object writeReplace() throws ObjectStreamException {
         if (IntraVmCopyMonitor.isStatefulPassivationOperation()) {
             return new JndiEncArtifact(this);
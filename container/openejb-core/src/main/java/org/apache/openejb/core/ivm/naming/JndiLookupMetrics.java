@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.ivm.naming;
+
+import org.apache.openejb.api.internal.Internal;
+import org.apache.openejb.api.jmx.Description;
+import org.apache.openejb.api.jmx.ManagedAttribute;
+import org.apache.openejb.api.jmx.ManagedOperation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of the lookups done on the IntraVM JNDI tree, enabled with openejb.jndi.lookup.metrics=true.
+ * Lookups done to resolve a reference (a resource-ref for instance) are counted as well.
+ */
+@Internal
+@Description("IntraVM JNDI lookups")
+public class JndiLookupMetrics {
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder time = new LongAdder();
+    private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder referenceCacheHits = new LongAdder();
+
+    void record(final long nanos, final boolean failed) {
+        lookups.increment();
+        time.add(nanos);
+        maxTime.accumulate(nanos);
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    void referenceCacheHit() {
+        referenceCacheHits.increment();
+    }
+
+    @ManagedAttribute
+    @Description("Number of lookups.")
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    @ManagedAttribute
+    @Description("Number of lookups which failed.")
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @ManagedAttribute
+    @Description("Average lookup time in microseconds.")
+    public double getAverageLookupTime() {
+        final long count = lookups.sum();
+        return count == 0 ? 0 : time.sum() / (double) count / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @ManagedAttribute
+    @Description("Slowest lookup time in microseconds.")
+    public double getMaxLookupTime() {
+        return maxTime.get() / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @ManagedAttribute
+    @Description("Lookups served by the cache of their context.")
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @ManagedAttribute
+    @Description("Resource and persistence unit references served by their cache.")
+    public long getReferenceCacheHits() {
+        return referenceCacheHits.sum();
+    }
+
+    @ManagedOperation
+    @Description("Reset the statistics.")
+    public void reset() {
+        lookups.reset();
+        failures.reset();
+        time.reset();
+        maxTime.reset();
+        cacheHits.reset();
+        referenceCacheHits.reset();
+    }
+}
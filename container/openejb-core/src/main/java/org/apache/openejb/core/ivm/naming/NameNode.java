@@ -26,6 +26,7 @@ import javax.naming.NamingException;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NameNode implements Serializable {
     private final String atomicName;
@@ -39,12 +40,21 @@ public class NameNode implements Serializable {
     private transient IvmContext myContext;
     private boolean unbound;
     private boolean subTreeUnbound;
+    // shared by all the nodes of a tree, bumped by every change of the tree
+    private final AtomicLong generation;
 
     public NameNode(final NameNode parent, final ParsedName name, final Object obj, final NameNode parentTree) {
         atomicName = name.getComponent();
         atomicHash = name.getComponentHashCode();
         this.parent = parent;
         this.parentTree = parentTree;
+        if (parentTree != null) {
+            generation = parentTree.generation;
+        } else if (parent != null) {
+            generation = parent.generation;
+        } else {
+            generation = new AtomicLong();
+        }
         if (name.next()) {
             subTree = new NameNode(this, name, obj, this);
         } else if (obj instanceof Context) {
@@ -405,6 +415,10 @@ public class NameNode implements Serializable {
         }
     }
 
+    AtomicLong getGeneration() {
+        return generation;
+    }
+
     public String getAtomicName() {
         return atomicName;
     }
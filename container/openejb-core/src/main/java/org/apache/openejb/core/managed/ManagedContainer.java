@@ -31,8 +31,10 @@ import org.apache.openejb.core.ExceptionType;
 import org.apache.openejb.core.InstanceContext;
 import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
+import org.apache.openejb.core.interceptor.InterceptorChain;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorStack;
+import org.apache.openejb.core.ivm.IntraVmCopyStats;
 import org.apache.openejb.core.managed.Cache.CacheFilter;
 import org.apache.openejb.core.managed.Cache.CacheListener;
 import org.apache.openejb.core.transaction.BeanTransactionPolicy;
@@ -95,20 +97,32 @@ public class ManagedContainer implements RpcContainer {
     /**
      * Index used for getDeployments() and getDeploymentInfo(deploymentId).
      */
-    protected final Map<Object, BeanContext> deploymentsById = new HashMap<>();
+    protected final Map<Object, BeanContext> deploymentsById = new ConcurrentHashMap<>();
 
     protected final Cache<Object, Instance> cache;
     private final ConcurrentHashMap<Object, Instance> checkedOutInstances = new ConcurrentHashMap<>();
     private final SessionContext sessionContext;
 
     public ManagedContainer(final Object id, final SecurityService securityService) throws SystemException {
-        this.cache = new SimpleCache<>(null, new SimplePassivater(), 1000, 50, new Duration("1 hour"));
+        this.cache = new SimpleCache<>(null, createPassivator(), 1000, 50, new Duration("1 hour"));
         this.containerID = id;
         this.securityService = securityService;
         cache.setListener(new StatefulCacheListener());
         sessionContext = new ManagedContext(securityService, new ManagedUserTransaction(new EjbUserTransaction(), entityManagerRegistry));
     }
 
+    private static PassivationStrategy createPassivator() throws SystemException {
+        final String passivator = SystemInstance.get().getOptions().get("openejb.managed.passivator", SimplePassivater.class.getName()).trim();
+        if (SimplePassivater.class.getName().equals(passivator)) {
+            return new SimplePassivater();
+        }
+        try {
+            return PassivationStrategy.class.cast(ManagedContainer.class.getClassLoader().loadClass(passivator).newInstance());
+        } catch (final Exception e) {
+            throw new SystemException("Can't create the passivator " + passivator, e);
+        }
+    }
+
     private Map<Method, MethodType> getLifecycleMethodsOfInterface(final BeanContext beanContext) {
         final Map<Method, MethodType> methods = new HashMap<>();
 
@@ -235,12 +249,12 @@ public class ManagedContainer implements RpcContainer {
     }
 
     @Override
-    public synchronized BeanContext[] getBeanContexts() {
+    public BeanContext[] getBeanContexts() {
         return deploymentsById.values().toArray(new BeanContext[deploymentsById.size()]);
     }
 
     @Override
-    public synchronized BeanContext getBeanContext(final Object deploymentID) {
+    public BeanContext getBeanContext(final Object deploymentID) {
         return deploymentsById.get(deploymentID);
     }
 
@@ -315,6 +329,20 @@ public class ManagedContainer implements RpcContainer {
             } catch (final Exception e) {
                 logger.error("Unable to register MBean ", e);
             }
+
+            // register how the intra-VM remote calls copy their values
+            if (IntraVmCopyStats.isCopied(beanContext)) {
+                try {
+                    final ObjectName objectName = jmxName.set("j2eeType", "IntraVmCopies").build();
+                    if (server.isRegistered(objectName)) {
+                        server.unregisterMBean(objectName);
+                    }
+                    server.registerMBean(new ManagedMBean(new IntraVmCopyStats(beanContext)), objectName);
+                    data.jmxNames.add(objectName);
+                } catch (final Exception e) {
+                    logger.error("Unable to register MBean ", e);
+                }
+            }
         }
 
         try {
@@ -612,7 +640,7 @@ public class ManagedContainer implements RpcContainer {
                 callContext.set(Method.class, runMethod);
 
                 // Initialize interceptor stack
-                final List<InterceptorData> interceptors = beanContext.getMethodInterceptors(runMethod);
+                final InterceptorChain interceptors = beanContext.getInterceptorChain(runMethod, Operation.BUSINESS);
                 final InterceptorStack interceptorStack = new InterceptorStack(instance.bean, runMethod, Operation.BUSINESS, interceptors, instance.interceptors);
 
                 // Invoke
@@ -26,6 +26,7 @@ import org.apache.openejb.core.security.jaas.GroupPrincipal;
 import org.apache.openejb.core.security.jacc.BasicJaccProvider;
 import org.apache.openejb.core.security.jacc.BasicPolicyConfiguration;
 import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.spi.CallerPrincipal;
 import org.apache.openejb.spi.SecurityService;
 import org.apache.openejb.util.JavaSecurityManagers;
@@ -77,12 +78,15 @@ public abstract class AbstractSecurityService implements DestroyableResource, Se
     protected static final String KEY_REQUEST = "javax.servlet.http.HttpServletRequest";
     protected static final Set<String> KEYS = new HashSet<>(asList(KEY_REQUEST, KEY_SUBJECT));
 
+    public static final String AUTHORIZATION_CACHE = "openejb.security.authorization-cache";
+
     private static final Map<Object, Identity> identities = new ConcurrentHashMap<Object, Identity>();
     protected static final ThreadLocal<Identity> clientIdentity = new ThreadLocal<Identity>();
     protected String defaultUser = "guest";
     private String realmName = "PropertiesLogin";
     protected Subject defaultSubject;
     protected SecurityContext defaultContext;
+    private volatile Boolean authorizationCache;
 
     public AbstractSecurityService() {
         this(autoJaccProvider());
@@ -187,7 +191,7 @@ public abstract class AbstractSecurityService implements DestroyableResource, Se
         if (providedSecurityContext == null && (securityContext == null || securityContext == defaultSecurityContext)) {
             final Identity identity = clientIdentity.get();
             if (identity != null) {
-                securityContext = new SecurityContext(identity.subject);
+                securityContext = identity.getSecurityContext();
             } else {
                 securityContext = defaultSecurityContext;
             }
@@ -371,21 +375,49 @@ public abstract class AbstractSecurityService implements DestroyableResource, Se
 
     @Override
     public boolean isCallerAuthorized(final Method method, final InterfaceType type) {
+        final long start = InvocationMetrics.start();
+        try {
+            return doIsCallerAuthorized(method, type);
+        } finally {
+            InvocationMetrics.record(InvocationMetrics.Phase.SECURITY, start);
+        }
+    }
+
+    private boolean doIsCallerAuthorized(final Method method, final InterfaceType type) {
         final ThreadContext threadContext = ThreadContext.getThreadContext();
         final BeanContext beanContext = threadContext.getBeanContext();
+        final Identity currentIdentity = clientIdentity.get();
+        final SecurityContext securityContext;
+        if (currentIdentity == null) {
+            securityContext = threadContext.get(SecurityContext.class);
+        } else {
+            securityContext = currentIdentity.getSecurityContext();
+        }
+
+        if (!isAuthorizationCacheEnabled()) {
+            return checkPermission(securityContext, beanContext, method, type);
+        }
+
+        final AuthorizationKey key = new AuthorizationKey(beanContext, method, type);
+        final Boolean cached = securityContext.getDecision(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long generation = BasicPolicyConfiguration.getGeneration();
+        final boolean authorized = checkPermission(securityContext, beanContext, method, type);
+        securityContext.putDecision(key, authorized, generation);
+        return authorized;
+    }
+
+    private static boolean checkPermission(final SecurityContext securityContext, final BeanContext beanContext,
+                                           final Method method, final InterfaceType type) {
         try {
             final String ejbName = beanContext.getEjbName();
             String name = type == null ? null : type.getSpecName();
             if ("LocalBean".equals(name) || "LocalBeanHome".equals(name)) {
                 name = null;
             }
-            final Identity currentIdentity = clientIdentity.get();
-            final SecurityContext securityContext;
-            if (currentIdentity == null) {
-                securityContext = threadContext.get(SecurityContext.class);
-            } else {
-                securityContext = new SecurityContext(currentIdentity.getSubject());
-            }
             securityContext.acc.checkPermission(new EJBMethodPermission(ejbName, name, method));
         } catch (final AccessControlException e) {
             return false;
@@ -393,6 +425,22 @@ public abstract class AbstractSecurityService implements DestroyableResource, Se
         return true;
     }
 
+    /**
+     * Decisions only depend on the subject and the policy configurations when the built-in provider is used,
+     * a custom provider or policy may decide on anything so they are not cached unless explicitly asked.
+     */
+    private boolean isAuthorizationCacheEnabled() {
+        Boolean enabled = authorizationCache;
+        if (enabled == null) {
+            final JaccProvider provider = JaccProvider.get();
+            final boolean builtIn = provider != null && provider.getClass() == BasicJaccProvider.class
+                    && JaccProvider.Policy.class.isInstance(Policy.getPolicy());
+            enabled = SystemInstance.get().getOptions().get(AUTHORIZATION_CACHE, builtIn);
+            authorizationCache = enabled;
+        }
+        return enabled;
+    }
+
     protected static String autoJaccProvider() {
         return SystemInstance.isInitialized() ?
                 SystemInstance.get().getProperty(JaccProvider.class.getName(), BasicJaccProvider.class.getName()) :
@@ -510,17 +558,82 @@ public abstract class AbstractSecurityService implements DestroyableResource, Se
         public final Subject subject;
         public final AccessControlContext acc;
 
+        // authorization decisions of this subject, dropped with it on logout
+        private volatile Decisions decisions;
+
         @SuppressWarnings("unchecked")
         public SecurityContext(final Subject subject) {
             this.subject = subject;
             this.acc = (AccessControlContext) Subject.doAsPrivileged(subject, (PrivilegedAction) AccessController::getContext, null);
         }
+
+        private Boolean getDecision(final AuthorizationKey key) {
+            final Decisions current = decisions;
+            if (current == null || current.generation != BasicPolicyConfiguration.getGeneration()) {
+                return null;
+            }
+            return current.values.get(key);
+        }
+
+        private void putDecision(final AuthorizationKey key, final boolean authorized, final long generation) {
+            if (generation != BasicPolicyConfiguration.getGeneration()) { // the policy changed while we were checking
+                return;
+            }
+
+            Decisions current = decisions;
+            if (current == null || current.generation != generation) {
+                current = new Decisions(generation);
+                decisions = current;
+            }
+            current.values.put(key, authorized);
+        }
+    }
+
+    private static final class Decisions {
+        private final long generation;
+        private final Map<AuthorizationKey, Boolean> values = new ConcurrentHashMap<>();
+
+        private Decisions(final long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private static final class AuthorizationKey {
+        private final BeanContext beanContext;
+        private final Method method;
+        private final InterfaceType type;
+        private final int hash;
+
+        private AuthorizationKey(final BeanContext beanContext, final Method method, final InterfaceType type) {
+            this.beanContext = beanContext;
+            this.method = method;
+            this.type = type;
+            this.hash = 31 * (31 * System.identityHashCode(beanContext) + method.hashCode()) + (type == null ? 0 : type.hashCode());
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!AuthorizationKey.class.isInstance(o)) {
+                return false;
+            }
+            final AuthorizationKey that = AuthorizationKey.class.cast(o);
+            return beanContext == that.beanContext && type == that.type && method.equals(that.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     protected static class Identity implements Serializable {
 
         private final Subject subject;
         private final UUID token;
+        private transient volatile SecurityContext securityContext;
 
         public Identity(final Subject subject) {
             this.subject = subject;
@@ -536,6 +649,18 @@ public abstract class AbstractSecurityService implements DestroyableResource, Se
             return subject;
         }
 
+        /**
+         * @return the context of this subject, created once since building its AccessControlContext is not free
+         */
+        public SecurityContext getSecurityContext() {
+            SecurityContext context = securityContext;
+            if (context == null) {
+                context = new SecurityContext(subject);
+                securityContext = context;
+            }
+            return context;
+        }
+
         public UUID getToken() {
             return token;
         }
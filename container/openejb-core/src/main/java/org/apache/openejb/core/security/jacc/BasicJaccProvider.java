@@ -96,6 +96,7 @@ public class BasicJaccProvider extends JaccProvider {
     }
 
     public void refresh() {
+        BasicPolicyConfiguration.changed();
     }
 
     public boolean implies(final ProtectionDomain domain, final Permission permission) {
@@ -30,6 +30,7 @@ import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @version $Rev$ $Date$
@@ -39,6 +40,8 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
     static final int IN_SERVICE = 2;
     static final int DELETED = 3;
 
+    private static final AtomicLong GENERATION = new AtomicLong();
+
     private final String contextID;
     private int state;
     protected final Map<String, PermissionCollection> rolePermissionsMap = new LinkedHashMap<>();
@@ -54,6 +57,18 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         return contextID;
     }
 
+    /**
+     * @return a counter incremented each time a policy configuration changes, decisions cached under
+     * another value must be computed again
+     */
+    public static long getGeneration() {
+        return GENERATION.get();
+    }
+
+    protected static void changed() {
+        GENERATION.incrementAndGet();
+    }
+
     public boolean implies(final ProtectionDomain domain, final Permission permission) {
 
         if (excluded != null && excluded.implies(permission)) {
@@ -98,6 +113,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         if (state != OPEN) {
             throw new UnsupportedOperationException("Not in an open state");
         }
+        changed();
 
         PermissionCollection permissions = rolePermissionsMap.get(roleName);
         if (permissions == null) {
@@ -122,6 +138,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         if (state != OPEN) {
             throw new UnsupportedOperationException("Not in an open state");
         }
+        changed();
 
         if (unchecked == null) {
             unchecked = new DelegatePermissionCollection();
@@ -145,6 +162,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         if (state != OPEN) {
             throw new UnsupportedOperationException("Not in an open state");
         }
+        changed();
 
         if (excluded == null) {
             excluded = new DelegatePermissionCollection();
@@ -157,6 +175,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         if (state != OPEN) {
             throw new UnsupportedOperationException("Not in an open state");
         }
+        changed();
 
         rolePermissionsMap.remove(roleName);
     }
@@ -165,6 +184,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         if (state != OPEN) {
             throw new UnsupportedOperationException("Not in an open state");
         }
+        changed();
 
         unchecked = null;
     }
@@ -173,6 +193,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
         if (state != OPEN) {
             throw new UnsupportedOperationException("Not in an open state");
         }
+        changed();
 
         excluded = null;
     }
@@ -185,6 +206,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
 
     public void delete() throws PolicyContextException {
         state = DELETED;
+        changed();
     }
 
     public void commit() throws PolicyContextException {
@@ -192,6 +214,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
             throw new UnsupportedOperationException("Not in an open state");
         }
         state = IN_SERVICE;
+        changed();
     }
 
     public boolean inService() throws PolicyContextException {
@@ -210,6 +233,7 @@ public class BasicPolicyConfiguration implements PolicyConfiguration {
             excluded = null;
         }
         state = OPEN;
+        changed();
     }
 
     int getState() {
@@ -27,6 +27,7 @@ import org.apache.openejb.cdi.CurrentCreationalContext;
 import org.apache.openejb.core.ExceptionType;
 import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
+import org.apache.openejb.core.interceptor.InterceptorChain;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorStack;
 import org.apache.openejb.core.security.AbstractSecurityService;
@@ -34,6 +35,7 @@ import org.apache.openejb.core.timer.EjbTimerService;
 import org.apache.openejb.core.transaction.TransactionPolicy;
 import org.apache.openejb.core.webservices.AddressingSupport;
 import org.apache.openejb.core.webservices.NoAddressingSupport;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.spi.SecurityService;
 import org.apache.openejb.util.Duration;
 import org.apache.xbean.finder.ClassFinder;
@@ -51,6 +53,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Locale;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -68,7 +71,7 @@ public class SingletonContainer implements RpcContainer {
 
     private final SingletonInstanceManager instanceManager;
 
-    private final HashMap<String, BeanContext> deploymentRegistry = new HashMap<>();
+    private final Map<String, BeanContext> deploymentRegistry = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<Class<?>, List<Method>> interceptorCache = new ConcurrentHashMap<>();
 
@@ -91,13 +94,17 @@ public class SingletonContainer implements RpcContainer {
         this.accessTimeout = duration;
     }
 
+    public void setLockStrategy(final String lockStrategy) {
+        instanceManager.setLockStrategy(SingletonInstanceManager.LockStrategy.valueOf(lockStrategy.trim().toUpperCase(Locale.ENGLISH)));
+    }
+
     @Override
-    public synchronized BeanContext[] getBeanContexts() {
+    public BeanContext[] getBeanContexts() {
         return deploymentRegistry.values().toArray(new BeanContext[deploymentRegistry.size()]);
     }
 
     @Override
-    public synchronized BeanContext getBeanContext(final Object deploymentID) {
+    public BeanContext getBeanContext(final Object deploymentID) {
         final String id = (String) deploymentID;
         return deploymentRegistry.get(id);
     }
@@ -116,10 +123,8 @@ public class SingletonContainer implements RpcContainer {
     public void deploy(final BeanContext beanContext) throws OpenEJBException {
         instanceManager.deploy(beanContext);
         final String id = (String) beanContext.getDeploymentID();
-        synchronized (this) {
-            deploymentRegistry.put(id, beanContext);
-            beanContext.setContainer(this);
-        }
+        deploymentRegistry.put(id, beanContext);
+        beanContext.setContainer(this);
     }
 
     @Override
@@ -149,12 +154,10 @@ public class SingletonContainer implements RpcContainer {
 
         instanceManager.undeploy(beanContext);
 
-        synchronized (this) {
-            final String id = (String) beanContext.getDeploymentID();
-            beanContext.setContainer(null);
-            beanContext.setContainerData(null);
-            deploymentRegistry.remove(id);
-        }
+        final String id = (String) beanContext.getDeploymentID();
+        deploymentRegistry.remove(id);
+        beanContext.setContainer(null);
+        beanContext.setContainerData(null);
     }
 
     @Override
@@ -206,7 +209,9 @@ public class SingletonContainer implements RpcContainer {
                 return null;// EJBObject.remove( ) and other EJBObject methods are not process by the container
             }
 
+            final long poolStart = InvocationMetrics.start();
             final Instance instance = instanceManager.getInstance(callContext);
+            InvocationMetrics.record(InvocationMetrics.Phase.POOL, poolStart);
 
             callContext.setCurrentOperation(type == InterfaceType.TIMEOUT ? Operation.TIMEOUT : Operation.BUSINESS);
             callContext.setCurrentAllowedStates(null);
@@ -263,12 +268,9 @@ public class SingletonContainer implements RpcContainer {
                     callContext.setCurrentOperation(Operation.BUSINESS_WS);
                     returnValue = invokeWebService(args, beanContext, runMethod, instance);
                 } else {
-                    final List<InterceptorData> interceptors = beanContext.getMethodInterceptors(runMethod);
-                    final InterceptorStack interceptorStack = new InterceptorStack(instance.bean,
-                        runMethod,
-                        callType == InterfaceType.TIMEOUT ? Operation.TIMEOUT : Operation.BUSINESS,
-                        interceptors,
-                        instance.interceptors);
+                    final Operation operation = callType == InterfaceType.TIMEOUT ? Operation.TIMEOUT : Operation.BUSINESS;
+                    final InterceptorChain interceptors = beanContext.getInterceptorChain(runMethod, operation);
+                    final InterceptorStack interceptorStack = new InterceptorStack(instance.bean, runMethod, operation, interceptors, instance.interceptors);
                     returnValue = interceptorStack.invoke(args);
                 }
             } catch (final Throwable e) {// handle reflection exception
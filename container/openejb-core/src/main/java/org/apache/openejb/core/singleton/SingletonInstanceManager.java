@@ -27,10 +27,12 @@ import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorStack;
+import org.apache.openejb.core.ivm.IntraVmCopyStats;
 import org.apache.openejb.core.timer.TimerServiceWrapper;
 import org.apache.openejb.core.transaction.EjbTransactionUtil;
 import org.apache.openejb.core.transaction.TransactionPolicy;
 import org.apache.openejb.core.transaction.TransactionType;
+import org.apache.openejb.loader.Options;
 import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.monitoring.LocalMBeanServer;
 import org.apache.openejb.monitoring.ManagedMBean;
@@ -72,6 +74,7 @@ public class SingletonInstanceManager {
     private final SecurityService securityService;
     private final SingletonContext sessionContext;
     private final WebServiceContext webServiceContext;
+    private LockStrategy lockStrategy = LockStrategy.REENTRANT;
 
     public SingletonInstanceManager(final SecurityService securityService) {
         this.securityService = securityService;
@@ -79,6 +82,10 @@ public class SingletonInstanceManager {
         webServiceContext = new EjbWsContext(sessionContext);
     }
 
+    public void setLockStrategy(final LockStrategy lockStrategy) {
+        this.lockStrategy = lockStrategy;
+    }
+
     protected void start(final BeanContext beanContext) throws OpenEJBException {
         if (beanContext.isLoadOnStartup()) {
             initialize(beanContext);
@@ -195,6 +202,9 @@ public class SingletonInstanceManager {
             if (beanContext.isBeanManagedConcurrency()) {
                 // Bean-Managed Concurrency
                 lock = new BeanManagedLock();
+            } else if (((Data) beanContext.getContainerData()).lockStrategy == LockStrategy.STRIPED) {
+                // Container-Managed Concurrency, reader biased
+                lock = new StripedReadWriteLock();
             } else {
                 // Container-Managed Concurrency
                 lock = new ReentrantReadWriteLock();
@@ -325,6 +335,20 @@ public class SingletonInstanceManager {
             } catch (final Exception e) {
                 logger.error("Unable to register MBean ", e);
             }
+
+            // register how the intra-VM remote calls copy their values
+            if (IntraVmCopyStats.isCopied(beanContext)) {
+                try {
+                    final ObjectName objectName = jmxName.set("j2eeType", "IntraVmCopies").build();
+                    if (server.isRegistered(objectName)) {
+                        server.unregisterMBean(objectName);
+                    }
+                    server.registerMBean(new ManagedMBean(new IntraVmCopyStats(beanContext)), objectName);
+                    data.add(objectName);
+                } catch (final Exception e) {
+                    logger.error("Unable to register MBean ", e);
+                }
+            }
         }
 
         try {
@@ -359,9 +383,11 @@ public class SingletonInstanceManager {
         private final AtomicReference<Future<Instance>> singleton = new AtomicReference<>();
         private final List<ObjectName> jmxNames = new ArrayList<>();
         private final BeanContext info;
+        private final LockStrategy lockStrategy;
 
         public Data(final BeanContext info) {
             this.info = info;
+            this.lockStrategy = new Options(info.getProperties()).get("LockStrategy", SingletonInstanceManager.this.lockStrategy);
         }
 
         public ObjectName add(final ObjectName name) {
@@ -376,6 +402,10 @@ public class SingletonInstanceManager {
     }
 
 
+    public enum LockStrategy {
+        REENTRANT, STRIPED
+    }
+
     private static class BeanManagedLock implements ReadWriteLock {
         private final Lock lock = new Lock() {
             public void lock() {
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.singleton;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Reader biased read-write lock: a reader only locks the stripe of its thread so concurrent readers
+ * don't all update the same reader count, a writer locks every stripe in order.
+ *
+ * Reentrancy and timeouts behave as with a single ReentrantReadWriteLock: the writer can take
+ * the read lock, a reader can't upgrade and the timeout of a writer covers all the stripes.
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+    private final ReentrantReadWriteLock[] stripes;
+    private final int mask;
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+
+    public StripedReadWriteLock() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedReadWriteLock(final int concurrency) {
+        int size = 1;
+        while (size < concurrency) {
+            size <<= 1;
+        }
+        stripes = new ReentrantReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        mask = size - 1;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    public int getStripes() {
+        return stripes.length;
+    }
+
+    private Lock stripe() {
+        long id = Thread.currentThread().getId();
+        id ^= id >>> 16;
+        return stripes[(int) id & mask].readLock();
+    }
+
+    private void unlockWrite(final int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[i].writeLock().unlock();
+        }
+    }
+
+    private class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            stripe().lock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            stripe().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLock() {
+            return stripe().tryLock();
+        }
+
+        @Override
+        public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+            return stripe().tryLock(time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            stripe().unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition()");
+        }
+    }
+
+    private class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            for (final ReentrantReadWriteLock stripe : stripes) {
+                stripe.writeLock().lock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            int locked = 0;
+            try {
+                for (final ReentrantReadWriteLock stripe : stripes) {
+                    stripe.writeLock().lockInterruptibly();
+                    locked++;
+                }
+            } catch (final InterruptedException e) {
+                unlockWrite(locked);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            for (int i = 0; i < stripes.length; i++) {
+                if (!stripes[i].writeLock().tryLock()) {
+                    unlockWrite(i);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(time);
+            int locked = 0;
+            try {
+                for (final ReentrantReadWriteLock stripe : stripes) {
+                    if (!stripe.writeLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        unlockWrite(locked);
+                        return false;
+                    }
+                    locked++;
+                }
+            } catch (final InterruptedException e) {
+                unlockWrite(locked);
+                throw e;
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            unlockWrite(stripes.length);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("newCondition()");
+        }
+    }
+}
@@ -0,0 +1,700 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.SystemException;
+import org.apache.openejb.core.EnvProps;
+import org.apache.openejb.core.ivm.EjbObjectInputStream;
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.DaemonThreadFactory;
+import org.apache.openejb.util.Duration;
+import org.apache.openejb.util.JavaSecurityManagers;
+import org.apache.openejb.util.LogCategory;
+import org.apache.openejb.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Passivates beans in a segmented, memory mapped, append only log.
+ *
+ * Each record is {@code [length][crc32][type][expiration][key length][key][state]}, activating a bean appends
+ * a tombstone for its key. The location of the live records is only kept in memory and rebuilt
+ * by replaying the segments when the store is reopened, a torn record (bad length or checksum)
+ * ends the replay of its segment. Segments without live records are dropped and sparse ones are
+ * compacted by a background thread, always oldest first so a tombstone never outlives its record.
+ *
+ * The expiration of a record is the time the bean would time out if it stayed idle on disk. While the
+ * store is open the cache owns the life cycle of the beans it passivated, the records replayed from a
+ * previous run have no cache tracking them anymore so they are dropped once expired.
+ *
+ * Several passivaters can share the same base directory, each one locks its own store-N sub directory.
+ *
+ * Configuration (system properties):
+ * <ul>
+ *     <li>openejb.passivation.mapped.segment-size: size of a segment, default 64MB</li>
+ *     <li>openejb.passivation.mapped.compaction-ratio: live ratio under which a segment is compacted, default 0.5</li>
+ *     <li>openejb.passivation.mapped.sync: force the segment to the disk after each batch, default false</li>
+ *     <li>openejb.passivation.mapped.timeout: expiration of the beans without their own stateful timeout,
+ *     should match the container TimeOut, default 20 minutes</li>
+ * </ul>
+ */
+public class MappedPassivater implements PassivationStrategy {
+
+    private static final Logger logger = Logger.getInstance(LogCategory.OPENEJB, "org.apache.openejb.util.resources");
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER = 4 + 4; // length and crc
+    private static final int RECORD_HEADER = 1 + 8 + 4; // type, expiration and key length
+    private static final long NEVER = -1;
+
+    private File directory;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    private long segmentSize;
+    private double compactionRatio;
+    private boolean sync;
+    private long timeOut;
+
+    // serializes the compactions and keeps the segments they read mapped, acquired before this
+    private final Object compaction = new Object();
+
+    // guarded by this
+    private final Map<Object, Location> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private ExecutorService compactor;
+
+    public MappedPassivater() throws SystemException {
+        init(null);
+    }
+
+    @Override
+    public void init(Properties props) throws SystemException {
+        synchronized (compaction) {
+            synchronized (this) {
+                doInit(props);
+            }
+        }
+        scheduleCompaction();
+    }
+
+    private void doInit(Properties props) throws SystemException {
+        if (props == null) {
+            props = new Properties();
+        }
+        if (directory != null) {
+            close();
+        }
+
+        final Options options = SystemInstance.get().getOptions();
+        segmentSize = options.get("openejb.passivation.mapped.segment-size", 64L * 1024 * 1024);
+        compactionRatio = options.get("openejb.passivation.mapped.compaction-ratio", 0.5);
+        sync = options.get("openejb.passivation.mapped.sync", false);
+        timeOut = ms(options.get("openejb.passivation.mapped.timeout", "20 minutes"));
+
+        final String dir = props.getProperty(EnvProps.IM_PASSIVATOR_PATH_PREFIX);
+        try {
+            final File base;
+            if (dir != null) {
+                base = SystemInstance.get().getBase().getDirectory(dir);
+            } else {
+                base = new File(JavaSecurityManagers.getSystemProperty("java.io.tmpdir", File.separator + "tmp"), "openejb-passivation");
+            }
+            directory = claim(base);
+            open();
+
+            logger.info("Using directory " + directory + " for stateful session passivation, " + index.size() + " passivated beans recovered");
+        } catch (final IOException e) {
+            throw new SystemException(getClass().getName() + ".init(): can't use directory prefix " + dir + ":" + e, e);
+        }
+
+        compactor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Passivation compactor"));
+    }
+
+    @Override
+    public void passivate(final Map stateTable) throws SystemException {
+        // serialize outside of the lock, the log only copies bytes
+        final List<byte[][]> records = new ArrayList<>(stateTable.size());
+        final List<Object> keys = new ArrayList<>(stateTable.size());
+        final long[] expirations = new long[stateTable.size()];
+        final long now = System.currentTimeMillis();
+        for (final Object o : stateTable.entrySet()) {
+            final Map.Entry entry = (Map.Entry) o;
+            try {
+                records.add(new byte[][]{serialize(entry.getKey()), serialize(entry.getValue())});
+                expirations[keys.size()] = expiration(entry.getValue(), now);
+                keys.add(entry.getKey());
+            } catch (final NotSerializableException nse) {
+                logger.error("Passivation failed ", nse);
+                throw (SystemException) new SystemException("The type " + nse.getMessage() + " is not serializable as mandated by the EJB specification.").initCause(nse);
+            } catch (final IOException e) {
+                logger.error("Passivation failed ", e);
+                throw new SystemException(e);
+            }
+        }
+
+        synchronized (this) {
+            try {
+                for (int i = 0; i < records.size(); i++) {
+                    // the cache owns the life cycle of this bean, the expiration only matters for a replay
+                    index(append(PUT, expirations[i], records.get(i)[0], records.get(i)[1], keys.get(i), NEVER));
+                }
+                if (sync) {
+                    active.buffer.force();
+                }
+            } catch (final IOException e) {
+                logger.error("Passivation failed ", e);
+                throw new SystemException(e);
+            }
+        }
+
+        scheduleCompaction();
+    }
+
+    @Override
+    public Object activate(final Object primaryKey) throws SystemException {
+        final byte[] state;
+        synchronized (this) {
+            final Location location = unindex(primaryKey);
+            if (location == null) {
+                return null;
+            }
+
+            final ByteBuffer record = location.read();
+            record.get(); // type
+            record.getLong(); // expiration
+            final byte[] key = new byte[record.getInt()];
+            record.get(key);
+            state = new byte[record.remaining()];
+            record.get(state);
+
+            if (location.isExpired(System.currentTimeMillis())) {
+                // replayed bean timed out on disk, nothing to append, a new replay expires it again
+                return null;
+            }
+
+            try {
+                append(DELETE, 0, key, new byte[0], primaryKey, NEVER);
+            } catch (final IOException e) {
+                // the bean is activated anyway, it would only be replayed if the store is reopened
+                logger.warning("Can't write the activation of " + primaryKey + ": " + e.getMessage());
+            }
+        }
+
+        scheduleCompaction();
+
+        try (final ObjectInputStream ois = new EjbObjectInputStream(new ByteArrayInputStream(state))) {
+            return ois.readObject();
+        } catch (final Exception e) {
+            logger.info("Activation failed ", e);
+            throw new SystemException(e);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public void close() {
+        synchronized (compaction) {
+            synchronized (this) {
+                doClose();
+            }
+        }
+    }
+
+    private void doClose() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+            compactor = null;
+        }
+        for (final Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        index.clear();
+        active = null;
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (final IOException e) {
+            logger.debug("Can't release " + directory + ": " + e.getMessage());
+        }
+        lock = null;
+        lockChannel = null;
+        directory = null;
+    }
+
+    /**
+     * Drops the segments without live record and rewrites the live records of the sparse ones at the end of the log.
+     *
+     * The store lock is only held to inspect a segment and to append its live records again,
+     * they are read from the old segment without blocking the passivations and activations.
+     */
+    public void compact() {
+        synchronized (compaction) {
+            final List<Segment> candidates;
+            synchronized (this) {
+                candidates = new ArrayList<>(segments.values());
+            }
+
+            // a segment holding tombstones can only go when all the older ones are gone
+            boolean oldest = true;
+            for (final Segment segment : candidates) {
+                final List<Location> live;
+                synchronized (this) {
+                    if (segment == active || segments.get(segment.id) != segment) { // active or closed
+                        return;
+                    }
+
+                    expire(segment);
+                    if (segment.live == 0 && (oldest || segment.deletes == 0)) {
+                        drop(segment);
+                        continue;
+                    }
+                    if (!oldest || segment.live >= segment.position * compactionRatio) {
+                        oldest = false;
+                        continue;
+                    }
+                    live = new ArrayList<>(segment.records.values());
+                }
+
+                // only the compaction drops a segment so it stays mapped while its records are copied
+                final List<byte[][]> copies = new ArrayList<>(live.size());
+                for (final Location location : live) {
+                    final ByteBuffer record = location.read();
+                    record.get(); // type
+                    final byte[] expiration = new byte[8];
+                    record.get(expiration);
+                    final byte[] key = new byte[record.getInt()];
+                    record.get(key);
+                    final byte[] state = new byte[record.remaining()];
+                    record.get(state);
+                    copies.add(new byte[][]{expiration, key, state});
+                }
+
+                synchronized (this) {
+                    try {
+                        for (int i = 0; i < live.size(); i++) {
+                            final Location location = live.get(i);
+                            if (index.get(location.key) != location) { // activated or passivated again meanwhile
+                                continue;
+                            }
+                            final byte[][] copy = copies.get(i);
+                            index(append(PUT, ByteBuffer.wrap(copy[0]).getLong(), copy[1], copy[2], location.key, location.expiration));
+                        }
+                        if (sync) {
+                            active.buffer.force();
+                        }
+                    } catch (final IOException e) {
+                        logger.warning("Can't compact " + segment.file + ": " + e.getMessage());
+                        return;
+                    }
+                    drop(segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the replayed records of the segment that timed out on disk.
+     */
+    private void expire(final Segment segment) {
+        final long now = System.currentTimeMillis();
+        for (final Location location : new ArrayList<>(segment.records.values())) {
+            if (location.isExpired(now)) {
+                unindex(location.key);
+            }
+        }
+    }
+
+    private void index(final Location location) {
+        final Location previous = index.put(location.key, location);
+        if (previous != null) {
+            previous.segment.records.remove(previous.key);
+            previous.segment.live -= previous.size;
+        }
+        location.segment.records.put(location.key, location);
+    }
+
+    private Location unindex(final Object key) {
+        final Location location = index.remove(key);
+        if (location != null) {
+            location.segment.records.remove(key);
+            location.segment.live -= location.size;
+        }
+        return location;
+    }
+
+    private void scheduleCompaction() {
+        final ExecutorService executor = compactor;
+        if (executor != null && compactionScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    compactionScheduled.set(false);
+                    compact();
+                });
+            } catch (final RuntimeException e) { // shut down
+                compactionScheduled.set(false);
+            }
+        }
+    }
+
+    private void drop(final Segment segment) {
+        segments.remove(segment.id);
+        segment.close();
+        if (!segment.file.delete()) {
+            segment.file.deleteOnExit();
+        }
+    }
+
+    private Location append(final byte type, final long expiration, final byte[] key, final byte[] state,
+                            final Object primaryKey, final long indexExpiration) throws IOException {
+        final int length = RECORD_HEADER + key.length + state.length;
+        final int size = HEADER + length;
+        if (active == null || active.capacity() - active.position < size) {
+            if (active != null && sync) {
+                active.buffer.force();
+            }
+            final int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+            active = Segment.create(new File(directory, segmentName(id)), id, Math.max(segmentSize, size));
+            segments.put(id, active);
+        }
+
+        final Segment segment = active;
+        final int offset = segment.position;
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset + HEADER);
+        buffer.put(type);
+        buffer.putLong(expiration);
+        buffer.putInt(key.length);
+        buffer.put(key);
+        buffer.put(state);
+
+        final ByteBuffer payload = segment.buffer.duplicate();
+        payload.position(offset + HEADER);
+        payload.limit(offset + size);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        // length last, a zero length marks the end of the segment if we crash before
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putInt(offset, length);
+        segment.position += size;
+
+        if (type == PUT) {
+            segment.live += size;
+        } else {
+            segment.deletes++;
+        }
+        return new Location(primaryKey, segment, offset, size, indexExpiration);
+    }
+
+    private void open() throws IOException {
+        final File[] files = directory.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".log"));
+        if (files == null) {
+            return;
+        }
+
+        for (final File file : files) {
+            final String name = file.getName();
+            try {
+                final int id = Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+                segments.put(id, Segment.create(file, id, file.length()));
+            } catch (final NumberFormatException nfe) {
+                logger.warning("Ignoring " + file);
+            }
+        }
+
+        for (final Segment segment : segments.values()) {
+            replay(segment);
+            active = segment;
+        }
+    }
+
+    private void replay(final Segment segment) {
+        final MappedByteBuffer buffer = segment.buffer;
+        final long now = System.currentTimeMillis();
+        int offset = 0;
+        while (offset + HEADER + RECORD_HEADER <= buffer.capacity()) {
+            final int length = buffer.getInt(offset);
+            if (length < RECORD_HEADER || offset + HEADER + length > buffer.capacity()) {
+                break;
+            }
+
+            final ByteBuffer payload = buffer.duplicate();
+            payload.position(offset + HEADER);
+            payload.limit(offset + HEADER + length);
+            final CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                logger.warning("Corrupted record at " + offset + " in " + segment.file + ", ignoring the end of the segment");
+                break;
+            }
+
+            final int size = HEADER + length;
+            final ByteBuffer record = buffer.duplicate();
+            record.position(offset + HEADER);
+            record.limit(offset + size);
+            final byte type = record.get();
+            final long expiration = record.getLong();
+            final byte[] key = new byte[record.getInt()];
+            record.get(key);
+
+            try {
+                final Object primaryKey = deserialize(key);
+                final Location location = new Location(primaryKey, segment, offset, size, expiration);
+                if (type == PUT && !location.isExpired(now)) {
+                    segment.live += size;
+                    index(location);
+                } else if (type == PUT) {
+                    // timed out on disk, it only hides the previous copies
+                    unindex(primaryKey);
+                } else {
+                    unindex(primaryKey);
+                    segment.deletes++;
+                }
+            } catch (final Exception e) {
+                logger.warning("Ignoring a record of " + segment.file + ": " + e.getMessage());
+            }
+
+            offset += size;
+        }
+
+        // zero the torn tail so the next appends replay cleanly
+        for (int i = offset; i < Math.min(buffer.capacity(), offset + HEADER); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        segment.position = offset;
+    }
+
+    /**
+     * Locks the first store-N sub directory nobody else uses, a crashed JVM releases its lock.
+     */
+    private File claim(final File base) throws IOException {
+        for (int i = 0; ; i++) {
+            final File dir = new File(base, "store-" + i);
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Failed to create session directory: " + dir.getAbsolutePath());
+            }
+            if (!dir.isDirectory()) {
+                continue;
+            }
+
+            final FileChannel channel = new RandomAccessFile(new File(dir, "lock"), "rw").getChannel();
+            FileLock fileLock = null;
+            try {
+                fileLock = channel.tryLock();
+            } catch (final OverlappingFileLockException ignored) {
+                // already used in this JVM
+            }
+            if (fileLock == null) {
+                channel.close();
+                continue;
+            }
+
+            lockChannel = channel;
+            lock = fileLock;
+            return dir;
+        }
+    }
+
+    private long expiration(final Object bean, final long now) {
+        long beanTimeOut = timeOut;
+        if (bean instanceof Cache.TimeOut) {
+            final Duration duration = ((Cache.TimeOut) bean).getTimeOut();
+            if (duration != null) {
+                beanTimeOut = duration.getTime(TimeUnit.MILLISECONDS);
+            }
+        }
+        return beanTimeOut < 0 ? NEVER : now + beanTimeOut;
+    }
+
+    private static long ms(final String value) {
+        final Duration duration = new Duration(value.trim());
+        if (duration.getUnit() == null) {
+            duration.setUnit(TimeUnit.MINUTES);
+        }
+        return duration.getUnit().toMillis(duration.getTime());
+    }
+
+    private static String segmentName(final int id) {
+        return String.format("segment-%08d.log", id);
+    }
+
+    private static byte[] serialize(final Object object) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(object);
+        }
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes) throws IOException, ClassNotFoundException {
+        try (final ObjectInputStream ois = new EjbObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+
+    private static final class Location {
+        private final Object key;
+        private final Segment segment;
+        private final int offset;
+        private final int size;
+
+        /**
+         * when a replayed record times out, NEVER for the records the cache still tracks
+         */
+        private final long expiration;
+
+        private Location(final Object key, final Segment segment, final int offset, final int size, final long expiration) {
+            this.key = key;
+            this.segment = segment;
+            this.offset = offset;
+            this.size = size;
+            this.expiration = expiration;
+        }
+
+        private boolean isExpired(final long now) {
+            return expiration != NEVER && now > expiration;
+        }
+
+        /**
+         * @return a view of the record after its header
+         */
+        private ByteBuffer read() {
+            final ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(offset + HEADER);
+            buffer.limit(offset + size);
+            return buffer.slice();
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final Map<Object, Location> records = new HashMap<>();
+        private int position;
+        private long live;
+        private int deletes;
+
+        private Segment(final int id, final File file, final FileChannel channel, final MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(final File file, final int id, final long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment too big: " + size);
+            }
+            final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+            try {
+                return new Segment(id, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } catch (final IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private int capacity() {
+            return buffer.capacity();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                // no-op
+            }
+            unmap(buffer);
+        }
+
+        /**
+         * Releases the mapping now instead of when the buffer is collected, nothing may read the buffer afterwards.
+         */
+        private static void unmap(final MappedByteBuffer buffer) {
+            try {
+                final Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+                try { // java 9+
+                    final Method invokeCleaner = unsafeType.getMethod("invokeCleaner", ByteBuffer.class);
+                    final Field theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+                    theUnsafe.setAccessible(true);
+                    invokeCleaner.invoke(theUnsafe.get(null), buffer);
+                    return;
+                } catch (final NoSuchMethodException java8) {
+                    // use the cleaner of the buffer
+                }
+
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            } catch (final Exception e) {
+                logger.debug("Can't unmap a passivation segment, it is released with the buffer: " + e.getMessage());
+            }
+        }
+    }
+}
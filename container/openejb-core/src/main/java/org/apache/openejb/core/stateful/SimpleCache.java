@@ -18,6 +18,7 @@
 package org.apache.openejb.core.stateful;
 
 import org.apache.openejb.OpenEJBRuntimeException;
+import org.apache.openejb.monitoring.Managed;
 import org.apache.openejb.util.Duration;
 import org.apache.openejb.util.LogCategory;
 import org.apache.openejb.util.Logger;
@@ -117,6 +118,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
     public synchronized void destroy() {
         if (future != null) {
             future.cancel(false);
+            future = null;
         }
     }
 
@@ -152,6 +154,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         this.passivator = passivatorClass.newInstance();
     }
 
+    @Managed
     public synchronized int getCapacity() {
         return capacity;
     }
@@ -165,6 +168,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         this.capacity = capacity;
     }
 
+    @Managed
     public synchronized int getBulkPassivate() {
         return bulkPassivate;
     }
@@ -173,6 +177,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         this.bulkPassivate = bulkPassivate;
     }
 
+    @Managed
     public synchronized long getTimeOut() {
         return timeOut;
     }
@@ -205,6 +210,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         this.frequency = ms(frequency, TimeUnit.SECONDS);
     }
 
+    @Managed
     public long getFrequency() {
         return frequency;
     }
@@ -220,7 +226,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
                 }
                 // Entry has been removed between get and lock, simply remove the garbage entry
                 cache.remove(key);
-                lru.remove(entry);
+                lruRemove(entry);
             } finally {
                 entry.lock.unlock();
             }
@@ -239,10 +245,13 @@ public class SimpleCache<K, V> implements Cache<K, V> {
                 return null;
             }
             if (entry == null) {
+                onMiss();
                 entry = loadEntry(key);
                 if (entry == null) {
                     return null;
                 }
+            } else if (i == 0) {
+                onHit();
             }
 
             entry.lock.lock();
@@ -268,7 +277,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
                 entry.setState(EntryState.CHECKED_OUT);
 
                 // entry is removed from the lru while in use
-                lru.remove(entry);
+                lruRemove(entry);
 
                 return entry.getValue();
             } finally {
@@ -279,7 +288,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         // something is really messed up with this entry, try to cleanup before throwing an exception
         final Entry entry = cache.remove(key);
         if (entry != null) {
-            lru.remove(entry);
+            lruRemove(entry);
         }
         throw new OpenEJBRuntimeException("Cache is corrupted: the entry " + key + " in the Map 'cache' is in state PASSIVATED");
     }
@@ -296,7 +305,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
             // verfiy state
             switch (entry.getState()) {
                 case AVAILABLE:
-                    if (lru.contains(entry)) {
+                    if (lruContains(entry)) {
                         entry.resetTimeOut();
                         return;
                     } else {
@@ -315,7 +324,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
             entry.setState(EntryState.AVAILABLE);
 
             // add entry to lru
-            lru.add(entry);
+            lruAdd(entry);
             entry.resetTimeOut();
         } finally {
             entry.lock.unlock();
@@ -323,6 +332,8 @@ public class SimpleCache<K, V> implements Cache<K, V> {
 
         if (frequency == 0) {
             processLRU();
+        } else {
+            onCheckIn();
         }
     }
 
@@ -337,7 +348,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         try {
             // remove the entry from the cache and lru
             cache.remove(key);
-            lru.remove(entry);
+            lruRemove(entry);
 
             // There is no need to check the state because users of the cache
             // are responsible for maintaining references to beans in use
@@ -360,7 +371,7 @@ public class SimpleCache<K, V> implements Cache<K, V> {
                 if (filter.matches(entry.getValue())) {
                     // remove the entry from the cache and lru
                     iterator.remove();
-                    lru.remove(entry);
+                    lruRemove(entry);
 
                     // There is no need to check the state because users of the cache
                     // are responsible for maintaining references to beans in use
@@ -375,14 +386,10 @@ public class SimpleCache<K, V> implements Cache<K, V> {
     }
 
     public void processLRU() {
-        final CacheListener<V> listener = this.getListener();
-
         // check for timed out entries
         // go through all lru entries since even though entries are in
         // least recently used order they might have different timeouts.
-        final Iterator<Entry> iterator = lru.iterator();
-        while (iterator.hasNext()) {
-            final Entry entry = iterator.next();
+        for (final Entry entry : lruEntries()) {
             entry.lock.lock();
             try {
                 switch (entry.getState()) {
@@ -393,112 +400,145 @@ public class SimpleCache<K, V> implements Cache<K, V> {
                         continue;
                     case PASSIVATED:
                         // Entry was passivated between get and lock
-                        iterator.remove();
+                        lruRemove(entry);
                         continue;
                     case REMOVED:
                         // Entry was remmoved between get and lock
-                        iterator.remove();
+                        lruRemove(entry);
                         continue;
                 }
 
-
                 if (entry.isTimedOut()) {
-                    iterator.remove();
+                    lruRemove(entry);
                     cache.remove(entry.getKey());
                     entry.setState(EntryState.REMOVED);
-
-                    // notify listener that the entry has been removed
-                    if (listener != null) {
-                        try {
-                            listener.timedOut(entry.getValue());
-                        } catch (final Exception e) {
-                            logger.error("An unexpected exception occured from timedOut callback", e);
-                        }
-                    }
+                    timedOut(entry);
                 }
             } finally {
                 entry.lock.unlock();
             }
         }
 
-        // if there are to many beans in the lru, shink is by on bulkPassivate size
-        // bulkPassivate size is just an estimate, as locked or timed out beans are skipped
-        if (lru.size() >= getCapacity()) {
-            final Map<K, V> valuesToStore = new LinkedHashMap<>();
-            final List<Entry> entries = new ArrayList<>();
+        passivateOverflow();
+    }
+
+    /**
+     * If there are to many beans in the lru, shrink it by one bulkPassivate size.
+     * bulkPassivate size is just an estimate, as locked or timed out beans are skipped.
+     */
+    void passivateOverflow() {
+        if (lruSize() < getCapacity()) {
+            return;
+        }
+
+        final boolean concurrent = isPassivationConcurrent();
+        final Map<K, V> valuesToStore = new LinkedHashMap<>();
+        final List<Entry> entries = new ArrayList<>();
+        final List<Entry> locked = new ArrayList<>();
 
-            int bulkPassivate = getBulkPassivate();
-            if (bulkPassivate < 1) {
-                bulkPassivate = 1;
+        int bulkPassivate = getBulkPassivate();
+        if (bulkPassivate < 1) {
+            bulkPassivate = 1;
+        }
+        for (int i = 0; i < bulkPassivate; i++) {
+            final Entry entry = lruPoll();
+            if (entry == null) {
+                // lru is empty
+                break;
             }
-            for (int i = 0; i < bulkPassivate; i++) {
-                final Entry entry = lru.poll();
-                if (entry == null) {
-                    // lru is empty
-                    break;
-                }
 
-                if (!entry.lock.tryLock()) {
-                    // If two threads are running in this method, you could get a deadlock
-                    // due to lock acquisition order since this section gathers a group of
-                    // locks. Simply skip beans we can not obtain a lock on
-                    continue;
+            if (!entry.lock.tryLock()) {
+                // If two threads are running in this method, you could get a deadlock
+                // due to lock acquisition order since this section gathers a group of
+                // locks. Simply skip beans we can not obtain a lock on
+                if (concurrent) {
+                    locked.add(entry);
+                }
+                continue;
+            }
+            try {
+                switch (entry.getState()) {
+                    case AVAILABLE:
+                        break;
+                    case CHECKED_OUT:
+                        // bean is in use so cannot be passivated
+                        continue;
+                    case PASSIVATED:
+                        // Entry was passivated between get and lock
+                        lruRemove(entry);
+                        continue;
+                    case REMOVED:
+                        // Entry was remmoved between get and lock
+                        lruRemove(entry);
+                        continue;
                 }
-                try {
-                    switch (entry.getState()) {
-                        case AVAILABLE:
-                            break;
-                        case CHECKED_OUT:
-                            // bean is in use so cannot be passivated
-                            continue;
-                        case PASSIVATED:
-                            // Entry was passivated between get and lock
-                            lru.remove(entry);
-                            continue;
-                        case REMOVED:
-                            // Entry was remmoved between get and lock
-                            lru.remove(entry);
-                            continue;
-                    }
 
+                if (!concurrent) {
                     // remove it from the cache
                     cache.remove(entry.getKey());
 
                     // there is a race condition where the item could get added back into the lru
-                    lru.remove(entry);
-
-                    // if the entry is actually timed out we just destroy it; otherwise it is written to disk
-                    if (entry.isTimedOut()) {
-                        entry.setState(EntryState.REMOVED);
-                        if (listener != null) {
-                            try {
-                                listener.timedOut(entry.getValue());
-                            } catch (final Exception e) {
-                                logger.error("An unexpected exception occured from timedOut callback", e);
-                            }
-                        }
-                    } else {
-                        // entry will be passivated, so we need to obtain an additional lock until the passivation is complete
-                        entry.lock.lock();
-                        entries.add(entry);
+                    lruRemove(entry);
+                }
+
+                // if the entry is actually timed out we just destroy it; otherwise it is written to disk
+                if (entry.isTimedOut()) {
+                    cache.remove(entry.getKey());
+                    entry.setState(EntryState.REMOVED);
+                    timedOut(entry);
+                } else {
+                    // entry will be passivated, so we need to obtain an additional lock until the passivation is complete
+                    entry.lock.lock();
+                    entries.add(entry);
+
+                    entry.setState(EntryState.PASSIVATED);
+                    valuesToStore.put(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
 
-                        entry.setState(EntryState.PASSIVATED);
-                        valuesToStore.put(entry.getKey(), entry.getValue());
+        if (!valuesToStore.isEmpty()) {
+            final long start = System.nanoTime();
+            try {
+                storeEntries(valuesToStore);
+            } finally {
+                for (final Entry entry : entries) {
+                    if (concurrent) {
+                        cache.remove(entry.key, entry);
                     }
-                } finally {
+
+                    // release the extra passivation lock
                     entry.lock.unlock();
                 }
+                onPassivated(valuesToStore.size(), System.nanoTime() - start);
             }
+        }
 
-            if (!valuesToStore.isEmpty()) {
-                try {
-                    storeEntries(valuesToStore);
-                } finally {
-                    for (final Entry entry : entries) {
-                        // release the extra passivation lock
-                        entry.lock.unlock();
-                    }
+        // put back the skipped beans so they are passivated or timed out later
+        for (final Entry entry : locked) {
+            entry.lock.lock();
+            try {
+                if (entry.getState() == EntryState.AVAILABLE && !lruContains(entry)) {
+                    lruAdd(entry);
                 }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private void timedOut(final Entry entry) {
+        onTimedOut();
+
+        // notify listener that the entry has been removed
+        final CacheListener<V> listener = this.getListener();
+        if (listener != null) {
+            try {
+                listener.timedOut(entry.getValue());
+            } catch (final Exception e) {
+                logger.error("An unexpected exception occured from timedOut callback", e);
             }
         }
     }
@@ -557,12 +597,77 @@ public class SimpleCache<K, V> implements Cache<K, V> {
         }
     }
 
+    @Managed
+    public int getSize() {
+        return cache.size();
+    }
+
+    // lru of the idle entries, StripedCache spreads it over several segments
+
+    void lruAdd(final Entry entry) {
+        lru.add(entry);
+    }
+
+    void lruRemove(final Entry entry) {
+        lru.remove(entry);
+    }
+
+    boolean lruContains(final Entry entry) {
+        return lru.contains(entry);
+    }
+
+    Entry lruPoll() {
+        return lru.poll();
+    }
+
+    int lruSize() {
+        return lru.size();
+    }
+
+    /**
+     * @return the idle entries in least recently used order, lruRemove can be called while iterating
+     */
+    Iterable<Entry> lruEntries() {
+        return lru;
+    }
+
+    /**
+     * @return true when passivateOverflow runs concurrently with the request threads, the passivated entries then
+     * stay in the cache until they are stored so a checkOut waits for the store instead of missing the bean, and
+     * the entries skipped because they are locked are put back in the lru
+     */
+    boolean isPassivationConcurrent() {
+        return false;
+    }
+
+    // notifications for the subclasses collecting statistics
+
+    void onCheckIn() {
+        // no-op
+    }
+
+    void onHit() {
+        // no-op
+    }
+
+    void onMiss() {
+        // no-op
+    }
+
+    void onTimedOut() {
+        // no-op
+    }
+
+    void onPassivated(final int count, final long nanos) {
+        // no-op
+    }
+
     private enum EntryState {
         AVAILABLE, CHECKED_OUT, PASSIVATED, REMOVED
     }
 
-    private final class Entry {
-        private final K key;
+    final class Entry {
+        final K key;
         private final V value;
         private final ReentrantLock lock = new ReentrantLock();
         private EntryState state;
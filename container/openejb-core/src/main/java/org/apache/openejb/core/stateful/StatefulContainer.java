@@ -35,6 +35,7 @@ import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorStack;
+import org.apache.openejb.core.ivm.IntraVmCopyStats;
 import org.apache.openejb.core.security.AbstractSecurityService;
 import org.apache.openejb.core.stateful.Cache.CacheFilter;
 import org.apache.openejb.core.stateful.Cache.CacheListener;
@@ -46,6 +47,7 @@ import org.apache.openejb.core.transaction.JtaTransactionPolicy;
 import org.apache.openejb.core.transaction.TransactionPolicy;
 import org.apache.openejb.core.transaction.TransactionPolicy.TransactionSynchronization;
 import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.monitoring.LocalMBeanServer;
 import org.apache.openejb.monitoring.ManagedMBean;
 import org.apache.openejb.monitoring.ObjectNameBuilder;
@@ -105,7 +107,7 @@ public class StatefulContainer implements RpcContainer {
     /**
      * Index used for getDeployments() and getDeploymentInfo(deploymentId).
      */
-    protected final Map<Object, BeanContext> deploymentsById = new HashMap<>();
+    protected final Map<Object, BeanContext> deploymentsById = new ConcurrentHashMap<>();
 
     protected final Cache<Object, Instance> cache;
     protected final LockFactory lockFactory;
@@ -265,12 +267,12 @@ public class StatefulContainer implements RpcContainer {
     }
 
     @Override
-    public synchronized BeanContext[] getBeanContexts() {
+    public BeanContext[] getBeanContexts() {
         return deploymentsById.values().toArray(new BeanContext[deploymentsById.size()]);
     }
 
     @Override
-    public synchronized BeanContext getBeanContext(final Object deploymentID) {
+    public BeanContext getBeanContext(final Object deploymentID) {
         return deploymentsById.get(deploymentID);
     }
 
@@ -341,6 +343,20 @@ public class StatefulContainer implements RpcContainer {
             } catch (final Exception e) {
                 logger.error("Unable to register MBean ", e);
             }
+
+            // register how the intra-VM remote calls copy their values
+            if (IntraVmCopyStats.isCopied(beanContext)) {
+                try {
+                    final ObjectName objectName = jmxName.set("j2eeType", "IntraVmCopies").build();
+                    if (server.isRegistered(objectName)) {
+                        server.unregisterMBean(objectName);
+                    }
+                    server.registerMBean(new ManagedMBean(new IntraVmCopyStats(beanContext)), objectName);
+                    data.jmxNames.add(objectName);
+                } catch (final Exception e) {
+                    logger.error("Unable to register MBean ", e);
+                }
+            }
         }
 
         try {
@@ -553,7 +569,9 @@ public class StatefulContainer implements RpcContainer {
             Method runMethod = null;
             try {
                 // Obtain instance
+                final long poolStart = InvocationMetrics.start();
                 instance = obtainInstance(primKey, callContext, callMethod, beanContext.isPassivatingScope());
+                InvocationMetrics.record(InvocationMetrics.Phase.POOL, poolStart);
 
                 // Resume previous Bean transaction if there was one
                 if (txPolicy instanceof BeanTransactionPolicy) {
@@ -692,7 +710,9 @@ public class StatefulContainer implements RpcContainer {
             Instance instance = null;
             try {
                 // Obtain instance
+                final long poolStart = InvocationMetrics.start();
                 instance = obtainInstance(primKey, callContext, callMethod, true);
+                InvocationMetrics.record(InvocationMetrics.Phase.POOL, poolStart);
 
                 // Resume previous Bean transaction if there was one
                 if (txPolicy instanceof BeanTransactionPolicy) {
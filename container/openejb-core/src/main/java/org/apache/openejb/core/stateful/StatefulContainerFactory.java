@@ -90,6 +90,10 @@ public class StatefulContainerFactory {
         properties.put("Frequency", s);
     }
 
+    public void setSegments(final String s) {
+        properties.put("Segments", s);
+    }
+
     public void setPreventExtendedEntityManagerSerialization(final boolean preventExtendedEntityManagerSerialization) {
         properties.put("PreventExtendedEntityManagerSerialization", Boolean.toString(preventExtendedEntityManagerSerialization));
     }
@@ -150,6 +154,9 @@ public class StatefulContainerFactory {
         serviceRecipe.allow(Option.IGNORE_MISSING_PROPERTIES);
         serviceRecipe.allow(Option.NAMED_PARAMETERS);
         serviceRecipe.setAllProperties(properties);
+        if (id != null) {
+            serviceRecipe.setProperty("ContainerId", id.toString());
+        }
 
         // invoke recipe
         /* the cache should be created with container loader to avoid memory leaks
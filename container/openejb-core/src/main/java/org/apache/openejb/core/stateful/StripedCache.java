@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.monitoring.Managed;
+import org.apache.openejb.monitoring.ManagedMBean;
+import org.apache.openejb.monitoring.ObjectNameBuilder;
+import org.apache.openejb.util.Duration;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Same contract and entry life cycle as {@link SimpleCache} but the idle entries are spread
+ * over several independently locked LRU segments (picked by key hash) so checkOut/checkIn
+ * of different beans never contend, and removing an entry from its LRU is O(1).
+ *
+ * When more than Capacity beans are idle, the request thread only schedules a bulk passivation,
+ * victims are taken in turn from the head of each segment and written by the cache thread.
+ * Setting Frequency to 0 keeps the synchronous behavior of {@link SimpleCache}.
+ */
+public class StripedCache<K, V> extends SimpleCache<K, V> {
+    private volatile Segment<Entry>[] segments;
+
+    /**
+     * Number of entries in all the segments
+     */
+    private final AtomicInteger idle = new AtomicInteger();
+
+    private final AtomicInteger nextVictimSegment = new AtomicInteger();
+
+    private final AtomicBoolean passivationScheduled = new AtomicBoolean();
+
+    /**
+     * Copy of the capacity read by every checkIn without taking the cache monitor
+     */
+    private volatile int idleCapacity;
+
+    private String containerId;
+
+    private ObjectName objectName;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder passivated = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder passivations = new LongAdder();
+    private final LongAdder passivationTime = new LongAdder();
+    private final AtomicLong maxPassivationTime = new AtomicLong();
+
+    public StripedCache() {
+        setSegments(0);
+    }
+
+    public StripedCache(final CacheListener<V> listener, final PassivationStrategy passivator, final int capacity, final int bulkPassivate, final Duration timeOut) {
+        super(listener, passivator, capacity, bulkPassivate, timeOut);
+        setSegments(0);
+        idleCapacity = capacity;
+    }
+
+    @Override
+    public synchronized void setCapacity(final int capacity) {
+        super.setCapacity(capacity);
+        idleCapacity = capacity;
+    }
+
+    @Override
+    public synchronized void setPoolSize(final int capacity) {
+        super.setPoolSize(capacity);
+        idleCapacity = capacity;
+    }
+
+    @Override
+    public synchronized void init() {
+        super.init();
+
+        if (containerId != null && objectName == null) {
+            final ObjectNameBuilder jmxName = new ObjectNameBuilder("openejb.management");
+            jmxName.set("J2EEServer", "openejb");
+            jmxName.set("J2EEApplication", null);
+            jmxName.set("j2eeType", "StatefulCache");
+            jmxName.set("name", containerId);
+            try {
+                final MBeanServer server = LocalMBeanServer.get();
+                final ObjectName name = jmxName.build();
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(new ManagedMBean(this), name);
+                objectName = name;
+            } catch (final Exception e) {
+                logger.error("Unable to register MBean ", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        super.destroy();
+
+        if (objectName != null) {
+            try {
+                LocalMBeanServer.get().unregisterMBean(objectName);
+            } catch (final Exception e) {
+                logger.error("Unable to unregister MBean " + objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * @param segments number of LRU segments, rounded to a power of two,
+     *                 0 or less uses twice the number of cores
+     * @throws IllegalStateException if the cache already holds entries, they are bound to the current segments
+     */
+    public synchronized void setSegments(final int segments) {
+        if (getSize() > 0) {
+            throw new IllegalStateException("Segments can't be changed once the cache holds entries");
+        }
+
+        int wanted = segments > 0 ? segments : Runtime.getRuntime().availableProcessors() * 2;
+        wanted = Math.min(wanted, 1 << 10);
+        int size = 1;
+        while (size < wanted) {
+            size <<= 1;
+        }
+        @SuppressWarnings("unchecked")
+        final Segment<Entry>[] array = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = new Segment<>(idle);
+        }
+        this.segments = array;
+    }
+
+    @Managed
+    public int getSegments() {
+        return segments.length;
+    }
+
+    public void setContainerId(final String containerId) {
+        this.containerId = containerId;
+    }
+
+    @Managed
+    public int getIdleCount() {
+        return idle.get();
+    }
+
+    /**
+     * @return the number of idle beans above the capacity still waiting to be passivated
+     */
+    @Managed
+    public int getPassivationQueueDepth() {
+        return Math.max(0, idle.get() - idleCapacity);
+    }
+
+    @Managed
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Managed
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Managed
+    public double getHitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Managed
+    public long getPassivatedCount() {
+        return passivated.sum();
+    }
+
+    @Managed
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return mean duration of a bulk passivation in milliseconds
+     */
+    @Managed
+    public double getPassivationTime() {
+        final long count = passivations.sum();
+        return count == 0 ? 0 : passivationTime.sum() / 1000000. / count;
+    }
+
+    @Managed
+    public double getMaxPassivationTime() {
+        return maxPassivationTime.get() / 1000000.;
+    }
+
+    private Segment<Entry> segment(final Entry entry) {
+        final Segment<Entry>[] segments = this.segments;
+        final int h = entry.key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    @Override
+    void lruAdd(final Entry entry) {
+        segment(entry).add(entry);
+    }
+
+    @Override
+    void lruRemove(final Entry entry) {
+        segment(entry).remove(entry);
+    }
+
+    @Override
+    boolean lruContains(final Entry entry) {
+        return segment(entry).contains(entry);
+    }
+
+    @Override
+    Entry lruPoll() {
+        // take the oldest entry of each segment in turn, it approximates a global LRU
+        final Segment<Entry>[] segments = this.segments;
+        for (int i = 0; i < segments.length; i++) {
+            final Entry entry = segments[nextVictimSegment.getAndIncrement() & (segments.length - 1)].poll();
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    int lruSize() {
+        return idle.get();
+    }
+
+    @Override
+    Iterable<Entry> lruEntries() {
+        // snapshot segment per segment so request threads are never blocked for long
+        final List<Entry> entries = new ArrayList<>(idle.get());
+        for (final Segment<Entry> segment : segments) {
+            segment.snapshot(entries);
+        }
+        return entries;
+    }
+
+    /**
+     * The passivation runs in the cache thread while request threads check beans in and out.
+     */
+    @Override
+    boolean isPassivationConcurrent() {
+        return true;
+    }
+
+    @Override
+    void onCheckIn() {
+        if (idle.get() >= idleCapacity) {
+            schedulePassivation();
+        }
+    }
+
+    @Override
+    void onHit() {
+        hits.increment();
+    }
+
+    @Override
+    void onMiss() {
+        misses.increment();
+    }
+
+    @Override
+    void onTimedOut() {
+        timedOut.increment();
+    }
+
+    @Override
+    void onPassivated(final int count, final long nanos) {
+        passivations.increment();
+        passivationTime.add(nanos);
+        passivated.add(count);
+        long max;
+        while (nanos > (max = maxPassivationTime.get()) && !maxPassivationTime.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    private void schedulePassivation() {
+        final ScheduledExecutorService executor = getScheduledExecutorService();
+        if (executor == null) {
+            passivateOverflow();
+            return;
+        }
+
+        if (passivationScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        passivateOverflow();
+                    } finally {
+                        passivationScheduled.set(false);
+                    }
+                    if (idle.get() >= idleCapacity) {
+                        schedulePassivation();
+                    }
+                });
+            } catch (final RuntimeException e) { // rejected, executor shut down
+                passivationScheduled.set(false);
+                logger.debug("Can't schedule the passivation: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Idle entries of a subset of the keys, in least recently used order.
+     */
+    private static final class Segment<E> {
+        private final LinkedHashSet<E> lru = new LinkedHashSet<>();
+        private final AtomicInteger idle;
+
+        private Segment(final AtomicInteger idle) {
+            this.idle = idle;
+        }
+
+        private synchronized void add(final E entry) {
+            if (lru.add(entry)) {
+                idle.incrementAndGet();
+            }
+        }
+
+        private synchronized void remove(final E entry) {
+            if (lru.remove(entry)) {
+                idle.decrementAndGet();
+            }
+        }
+
+        private synchronized boolean contains(final E entry) {
+            return lru.contains(entry);
+        }
+
+        private synchronized E poll() {
+            final Iterator<E> iterator = lru.iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            final E entry = iterator.next();
+            iterator.remove();
+            idle.decrementAndGet();
+            return entry;
+        }
+
+        private synchronized void snapshot(final List<E> entries) {
+            entries.addAll(lru);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.openejb.cdi.CurrentCreationalContext;
 import org.apache.openejb.core.ExceptionType;
 import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
+import org.apache.openejb.core.interceptor.InterceptorChain;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorStack;
 import org.apache.openejb.core.security.AbstractSecurityService;
@@ -35,6 +36,7 @@ import org.apache.openejb.core.timer.EjbTimerService;
 import org.apache.openejb.core.transaction.TransactionPolicy;
 import org.apache.openejb.core.webservices.AddressingSupport;
 import org.apache.openejb.core.webservices.NoAddressingSupport;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.monitoring.StatsInterceptor;
 import org.apache.openejb.spi.SecurityService;
 import org.apache.openejb.util.DaemonThreadFactory;
@@ -201,7 +203,9 @@ public class StatelessContainer implements org.apache.openejb.RpcContainer, Dest
                 return null; // EJBObject.remove( ) and other EJBObject methods are not process by the container
             }
 
+            final long poolStart = InvocationMetrics.start();
             bean = this.instanceManager.getInstance(callContext);
+            InvocationMetrics.record(InvocationMetrics.Phase.POOL, poolStart);
 
             callContext.setCurrentOperation(type == InterfaceType.TIMEOUT ? Operation.TIMEOUT : Operation.BUSINESS);
             callContext.set(Method.class, runMethod);
@@ -219,11 +223,13 @@ public class StatelessContainer implements org.apache.openejb.RpcContainer, Dest
                 }
             }
             if (bean != null) {
+                final long poolStart = InvocationMetrics.start();
                 if (callContext.isDiscardInstance()) {
                     this.instanceManager.discardInstance(callContext, bean);
                 } else {
                     this.instanceManager.poolInstance(callContext, bean);
                 }
+                InvocationMetrics.record(InvocationMetrics.Phase.POOL, poolStart);
             }
 
             ThreadContext.exit(oldCallContext);
@@ -246,8 +252,8 @@ public class StatelessContainer implements org.apache.openejb.RpcContainer, Dest
                 callContext.setCurrentOperation(Operation.BUSINESS_WS);
                 returnValue = invokeWebService(args, beanContext, runMethod, instance);
             } else {
-                final List<InterceptorData> interceptors = beanContext.getMethodInterceptors(runMethod);
                 final Operation operation = type == InterfaceType.TIMEOUT ? Operation.TIMEOUT : Operation.BUSINESS;
+                final InterceptorChain interceptors = beanContext.getInterceptorChain(runMethod, operation);
                 final InterceptorStack interceptorStack = new InterceptorStack(instance.bean, runMethod, operation, interceptors, instance.interceptors);
                 returnValue = interceptorStack.invoke(args);
             }
@@ -28,6 +28,7 @@ import org.apache.openejb.core.ThreadContext;
 import org.apache.openejb.core.interceptor.InterceptorData;
 import org.apache.openejb.core.interceptor.InterceptorInstance;
 import org.apache.openejb.core.interceptor.InterceptorStack;
+import org.apache.openejb.core.ivm.IntraVmCopyStats;
 import org.apache.openejb.core.timer.TimerServiceWrapper;
 import org.apache.openejb.loader.Options;
 import org.apache.openejb.monitoring.LocalMBeanServer;
@@ -412,6 +413,20 @@ public class StatelessInstanceManager {
             } catch (final Exception e) {
                 logger.error("Unable to register MBean ", e);
             }
+
+            // register how the intra-VM remote calls copy their values
+            if (IntraVmCopyStats.isCopied(beanContext)) {
+                try {
+                    final ObjectName objectName = jmxName.set("j2eeType", "IntraVmCopies").build();
+                    if (server.isRegistered(objectName)) {
+                        server.unregisterMBean(objectName);
+                    }
+                    server.registerMBean(new ManagedMBean(new IntraVmCopyStats(beanContext)), objectName);
+                    data.add(objectName);
+                } catch (final Exception e) {
+                    logger.error("Unable to register MBean ", e);
+                }
+            }
         }
 
         // register the pool
@@ -759,10 +759,11 @@ public class EjbTimerServiceImpl implements EjbTimerService, Serializable {
         try {
             Timer timer = getTimer(timerData.getId());
             // quartz can be backed by some advanced config (jdbc for instance)
-            if (timer == null && timerStore instanceof MemoryTimerStore && timerData.getTimer() != null) {
+            if (timer == null && timerData.getTimer() != null) {
                 try {
-                    timerStore.addTimerData(timerData);
-                    timer = timerData.getTimer(); // TODO: replace memoryjobstore by the db one?
+                    if (timerStore.restoreTimer(timerData)) {
+                        timer = timerData.getTimer(); // TODO: replace memoryjobstore by the db one?
+                    }
                 } catch (final TimerStoreException e) {
                     // shouldn't occur
                 }
@@ -34,21 +34,34 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * In memory timer store.
+ *
+ * Timers are kept ordered by id and indexed by deployment id so lookups
+ * never copy the whole store. A transaction only records its own additions and removals
+ * and overlays them on the live indexes when read, they are applied on commit.
+ */
 public class MemoryTimerStore implements TimerStore {
     private static final long serialVersionUID = 1L;
     private static final Logger log = Logger.getInstance(LogCategory.TIMER, "org.apache.openejb.util.resources");
-    private final Map<Long, TimerData> taskStore = new ConcurrentHashMap<>();
+    private static final String NO_DEPLOYMENT = "";
+
+    private final ConcurrentNavigableMap<Long, Entry> taskStore = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, TimerData>> tasksByDeployment = new ConcurrentHashMap<>();
     private final Map<Transaction, TimerDataView> tasksByTransaction = new ConcurrentHashMap<>();
+    private final TimerDataView live = new LiveTimerDataView();
     private final AtomicLong counter = new AtomicLong(0);
 
     private final TransactionManager transactionManager;
@@ -60,8 +73,7 @@ public class MemoryTimerStore implements TimerStore {
     @Override
     public TimerData getTimer(final String deploymentId, final long timerId) {
         try {
-            final TimerDataView tasks = getTasks();
-            return tasks.getTasks().get(timerId);
+            return getTasks().getTimer(timerId);
         } catch (final TimerStoreException e) {
             return null;
         }
@@ -70,8 +82,7 @@ public class MemoryTimerStore implements TimerStore {
     @Override
     public Collection<TimerData> getTimers(final String deploymentId) {
         try {
-            final TimerDataView tasks = getTasks();
-            return new ArrayList<>(tasks.getTasks().values());
+            return getTasks().getTimers(deploymentId);
         } catch (final TimerStoreException e) {
             return Collections.emptySet();
         }
@@ -79,14 +90,7 @@ public class MemoryTimerStore implements TimerStore {
 
     @Override
     public Collection<TimerData> loadTimers(final EjbTimerServiceImpl timerService, final String deploymentId) throws TimerStoreException {
-        final TimerDataView tasks = getTasks();
-        final Collection<TimerData> out = new LinkedList<>();
-        for (final TimerData data : tasks.getTasks().values()) {
-            if (deploymentId == null || deploymentId.equals(data.getDeploymentId())) {
-                out.add(data);
-            }
-        }
-        return out;
+        return getTasks().getTimers(deploymentId);
     }
 
     // used to re-register a TimerData, if a cancel() is rolledback...
@@ -134,6 +138,24 @@ public class MemoryTimerStore implements TimerStore {
     public void updateIntervalTimer(final TimerData timerData) {
     }
 
+    @Override
+    public boolean restoreTimer(final TimerData timerData) throws TimerStoreException {
+        addTimerData(timerData);
+        return true;
+    }
+
+    public int size() {
+        return taskStore.size();
+    }
+
+    private static String key(final String deploymentId) {
+        return deploymentId == null ? NO_DEPLOYMENT : deploymentId;
+    }
+
+    private static boolean matches(final String deploymentId, final TimerData timerData) {
+        return deploymentId == null || deploymentId.equals(timerData.getDeploymentId());
+    }
+
     private TimerDataView getTasks() throws TimerStoreException {
         Transaction transaction = null;
         int status = Status.STATUS_NO_TRANSACTION;
@@ -147,7 +169,7 @@ public class MemoryTimerStore implements TimerStore {
         }
 
         if (status != Status.STATUS_ACTIVE && status != Status.STATUS_MARKED_ROLLBACK) {
-            return new LiveTimerDataView();
+            return live;
         }
 
         TxTimerDataView tasks = (TxTimerDataView) tasksByTransaction.get(transaction);
@@ -158,8 +180,26 @@ public class MemoryTimerStore implements TimerStore {
         return tasks;
     }
 
+    private void put(final TimerData timerData) {
+        final Entry entry = new Entry(timerData);
+        final Entry previous = taskStore.put(timerData.getId(), entry);
+        if (previous != null) {
+            previous.unindex();
+        }
+        entry.index();
+    }
+
+    private void remove(final Long timerId) {
+        final Entry entry = taskStore.remove(timerId);
+        if (entry != null) {
+            entry.unindex();
+        }
+    }
+
     private interface TimerDataView {
-        Map<Long, TimerData> getTasks();
+        TimerData getTimer(long timerId);
+
+        Collection<TimerData> getTimers(String deploymentId);
 
         void addTimerData(TimerData timerData);
 
@@ -168,28 +208,45 @@ public class MemoryTimerStore implements TimerStore {
 
     private class LiveTimerDataView implements TimerDataView {
         @Override
-        public Map<Long, TimerData> getTasks() {
-            return new TreeMap<>(taskStore);
+        public TimerData getTimer(final long timerId) {
+            final Entry entry = taskStore.get(timerId);
+            return entry == null ? null : entry.data;
+        }
+
+        @Override
+        public Collection<TimerData> getTimers(final String deploymentId) {
+            if (deploymentId == null) {
+                final Collection<TimerData> timers = new ArrayList<>(taskStore.size());
+                for (final Entry entry : taskStore.values()) {
+                    timers.add(entry.data);
+                }
+                return timers;
+            }
+
+            final Map<Long, TimerData> timers = tasksByDeployment.get(deploymentId);
+            if (timers == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(timers.values());
         }
 
         @Override
         public void addTimerData(final TimerData timerData) {
-            taskStore.put(timerData.getId(), timerData);
+            put(timerData);
         }
 
         @Override
         public void removeTimerData(final Long timerId) {
-            taskStore.remove(timerId);
+            remove(timerId);
         }
     }
 
     private class TxTimerDataView implements Synchronization, TimerDataView {
-        private final Map<Long, TimerData> add = new TreeMap<>();
-        private final Set<Long> remove = new TreeSet<>();
+        private final Map<Long, TimerData> add = new LinkedHashMap<>();
+        private final Set<Long> remove = new HashSet<>();
         private final Lock lock = new ReentrantLock();
         private final RuntimeException concurentException;
         private final WeakReference<Transaction> tansactionReference;
-
         /**
          * This class is not designed to be multi-treaded under the assumption
          * that transactions are single-threaded and this view is only supposed
@@ -223,14 +280,28 @@ public class MemoryTimerStore implements TimerStore {
         }
 
         @Override
-        public Map<Long, TimerData> getTasks() {
+        public TimerData getTimer(final long timerId) {
+            checkThread();
+            if (remove.contains(timerId)) {
+                return null;
+            }
+            final TimerData added = add.get(timerId);
+            return added != null ? added : live.getTimer(timerId);
+        }
+
+        @Override
+        public Collection<TimerData> getTimers(final String deploymentId) {
             checkThread();
-            final TreeMap<Long, TimerData> allTasks = new TreeMap<>(taskStore);
-            for (final Long key : remove) {
-                allTasks.remove(key);
+            final Collection<TimerData> timers = live.getTimers(deploymentId);
+            if (!remove.isEmpty() || !add.isEmpty()) {
+                timers.removeIf(timerData -> remove.contains(timerData.getId()) || add.containsKey(timerData.getId()));
+                for (final TimerData timerData : add.values()) {
+                    if (matches(deploymentId, timerData)) {
+                        timers.add(timerData);
+                    }
+                }
             }
-            allTasks.putAll(add);
-            return Collections.unmodifiableMap(allTasks);
+            return timers;
         }
 
         @Override
@@ -265,18 +336,48 @@ public class MemoryTimerStore implements TimerStore {
         public void afterCompletion(final int status) {
             checkThread();
 
+            final Transaction transaction = tansactionReference.get();
+            if (transaction != null) {
+                tasksByTransaction.remove(transaction);
+            }
+
             // if the tx was not committed, there is nothign to update
             if (status != Status.STATUS_COMMITTED) {
                 return;
             }
 
             // add the new work
-            taskStore.putAll(add);
+            for (final TimerData timerData : add.values()) {
+                put(timerData);
+            }
 
             // remove work
-            taskStore.keySet().removeAll(remove);
+            for (final Long timerId : remove) {
+                MemoryTimerStore.this.remove(timerId);
+            }
+        }
+    }
+
+    private final class Entry {
+        private final TimerData data;
+        private boolean removed;
 
-            tasksByTransaction.remove(tansactionReference.get());
+        private Entry(final TimerData data) {
+            this.data = data;
+        }
+
+        private synchronized void index() {
+            if (!removed) {
+                tasksByDeployment.computeIfAbsent(key(data.getDeploymentId()), k -> new ConcurrentSkipListMap<>()).put(data.getId(), data);
+            }
+        }
+
+        private synchronized void unindex() {
+            removed = true;
+            final ConcurrentNavigableMap<Long, TimerData> timers = tasksByDeployment.get(key(data.getDeploymentId()));
+            if (timers != null) {
+                timers.remove(data.getId(), data);
+            }
         }
     }
 }
@@ -45,4 +45,15 @@ public interface TimerStore {
     void removeTimer(long timerId);
 
     void updateIntervalTimer(TimerData timerData);
+
+    /**
+     * Called when the scheduler fires a timer this store doesn't know, for instance a job persisted
+     * by a jdbc quartz store while the timers of this store were lost with the previous JVM.
+     *
+     * @param timerData the fired timer
+     * @return true if the timer is registered in this store again
+     */
+    default boolean restoreTimer(final TimerData timerData) throws TimerStoreException {
+        return false;
+    }
 }
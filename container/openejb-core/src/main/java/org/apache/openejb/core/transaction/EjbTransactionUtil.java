@@ -24,6 +24,7 @@ import org.apache.openejb.SystemException;
 import org.apache.openejb.core.Operation;
 import org.apache.openejb.core.ThreadContext;
 import org.apache.openejb.core.ThreadContextListener;
+import org.apache.openejb.monitoring.InvocationMetrics;
 import org.apache.openejb.util.LogCategory;
 import org.apache.openejb.util.Logger;
 
@@ -53,6 +54,15 @@ public final class EjbTransactionUtil {
      * Creates a new TransctionPolicy of the specified type and associates it with the specified ThreadContext.
      */
     public static TransactionPolicy createTransactionPolicy(final TransactionType type, final ThreadContext threadContext) throws SystemException, ApplicationException {
+        final long start = InvocationMetrics.start();
+        try {
+            return doCreateTransactionPolicy(type, threadContext);
+        } finally {
+            InvocationMetrics.record(InvocationMetrics.Phase.TRANSACTION, start);
+        }
+    }
+
+    private static TransactionPolicy doCreateTransactionPolicy(final TransactionType type, final ThreadContext threadContext) throws SystemException, ApplicationException {
         // start the new transaction policy
         final BeanContext beanContext = threadContext.getBeanContext();
         final TransactionPolicy txPolicy = beanContext.getTransactionPolicyFactory().createTransactionPolicy(type);
@@ -71,6 +81,15 @@ public final class EjbTransactionUtil {
      * Completes the specified TransactionPolicy and disassociates it from the specified ThreadContext.
      */
     public static void afterInvoke(final TransactionPolicy txPolicy, final ThreadContext threadContext) throws SystemException, ApplicationException {
+        final long start = InvocationMetrics.start();
+        try {
+            doAfterInvoke(txPolicy, threadContext);
+        } finally {
+            InvocationMetrics.record(InvocationMetrics.Phase.TRANSACTION, start);
+        }
+    }
+
+    private static void doAfterInvoke(final TransactionPolicy txPolicy, final ThreadContext threadContext) throws SystemException, ApplicationException {
         if (txPolicy == threadContext.getTransactionPolicy()) {
             // Everything is in order, complete the transaction
             try {
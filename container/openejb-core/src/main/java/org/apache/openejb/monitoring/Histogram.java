@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed memory, lock free, log-linear histogram of positive long values (typically nanoseconds).
+ *
+ * Values are grouped by power of two, each power of two being split in {@link #SUB_BUCKETS}
+ * linear buckets so the relative error of a reported percentile stays under 1/32 (~3%)
+ * whatever the magnitude. Values above 2^{@link #MAX_MAGNITUDE} are counted in the last bucket.
+ *
+ * Counters are striped by thread so concurrent recorders rarely write to the same cache line,
+ * readers sum the stripes and therefore see a slightly fuzzy but never blocking view.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_MAGNITUDE = 42;
+    private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BITS + 2) * SUB_BUCKETS;
+    private static final int MAX_STRIPES = 4;
+
+    private final AtomicLongArray[] stripes;
+    private final int mask;
+    private final LongAdder sum = new LongAdder();
+    private final DoubleAdder sumOfSquares = new DoubleAdder();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    public Histogram() {
+        this(MAX_STRIPES);
+    }
+
+    /**
+     * @param maxStripes upper bound of the number of striped counters, 1 trades contention for memory
+     *                   when many histograms are kept
+     */
+    public Histogram(final int maxStripes) {
+        int size = 1;
+        while (size < Math.min(maxStripes, Runtime.getRuntime().availableProcessors())) {
+            size <<= 1;
+        }
+        this.stripes = new AtomicLongArray[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.mask = size - 1;
+    }
+
+    public void record(final long value) {
+        final long v = Math.max(0, value);
+
+        final long id = Thread.currentThread().getId();
+        stripes[(int) (id ^ (id >>> 16)) & mask].incrementAndGet(index(v));
+        sum.add(v);
+        sumOfSquares.add((double) v * v);
+
+        long current;
+        while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+            // retry
+        }
+        while (v < (current = min.get()) && !min.compareAndSet(current, v)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (final long c : counts()) {
+            count += c;
+        }
+        return count;
+    }
+
+    public long getMax() {
+        final long value = max.get();
+        return value == Long.MIN_VALUE ? 0 : value;
+    }
+
+    public long getMin() {
+        final long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    public double getStandardDeviation() {
+        final long count = getCount();
+        if (count < 2) {
+            return 0;
+        }
+        final double mean = (double) getSum() / count;
+        final double variance = (sumOfSquares.sum() - count * mean * mean) / (count - 1);
+        return variance <= 0 ? 0 : Math.sqrt(variance);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value at the requested percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long[] counts = counts();
+
+        long total = 0;
+        for (final long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100. * total));
+        if (rank >= total) {
+            return getMax();
+        }
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // middle of the bucket, within what was actually seen
+                final long value = lowerBound(i) + (width(i) - 1) / 2;
+                return Math.max(getMin(), Math.min(getMax(), value));
+            }
+        }
+        return getMax();
+    }
+
+    private long[] counts() {
+        final long[] counts = new long[BUCKETS];
+        for (final AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return counts;
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        final int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (index / SUB_BUCKETS - 1);
+    }
+
+    private static long width(final int index) {
+        return index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.monitoring;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.api.internal.Internal;
+import org.apache.openejb.api.jmx.Description;
+import org.apache.openejb.api.jmx.ManagedAttribute;
+import org.apache.openejb.api.jmx.ManagedOperation;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.ContainerSystem;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Breakdown of the time of the business invocations done through EJB proxies, per bean method, in:
+ * <ul>
+ *     <li>PROXY: proxy handling excluding the container and the copy of the arguments</li>
+ *     <li>COPY: copy of the arguments, result and exception (remote semantic)</li>
+ *     <li>SECURITY: authorization check</li>
+ *     <li>TRANSACTION: transaction policy creation and completion (begin, commit, rollback...)</li>
+ *     <li>POOL: checkout (and for stateless beans return) of the instance</li>
+ *     <li>INTERCEPTORS: interceptor chain excluding the bean method</li>
+ *     <li>BEAN: bean method</li>
+ *     <li>TOTAL: the whole invocation</li>
+ * </ul>
+ *
+ * Phases are accumulated in a thread local for the current invocation and merged in the {@link InvocationTimings}
+ * of the method when the invocation ends, so nested invocations are accounted in their own method.
+ * Inactive by default, openejb.invocation.metrics=true activates it at startup and the Enabled
+ * attribute of the MBean toggles it at runtime. Whether an invocation is measured is decided when it
+ * starts, a toggle only applies to the next invocations so the phases of a running one stay consistent.
+ * Until the first activation the cost is a volatile read per phase, then a thread local read.
+ */
+@Internal
+@Description("Time spent in each phase of the EJB invocations")
+public class InvocationMetrics {
+    public static final String ACTIVE = "openejb.invocation.metrics";
+
+    public enum Phase {
+        PROXY, COPY, SECURITY, TRANSACTION, POOL, INTERCEPTORS, BEAN, TOTAL
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+    private static final String[] COLUMNS = {"bean", "method", "phase", "count", "meanUs", "p50Us", "p99Us", "maxUs"};
+    private static final OpenType<?>[] TYPES = {
+        SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.LONG,
+        SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE
+    };
+
+    private static volatile boolean active;
+    private static volatile boolean activated; // an invocation may be measured
+
+    public static boolean isActive() {
+        return active;
+    }
+
+    public static void setActive(final boolean active) {
+        if (active) {
+            activated = true;
+        }
+        InvocationMetrics.active = active;
+    }
+
+    /**
+     * @return the start of a phase to pass to {@link #record(Phase, long)}, 0 if the current invocation is not measured
+     */
+    public static long start() {
+        return activated && CURRENT.get() != null ? System.nanoTime() : 0;
+    }
+
+    public static void record(final Phase phase, final long start) {
+        if (start != 0) {
+            final Invocation invocation = CURRENT.get();
+            if (invocation != null) {
+                invocation.add(phase, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Starts the measure of an invocation, to pair with {@link #exit(Invocation, BeanContext, Method)}.
+     *
+     * @return the current invocation or null if not measured
+     */
+    public static Invocation enter() {
+        if (!activated) {
+            return null;
+        }
+        final Invocation parent = CURRENT.get();
+        if (!active && parent == null) { // nested invocations follow their root so they are not accounted in it
+            return null;
+        }
+        final Invocation invocation = new Invocation(parent);
+        CURRENT.set(invocation);
+        return invocation;
+    }
+
+    /**
+     * @param containerStart start of the container invocation, see {@link #start()}
+     */
+    public static void container(final Invocation invocation, final long containerStart) {
+        if (invocation != null && containerStart != 0) {
+            invocation.container += System.nanoTime() - containerStart;
+        }
+    }
+
+    public static void exit(final Invocation invocation, final BeanContext beanContext, final Method method) {
+        if (invocation == null) {
+            return;
+        }
+
+        final long total = System.nanoTime() - invocation.start;
+        if (invocation.parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(invocation.parent);
+        }
+        if (beanContext == null) {
+            return;
+        }
+
+        final long[] phases = invocation.phases;
+        final long proxy = total - invocation.container - phases[Phase.COPY.ordinal()];
+        if (invocation.measured(Phase.INTERCEPTORS) && invocation.measured(Phase.BEAN)) {
+            phases[Phase.INTERCEPTORS.ordinal()] -= phases[Phase.BEAN.ordinal()];
+        }
+
+        final InvocationTimings timings = beanContext.getInvocationTimings(method);
+        timings.record(Phase.PROXY, proxy);
+        timings.record(Phase.TOTAL, total);
+        for (final Phase phase : PHASES) {
+            if (phase != Phase.PROXY && phase != Phase.TOTAL && invocation.measured(phase)) {
+                timings.record(phase, phases[phase.ordinal()]);
+            }
+        }
+    }
+
+    @ManagedAttribute
+    @Description("Are the invocation phases measured.")
+    public boolean getEnabled() {
+        return isActive();
+    }
+
+    @ManagedAttribute
+    @Description("Activate or deactivate the measure of the invocation phases.")
+    public void setEnabled(final boolean enabled) {
+        setActive(enabled);
+    }
+
+    @ManagedAttribute
+    @Description("Timings in microseconds of each phase of each invoked bean method.")
+    public TabularData getSnapshot() {
+        try {
+            final CompositeType row = new CompositeType("InvocationPhase", "timings of an invocation phase", COLUMNS, COLUMNS, TYPES);
+            final TabularDataSupport data = new TabularDataSupport(
+                new TabularType("InvocationPhases", "timings of the invocation phases", row, new String[]{"bean", "method", "phase"}));
+            for (final BeanContext beanContext : deployments()) {
+                for (final Map.Entry<Method, InvocationTimings> entry : beanContext.getInvocationTimings().entrySet()) {
+                    final InvocationTimings timings = entry.getValue();
+                    for (final Phase phase : PHASES) {
+                        final long count = timings.getCount(phase);
+                        if (count == 0) {
+                            continue;
+                        }
+                        data.put(new CompositeDataSupport(row, COLUMNS, new Object[]{
+                            String.valueOf(beanContext.getDeploymentID()), signature(entry.getKey()), phase.name(), count,
+                            micros(timings.getMean(phase)), micros(timings.getValueAtPercentile(phase, 50)),
+                            micros(timings.getValueAtPercentile(phase, 99)), micros(timings.getMax(phase))
+                        }));
+                    }
+                }
+            }
+            return data;
+        } catch (final OpenDataException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @ManagedOperation
+    @Description("Reset the timings.")
+    public void reset() {
+        for (final BeanContext beanContext : deployments()) {
+            for (final InvocationTimings timings : beanContext.getInvocationTimings().values()) {
+                timings.reset();
+            }
+        }
+    }
+
+    private static BeanContext[] deployments() {
+        final ContainerSystem containerSystem = SystemInstance.get().getComponent(ContainerSystem.class);
+        return containerSystem == null ? new BeanContext[0] : containerSystem.deployments();
+    }
+
+    private static String signature(final Method method) {
+        final StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        final Class<?>[] parameters = method.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                signature.append(", ");
+            }
+            signature.append(parameters[i].getSimpleName());
+        }
+        return signature.append(')').toString();
+    }
+
+    private static double micros(final double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    public static final class Invocation {
+        private final Invocation parent;
+        private final long start = System.nanoTime();
+        private final long[] phases = new long[PHASES.length];
+        private int measured;
+        private long container;
+
+        private Invocation(final Invocation parent) {
+            this.parent = parent;
+        }
+
+        private void add(final Phase phase, final long nanos) {
+            phases[phase.ordinal()] += nanos;
+            measured |= 1 << phase.ordinal();
+        }
+
+        private boolean measured(final Phase phase) {
+            return (measured & (1 << phase.ordinal())) != 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.monitoring;
+
+/**
+ * Timings of the phases of the invocations of one method, one {@link Histogram} per phase.
+ */
+public class InvocationTimings {
+    private static final InvocationMetrics.Phase[] PHASES = InvocationMetrics.Phase.values();
+
+    // replaced as a whole by reset() since a histogram can't be cleared
+    private volatile Histogram[] histograms = newHistograms();
+
+    public void record(final InvocationMetrics.Phase phase, final long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    public long getCount(final InvocationMetrics.Phase phase) {
+        return histograms[phase.ordinal()].getCount();
+    }
+
+    public long getTotal(final InvocationMetrics.Phase phase) {
+        return histograms[phase.ordinal()].getSum();
+    }
+
+    public long getMax(final InvocationMetrics.Phase phase) {
+        return histograms[phase.ordinal()].getMax();
+    }
+
+    public double getMean(final InvocationMetrics.Phase phase) {
+        return histograms[phase.ordinal()].getMean();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value at the percentile in nanoseconds, 0 if there is no value
+     */
+    public long getValueAtPercentile(final InvocationMetrics.Phase phase, final double percentile) {
+        return histograms[phase.ordinal()].getValueAtPercentile(percentile);
+    }
+
+    public void reset() {
+        histograms = newHistograms();
+    }
+
+    private static Histogram[] newHistograms() {
+        final Histogram[] histograms = new Histogram[PHASES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            // a single stripe, a set of histograms is kept per invoked method
+            histograms[i] = new Histogram(1);
+        }
+        return histograms;
+    }
+}
@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @version $Rev$ $Date$
@@ -51,38 +52,45 @@ public class StatsInterceptor {
     }
 
     private static final String DISABLE_STAT_INTERCEPTOR_PROPERTY = "openejb.stats.interceptor.disable";
+    private static final String STAT_INTERCEPTOR_BACKEND_PROPERTY = "openejb.stats.interceptor.backend";
 
     public static final InterceptorData metadata = InterceptorData.scan(StatsInterceptor.class);
 
-    private final Map<Method, Stats> map = new ConcurrentHashMap<>();
-    private final AtomicLong invocations = new AtomicLong();
-    private final AtomicLong invocationTime = new AtomicLong();
+    private final Map<Method, MethodStats> map = new ConcurrentHashMap<>();
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder invocationTime = new LongAdder();
 
     private final Monitor monitor;
     private final boolean enabled;
+    private final boolean histogram;
 
     public StatsInterceptor(final Class<?> componentClass) {
 
         monitor = componentClass.getAnnotation(Monitor.class);
+        histogram = "histogram".equalsIgnoreCase(SystemInstance.get().getOptions().get(STAT_INTERCEPTOR_BACKEND_PROPERTY, "window"));
         final ClassFinder finder = new ClassFinder(componentClass);
         for (final Method method : finder.findAnnotatedMethods(Monitor.class)) {
-            map.put(method, new Stats(method, monitor));
+            map.put(method, newStats(method));
         }
         enabled = monitor != null || map.size() > 0;
     }
 
+    private MethodStats newStats(final Method method) {
+        return histogram ? new HistogramStats(method) : new Stats(method, monitor);
+    }
+
     public boolean isMonitoringEnabled() {
         return enabled;
     }
 
     @Managed
     public long getInvocationCount() {
-        return invocations.get();
+        return invocations.sum();
     }
 
     @Managed
     public long getInvocationTime() {
-        return invocationTime.get();
+        return invocationTime.sum();
     }
 
     @Managed
@@ -90,8 +98,8 @@ public class StatsInterceptor {
         return map.size();
     }
 
-    @ManagedCollection(type = Stats.class, key = "method")
-    public Collection<Stats> stats() {
+    @ManagedCollection(type = MethodStats.class, key = "method")
+    public Collection<MethodStats> stats() {
         return map.values();
     }
 
@@ -183,35 +191,51 @@ public class StatsInterceptor {
     }
 
     private Object record(final InvocationContext invocationContext, final Method callback) throws Exception {
-        invocations.incrementAndGet();
+        invocations.increment();
 
-        final Stats stats = enabled ? stats(invocationContext, callback) : null;
+        final MethodStats stats = enabled ? stats(invocationContext, callback) : null;
         final long start = System.nanoTime();
         try {
             return invocationContext.proceed();
         } finally {
-            long time = System.nanoTime() - start;
-            time = millis(time); // do it in 2 steps since otherwise the measure is false (more false)
+            final long nanos = System.nanoTime() - start;
             if (stats != null) {
-                stats.record(time);
+                stats.recordNanos(nanos);
             }
-            invocationTime.addAndGet(time);
+            invocationTime.add(millis(nanos));
         }
     }
 
-    private long millis(final long nanos) {
+    private static long millis(final long nanos) {
         return TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS);
     }
 
-    private Stats stats(final InvocationContext invocationContext, final Method callback) {
+    private static String signature(final Method method) {
+        final String s = ",";
+
+        final StringBuilder sb = new StringBuilder(method.getName());
+        sb.append("(");
+        final Class<?>[] params = method.getParameterTypes();
+        for (final Class<?> clazz : params) {
+            sb.append(clazz.getSimpleName());
+            sb.append(s);
+        }
+        if (params.length > 0) {
+            sb.delete(sb.length() - s.length(), sb.length());
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    private MethodStats stats(final InvocationContext invocationContext, final Method callback) {
         final Method method = callback == null ? invocationContext.getMethod() : callback;
 
-        Stats stats = map.get(method);
+        MethodStats stats = map.get(method);
         if (stats == null) {
             synchronized (map) {
                 stats = map.get(method);
                 if (stats == null) {
-                    stats = new Stats(method, monitor);
+                    stats = newStats(method);
                     map.put(method, stats);
                 }
             }
@@ -219,7 +243,15 @@ public class StatsInterceptor {
         return stats;
     }
 
-    public class Stats {
+    /**
+     * Per method statistics, the implementation is selected by the
+     * openejb.stats.interceptor.backend property: "window" (default) or "histogram".
+     */
+    public interface MethodStats {
+        void recordNanos(long nanos);
+    }
+
+    public class Stats implements MethodStats {
         private final AtomicLong count = new AtomicLong();
         private final SynchronizedDescriptiveStatistics samples;
 
@@ -232,21 +264,7 @@ public class StatsInterceptor {
             final int window = methodAnnotation != null ? methodAnnotation.sample() : classAnnotation != null ? classAnnotation.sample() : 2000;
 
             this.samples = new SynchronizedDescriptiveStatistics(window);
-            final String s = ",";
-
-            final StringBuilder sb = new StringBuilder(method.getName());
-            sb.append("(");
-            final Class<?>[] params = method.getParameterTypes();
-            for (final Class<?> clazz : params) {
-                sb.append(clazz.getSimpleName());
-                sb.append(s);
-            }
-            if (params.length > 0) {
-                sb.delete(sb.length() - s.length(), sb.length());
-            }
-            sb.append(")");
-
-            this.method = sb.toString();
+            this.method = signature(method);
         }
 
         @Managed
@@ -364,6 +382,102 @@ public class StatsInterceptor {
             samples.addValue(time);
         }
 
+        @Override
+        public void recordNanos(final long nanos) {
+            record(millis(nanos)); // do it in 2 steps since otherwise the measure is false (more false)
+        }
+
+    }
+
+    /**
+     * Lock free alternative to {@link Stats}, values are kept in a fixed memory
+     * {@link Histogram} instead of a synchronized sliding window so it can be
+     * left on for hot methods. Times are reported in milliseconds.
+     */
+    public class HistogramStats implements MethodStats {
+        private static final double NANOS_PER_MILLI = 1000000.;
+
+        private final Histogram histogram = new Histogram();
+        private final AtomicLong rateCount = new AtomicLong();
+        private final AtomicLong rateTime = new AtomicLong(System.nanoTime());
+        private volatile double rate;
+
+        // Used as the prefix for the MBeanAttributeInfo
+        private final String method;
+
+        public HistogramStats(final Method method) {
+            this.method = signature(method);
+        }
+
+        @Managed
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Managed
+        public double getPercentile50() {
+            return histogram.getValueAtPercentile(50.0) / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getPercentile90() {
+            return histogram.getValueAtPercentile(90.0) / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getPercentile99() {
+            return histogram.getValueAtPercentile(99.0) / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getPercentile999() {
+            return histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getMean() {
+            return histogram.getMean() / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getStandardDeviation() {
+            return histogram.getStandardDeviation() / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getMax() {
+            return histogram.getMax() / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getMin() {
+            return histogram.getMin() / NANOS_PER_MILLI;
+        }
+
+        @Managed
+        public double getSum() {
+            return histogram.getSum() / NANOS_PER_MILLI;
+        }
+
+        /**
+         * @return invocations per second between the two last samples, a sample
+         * is taken when this attribute is read at least one second after the previous one
+         */
+        @Managed
+        public double getRate() {
+            final long now = System.nanoTime();
+            final long last = rateTime.get();
+            if (now - last >= TimeUnit.SECONDS.toNanos(1) && rateTime.compareAndSet(last, now)) {
+                final long count = histogram.getCount();
+                rate = (count - rateCount.getAndSet(count)) * (double) TimeUnit.SECONDS.toNanos(1) / (now - last);
+            }
+            return rate;
+        }
+
+        @Override
+        public void recordNanos(final long nanos) {
+            histogram.record(nanos);
+        }
     }
 
     public static boolean isStatsActivated() {
@@ -25,6 +25,7 @@ import org.apache.openejb.resource.XAResourceWrapper;
 import org.apache.openejb.resource.jdbc.dbcp.DbcpDataSourceCreator;
 import org.apache.openejb.resource.jdbc.driver.AlternativeDriver;
 import org.apache.openejb.resource.jdbc.logging.LoggingSqlDataSource;
+import org.apache.openejb.resource.jdbc.logging.SqlProfiler;
 import org.apache.openejb.resource.jdbc.plugin.AbstractDataSourcePlugin;
 import org.apache.openejb.resource.jdbc.plugin.DataSourcePlugin;
 import org.apache.openejb.resource.jdbc.pool.DataSourceCreator;
@@ -74,6 +75,10 @@ public class DataSourceFactory {
     public static final String RESET_METHODS_PROPERTY = "ResetOnErrorMethods";
     public static final String GLOBAL_LOG_SQL_PROPERTY = "openejb.jdbc.log";
     public static final String GLOBAL_LOG_SQL_PACKAGE_PROPERTY = "openejb.jdbc.log.packages";
+    public static final String PROFILE_SQL_PROPERTY = "ProfileSql";
+    public static final String PROFILE_SQL_SLOW_THRESHOLD_PROPERTY = "ProfileSqlSlowThreshold";
+    public static final String PROFILE_SQL_MAX_STATEMENTS_PROPERTY = "ProfileSqlMaxStatements";
+    public static final String GLOBAL_PROFILE_SQL_PROPERTY = "openejb.jdbc.profile";
     public static final String GLOBAL_FLUSH_PROPERTY = "openejb.jdbc.flushable";
     public static final String POOL_PROPERTY = "openejb.datasource.pool";
     public static final String DATA_SOURCE_CREATOR_PROP = "DataSourceCreator";
@@ -142,7 +147,11 @@ public class DataSourceFactory {
         final boolean logSql = SystemInstance.get().getOptions().get(GLOBAL_LOG_SQL_PROPERTY,
             "true".equalsIgnoreCase((String) properties.remove(LOG_SQL_PROPERTY)));
         final String logPackages = SystemInstance.get().getProperty(GLOBAL_LOG_SQL_PACKAGE_PROPERTY, (String) properties.remove(LOG_SQL_PACKAGE_PROPERTY));
-        final DataSourceCreator creator = creator(properties.remove(DATA_SOURCE_CREATOR_PROP), logSql);
+        final boolean profileSql = SystemInstance.get().getOptions().get(GLOBAL_PROFILE_SQL_PROPERTY,
+            "true".equalsIgnoreCase((String) properties.remove(PROFILE_SQL_PROPERTY)));
+        final String profileSlowThreshold = (String) properties.remove(PROFILE_SQL_SLOW_THRESHOLD_PROPERTY);
+        final String profileMaxStatements = (String) properties.remove(PROFILE_SQL_MAX_STATEMENTS_PROPERTY);
+        final DataSourceCreator creator = creator(properties.remove(DATA_SOURCE_CREATOR_PROP), logSql || profileSql);
         final String resetOnError = (String) properties.remove(RESET_PROPERTY);
         final String resetMethods = (String) properties.remove(RESET_METHODS_PROPERTY); // before setProperties()
 
@@ -224,7 +233,7 @@ public class DataSourceFactory {
             }
 
             final boolean doResetOnError = resetOnError != null && !"false".equals(resetOnError);
-            if (doResetOnError || logSql || flushable) { // will get proxied
+            if (doResetOnError || logSql || profileSql || flushable) { // will get proxied
                 ObjectRecipe objectRecipe = null;
                 ResettableDataSourceHandler existingResettableHandler = null;
                 FlushableDataSourceHandler flushableDataSourceHandler = null;
@@ -261,7 +270,11 @@ public class DataSourceFactory {
 
                 ds = wrapIfNeeded(handler, ds);
 
-                if (logSql) {
+                if (profileSql) { // replaces the logging of each statement
+                    ds = makeItProfiling(ds, name, logPackages,
+                        profileMaxStatements == null ? 500 : Integer.parseInt(profileMaxStatements.trim()),
+                        profileSlowThreshold == null ? 1000 : Long.parseLong(profileSlowThreshold.trim()));
+                } else if (logSql) {
                     ds = makeItLogging(ds, logPackages);
                 }
 
@@ -384,6 +397,15 @@ public class DataSourceFactory {
             new Class<?>[]{DataSource.class, Serializable.class}, new LoggingSqlDataSource(ds, pck));
     }
 
+    public static DataSource makeItProfiling(final CommonDataSource ds, final String name, final String packagesStr,
+                                             final int maxStatements, final long slowThresholdMs) {
+        final String[] pck = packagesStr == null ? null : packagesStr.split(" *, *");
+        final SqlProfiler profiler = new SqlProfiler(name, maxStatements, slowThresholdMs, pck);
+        profiler.register();
+        return (DataSource) Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(),
+            new Class<?>[]{DataSource.class, Serializable.class}, new LoggingSqlDataSource(ds, pck, profiler));
+    }
+
     private static void normalizeJdbcUrl(final Properties properties) {
         final String key = "JdbcUrl";
         final String jdbcUrl = properties.getProperty(key);
@@ -507,6 +529,8 @@ public class DataSourceFactory {
 
     @SuppressWarnings("SuspiciousMethodCalls")
     public static void destroy(final Object o) throws Throwable {
+        unregisterProfiler(o);
+
         final Object instance = realInstance(o);
         if (instance == null) {
             return;
@@ -520,6 +544,28 @@ public class DataSourceFactory {
         }
     }
 
+    private static void unregisterProfiler(final Object o) {
+        if (o == null || !(o instanceof DataSource)) {
+            return;
+        }
+
+        Object ds = o;
+        while (Proxy.isProxyClass(ds.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(ds);
+            if (LoggingSqlDataSource.class.isInstance(handler)) {
+                final SqlProfiler profiler = LoggingSqlDataSource.class.cast(handler).getProfiler();
+                if (profiler != null) {
+                    profiler.unregister();
+                }
+            }
+            if (DelegatableHandler.class.isInstance(handler)) {
+                ds = DelegatableHandler.class.cast(handler).getDelegate();
+            } else {
+                break;
+            }
+        }
+    }
+
     // remove proxy added by us in front of the datasource returned by the creator
     private static Object realInstance(final Object o) {
         if (o == null || !(o instanceof DataSource)) {
@@ -24,5 +24,9 @@ public class LoggingCallableSqlStatement extends LoggingPreparedSqlStatement {
         super(result, query, debugPackages);
     }
 
+    public LoggingCallableSqlStatement(final PreparedStatement result, final String query, final String[] debugPackages, final SqlProfiler profiler) {
+        super(result, query, debugPackages, profiler);
+    }
+
     // TODO: manage in/out parameters
 }
@@ -39,13 +39,21 @@ public class LoggingPreparedSqlStatement implements InvocationHandler {
     private final String sql;
     private final List<Parameter> parameters = new ArrayList<>();
     private final String[] packages;
+    private final SqlProfiler profiler;
+    private final String normalizedSql;
     private int parameterIndex;
 
     public LoggingPreparedSqlStatement(final PreparedStatement result, final String query, final String[] debugPackages) {
+        this(result, query, debugPackages, null);
+    }
+
+    public LoggingPreparedSqlStatement(final PreparedStatement result, final String query, final String[] debugPackages, final SqlProfiler profiler) {
         delegate = result;
         sql = query;
         parameterIndex = 0;
         packages = debugPackages;
+        this.profiler = profiler;
+        normalizedSql = profiler != null ? SqlProfiler.normalize(query) : null;
     }
 
     @Override
@@ -66,7 +74,11 @@ public class LoggingPreparedSqlStatement implements InvocationHandler {
 
         final TimeWatcherExecutor.TimerWatcherResult result = TimeWatcherExecutor.execute(method, delegate, args, execute);
 
-        if (mtdName.startsWith("set") && args.length >= 2 && (args[0].getClass().equals(Integer.TYPE) || args[0].getClass().equals(Integer.class))) {
+        if (profiler != null) { // parameters are not needed, only the statement is
+            if (execute) {
+                profiler.record(normalizedSql, result.getDurationNanos(), SqlProfiler.rows(result.getResult()), result.getThrowable() != null);
+            }
+        } else if (mtdName.startsWith("set") && args.length >= 2 && (args[0].getClass().equals(Integer.TYPE) || args[0].getClass().equals(Integer.class))) {
             final Parameter param = new Parameter(mtdName.substring(3), parameterIndex, (Integer) args[0], args[1]);
 
             if (debug) {
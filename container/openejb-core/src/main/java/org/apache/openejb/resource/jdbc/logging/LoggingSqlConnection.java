@@ -33,10 +33,16 @@ public class LoggingSqlConnection implements InvocationHandler {
 
     private final Connection delegate;
     private final String[] packages;
+    private final SqlProfiler profiler;
 
     public LoggingSqlConnection(final Connection connection, final String[] debugPackages) {
+        this(connection, debugPackages, null);
+    }
+
+    public LoggingSqlConnection(final Connection connection, final String[] debugPackages, final SqlProfiler profiler) {
         this.delegate = connection;
         this.packages = debugPackages;
+        this.profiler = profiler;
     }
 
     @Override
@@ -52,17 +58,17 @@ public class LoggingSqlConnection implements InvocationHandler {
 
         if ("createStatement".equals(mtd)) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(), INTERFACES_STATEMENT,
-                new LoggingSqlStatement((Statement) result, packages));
+                new LoggingSqlStatement((Statement) result, packages, profiler));
         }
 
         if ("prepareStatement".equals(mtd)) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(), INTERFACES_PREPARED,
-                new LoggingPreparedSqlStatement((PreparedStatement) result, (String) args[0], packages));
+                new LoggingPreparedSqlStatement((PreparedStatement) result, (String) args[0], packages, profiler));
         }
 
         if ("prepareCall".equals(mtd)) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(), INTERFACES_CALLABLE,
-                new LoggingCallableSqlStatement((CallableStatement) result, (String) args[0], packages));
+                new LoggingCallableSqlStatement((CallableStatement) result, (String) args[0], packages, profiler));
         }
 
         return result;
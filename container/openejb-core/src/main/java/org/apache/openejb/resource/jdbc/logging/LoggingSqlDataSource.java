@@ -30,10 +30,16 @@ public class LoggingSqlDataSource implements DelegatableHandler {
 
     private final CommonDataSource delegate;
     private final String[] packages;
+    private final SqlProfiler profiler;
 
     public LoggingSqlDataSource(final CommonDataSource ds, final String[] debugPackages) {
+        this(ds, debugPackages, null);
+    }
+
+    public LoggingSqlDataSource(final CommonDataSource ds, final String[] debugPackages, final SqlProfiler profiler) {
         delegate = ds;
         packages = debugPackages;
+        this.profiler = profiler;
     }
 
     @Override
@@ -51,7 +57,7 @@ public class LoggingSqlDataSource implements DelegatableHandler {
 
         if ("getConnection".equals(method.getName())) {
             return Proxy.newProxyInstance(delegate.getClass().getClassLoader(),
-                INTERFACES, new LoggingSqlConnection((Connection) result, packages));
+                INTERFACES, new LoggingSqlConnection((Connection) result, packages, profiler));
         }
         return result;
     }
@@ -60,4 +66,8 @@ public class LoggingSqlDataSource implements DelegatableHandler {
     public CommonDataSource getDelegate() {
         return delegate;
     }
+
+    public SqlProfiler getProfiler() {
+        return profiler;
+    }
 }
@@ -29,10 +29,16 @@ public class LoggingSqlStatement implements InvocationHandler {
 
     private final Statement delegate;
     private final String[] packages;
+    private final SqlProfiler profiler;
 
     public LoggingSqlStatement(final Statement result, final String[] debugPackages) {
+        this(result, debugPackages, null);
+    }
+
+    public LoggingSqlStatement(final Statement result, final String[] debugPackages, final SqlProfiler profiler) {
         this.delegate = result;
         this.packages = debugPackages;
+        this.profiler = profiler;
     }
 
     @Override
@@ -41,7 +47,10 @@ public class LoggingSqlStatement implements InvocationHandler {
         final boolean execute = mtdName.startsWith("execute") && args != null && args.length > 0;
 
         final TimeWatcherExecutor.TimerWatcherResult result = TimeWatcherExecutor.execute(method, delegate, args, execute);
-        if (execute) {
+        if (execute && profiler != null) {
+            profiler.record(SqlProfiler.normalize((String) args[0]), result.getDurationNanos(),
+                SqlProfiler.rows(result.getResult()), result.getThrowable() != null);
+        } else if (execute) {
             LOGGER.info(result.format((String) args[0]) + (packages != null ? " - stack:" + TimeWatcherExecutor.inlineStack(packages) : ""));
         }
 
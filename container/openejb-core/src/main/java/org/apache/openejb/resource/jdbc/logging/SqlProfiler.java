@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.resource.jdbc.logging;
+
+import org.apache.openejb.api.internal.Internal;
+import org.apache.openejb.api.jmx.Description;
+import org.apache.openejb.api.jmx.ManagedAttribute;
+import org.apache.openejb.api.jmx.ManagedOperation;
+import org.apache.openejb.monitoring.DynamicMBeanWrapper;
+import org.apache.openejb.monitoring.Histogram;
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.monitoring.ObjectNameBuilder;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregating alternative to the line by line logging of the statements of a datasource:
+ * executions are grouped by normalized SQL (literals replaced by ?) and only counters and a
+ * latency histogram are kept per statement. The number of statements is bounded, the ones
+ * seen after the limit is reached are aggregated under {@link #OTHER}.
+ *
+ * A stack is captured only for executions slower than the slow threshold, the slowest one
+ * is kept per statement.
+ */
+@Internal
+@Description("SQL statistics of a datasource")
+public class SqlProfiler {
+    public static final String OTHER = "<other>";
+
+    private static final int MAX_SQL_LENGTH = 1024;
+    private static final int MAX_STACK_DEPTH = 20;
+    private static final Pattern IN_LIST = Pattern.compile("(?i)(\\bin ?)\\( ?\\?( ?, ?\\?)+ ?\\)");
+
+    private static final String[] COLUMNS = {
+        "sql", "count", "errors", "rows", "averageMs", "p99Ms", "maxMs", "totalMs", "slowestStack"
+    };
+    private static final OpenType<?>[] TYPES = {
+        SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+        SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.STRING
+    };
+
+    private final String name;
+    private final int maxStatements;
+    private final long slowThreshold;
+    private final String[] packages;
+    private final ConcurrentMap<String, Stats> statements = new ConcurrentHashMap<>();
+
+    private volatile ObjectName objectName;
+
+    public SqlProfiler(final String name, final int maxStatements, final long slowThresholdMs, final String[] packages) {
+        this.name = name;
+        this.maxStatements = Math.max(1, maxStatements);
+        this.slowThreshold = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.packages = packages;
+    }
+
+    public void register() {
+        if (LocalMBeanServer.isJMXActive()) {
+            final ObjectNameBuilder builder = new ObjectNameBuilder("openejb.management")
+                .set("ObjectType", "datasources")
+                .set("DataSource", name)
+                .set("name", "sql-profiler");
+            ObjectName candidate = builder.build();
+            if (LocalMBeanServer.get().isRegistered(candidate)) { // the datasource is being flushed
+                candidate = builder.set("DataSource", name + "(" + System.identityHashCode(this) + ")").build();
+            }
+            LocalMBeanServer.registerSilently(new DynamicMBeanWrapper(this), candidate);
+            objectName = candidate;
+        }
+    }
+
+    public void unregister() {
+        if (objectName != null) {
+            LocalMBeanServer.unregisterSilently(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * @param sql    the normalized statement, see {@link #normalize(String)}
+     * @param nanos  execution duration
+     * @param rows   updated rows or -1 if unknown
+     * @param failed true if the execution threw an exception
+     */
+    public void record(final String sql, final long nanos, final long rows, final boolean failed) {
+        final Stats stats = stats(sql);
+        stats.latency.record(nanos);
+        if (rows > 0) {
+            stats.rows.add(rows);
+        }
+        if (failed) {
+            stats.errors.increment();
+        }
+        if (nanos >= slowThreshold && nanos > stats.slowestStackNanos) {
+            final String stack = stack();
+            synchronized (stats) {
+                if (nanos > stats.slowestStackNanos) {
+                    stats.slowestStackNanos = nanos;
+                    stats.slowestStack = stack;
+                }
+            }
+        }
+    }
+
+    private Stats stats(final String sql) {
+        Stats stats = statements.get(sql);
+        if (stats == null) {
+            final String key = statements.size() < maxStatements ? sql : OTHER;
+            stats = statements.get(key);
+            if (stats == null) {
+                final Stats created = new Stats();
+                stats = statements.putIfAbsent(key, created);
+                if (stats == null) {
+                    stats = created;
+                }
+            }
+        }
+        return stats;
+    }
+
+    private String stack() {
+        if (packages != null) {
+            return TimeWatcherExecutor.inlineStack(packages);
+        }
+
+        final StringBuilder stack = new StringBuilder();
+        int depth = 0;
+        for (final StackTraceElement elt : new Exception().getStackTrace()) {
+            final String className = elt.getClassName();
+            if (className.startsWith(SqlProfiler.class.getPackage().getName())
+                || className.startsWith("java.lang.reflect.") || className.startsWith("sun.reflect.")
+                || className.startsWith("jdk.internal.") || className.startsWith("com.sun.proxy.")) {
+                continue;
+            }
+            stack.append(" -> ").append(className).append('.').append(elt.getMethodName()).append(':').append(elt.getLineNumber());
+            if (++depth == MAX_STACK_DEPTH) {
+                break;
+            }
+        }
+        return stack.toString();
+    }
+
+    /**
+     * @return the number of rows of the result of an execute method or -1 if it is not an update count
+     */
+    public static long rows(final Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (final int r : (int[]) result) {
+                rows += Math.max(0, r);
+            }
+            return rows;
+        }
+        if (result instanceof long[]) {
+            long rows = 0;
+            for (final long r : (long[]) result) {
+                rows += Math.max(0, r);
+            }
+            return rows;
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the literals of a statement by ? and collapses whitespaces and IN lists
+     * so executions differing only by their values are aggregated together.
+     */
+    public static String normalize(final String sql) {
+        if (sql == null) {
+            return "null";
+        }
+
+        final StringBuilder out = new StringBuilder(Math.min(sql.length(), MAX_SQL_LENGTH));
+        final int length = sql.length();
+        int i = 0;
+        while (i < length && out.length() < MAX_SQL_LENGTH) {
+            final char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (out.length() > 0 && i < length) {
+                    out.append(' ');
+                }
+            } else if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') { // escaped quote
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            } else if (Character.isDigit(c) && (out.length() == 0 || !isIdentifierPart(out.charAt(out.length() - 1)))) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return IN_LIST.matcher(out).replaceAll("$1(?)");
+    }
+
+    private static boolean isIdentifierPart(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.' || c == '"';
+    }
+
+    @ManagedAttribute
+    @Description("Number of distinct statements.")
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    @ManagedAttribute
+    @Description("Number of executions.")
+    public long getExecutionCount() {
+        long count = 0;
+        for (final Stats stats : statements.values()) {
+            count += stats.latency.getCount();
+        }
+        return count;
+    }
+
+    @ManagedAttribute
+    @Description("Number of failed executions.")
+    public long getErrorCount() {
+        long count = 0;
+        for (final Stats stats : statements.values()) {
+            count += stats.errors.sum();
+        }
+        return count;
+    }
+
+    @ManagedAttribute
+    @Description("Duration in ms above which the stack of an execution is captured.")
+    public long getSlowThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThreshold);
+    }
+
+    @ManagedAttribute
+    @Description("The 10 statements with the highest total execution time.")
+    public TabularData getTopStatements() {
+        return topSlowStatements(10);
+    }
+
+    @ManagedOperation
+    @Description("The n statements with the highest total execution time.")
+    public TabularData topSlowStatements(final int n) {
+        final List<Map.Entry<String, Stats>> entries = new ArrayList<>(statements.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Stats>>() {
+            @Override
+            public int compare(final Map.Entry<String, Stats> o1, final Map.Entry<String, Stats> o2) {
+                return Long.compare(o2.getValue().latency.getSum(), o1.getValue().latency.getSum());
+            }
+        });
+
+        try {
+            final CompositeType row = new CompositeType("SqlStatement", "statistics of a statement", COLUMNS, COLUMNS, TYPES);
+            final TabularDataSupport data = new TabularDataSupport(new TabularType("SqlStatements", "slowest statements", row, new String[]{"sql"}));
+            for (final Map.Entry<String, Stats> entry : entries.subList(0, Math.min(Math.max(0, n), entries.size()))) {
+                final Stats stats = entry.getValue();
+                final long count = stats.latency.getCount();
+                final long total = stats.latency.getSum();
+                data.put(new CompositeDataSupport(row, COLUMNS, new Object[]{
+                    entry.getKey(), count, stats.errors.sum(), stats.rows.sum(),
+                    count == 0 ? 0. : millis(total / count), millis(stats.latency.getValueAtPercentile(99)), millis(stats.latency.getMax()), millis(total),
+                    stats.slowestStack == null ? "" : stats.slowestStack
+                }));
+            }
+            return data;
+        } catch (final OpenDataException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @ManagedOperation
+    @Description("Reset the statistics.")
+    public void reset() {
+        statements.clear();
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1000000.;
+    }
+
+    private static final class Stats {
+        // a single stripe, up to maxStatements histograms are kept per datasource
+        private final Histogram latency = new Histogram(1);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private volatile long slowestStackNanos;
+        private volatile String slowestStack;
+    }
+}
@@ -69,10 +69,12 @@ public final class TimeWatcherExecutor {
     public static class TimerWatcherResult {
         private final Object result;
         private final Throwable throwable;
+        private final long durationNanos;
         private final long duration;
 
         public TimerWatcherResult(final long start, final Object result, final Throwable throwable) {
-            this.duration = (start == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            this.durationNanos = (start == 0) ? 0 : System.nanoTime() - start;
+            this.duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
             this.result = result;
             this.throwable = throwable;
         }
@@ -95,6 +97,10 @@ public final class TimeWatcherExecutor {
             return duration;
         }
 
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
         public Throwable getThrowable() {
             return throwable;
         }
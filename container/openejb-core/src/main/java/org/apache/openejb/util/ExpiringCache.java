@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A bounded map whose entries carry their own deadline.
+ *
+ * Entries are also sorted by deadline, so the expired ones are dropped from the head on each put and, when the
+ * cache is still full, the entry expiring first is evicted: a put costs a few O(log n) operations and never
+ * walks the whole cache.
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry<K, V>> byDeadline = new ConcurrentSkipListSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile int maxSize;
+
+    public ExpiringCache(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the value of the key, null if there is none or if it expired
+     */
+    public V get(final K key) {
+        final Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.deadline <= System.currentTimeMillis()) {
+            remove(entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @param deadline the time in milliseconds after which the value is not returned anymore
+     */
+    public void put(final K key, final V value, final long deadline) {
+        final Entry<K, V> entry = new Entry<>(key, value, deadline, sequence.incrementAndGet());
+        byDeadline.add(entry);
+        final Entry<K, V> previous = entries.put(key, entry);
+        if (previous != null) {
+            byDeadline.remove(previous);
+        }
+        evict(System.currentTimeMillis());
+    }
+
+    public V remove(final K key) {
+        final Entry<K, V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        byDeadline.remove(entry);
+        return entry.value;
+    }
+
+    public void removeIf(final Predicate<? super V> filter) {
+        final Iterator<Entry<K, V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry<K, V> entry = iterator.next();
+            if (filter.test(entry.value)) {
+                iterator.remove();
+                byDeadline.remove(entry);
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        byDeadline.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+        evict(System.currentTimeMillis());
+    }
+
+    /**
+     * @return the number of entries removed to respect the maximum size, expired entries are not counted
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void evict(final long now) {
+        Entry<K, V> first;
+        while ((first = first()) != null && first.deadline <= now) {
+            remove(first);
+        }
+
+        while (entries.size() > maxSize && (first = byDeadline.pollFirst()) != null) {
+            if (entries.remove(first.key, first)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private Entry<K, V> first() {
+        final Iterator<Entry<K, V>> iterator = byDeadline.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private void remove(final Entry<K, V> entry) {
+        byDeadline.remove(entry);
+        entries.remove(entry.key, entry);
+    }
+
+    private static final class Entry<K, V> implements Comparable<Entry<K, V>> {
+        private final K key;
+        private final V value;
+        private final long deadline;
+        private final long sequence;
+
+        private Entry(final K key, final V value, final long deadline, final long sequence) {
+            this.key = key;
+            this.value = value;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Entry<K, V> o) {
+            final int byTime = Long.compare(deadline, o.deadline);
+            return byTime != 0 ? byTime : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -16,17 +16,41 @@
  */
 package org.apache.openejb.util;
 
+import org.apache.openejb.loader.SystemInstance;
+
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands log messages over to a single writer thread through a bounded ring buffer.
+ *
+ * When the buffer is full the {@code openejb.log.async.overflow} policy applies:
+ * <ul>
+ * <li>block (default): the caller waits for the writer to free a slot</li>
+ * <li>drop: messages below {@code openejb.log.async.overflow.level} (warn by default) are dropped, others wait</li>
+ * <li>sample: like drop but one of each {@code openejb.log.async.overflow.sample} (100 by default) messages is kept</li>
+ * </ul>
+ * The buffer holds {@code openejb.log.async.capacity} messages (8192 by default) and the writer
+ * drains it by batches of {@code openejb.log.async.batch} messages (256 by default).
+ */
 public class LogStreamAsync implements LogStream, Closeable {
 
-    private static final LinkedBlockingQueue<Message> log = new LinkedBlockingQueue<Message>();
-    private static final Thread t = new Thread(new Consumer(LogStreamAsync.log), "LogStreamAsync.Thread");
+    private static final Config config = new Config();
+    private static final RingBuffer log = new RingBuffer(config.capacity);
+    private static final Consumer consumer = new Consumer(LogStreamAsync.log, config.batch);
+    private static final Thread t = new Thread(consumer, "LogStreamAsync.Thread");
     private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final LongAdder dropped = new LongAdder();
+    private static final LongAdder overflowed = new LongAdder();
+    private static volatile boolean closed;
     private final LogStream ls;
 
     private enum level {
@@ -38,6 +62,12 @@ public class LogStreamAsync implements LogStream, Closeable {
         quit,
     }
 
+    private enum overflow {
+        block,
+        drop,
+        sample,
+    }
+
     public LogStreamAsync(final LogStream ls) {
         this.ls = ls;
 
@@ -47,14 +77,40 @@ public class LogStreamAsync implements LogStream, Closeable {
         }
     }
 
+    /**
+     * @return the number of messages waiting for the writer thread
+     */
+    public static long getQueuedCount() {
+        return log.size();
+    }
+
+    /**
+     * @return the number of messages discarded by the overflow policy
+     */
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of times a message found the buffer full
+     */
+    public static long getOverflowCount() {
+        return overflowed.sum();
+    }
+
+    /**
+     * @return the number of messages written by the writer thread
+     */
+    public static long getWrittenCount() {
+        return consumer.written.get();
+    }
+
     @Override
     public void close() throws IOException {
+        closed = true;
         LogStreamAsync.log.clear();
-        try {
-            LogStreamAsync.log.put(new Message(this.ls, level.quit, ""));
-        } catch (final InterruptedException e) {
-            //Ignore
-        }
+        LogStreamAsync.log.offer(new Message(this.ls, level.quit, ""));
+        LockSupport.unpark(t);
     }
 
     @Override
@@ -114,7 +170,7 @@ public class LogStreamAsync implements LogStream, Closeable {
 
     @Override
     public void info(final String message, final Throwable t) {
-        this.log(level.info, message, null);
+        this.log(level.info, message, t);
     }
 
     @Override
@@ -137,10 +193,51 @@ public class LogStreamAsync implements LogStream, Closeable {
     }
 
     public void log(final level l, final String s, final Throwable t) {
-        try {
-            LogStreamAsync.log.put(new Message(this.ls, l, s, t));
-        } catch (final InterruptedException e) {
-            //Ignore
+        final Message message = new Message(this.ls, l, s, t);
+        if (closed) { // no writer anymore, don't lose the message
+            message.write();
+            return;
+        }
+        if (LogStreamAsync.log.offer(message)) {
+            consumer.signal();
+            return;
+        }
+
+        overflowed.increment();
+        if (config.overflow != overflow.block && l.ordinal() > config.overflowLevel.ordinal()
+            && (config.overflow == overflow.drop || overflowed.sum() % config.sample != 0)) {
+            dropped.increment();
+            return;
+        }
+
+        // wait for the writer to free a slot
+        consumer.signal();
+        long wait = 1;
+        while (!LogStreamAsync.log.offer(message)) {
+            if (closed) {
+                message.write();
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(wait));
+            wait = Math.min(wait * 2, 1000);
+        }
+        consumer.signal();
+    }
+
+    private static final class Config {
+        private final int capacity;
+        private final int batch;
+        private final overflow overflow;
+        private final level overflowLevel;
+        private final long sample;
+
+        private Config() {
+            final SystemInstance system = SystemInstance.get();
+            capacity = Integer.highestOneBit(Math.max(2, Integer.parseInt(system.getProperty("openejb.log.async.capacity", "8192")) * 2 - 1));
+            batch = Math.max(1, Integer.parseInt(system.getProperty("openejb.log.async.batch", "256")));
+            overflow = LogStreamAsync.overflow.valueOf(system.getProperty("openejb.log.async.overflow", "block").trim().toLowerCase(Locale.ENGLISH));
+            overflowLevel = level.valueOf(system.getProperty("openejb.log.async.overflow.level", "warn").trim().toLowerCase(Locale.ENGLISH));
+            sample = Math.max(1, Long.parseLong(system.getProperty("openejb.log.async.overflow.sample", "100")));
         }
     }
 
@@ -161,64 +258,162 @@ public class LogStreamAsync implements LogStream, Closeable {
             this.s = s;
             this.t = t;
         }
+
+        private void write() {
+            if (null != t) {
+                switch (l) {
+                    case fatal:
+                        ls.fatal(s, t);
+                        break;
+                    case error:
+                        ls.error(s, t);
+                        break;
+                    case warn:
+                        ls.warn(s, t);
+                        break;
+                    case info:
+                        ls.info(s, t);
+                        break;
+                    case debug:
+                        ls.debug(s, t);
+                        break;
+                }
+            } else {
+                switch (l) {
+                    case fatal:
+                        ls.fatal(s);
+                        break;
+                    case error:
+                        ls.error(s);
+                        break;
+                    case warn:
+                        ls.warn(s);
+                        break;
+                    case info:
+                        ls.info(s);
+                        break;
+                    case debug:
+                        ls.debug(s);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounded multi producer/single consumer queue, each slot carries a sequence
+     * telling whether it is free for the producer claiming it or ready for the consumer.
+     */
+    private static final class RingBuffer {
+        private final AtomicReferenceArray<Message> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private final int mask;
+        private volatile long head;
+
+        private RingBuffer(final int capacity) {
+            slots = new AtomicReferenceArray<>(capacity);
+            sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+            mask = capacity - 1;
+        }
+
+        private boolean offer(final Message message) {
+            while (true) {
+                final long position = tail.get();
+                final int index = (int) position & mask;
+                final long delta = sequences.get(index) - position;
+                if (delta == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots.lazySet(index, message);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (delta < 0) {
+                    return false; // full
+                }
+            }
+        }
+
+        // single consumer
+        private Message poll() {
+            final long position = head;
+            final int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                return null;
+            }
+            final Message message = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.set(index, position + mask + 1);
+            head = position + 1;
+            return message;
+        }
+
+        private void clear() {
+            synchronized (this) { // close() may be called by several threads
+                while (poll() != null) {
+                    // no-op
+                }
+            }
+        }
+
+        private long size() {
+            return Math.max(0, tail.get() - head);
+        }
     }
 
     private static final class Consumer implements Runnable {
 
-        private final BlockingQueue<Message> queue;
+        private final RingBuffer queue;
+        private final Message[] batch;
+        private final AtomicLong written = new AtomicLong();
+        private volatile boolean waiting;
 
-        private Consumer(final BlockingQueue<Message> queue) {
+        private Consumer(final RingBuffer queue, final int batch) {
             this.queue = queue;
+            this.batch = new Message[batch];
+        }
+
+        private void signal() {
+            if (waiting) {
+                LockSupport.unpark(t);
+            }
         }
 
         public void run() {
+            while (true) {
+                int size = 0;
+                synchronized (queue) {
+                    Message msg;
+                    while (size < batch.length && (msg = queue.poll()) != null) {
+                        batch[size++] = msg;
+                    }
+                }
+
+                if (size == 0) {
+                    waiting = true;
+                    if (queue.size() == 0) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    }
+                    waiting = false;
+                    if (Thread.interrupted()) {
+                        return;
+                    }
+                    continue;
+                }
 
-            try {
-                Message msg;
-                while (!level.quit.equals((msg = queue.take()).l)) {
-                    final Throwable t = msg.t;
-
-                    if (null != t) {
-                        switch (msg.l) {
-                            case fatal:
-                                msg.ls.fatal(msg.s, t);
-                                break;
-                            case error:
-                                msg.ls.error(msg.s, t);
-                                break;
-                            case warn:
-                                msg.ls.warn(msg.s, t);
-                                break;
-                            case info:
-                                msg.ls.info(msg.s, t);
-                                break;
-                            case debug:
-                                msg.ls.debug(msg.s, t);
-                                break;
-                        }
-                    } else {
-                        switch (msg.l) {
-                            case fatal:
-                                msg.ls.fatal(msg.s);
-                                break;
-                            case error:
-                                msg.ls.error(msg.s);
-                                break;
-                            case warn:
-                                msg.ls.warn(msg.s);
-                                break;
-                            case info:
-                                msg.ls.info(msg.s);
-                                break;
-                            case debug:
-                                msg.ls.debug(msg.s);
-                                break;
-                        }
+                for (int i = 0; i < size; i++) {
+                    final Message msg = batch[i];
+                    batch[i] = null;
+                    if (level.quit.equals(msg.l)) {
+                        return;
                     }
+                    msg.write();
                 }
-            } catch (final InterruptedException e) {
-                //Exit
+                written.addAndGet(size);
             }
         }
     }
-}
\ No newline at end of file
+}
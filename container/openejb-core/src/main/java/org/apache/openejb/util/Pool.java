@@ -24,7 +24,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -36,9 +35,11 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,7 +62,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 @SuppressWarnings("StatementWithEmptyBody")
 public class Pool<T> {
 
-    private final LinkedList<Entry> pool = new LinkedList<>();
+    private final IdleEntries<Entry> pool;
     private final Semaphore instances;
     private final Semaphore available;
     private final Semaphore minimum;
@@ -102,8 +103,12 @@ public class Pool<T> {
         this(max, min, strict, 0, 0, 0, null, null, false, -1, false, false);
     }
 
+    public Pool(final int max, final int min, final boolean strict, final long maxAge, final long idleTimeout, final long sweepInterval, final Executor executor, final Supplier<T> supplier, final boolean replaceAged, final double maxAgeOffset, final boolean garbageCollection, final boolean replaceFlushed) {
+        this(max, min, strict, maxAge, idleTimeout, sweepInterval, executor, supplier, replaceAged, maxAgeOffset, garbageCollection, replaceFlushed, false);
+    }
+
     @SuppressWarnings("unchecked")
-    public Pool(final int max, final int min, final boolean strict, final long maxAge, final long idleTimeout, long sweepInterval, final Executor executor, final Supplier<T> supplier, final boolean replaceAged, final double maxAgeOffset, final boolean garbageCollection, final boolean replaceFlushed) {
+    public Pool(final int max, final int min, final boolean strict, final long maxAge, final long idleTimeout, long sweepInterval, final Executor executor, final Supplier<T> supplier, final boolean replaceAged, final double maxAgeOffset, final boolean garbageCollection, final boolean replaceFlushed, final boolean striped) {
         if (min > max) {
             greater("max", max, "min", min);
         }
@@ -115,6 +120,7 @@ public class Pool<T> {
         this.available = strict ? new Semaphore(max) : new Overdraft(max);
         this.minimum = new Semaphore(min);
         this.instances = new Semaphore(max);
+        this.pool = striped ? new StripedIdleEntries(max) : new LinkedIdleEntries();
         this.maxAge = maxAge;
         this.maxAgeOffset = maxAgeOffset;
         this.replaceAged = replaceAged;
@@ -253,12 +259,9 @@ public class Pool<T> {
 
         Entry entry;
         do {
-            synchronized (pool) {
-                try {
-                    entry = pool.removeFirst();
-                } catch (final NoSuchElementException e) {
-                    return null;
-                }
+            entry = pool.poll();
+            if (entry == null) {
+                return null;
             }
 
             final Pool<T>.Entry.Instance instance = entry.soft.get();
@@ -401,9 +404,7 @@ public class Pool<T> {
                     entry.hard.set(obj);
                 }
 
-                synchronized (pool) {
-                    pool.addFirst(entry);
-                }
+                pool.offer(entry);
                 added = true;
             }
         } finally {
@@ -805,6 +806,104 @@ public class Pool<T> {
         FULL, IDLE, AGED, FLUSHED, GC
     }
 
+    /**
+     * Holds the idle entries, pop() and push() are the only callers.
+     * Implementations favor the most recently pushed entries.
+     */
+    private interface IdleEntries<E> {
+
+        /**
+         * @return an idle entry or null if there is none
+         */
+        E poll();
+
+        void offer(E entry);
+    }
+
+    private final class LinkedIdleEntries implements IdleEntries<Entry> {
+        private final LinkedList<Entry> entries = new LinkedList<>();
+
+        @Override
+        public Entry poll() {
+            synchronized (entries) {
+                return entries.pollFirst();
+            }
+        }
+
+        @Override
+        public void offer(final Entry entry) {
+            synchronized (entries) {
+                entries.addFirst(entry);
+            }
+        }
+    }
+
+    /**
+     * Lock free storage for highly concurrent pools.
+     *
+     * An entry is parked in the slot the pushing thread hashes to so that the next
+     * pop() of that thread usually takes it back without touching any shared state.
+     * When the slot is taken the entry goes to a non blocking deque, a thread finding
+     * both its slot and the deque empty steals from the other slots before giving up.
+     */
+    private final class StripedIdleEntries implements IdleEntries<Entry> {
+        private final AtomicReferenceArray<Entry> slots;
+        private final int mask;
+        private final ConcurrentLinkedDeque<Entry> overflow = new ConcurrentLinkedDeque<>();
+
+        private StripedIdleEntries(final int max) {
+            final int target = Math.min(Math.max(max, 1), Runtime.getRuntime().availableProcessors() * 2);
+            int size = 1;
+            while (size < target) {
+                size <<= 1;
+            }
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        private int slot() {
+            final long id = Thread.currentThread().getId();
+            final int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        @Override
+        public Entry poll() {
+            final int slot = slot();
+
+            Entry entry = take(slot);
+            if (entry != null) {
+                return entry;
+            }
+
+            entry = overflow.pollFirst();
+            if (entry != null) {
+                return entry;
+            }
+
+            for (int i = 1; i <= mask; i++) {
+                entry = take((slot + i) & mask);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private Entry take(final int slot) {
+            // read first, an unconditional getAndSet would invalidate the cache line for nothing
+            return slots.get(slot) == null ? null : slots.getAndSet(slot, null);
+        }
+
+        @Override
+        public void offer(final Entry entry) {
+            final int slot = slot();
+            if (slots.get(slot) != null || !slots.compareAndSet(slot, null, entry)) {
+                overflow.offerFirst(entry);
+            }
+        }
+    }
+
     private final class Expired {
         private final Entry entry;
         private final AtomicBoolean discarded = new AtomicBoolean();
@@ -1077,6 +1176,11 @@ public class Pool<T> {
             return !(available instanceof Overdraft);
         }
 
+        @Managed
+        private boolean getStripedPooling() {
+            return pool instanceof Pool.StripedIdleEntries;
+        }
+
         @Managed
         private int getAvailablePermits() {
             return available.availablePermits();
@@ -1124,6 +1228,7 @@ public class Pool<T> {
         private boolean replaceAged;
         private boolean replaceFlushed;
         private boolean garbageCollection = true;
+        private boolean striped;
 
         public Builder(final Builder<T> that) {
             this.max = that.max;
@@ -1138,6 +1243,7 @@ public class Pool<T> {
             this.replaceAged = that.replaceAged;
             this.replaceFlushed = that.replaceFlushed;
             this.garbageCollection = that.garbageCollection;
+            this.striped = that.striped;
         }
 
         public Builder() {
@@ -1184,6 +1290,14 @@ public class Pool<T> {
             this.strict = strict;
         }
 
+        public void setStripedPooling(final boolean striped) {
+            this.striped = striped;
+        }
+
+        public boolean isStriped() {
+            return striped;
+        }
+
         public void setMaxAge(final Duration maxAge) {
             this.maxAge = maxAge;
         }
@@ -1239,7 +1353,7 @@ public class Pool<T> {
         @SuppressWarnings("unchecked")
         public Pool<T> build() {
             //noinspection unchecked
-            final Pool pool = new Pool(max, min, strict, maxAge.getTime(MILLISECONDS), idleTimeout.getTime(MILLISECONDS), interval.getTime(MILLISECONDS), executor, supplier, replaceAged, maxAgeOffset, this.garbageCollection, replaceFlushed);
+            final Pool pool = new Pool(max, min, strict, maxAge.getTime(MILLISECONDS), idleTimeout.getTime(MILLISECONDS), interval.getTime(MILLISECONDS), executor, supplier, replaceAged, maxAgeOffset, this.garbageCollection, replaceFlushed, striped);
             if (scheduledExecutorService != null) {
                 pool.scheduler.set(scheduledExecutorService);
             }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.Archives;
+import org.apache.xbean.finder.AnnotationFinder;
+import org.apache.xbean.finder.archive.Archive;
+import org.apache.xbean.finder.archive.ClasspathArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Stateless;
+import javax.sql.DataSource;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnnotationIndexTest {
+    private static final Class<?>[] CLASSES = {Base.class, Red.class, Green.class, Plain.class};
+
+    @Before
+    @After
+    public void reset() {
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void folder() throws Exception {
+        final File classes = Archives.fileArchive(CLASSES);
+        assertTrue(AnnotationIndex.write(classes).isFile());
+
+        final URL url = classes.toURI().toURL();
+        final Archive indexed = AnnotationIndex.archive(getClass().getClassLoader(), url);
+        assertNotNull(indexed);
+        assertSameModel(ClasspathArchive.archive(getClass().getClassLoader(), url), indexed);
+    }
+
+    @Test
+    public void jar() throws Exception {
+        final File classes = Archives.fileArchive(CLASSES);
+        final File index = AnnotationIndex.write(classes);
+        final File jar = Archives.jarArchive(Collections.singletonMap(AnnotationIndex.INDEX, index), "indexed", CLASSES);
+
+        final URL url = jar.toURI().toURL();
+        final Archive indexed = AnnotationIndex.archive(getClass().getClassLoader(), url);
+        assertNotNull(indexed);
+        assertSameModel(ClasspathArchive.archive(getClass().getClassLoader(), url), indexed);
+
+        // ConfigurableClasspathArchive is the deployment entry point
+        final Module module = new Module(false);
+        module.setClassLoader(new URLClassLoader(new URL[]{url}, getClass().getClassLoader()));
+        assertEquals(indexed.getClass(), ConfigurableClasspathArchive.archive(module, url, false).getClass());
+    }
+
+    @Test
+    public void staleIndexIsIgnored() throws Exception {
+        final File classes = Archives.fileArchive(CLASSES);
+        AnnotationIndex.write(classes);
+        final URL url = classes.toURI().toURL();
+
+        final File added = new File(classes, "org/apache/openejb/config/Added.class");
+        IO.copy(new byte[]{1, 2, 3}, added);
+        assertNull(AnnotationIndex.archive(getClass().getClassLoader(), url));
+        assertTrue(added.delete());
+        assertNotNull(AnnotationIndex.archive(getClass().getClassLoader(), url));
+
+        final File modified = new File(classes, Red.class.getName().replace('.', '/') + ".class");
+        final byte[] bytecode = IO.readBytes(modified);
+        bytecode[bytecode.length - 1]++;
+        IO.copy(bytecode, modified);
+        assertTrue(modified.setLastModified(System.currentTimeMillis() + 2000));
+        assertNull(AnnotationIndex.archive(getClass().getClassLoader(), url));
+    }
+
+    @Test
+    public void corruptedIndexIsIgnored() throws Exception {
+        final File classes = Archives.fileArchive(CLASSES);
+        final URL url = classes.toURI().toURL();
+
+        final File index = AnnotationIndex.write(classes);
+        try (final DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(index)))) {
+            out.writeInt(AnnotationIndex.MAGIC);
+            out.writeInt(AnnotationIndex.VERSION);
+            out.writeInt(0);
+            out.writeInt(1);
+            out.writeUTF(Red.class.getName());
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        assertNull(AnnotationIndex.archive(getClass().getClassLoader(), url));
+
+        try (final DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(index)))) {
+            out.writeInt(AnnotationIndex.MAGIC);
+            out.writeInt(AnnotationIndex.VERSION);
+            out.writeInt(-1);
+        }
+        assertNull(AnnotationIndex.archive(getClass().getClassLoader(), url));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        final File classes = Archives.fileArchive(CLASSES);
+        AnnotationIndex.write(classes);
+
+        SystemInstance.get().setProperty(AnnotationIndex.ACTIVE, "false");
+        assertNull(AnnotationIndex.archive(getClass().getClassLoader(), classes.toURI().toURL()));
+    }
+
+    private static void assertSameModel(final Archive scanned, final Archive indexed) {
+        final AnnotationFinder expected = new AnnotationFinder(scanned).link();
+        final AnnotationFinder actual = new AnnotationFinder(indexed).link();
+
+        assertEquals(names(expected.findAnnotatedClasses(Stateless.class)), names(actual.findAnnotatedClasses(Stateless.class)));
+        assertEquals(names(expected.findAnnotatedClasses(Singleton.class)), names(actual.findAnnotatedClasses(Singleton.class)));
+        assertEquals(names(expected.findSubclasses(Base.class)), names(actual.findSubclasses(Base.class)));
+        assertEquals(expected.getAnnotatedClassNames(), actual.getAnnotatedClassNames());
+
+        final List<String> methods = new ArrayList<>();
+        for (final Method method : actual.findAnnotatedMethods(PostConstruct.class)) {
+            methods.add(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        }
+        Collections.sort(methods);
+        assertEquals(expected.findAnnotatedMethods(PostConstruct.class).size(), methods.size());
+        assertEquals("[Base.init, Green.start]", methods.toString());
+
+        final List<Field> fields = actual.findAnnotatedFields(Resource.class);
+        assertEquals(1, fields.size());
+        assertEquals("dataSource", fields.get(0).getName());
+    }
+
+    private static List<String> names(final List<? extends Class<?>> classes) {
+        final List<String> names = new ArrayList<>();
+        for (final Class<?> clazz : classes) {
+            names.add(clazz.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    public abstract static class Base {
+        @Resource
+        protected DataSource dataSource;
+
+        @PostConstruct
+        public void init() {
+            // no-op
+        }
+    }
+
+    @Stateless
+    public static class Red extends Base {
+    }
+
+    @Singleton
+    public static class Green extends Base {
+        @PostConstruct
+        public void start() {
+            // no-op
+        }
+    }
+
+    public static class Plain {
+    }
+}
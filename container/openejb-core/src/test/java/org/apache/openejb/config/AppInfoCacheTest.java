@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.assembler.classic.AppInfo;
+import org.apache.openejb.assembler.classic.Assembler;
+import org.apache.openejb.assembler.classic.EnterpriseBeanInfo;
+import org.apache.openejb.assembler.classic.SecurityServiceInfo;
+import org.apache.openejb.assembler.classic.TransactionServiceInfo;
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.util.Archives;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ejb.Singleton;
+import javax.ejb.Stateless;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AppInfoCacheTest {
+    private File directory;
+
+    @Before
+    public void before() {
+        SystemInstance.reset();
+        directory = Files.mkdirs(new File(Files.tmpdir(), "appinfo-" + System.nanoTime()));
+    }
+
+    @After
+    public void after() {
+        SystemInstance.reset();
+        Files.delete(directory);
+    }
+
+    @Test
+    public void restartUsesTheSnapshot() throws Exception {
+        final File jar = Archives.jarArchive(Red.class, Green.class);
+
+        final ConfigurationFactory configurationFactory = boot();
+        final AppInfo configured = configurationFactory.configureApplication(jar);
+        final File[] snapshots = directory.listFiles();
+        assertNotNull(snapshots);
+        assertEquals(1, snapshots.length);
+        assertTrue(snapshots[0].setLastModified(0));
+
+        SystemInstance.reset(); // restart
+        final AppInfo restored = boot().configureApplication(jar);
+        assertEquals(0, snapshots[0].lastModified()); // not rewritten so it was used
+        assertEquals(describe(configured), describe(restored));
+
+        // the auto created containers are back before the deployment
+        final ContainerSystem containerSystem = SystemInstance.get().getComponent(ContainerSystem.class);
+        for (final EnterpriseBeanInfo bean : restored.ejbJars.get(0).enterpriseBeans) {
+            assertNotNull(bean.containerId, containerSystem.getContainer(bean.containerId));
+        }
+
+        final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
+        assembler.createApplication(restored);
+        assertNotNull(containerSystem.getBeanContext(restored.ejbJars.get(0).enterpriseBeans.get(0).ejbDeploymentId));
+        assembler.destroyApplication(restored.path);
+    }
+
+    @Test
+    public void changesInvalidateTheSnapshot() throws Exception {
+        final File jar = Archives.jarArchive(Red.class);
+        final AppInfoCache cache = new AppInfoCache(directory);
+
+        final ConfigurationFactory configurationFactory = boot();
+        final Map<String, String> key = AppInfoCache.key(jar, Collections.<String>emptyList(), Collections.<String>emptyList());
+        configurationFactory.configureApplication(jar);
+        final AppInfoCache.Snapshot snapshot = cache.load(jar, key);
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getInstalled().size()); // auto created singleton container
+
+        final Map<String, String> property = new HashMap<>(key);
+        property.put("property Red.timeout", "5");
+        assertNull(cache.load(jar, property));
+
+        final Map<String, String> resources = new HashMap<>(key);
+        resources.put("resources", "[jdbc/red]");
+        assertNull(cache.load(jar, resources));
+
+        Archives.jarArchive(jar, null, Red.class, Green.class);
+        final Map<String, String> archive = new HashMap<>(key);
+        archive.put("archive", AppInfoCache.key(jar, Collections.<String>emptyList(), Collections.<String>emptyList()).get("archive"));
+        assertNotEquals(key.get("archive"), archive.get("archive"));
+        assertNull(cache.load(jar, archive));
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        SystemInstance.init(new Properties());
+        assertNull(AppInfoCache.get());
+    }
+
+    private ConfigurationFactory boot() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty("openejb.environment.default", "false");
+        properties.setProperty(AppInfoCache.ACTIVE, "true");
+        properties.setProperty(AppInfoCache.DIRECTORY, directory.getAbsolutePath());
+        SystemInstance.init(properties);
+
+        final Assembler assembler = new Assembler();
+        final ConfigurationFactory configurationFactory = new ConfigurationFactory();
+        assembler.createTransactionManager(configurationFactory.configureService(TransactionServiceInfo.class));
+        assembler.createSecurityService(configurationFactory.configureService(SecurityServiceInfo.class));
+        return configurationFactory;
+    }
+
+    private static String describe(final AppInfo appInfo) {
+        final StringBuilder builder = new StringBuilder(appInfo.appId).append(':');
+        for (final EnterpriseBeanInfo bean : appInfo.ejbJars.get(0).enterpriseBeans) {
+            builder.append(bean.ejbDeploymentId).append('@').append(bean.containerId).append(',');
+        }
+        return builder.toString();
+    }
+
+    @Singleton
+    public static class Red {
+    }
+
+    @Stateless
+    public static class Green {
+    }
+}
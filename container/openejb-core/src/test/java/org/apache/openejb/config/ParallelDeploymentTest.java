@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.config;
+
+import org.apache.openejb.OpenEJBException;
+import org.apache.openejb.assembler.classic.AppInfo;
+import org.apache.openejb.assembler.classic.Assembler;
+import org.apache.openejb.assembler.classic.EjbJarInfo;
+import org.apache.openejb.assembler.classic.EnterpriseBeanInfo;
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.Archives;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ejb.Singleton;
+import javax.ejb.Stateless;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelDeploymentTest {
+    @Before
+    @After
+    public void reset() {
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void resultsAreInItemOrder() throws Exception {
+        init(true);
+
+        final List<Future<String>> futures = ParallelDeployment.submit(Arrays.asList(3, 1, 2), new ParallelDeployment.Task<Integer, String>() {
+            @Override
+            public String call(final Integer item) throws Exception {
+                Thread.sleep(item * 20);
+                return Thread.currentThread().getName() + "#" + item;
+            }
+        });
+
+        final List<String> results = ParallelDeployment.joinAll(futures);
+        assertEquals(3, results.size());
+        assertEquals("3", results.get(0).substring(results.get(0).indexOf('#') + 1));
+        assertEquals("1", results.get(1).substring(results.get(1).indexOf('#') + 1));
+        assertEquals("2", results.get(2).substring(results.get(2).indexOf('#') + 1));
+        assertNotEquals(Thread.currentThread().getName(), results.get(0).substring(0, results.get(0).indexOf('#')));
+    }
+
+    @Test
+    public void firstErrorInItemOrderIsThrown() throws Exception {
+        init(true);
+
+        try {
+            ParallelDeployment.joinAll(ParallelDeployment.submit(Arrays.asList("ok", "first", "second"), new ParallelDeployment.Task<String, String>() {
+                @Override
+                public String call(final String item) throws Exception {
+                    if ("ok".equals(item)) {
+                        return item;
+                    }
+                    throw new OpenEJBException(item);
+                }
+            }));
+            fail();
+        } catch (final OpenEJBException e) {
+            assertEquals("first", e.getMessage());
+        }
+    }
+
+    @Test
+    public void sameApplicationAsSequentialDeployment() throws Exception {
+        final File ear = new File(Files.tmpdir(), "parallel.ear");
+        final Map<String, Object> contents = new HashMap<>();
+        contents.put("red.jar", Archives.jarArchive(Red.class));
+        contents.put("green.jar", Archives.jarArchive(Green.class));
+        contents.put("blue.jar", Archives.jarArchive(Blue.class));
+        final Map<String, Object> metaInf = new HashMap<>();
+        metaInf.put("META-INF/ejb-jar.xml", "<ejb-jar><module-name>yellow</module-name></ejb-jar>");
+        contents.put("yellow.jar", Archives.jarArchive(metaInf, "yellow", Yellow.class));
+        Archives.jarArchive(ear, contents);
+
+        init(false);
+        final List<String> sequential = describe(new ConfigurationFactory().configureApplication(ear));
+        reset();
+        init(true);
+        final List<String> parallel = describe(new ConfigurationFactory().configureApplication(ear));
+
+        assertEquals(4, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    private static void init(final boolean parallel) throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty("openejb.environment.default", "false");
+        properties.setProperty(ParallelDeployment.PARALLEL, Boolean.toString(parallel));
+        SystemInstance.init(properties);
+        new Assembler();
+    }
+
+    private static List<String> describe(final AppInfo appInfo) {
+        final List<String> modules = new ArrayList<>();
+        for (final EjbJarInfo ejbJar : appInfo.ejbJars) {
+            final StringBuilder module = new StringBuilder(ejbJar.moduleId).append(':');
+            for (final EnterpriseBeanInfo bean : ejbJar.enterpriseBeans) {
+                module.append(bean.ejbName).append(',');
+            }
+            modules.add(module.toString());
+        }
+        return modules;
+    }
+
+    @Singleton
+    public static class Red {
+    }
+
+    @Stateless
+    public static class Green {
+    }
+
+    @Singleton
+    public static class Blue {
+    }
+
+    @Stateless
+    public static class Yellow {
+    }
+}
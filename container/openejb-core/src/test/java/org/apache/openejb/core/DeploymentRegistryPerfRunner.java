@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deployment id lookup done by the containers on each invocation, with the registry synchronized on the
+ * container as it used to be and with the concurrent one, run the main with as many threads as cores.
+ */
+@State(Scope.Benchmark)
+public class DeploymentRegistryPerfRunner {
+
+    @Param({"false", "true"})
+    private boolean concurrent;
+
+    @Param({"50"})
+    private int deployments;
+
+    private Registry registry;
+    private String[] ids;
+
+    @Setup
+    public void setup() {
+        registry = concurrent ? new Registry(new ConcurrentHashMap<String, Object>()) : new SynchronizedRegistry();
+        ids = new String[deployments];
+        for (int i = 0; i < deployments; i++) {
+            ids[i] = "app/module/Bean" + i;
+            registry.deployments.put(ids[i], new Object());
+        }
+    }
+
+    @Benchmark
+    public Object getBeanContext() {
+        return registry.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DeploymentRegistryPerfRunner.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build())
+                .run();
+    }
+
+    private static class Registry {
+        protected final Map<String, Object> deployments;
+
+        private Registry(final Map<String, Object> deployments) {
+            this.deployments = deployments;
+        }
+
+        public Object get(final String id) {
+            return deployments.get(id);
+        }
+    }
+
+    private static class SynchronizedRegistry extends Registry {
+        private SynchronizedRegistry() {
+            super(new HashMap<String, Object>());
+        }
+
+        @Override
+        public synchronized Object get(final String id) {
+            return super.get(id);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.interceptor;
+
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.testing.ApplicationComposers;
+import org.apache.openejb.testing.Module;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptors;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Local business invocations of an intercepted stateless and singleton bean,
+ * compares the MethodHandle invokers against plain reflection (each param runs in its own fork).
+ */
+@State(Scope.Benchmark)
+public class InvocationPerfRunner {
+
+    @Param({"false", "true"})
+    private boolean methodHandles;
+
+    @EJB
+    private StatelessEcho stateless;
+
+    @EJB
+    private SingletonEcho singleton;
+
+    private ApplicationComposers composers;
+
+    @Module
+    public EjbJar beans() {
+        final EjbJar ejbJar = new EjbJar();
+        ejbJar.addEnterpriseBean(new StatelessBean(StatelessEcho.class));
+        ejbJar.addEnterpriseBean(new SingletonBean(SingletonEcho.class));
+        return ejbJar;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        System.setProperty(MethodInvoker.METHOD_HANDLES, Boolean.toString(methodHandles));
+        composers = new ApplicationComposers(InvocationPerfRunner.class);
+        composers.before(this);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        composers.after();
+    }
+
+    @Benchmark
+    public String statelessInvocation() {
+        return stateless.echo("perf", 1);
+    }
+
+    @Benchmark
+    public String singletonInvocation() {
+        return singleton.echo("perf", 1);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InvocationPerfRunner.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build())
+                .run();
+    }
+
+    public static class PassThrough {
+        @AroundInvoke
+        public Object around(final InvocationContext context) throws Exception {
+            return context.proceed();
+        }
+    }
+
+    @Interceptors(PassThrough.class)
+    public static class StatelessEcho {
+        public String echo(final String value, final int count) {
+            return value + count;
+        }
+    }
+
+    @Lock(LockType.READ)
+    @Interceptors(PassThrough.class)
+    public static class SingletonEcho {
+        public String echo(final String value, final int count) {
+            return value + count;
+        }
+    }
+}
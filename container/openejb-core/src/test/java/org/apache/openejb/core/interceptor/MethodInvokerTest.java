@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.interceptor;
+
+import org.apache.openejb.core.Operation;
+import org.junit.Test;
+
+import javax.interceptor.InvocationContext;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MethodInvokerTest {
+
+    @Test
+    public void invokersAreCached() throws Exception {
+        final MethodInvoker invoker = MethodInvoker.of(Bean.class.getMethod("echo", String.class, int.class));
+        assertSame(invoker, MethodInvoker.of(Bean.class.getMethod("echo", String.class, int.class)));
+        assertEquals("a2", invoker.invoke(new Bean(), new Object[]{"a", 2}));
+    }
+
+    @Test
+    public void nonPublicStaticAndVoidMethods() throws Exception {
+        final Bean bean = new Bean();
+        assertEquals("hidden", MethodInvoker.of(Bean.class.getDeclaredMethod("hidden")).invoke(bean, null));
+        assertEquals(3, MethodInvoker.of(Bean.class.getDeclaredMethod("sum", int.class, int.class)).invoke(null, new Object[]{1, 2}));
+        assertNull(MethodInvoker.of(Bean.class.getMethod("touch")).invoke(bean, new Object[0]));
+        assertEquals(1, bean.touched);
+    }
+
+    @Test
+    public void varargsAreAnArray() throws Exception {
+        final MethodInvoker invoker = MethodInvoker.of(Bean.class.getMethod("count", String[].class));
+        assertEquals(2, invoker.invoke(new Bean(), new Object[]{new String[]{"a", "b"}}));
+    }
+
+    @Test
+    public void exceptionsAreNotWrapped() throws Exception {
+        final MethodInvoker invoker = MethodInvoker.of(Bean.class.getMethod("fail", Throwable.class));
+        try {
+            invoker.invoke(new Bean(), new Object[]{new IOException("checked")});
+            fail();
+        } catch (final IOException e) {
+            assertEquals("checked", e.getMessage());
+        }
+        try {
+            invoker.invoke(new Bean(), new Object[]{new StackOverflowError()});
+            fail();
+        } catch (final StackOverflowError e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void interceptorStack() throws Exception {
+        final InterceptorData data = new InterceptorData(Doubler.class);
+        data.getAroundInvoke().add(Doubler.class.getMethod("around", InvocationContext.class));
+
+        final Map<String, Object> instances = new HashMap<>();
+        instances.put(Doubler.class.getName(), new Doubler());
+
+        final InterceptorStack stack = new InterceptorStack(new Bean(), Bean.class.getMethod("echo", String.class, int.class),
+            Operation.BUSINESS, singletonList(data), instances);
+        assertEquals("a4", stack.invoke("a", 2));
+
+        final InterceptorStack failing = new InterceptorStack(new Bean(), Bean.class.getMethod("fail", Throwable.class),
+            Operation.BUSINESS, Collections.<InterceptorData>emptyList(), instances);
+        try {
+            failing.invoke(new IllegalStateException("business"));
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("business", e.getMessage());
+        }
+    }
+
+    @Test
+    public void interceptorChainIsBoundToEachInstance() throws Exception {
+        final InterceptorData data = new InterceptorData(Doubler.class);
+        data.getAroundInvoke().add(Doubler.class.getMethod("around", InvocationContext.class));
+        final InterceptorChain chain = InterceptorChain.of(singletonList(data), Operation.BUSINESS);
+        assertTrue(InterceptorChain.of(singletonList(data), Operation.POST_CONSTRUCT).isEmpty());
+
+        for (int i = 0; i < 2; i++) {
+            final Doubler doubler = new Doubler();
+            final Map<String, Object> instances = new HashMap<>();
+            instances.put(Doubler.class.getName(), doubler);
+
+            final InterceptorStack stack = new InterceptorStack(new Bean(), Bean.class.getMethod("echo", String.class, int.class),
+                Operation.BUSINESS, chain, instances);
+            assertEquals("a4", stack.invoke("a", 2));
+            assertSame(doubler, chain.bind(instances).get(0).getInstance());
+        }
+
+        try {
+            chain.bind(new HashMap<>());
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // no Doubler instance
+        }
+    }
+
+    public static class Bean {
+        private int touched;
+
+        public String echo(final String value, final int count) {
+            return value + count;
+        }
+
+        public int count(final String... values) {
+            return values.length;
+        }
+
+        public void touch() {
+            touched++;
+        }
+
+        public void fail(final Throwable throwable) throws Throwable {
+            throw throwable;
+        }
+
+        private String hidden() {
+            return "hidden";
+        }
+
+        static int sum(final int a, final int b) {
+            return a + b;
+        }
+    }
+
+    public static class Doubler {
+        public Object around(final InvocationContext context) throws Exception {
+            final Object[] parameters = context.getParameters();
+            parameters[1] = (Integer) parameters[1] * 2;
+            context.setParameters(parameters);
+            return context.proceed();
+        }
+    }
+}
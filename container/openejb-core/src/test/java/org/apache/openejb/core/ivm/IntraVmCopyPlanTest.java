@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.ivm;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.testing.Module;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ejb.EJB;
+import javax.ejb.Remote;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Serializable;
+import java.lang.annotation.ElementType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(ApplicationComposer.class)
+public class IntraVmCopyPlanTest {
+
+    @EJB
+    private Copy copy;
+
+    @Module
+    public StatelessBean bean() {
+        return new StatelessBean(CopyBean.class);
+    }
+
+    @Test
+    public void immutables() {
+        assertTrue(IntraVmCopyPlan.isImmutable("a", false));
+        assertTrue(IntraVmCopyPlan.isImmutable(1, true));
+        assertTrue(IntraVmCopyPlan.isImmutable(LocalDate.now(), true));
+        assertTrue(IntraVmCopyPlan.isImmutable(ElementType.TYPE, false));
+        assertFalse(IntraVmCopyPlan.isImmutable(new Mutable(), false));
+        assertFalse(IntraVmCopyPlan.isImmutable(new ArrayList<>(), false));
+    }
+
+    @Test
+    public void applicationEnumsAreNotSharedAcrossClassLoaders() {
+        assertTrue(IntraVmCopyPlan.isImmutable(Flavor.VANILLA, false));
+        assertFalse(IntraVmCopyPlan.isImmutable(Flavor.VANILLA, true));
+    }
+
+    @Test
+    public void cloneStructure() {
+        final List<String> list = new ArrayList<>(asList("a", "b"));
+        final Object clone = IntraVmCopyPlan.cloneStructure(list, false);
+        assertNotSame(list, clone);
+        assertEquals(list, clone);
+
+        final int[] ints = {1, 2, 3};
+        assertArrayEquals(ints, (int[]) IntraVmCopyPlan.cloneStructure(ints, true));
+
+        final Map<String, Mutable> map = new HashMap<>();
+        map.put("a", new Mutable());
+        assertNull(IntraVmCopyPlan.cloneStructure(map, false));
+        assertNull(IntraVmCopyPlan.cloneStructure(Arrays.asList("a", "b"), false));
+        assertNull(IntraVmCopyPlan.cloneStructure(new Flavor[]{Flavor.VANILLA}, true));
+    }
+
+    @Test
+    public void declaredTypes() throws NoSuchMethodException {
+        final IntraVmCopyPlan plan = new IntraVmCopyPlan(Copy.class.getMethod("echo", String.class, int.class, Flavor.class));
+        assertTrue(plan.isImmutableParameter(0, true));
+        assertTrue(plan.isImmutableParameter(1, true));
+        assertTrue(plan.isImmutableParameter(2, false));
+        assertFalse(plan.isImmutableParameter(2, true));
+        assertTrue(plan.isImmutableReturn(false));
+    }
+
+    @Test
+    public void remoteInvocations() throws Exception {
+        assertEquals("a1VANILLA", copy.echo("a", 1, Flavor.VANILLA));
+
+        final ArrayList<String> list = new ArrayList<>(asList("a", "b"));
+        final List<String> reversed = copy.reverse(list);
+        assertEquals(asList("b", "a"), reversed);
+        assertEquals(asList("a", "b"), list);
+
+        final Mutable mutable = new Mutable();
+        copy.touch(mutable);
+        assertEquals(0, mutable.value);
+
+        final BeanContext beanContext = SystemInstance.get().getComponent(ContainerSystem.class).getBeanContext("CopyBean");
+        final IntraVmCopyPlan echo = beanContext.getCopyPlan(Copy.class.getMethod("echo", String.class, int.class, Flavor.class));
+        assertEquals(4, echo.getCount(IntraVmCopyPlan.Path.REFERENCE));
+        assertEquals(0, echo.getCount(IntraVmCopyPlan.Path.SERIALIZATION));
+
+        final IntraVmCopyPlan reverse = beanContext.getCopyPlan(Copy.class.getMethod("reverse", ArrayList.class));
+        assertEquals(2, reverse.getCount(IntraVmCopyPlan.Path.CLONE));
+        assertEquals(0, reverse.getCount(IntraVmCopyPlan.Path.SERIALIZATION));
+
+        final IntraVmCopyPlan touch = beanContext.getCopyPlan(Copy.class.getMethod("touch", Mutable.class));
+        assertEquals(1, touch.getCount(IntraVmCopyPlan.Path.SERIALIZATION));
+        assertSame(touch, beanContext.getCopyPlan(Copy.class.getMethod("touch", Mutable.class)));
+
+        final MBeanServer server = LocalMBeanServer.get();
+        final Set<ObjectName> names = server.queryNames(new ObjectName("openejb.management:j2eeType=IntraVmCopies,name=CopyBean,*"), null);
+        assertEquals(1, names.size());
+        final ObjectName name = names.iterator().next();
+        assertEquals(2L, server.getAttribute(name, "SerializationCount")); // touch and the create of the business home
+        assertEquals(2L, server.getAttribute(name, "CloneCount"));
+        server.getMBeanInfo(name); // resolves the per method attributes
+        assertEquals(4L, server.getAttribute(name, "echo(String,int,Flavor).ReferenceCount"));
+    }
+
+    public enum Flavor {
+        VANILLA
+    }
+
+    public static class Mutable implements Serializable {
+        private int value;
+    }
+
+    @Remote
+    public interface Copy {
+        String echo(String value, int count, Flavor flavor);
+
+        List<String> reverse(ArrayList<String> values);
+
+        void touch(Mutable mutable);
+    }
+
+    public static class CopyBean implements Copy {
+        @Override
+        public String echo(final String value, final int count, final Flavor flavor) {
+            return value + count + flavor;
+        }
+
+        @Override
+        public List<String> reverse(final ArrayList<String> values) {
+            final ArrayList<String> reversed = new ArrayList<>();
+            for (int i = values.size() - 1; i >= 0; i--) {
+                reversed.add(values.get(i));
+            }
+            values.clear();
+            return reversed;
+        }
+
+        @Override
+        public void touch(final Mutable mutable) {
+            mutable.value++;
+        }
+    }
+}
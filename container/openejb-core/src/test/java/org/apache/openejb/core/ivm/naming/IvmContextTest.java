@@ -22,14 +22,19 @@ import org.apache.openejb.util.Join;
 
 import javax.naming.Context;
 import javax.naming.NameAlreadyBoundException;
+import javax.naming.NameNotFoundException;
 import javax.naming.NamingException;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.naming.OperationNotSupportedException;
 import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.SystemException;
+import org.apache.openejb.core.CoreContainerSystem;
+import org.apache.openejb.core.JndiFactory;
+import org.apache.openejb.spi.ContainerSystem;
 import javax.naming.NameClassPair;
 import javax.naming.NamingEnumeration;
 
@@ -225,6 +230,94 @@ public class IvmContextTest extends TestCase {
 
     }
 
+    public void testCachedLookupSeesChangesDoneThroughAnotherContext() throws Exception {
+        final Context red = (Context) context.lookup("color/red");
+        assertEquals(3, red.lookup("scarlet"));
+        assertEquals(3, red.lookup("scarlet")); // cached
+
+        final Context colors = (Context) context.lookup("color");
+        colors.rebind("red/scarlet", 30);
+        assertEquals(30, red.lookup("scarlet"));
+        assertEquals(30, context.lookup("color/red/scarlet"));
+    }
+
+    public void testLookupMetrics() throws Exception {
+        final JndiLookupMetrics metrics = new JndiLookupMetrics();
+        IvmContext.setLookupMetrics(metrics);
+        try {
+            assertEquals(5, context.lookup("shape"));
+            assertEquals(5, context.lookup("shape"));
+            try {
+                context.lookup("missing");
+                fail();
+            } catch (final NameNotFoundException e) {
+                // expected
+            }
+        } finally {
+            IvmContext.setLookupMetrics(null);
+        }
+
+        assertEquals(3, metrics.getLookups());
+        assertEquals(1, metrics.getFailures());
+        assertEquals(1, metrics.getCacheHits());
+        assertTrue(metrics.getAverageLookupTime() > 0);
+        assertTrue(metrics.getMaxLookupTime() >= metrics.getAverageLookupTime());
+    }
+
+    public void testCachedLookupIgnoresChangesOfAnotherTree() throws Exception {
+        assertEquals(5, context.lookup("shape"));
+        final AtomicLong generation = context.generation();
+        final long before = generation.get();
+
+        final IvmContext other = IvmContext.createRootContext();
+        other.bind("shape", 6);
+        assertEquals(before, generation.get());
+        assertEquals(5, context.lookup("shape"));
+
+        ((Context) context.lookup("color")).bind("green", 7);
+        assertEquals(before + 1, generation.get());
+    }
+
+    public void testResourceReferenceIsResolvedEachTimeByDefault() throws Exception {
+        final IvmContext root = IvmContext.createRootContext();
+        root.bind("openejb/Resource/orange", "first");
+        SystemInstance.get().setComponent(ContainerSystem.class, new CoreContainerSystem(new TestJndiFactory(root)));
+
+        final JndiLookupMetrics metrics = new JndiLookupMetrics();
+        IvmContext.setLookupMetrics(metrics);
+        try {
+            final IntraVmJndiReference reference = new IntraVmJndiReference("openejb/Resource/orange");
+            assertEquals("first", reference.getObject());
+            assertEquals("first", reference.getObject());
+            assertEquals(0, metrics.getReferenceCacheHits());
+        } finally {
+            IvmContext.setLookupMetrics(null);
+            SystemInstance.reset();
+        }
+    }
+
+    public void testResourceReferenceIsResolvedOnce() throws Exception {
+        final IvmContext root = IvmContext.createRootContext();
+        root.bind("openejb/Resource/orange", "first");
+        SystemInstance.get().setComponent(ContainerSystem.class, new CoreContainerSystem(new TestJndiFactory(root)));
+        SystemInstance.get().setProperty(IntraVmJndiReference.CACHE_RESOLVED_REFERENCES, "true");
+
+        final JndiLookupMetrics metrics = new JndiLookupMetrics();
+        IvmContext.setLookupMetrics(metrics);
+        try {
+            final IntraVmJndiReference reference = new IntraVmJndiReference("openejb/Resource/orange");
+            assertEquals("first", reference.getObject());
+            assertEquals("first", reference.getObject());
+            assertEquals(1, metrics.getReferenceCacheHits());
+
+            root.rebind("openejb/Resource/orange", "second");
+            assertEquals("second", reference.getObject());
+        } finally {
+            IvmContext.setLookupMetrics(null);
+            SystemInstance.reset();
+        }
+    }
+
     public void test() throws Exception {
 
         final IvmContext context = new IvmContext();
@@ -387,6 +480,27 @@ public class IvmContextTest extends TestCase {
         assertLookup(context, s, expected);
     }
 
+    private static class TestJndiFactory implements JndiFactory {
+        private final IvmContext root;
+
+        private TestJndiFactory(final IvmContext root) throws NamingException {
+            this.root = root;
+            for (final String name : new String[]{"openejb/local", "openejb/remote", "openejb/client", "openejb/Deployment", "openejb/global"}) {
+                root.createSubcontext(name);
+            }
+        }
+
+        @Override
+        public Context createComponentContext(final Map<String, Object> bindings) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Context createRootContext() {
+            return root;
+        }
+    }
+
     public interface Visitor {
         public void visit(Context context, String name, String parentName) throws NamingException;
     }
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.security;
+
+import org.apache.openejb.core.security.jacc.BasicPolicyConfiguration;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.SecurityService;
+import org.apache.openejb.testing.Classes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.EJB;
+import javax.ejb.EJBAccessException;
+import javax.ejb.Stateless;
+import java.security.Principal;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@Classes(innerClassesAsBean = true)
+@RunWith(ApplicationComposer.class)
+public class AuthorizationCacheTest {
+    @EJB
+    private Secured bean;
+
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private BasicPolicyConfiguration.RoleResolver resolver;
+
+    @Before
+    public void countRoleResolutions() {
+        resolver = SystemInstance.get().getComponent(BasicPolicyConfiguration.RoleResolver.class);
+        SystemInstance.get().setComponent(BasicPolicyConfiguration.RoleResolver.class, new BasicPolicyConfiguration.RoleResolver() {
+            @Override
+            public Set<String> getLogicalRoles(final Principal[] principals, final Set<String> logicalRoles) {
+                resolutions.incrementAndGet();
+                return resolver.getLogicalRoles(principals, logicalRoles);
+            }
+        });
+    }
+
+    @After
+    public void reset() {
+        SystemInstance.get().setComponent(BasicPolicyConfiguration.RoleResolver.class, resolver);
+    }
+
+    @Test
+    public void decisionsAreCachedPerIdentity() throws Exception {
+        final SecurityService securityService = SystemInstance.get().getComponent(SecurityService.class);
+
+        Object id = securityService.login("jonathan", "secret");
+        securityService.associate(id);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertEquals("committed", bean.commit());
+                try {
+                    bean.contribute();
+                    fail();
+                } catch (final EJBAccessException e) {
+                    // ok
+                }
+            }
+            assertEquals(2, resolutions.get());
+
+            // a policy change invalidates the decisions
+            JaccProvider.get().refresh();
+            assertEquals("committed", bean.commit());
+            assertEquals(3, resolutions.get());
+        } finally {
+            securityService.disassociate();
+            securityService.logout(id);
+        }
+
+        // a new login is a new identity
+        id = securityService.login("jonathan", "secret");
+        securityService.associate(id);
+        try {
+            assertEquals("committed", bean.commit());
+            assertEquals(4, resolutions.get());
+        } finally {
+            securityService.disassociate();
+            securityService.logout(id);
+        }
+    }
+
+    @Stateless
+    public static class Secured {
+        @RolesAllowed("committer")
+        public String commit() {
+            return "committed";
+        }
+
+        @RolesAllowed("contributor")
+        public String contribute() {
+            return "contributed";
+        }
+    }
+}
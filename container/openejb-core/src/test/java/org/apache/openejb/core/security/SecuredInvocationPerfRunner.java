@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.security;
+
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.SecurityService;
+import org.apache.openejb.testing.ApplicationComposers;
+import org.apache.openejb.testing.Module;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.EJB;
+
+/**
+ * Secured stateless invocations by a logged in caller, with and without the authorization decision cache
+ * (each param runs in its own fork).
+ */
+@State(Scope.Benchmark)
+public class SecuredInvocationPerfRunner {
+
+    @Param({"false", "true"})
+    private boolean authorizationCache;
+
+    @EJB
+    private Secured secured;
+
+    private ApplicationComposers composers;
+
+    @Module
+    public EjbJar beans() {
+        final EjbJar ejbJar = new EjbJar();
+        ejbJar.addEnterpriseBean(new StatelessBean(Secured.class));
+        return ejbJar;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        System.setProperty(AbstractSecurityService.AUTHORIZATION_CACHE, Boolean.toString(authorizationCache));
+        composers = new ApplicationComposers(SecuredInvocationPerfRunner.class);
+        composers.before(this);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        composers.after();
+    }
+
+    @Benchmark
+    public String securedInvocation(final Caller caller) {
+        return secured.commit();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SecuredInvocationPerfRunner.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build())
+                .run();
+    }
+
+    /**
+     * The identity is associated to the thread so each benchmark thread logs in.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        private SecurityService securityService;
+        private Object id;
+
+        @Setup
+        public void login(final SecuredInvocationPerfRunner runner) throws Exception {
+            securityService = SystemInstance.get().getComponent(SecurityService.class);
+            id = securityService.login("jonathan", "secret");
+            securityService.associate(id);
+        }
+
+        @TearDown
+        public void logout() throws Exception {
+            securityService.disassociate();
+            securityService.logout(id);
+        }
+    }
+
+    public static class Secured {
+        @RolesAllowed("committer")
+        public String commit() {
+            return "committed";
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.singleton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Throughput of the lock/unlock done around a @Lock(READ) singleton call, with the default access timeout,
+ * run the main with as many threads as cores.
+ */
+@State(Scope.Benchmark)
+public class SingletonLockPerfRunner {
+
+    @Param({"reentrant", "striped"})
+    private String strategy;
+
+    private ReadWriteLock lock;
+
+    @Setup
+    public void setup() {
+        lock = "striped".equals(strategy) ? new StripedReadWriteLock() : new ReentrantReadWriteLock();
+    }
+
+    @Benchmark
+    public void read(final Blackhole blackhole) throws InterruptedException {
+        final Lock read = lock.readLock();
+        if (!read.tryLock(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("read lock not acquired");
+        }
+        try {
+            blackhole.consume(strategy);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SingletonLockPerfRunner.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build())
+                .run();
+    }
+}
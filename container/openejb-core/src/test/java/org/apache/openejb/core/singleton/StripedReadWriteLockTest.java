@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.core.singleton;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedReadWriteLockTest {
+
+    @Test
+    public void stripesArePowerOfTwo() {
+        assertEquals(1, new StripedReadWriteLock(1).getStripes());
+        assertEquals(8, new StripedReadWriteLock(5).getStripes());
+        assertEquals(16, new StripedReadWriteLock(16).getStripes());
+    }
+
+    @Test
+    public void readersShareTheLock() throws Exception {
+        final StripedReadWriteLock lock = new StripedReadWriteLock(4);
+        final int readers = 8;
+        final CountDownLatch allIn = new CountDownLatch(readers);
+        final ExecutorService es = Executors.newFixedThreadPool(readers);
+        try {
+            for (int i = 0; i < readers; i++) {
+                es.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        lock.readLock().lock();
+                        try {
+                            allIn.countDown();
+                            allIn.await(1, TimeUnit.MINUTES);
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                        return null;
+                    }
+                });
+            }
+            assertTrue(allIn.await(1, TimeUnit.MINUTES));
+        } finally {
+            es.shutdown();
+            assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        assertTrue(lock.writeLock().tryLock());
+        lock.writeLock().unlock();
+    }
+
+    @Test
+    public void writerExcludesReadersAndWriters() throws Exception {
+        final StripedReadWriteLock lock = new StripedReadWriteLock(4);
+        lock.writeLock().lock();
+        try {
+            assertFalse(inOtherThread(lock.readLock(), 0));
+            assertFalse(inOtherThread(lock.readLock(), 50));
+            assertFalse(inOtherThread(lock.writeLock(), 50));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        assertTrue(inOtherThread(lock.readLock(), 0));
+        assertTrue(inOtherThread(lock.writeLock(), 0));
+    }
+
+    @Test
+    public void timedOutWriterReleasesItsStripes() throws Exception {
+        final StripedReadWriteLock lock = new StripedReadWriteLock(4);
+        lock.readLock().lock();
+        try {
+            assertFalse(inOtherThread(lock.writeLock(), 50));
+            assertFalse(inOtherThread(lock.writeLock(), 0));
+
+            // readers of any stripe must not be blocked by a writer which gave up
+            final ExecutorService es = Executors.newFixedThreadPool(4);
+            try {
+                for (int i = 0; i < 16; i++) {
+                    assertTrue(es.submit(tryLock(lock.readLock(), 0)).get(1, TimeUnit.MINUTES));
+                }
+            } finally {
+                es.shutdownNow();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        assertTrue(inOtherThread(lock.writeLock(), 0));
+    }
+
+    @Test
+    public void reentrancy() throws Exception {
+        final StripedReadWriteLock lock = new StripedReadWriteLock(4);
+
+        lock.writeLock().lock();
+        lock.writeLock().lock();
+        lock.readLock().lock(); // a writer can read
+        lock.readLock().unlock();
+        lock.writeLock().unlock();
+        assertFalse(inOtherThread(lock.readLock(), 0));
+        lock.writeLock().unlock();
+
+        lock.readLock().lock();
+        lock.readLock().lock();
+        assertFalse(lock.writeLock().tryLock()); // no upgrade
+        assertFalse(lock.writeLock().tryLock(10, TimeUnit.MILLISECONDS));
+        lock.readLock().unlock();
+        lock.readLock().unlock();
+        assertTrue(inOtherThread(lock.writeLock(), 0));
+    }
+
+    private static boolean inOtherThread(final Lock lock, final long timeout) throws Exception {
+        final ExecutorService es = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> result = es.submit(tryLock(lock, timeout));
+            return result.get(1, TimeUnit.MINUTES);
+        } finally {
+            es.shutdownNow();
+        }
+    }
+
+    private static Callable<Boolean> tryLock(final Lock lock, final long timeout) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                final boolean locked = timeout == 0 ? lock.tryLock() : lock.tryLock(timeout, TimeUnit.MILLISECONDS);
+                if (locked) {
+                    lock.unlock();
+                }
+                return locked;
+            }
+        };
+    }
+}
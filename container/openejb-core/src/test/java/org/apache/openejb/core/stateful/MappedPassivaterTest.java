@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.core.EnvProps;
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.util.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedPassivaterTest {
+
+    private Properties properties;
+    private File base;
+
+    @Before
+    public void init() throws Exception {
+        SystemInstance.reset();
+        SystemInstance.get().setProperty("openejb.passivation.mapped.segment-size", "4096");
+
+        final String path = "target/mapped-passivater-" + UUID.randomUUID().toString();
+        properties = new Properties();
+        properties.setProperty(EnvProps.IM_PASSIVATOR_PATH_PREFIX, path);
+        base = SystemInstance.get().getBase().getDirectory(path);
+    }
+
+    @After
+    public void reset() {
+        Files.delete(base);
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void passivateActivate() throws Exception {
+        final MappedPassivater passivater = newPassivater();
+        try {
+            passivater.passivate(beans(0, 10));
+            assertEquals(10, passivater.size());
+
+            assertEquals("bean-3", ((Bean) passivater.activate("key-3")).name);
+            assertNull(passivater.activate("key-3"));
+            assertNull(passivater.activate("unknown"));
+            assertEquals(9, passivater.size());
+        } finally {
+            passivater.close();
+        }
+    }
+
+    @Test
+    public void reopen() throws Exception {
+        final MappedPassivater passivater = newPassivater();
+        passivater.passivate(beans(0, 20));
+        passivater.activate("key-0");
+        passivater.activate("key-1");
+        passivater.passivate(beans(5, 6)); // passivated again, the last copy wins
+        final File directory = passivater.getDirectory();
+        passivater.close();
+
+        final MappedPassivater reopened = newPassivater();
+        try {
+            assertEquals(directory, reopened.getDirectory());
+            assertEquals(18, reopened.size());
+            assertNull(reopened.activate("key-0"));
+            final Bean bean = (Bean) reopened.activate("key-5");
+            assertEquals("bean-5", bean.name);
+            assertEquals(400, bean.payload.length);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws Exception {
+        final MappedPassivater passivater = newPassivater();
+        passivater.passivate(beans(0, 1));
+        passivater.passivate(beans(1, 2));
+        final File directory = passivater.getDirectory();
+        passivater.close();
+
+        // corrupt the last byte of the second record
+        final File segment = new File(directory, "segment-00000000.log");
+        try (final RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long last = 0;
+            for (long i = 0; i < file.length(); i++) {
+                file.seek(i);
+                if (file.read() != 0) {
+                    last = i;
+                }
+            }
+            file.seek(last);
+            file.write(0);
+        }
+
+        final MappedPassivater reopened = newPassivater();
+        try {
+            assertEquals(1, reopened.size());
+            assertEquals("bean-0", ((Bean) reopened.activate("key-0")).name);
+
+            // the store is still usable after the torn record
+            reopened.passivate(beans(2, 3));
+            assertEquals("bean-2", ((Bean) reopened.activate("key-2")).name);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void compaction() throws Exception {
+        final MappedPassivater passivater = newPassivater();
+        try {
+            passivater.passivate(beans(0, 100));
+            final int segments = passivater.getSegmentCount();
+            assertTrue(segments > 5);
+
+            for (int i = 0; i < 100; i++) {
+                if (i % 10 != 0) {
+                    passivater.activate("key-" + i);
+                }
+            }
+            passivater.compact();
+
+            assertTrue(passivater.getSegmentCount() < segments);
+            assertEquals(10, passivater.size());
+            for (int i = 0; i < 100; i += 10) {
+                assertEquals("bean-" + i, ((Bean) passivater.activate("key-" + i)).name);
+            }
+        } finally {
+            passivater.close();
+        }
+    }
+
+    @Test
+    public void compactedStoreReopens() throws Exception {
+        final MappedPassivater passivater = newPassivater();
+        passivater.passivate(beans(0, 50));
+        for (int i = 0; i < 45; i++) {
+            passivater.activate("key-" + i);
+        }
+        passivater.compact();
+        passivater.close();
+
+        final MappedPassivater reopened = newPassivater();
+        try {
+            assertEquals(5, reopened.size());
+            assertEquals("bean-49", ((Bean) reopened.activate("key-49")).name);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void replayedBeansExpire() throws Exception {
+        SystemInstance.get().setProperty("openejb.passivation.mapped.timeout", "50 milliseconds");
+
+        final MappedPassivater passivater = newPassivater();
+        passivater.passivate(beans(0, 10));
+        final Map<Object, Object> eternal = new HashMap<>();
+        eternal.put("eternal", new TimedBean("eternal", -1));
+        passivater.passivate(eternal);
+        Thread.sleep(100);
+
+        // the beans of the running store belong to the cache whatever their age
+        assertEquals("bean-0", ((Bean) passivater.activate("key-0")).name);
+        passivater.close();
+
+        final MappedPassivater reopened = newPassivater();
+        try {
+            assertEquals(1, reopened.size());
+            assertNull(reopened.activate("key-1"));
+            assertEquals("eternal", ((Bean) reopened.activate("eternal")).name);
+
+            // nothing live is left in the replayed segments
+            reopened.passivate(beans(20, 21));
+            reopened.compact();
+            assertEquals(1, reopened.getSegmentCount());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void replayedBeansExpireWhileOpen() throws Exception {
+        final MappedPassivater passivater = newPassivater();
+        final Map<Object, Object> beans = new HashMap<>();
+        beans.put("short", new TimedBean("short", 200));
+        passivater.passivate(beans);
+        passivater.close();
+
+        final MappedPassivater reopened = newPassivater();
+        try {
+            assertEquals(1, reopened.size());
+            Thread.sleep(300);
+            assertNull(reopened.activate("short"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void storesAreNotShared() throws Exception {
+        final MappedPassivater first = newPassivater();
+        final MappedPassivater second = newPassivater();
+        try {
+            assertNotEquals(first.getDirectory(), second.getDirectory());
+
+            first.passivate(beans(0, 1));
+            assertNull(second.activate("key-0"));
+            assertEquals("bean-0", ((Bean) first.activate("key-0")).name);
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    private MappedPassivater newPassivater() throws Exception {
+        final MappedPassivater passivater = new MappedPassivater();
+        passivater.init(properties);
+        return passivater;
+    }
+
+    private static Map<Object, Object> beans(final int from, final int to) {
+        final Map<Object, Object> beans = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            final byte[] payload = new byte[400];
+            Arrays.fill(payload, (byte) i);
+            beans.put("key-" + i, new Bean("bean-" + i, payload));
+        }
+        return beans;
+    }
+
+    public static class Bean implements java.io.Serializable {
+        private final String name;
+        private final byte[] payload;
+
+        public Bean(final String name, final byte[] payload) {
+            this.name = name;
+            this.payload = payload;
+        }
+    }
+
+    public static class TimedBean extends Bean implements Cache.TimeOut {
+        private final long timeOut;
+
+        public TimedBean(final String name, final long timeOut) {
+            super(name, new byte[0]);
+            this.timeOut = timeOut;
+        }
+
+        @Override
+        public Duration getTimeOut() {
+            return new Duration(timeOut, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.stateful;
+
+import org.apache.openejb.util.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StripedCacheTest {
+
+    private final MapPassivater passivater = new MapPassivater();
+    private final Listener listener = new Listener();
+    private StripedCache<String, Object> cache;
+
+    @After
+    public void destroy() {
+        if (cache != null) {
+            cache.destroy();
+        }
+    }
+
+    @Test
+    public void checkOutCheckIn() throws Exception {
+        cache = newCache(10, 5, "0");
+
+        final Object value = new Object();
+        cache.add("a", value);
+        cache.checkIn("a");
+        assertEquals(1, cache.getIdleCount());
+
+        assertSame(value, cache.checkOut("a", true));
+        assertEquals(0, cache.getIdleCount());
+        cache.checkIn("a");
+
+        try {
+            cache.checkIn("a");
+            cache.checkIn("a");
+        } catch (final IllegalStateException ise) {
+            fail("an available entry can be checked in again");
+        }
+
+        assertSame(value, cache.remove("a"));
+        assertNull(cache.checkOut("a", false));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void synchronousPassivation() throws Exception {
+        cache = newCache(4, 2, "0");
+
+        for (int i = 0; i < 4; i++) {
+            cache.add("k" + i, "v" + i);
+            cache.checkIn("k" + i);
+        }
+
+        assertEquals(2, passivater.store.size());
+        assertEquals(2, listener.stored.get());
+        assertEquals(2, cache.getIdleCount());
+        assertEquals(2, cache.getPassivatedCount());
+
+        // passivated entries are activated again on demand
+        final String passivated = (String) passivater.store.keySet().iterator().next();
+        assertEquals((Object) ("v" + passivated.substring(1)), cache.checkOut(passivated, true));
+        assertEquals(1, listener.loaded.get());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void asynchronousPassivation() throws Exception {
+        cache = newCache(10, 5, "1 hour");
+        cache.init();
+
+        for (int i = 0; i < 100; i++) {
+            cache.add("k" + i, "v" + i);
+            cache.checkIn("k" + i);
+        }
+
+        final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (cache.getIdleCount() >= 10 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(cache.getIdleCount() < 10);
+        assertEquals(0, cache.getPassivationQueueDepth());
+        assertEquals(100, cache.getSize() + passivater.store.size());
+    }
+
+    @Test
+    public void checkOutWaitsForAConcurrentPassivation() throws Exception {
+        final CountDownLatch storing = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        cache = new StripedCache<>(listener, new MapPassivater() {
+            @Override
+            public void passivate(final Map stateTable) {
+                storing.countDown();
+                try {
+                    gate.await(1, TimeUnit.MINUTES);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.passivate(stateTable);
+            }
+        }, 1, 1, new Duration(-1, TimeUnit.MILLISECONDS));
+        cache.setFrequency("1 hour"); // no executor, the passivation runs in the thread checking in
+
+        cache.add("a", "b");
+        final Thread passivating = new Thread(() -> cache.checkIn("a"));
+        passivating.start();
+        assertTrue(storing.await(1, TimeUnit.MINUTES));
+
+        final List<Object> checkedOut = new ArrayList<>();
+        final Thread reader = new Thread(() -> {
+            try {
+                checkedOut.add(cache.checkOut("a", true));
+            } catch (final Exception e) {
+                checkedOut.add(e);
+            }
+        });
+        reader.start();
+        final long end = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (reader.getState() != Thread.State.WAITING && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+
+        gate.countDown();
+        passivating.join(TimeUnit.MINUTES.toMillis(1));
+        reader.join(TimeUnit.MINUTES.toMillis(1));
+        assertEquals(singletonList((Object) "b"), checkedOut);
+    }
+
+    @Test
+    public void segmentsAreFixedOnceInUse() throws Exception {
+        cache = newCache(10, 5, "0");
+        cache.setSegments(2);
+        assertEquals(2, cache.getSegments());
+
+        cache.add("a", "b");
+        cache.checkIn("a");
+        try {
+            cache.setSegments(8);
+            fail("the idle entries would be lost");
+        } catch (final IllegalStateException ise) {
+            // ok
+        }
+        assertEquals(2, cache.getSegments());
+        assertEquals("b", cache.checkOut("a", true));
+        assertEquals(0, cache.getIdleCount());
+    }
+
+    @Test
+    public void timeOut() throws Exception {
+        cache = new StripedCache<>(listener, passivater, 10, 5, new Duration(0, TimeUnit.MILLISECONDS));
+        cache.setFrequency("0");
+
+        cache.add("a", "b");
+        cache.checkIn("a");
+
+        assertEquals(1, cache.getTimedOutCount());
+        assertEquals(1, listener.timedOut.get());
+        assertNull(cache.checkOut("a", false));
+    }
+
+    @Test
+    public void removeAll() throws Exception {
+        cache = newCache(100, 5, "0");
+        for (int i = 0; i < 10; i++) {
+            cache.add("k" + i, i);
+            cache.checkIn("k" + i);
+        }
+
+        cache.removeAll(v -> ((Integer) v) % 2 == 0);
+        assertEquals(5, cache.getSize());
+        assertEquals(5, cache.getIdleCount());
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        cache = newCache(1000, 10, "1 hour");
+        cache.init();
+
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        final String key = id + "-" + i;
+                        cache.add(key, key);
+                        cache.checkIn(key);
+                    }
+                    for (int loop = 0; loop < 10; loop++) {
+                        for (int i = 0; i < 200; i++) {
+                            final String key = id + "-" + i;
+                            assertEquals((Object) key, cache.checkOut(key, true));
+                            cache.checkIn(key);
+                        }
+                    }
+                } catch (final Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertTrue(cache.getHitRate() > 0);
+    }
+
+    private StripedCache<String, Object> newCache(final int capacity, final int bulk, final String frequency) {
+        final StripedCache<String, Object> cache = new StripedCache<>(listener, passivater, capacity, bulk, new Duration(-1, TimeUnit.MILLISECONDS));
+        cache.setSegments(4);
+        cache.setFrequency(frequency);
+        return cache;
+    }
+
+    private static class MapPassivater implements PassivationStrategy {
+        private final Map<Object, Object> store = new ConcurrentHashMap<>();
+
+        @Override
+        public void init(final Properties props) {
+            // no-op
+        }
+
+        @Override
+        public void passivate(final Map stateTable) {
+            store.putAll(stateTable);
+        }
+
+        @Override
+        public Object activate(final Object primaryKey) {
+            return store.remove(primaryKey);
+        }
+    }
+
+    private static class Listener implements Cache.CacheListener<Object> {
+        private final AtomicInteger loaded = new AtomicInteger();
+        private final AtomicInteger stored = new AtomicInteger();
+        private final AtomicInteger timedOut = new AtomicInteger();
+
+        @Override
+        public void afterLoad(final Object value) {
+            loaded.incrementAndGet();
+        }
+
+        @Override
+        public void beforeStore(final Object value) {
+            stored.incrementAndGet();
+        }
+
+        @Override
+        public void timedOut(final Object value) {
+            timedOut.incrementAndGet();
+        }
+    }
+}
@@ -61,11 +61,21 @@ public class GetAllTimersTest {
     @EJB
     private Query query;
 
+    @EJB
+    private Bean1 bean1;
+
     @Test
     public void noTimerForABeanWhichDidntCreatedAny() {
         assertNull(query.empty());
     }
 
+    @Test
+    public void getTimersOnlyListsTheTimersOfTheBean() {
+        final Collection<Timer> timers = bean1.timers();
+        assertEquals(1, timers.size());
+        assertEquals(Bean1.class.getSimpleName(), timers.iterator().next().getInfo());
+    }
+
     @Test
     public void findAllTimersInATx() {
         checkList(query.listInTx());
@@ -110,6 +120,10 @@ public class GetAllTimersTest {
         public void timeout(final Timer t) {
             System.out.println(t.getInfo());
         }
+
+        public Collection<Timer> timers() {
+            return ts.getTimers();
+        }
     }
 
     @Singleton
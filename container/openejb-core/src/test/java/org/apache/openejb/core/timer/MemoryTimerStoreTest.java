@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.core.timer;
+
+import org.apache.geronimo.transaction.manager.GeronimoTransactionManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ejb.TimerConfig;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MemoryTimerStoreTest {
+
+    private GeronimoTransactionManager transactionManager;
+    private MemoryTimerStore store;
+
+    @Before
+    public void init() throws Exception {
+        transactionManager = new GeronimoTransactionManager();
+        store = new MemoryTimerStore(transactionManager);
+    }
+
+    @Test
+    public void timersByDeployment() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            create(i % 2 == 0 ? "even" : "odd", 1000 + i);
+        }
+
+        assertEquals(5, store.getTimers("even").size());
+        assertEquals(5, store.loadTimers(null, "odd").size());
+        assertEquals(10, store.loadTimers(null, null).size());
+        assertEquals(0, store.getTimers("unknown").size());
+
+        final List<Long> ids = new ArrayList<>();
+        for (final TimerData timerData : store.getTimers("odd")) {
+            ids.add(timerData.getId());
+        }
+        assertEquals(asList(2, 4, 6, 8, 10), ids);
+    }
+
+    @Test
+    public void removeIsUnindexed() throws Exception {
+        final TimerData first = create("a", 1000);
+        create("a", 2000);
+
+        store.removeTimer(first.getId());
+        assertEquals(1, store.size());
+        assertNull(store.getTimer("a", first.getId()));
+        assertEquals(1, store.getTimers("a").size());
+    }
+
+    @Test
+    public void transactionalOverlay() throws Exception {
+        final TimerData committed = create("a", 1000);
+
+        transactionManager.begin();
+        final TimerData added = create("a", 2000);
+        store.removeTimer(committed.getId());
+
+        assertNull(store.getTimer("a", committed.getId()));
+        assertSame(added, store.getTimer("a", added.getId()));
+        assertEquals(1, store.getTimers("a").size());
+        assertSame(added, store.getTimers("a").iterator().next());
+
+        // not visible outside of the transaction until it commits
+        assertEquals(1, store.size());
+
+        transactionManager.commit();
+        assertEquals(1, store.size());
+        assertSame(added, store.getTimer("a", added.getId()));
+        assertSame(added, store.getTimers("a").iterator().next());
+    }
+
+    @Test
+    public void rollback() throws Exception {
+        final TimerData committed = create("a", 1000);
+
+        transactionManager.begin();
+        create("a", 2000);
+        store.removeTimer(committed.getId());
+        transactionManager.rollback();
+
+        assertEquals(1, store.size());
+        assertNotNull(store.getTimer("a", committed.getId()));
+        assertEquals(1, store.getTimers("a").size());
+    }
+
+    private TimerData create(final String deploymentId, final long expiration) throws TimerStoreException {
+        return store.createSingleActionTimer(null, deploymentId, null, null, new Date(expiration), new TimerConfig());
+    }
+
+    private static List<Long> asList(final long... values) {
+        final List<Long> list = new ArrayList<>();
+        for (final long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.monitoring;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void empty() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99), 0);
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void buckets() {
+        for (long v = 0; v < 1 << 20; v++) {
+            final int index = Histogram.index(v);
+            assertTrue(Histogram.lowerBound(index) <= v);
+            assertTrue(Histogram.lowerBound(index + 1) > v);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        final Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100000; v++) {
+            histogram.record(v * 1000);
+        }
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000, histogram.getMax());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(50000500, histogram.getMean(), 1);
+        assertNear(50000000, histogram.getValueAtPercentile(50));
+        assertNear(99000000, histogram.getValueAtPercentile(99));
+        assertNear(99900000, histogram.getValueAtPercentile(99.9));
+        assertEquals(100000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void concurrentRecording() throws InterruptedException {
+        final Histogram histogram = new Histogram();
+        final int threads = 8;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.record(j);
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        latch.await();
+
+        assertEquals(threads * 10000, histogram.getCount());
+        assertEquals(9999, histogram.getMax());
+        assertEquals(threads * (9999L * 10000 / 2), histogram.getSum());
+    }
+
+    private static void assertNear(final long expected, final long actual) {
+        assertTrue(expected + " ~ " + actual, Math.abs(expected - actual) <= expected / 32);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.monitoring;
+
+import org.apache.openejb.BeanContext;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.spi.ContainerSystem;
+import org.apache.openejb.testing.ContainerProperties;
+import org.apache.openejb.testing.Module;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ejb.EJB;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptors;
+import javax.interceptor.InvocationContext;
+import javax.management.Attribute;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(ApplicationComposer.class)
+@ContainerProperties(@ContainerProperties.Property(name = InvocationMetrics.ACTIVE, value = "true"))
+public class InvocationMetricsTest {
+    @EJB
+    private Calculator calculator;
+
+    @Module
+    public EjbJar jar() {
+        return new EjbJar().enterpriseBean(new StatelessBean(Calculator.class).localBean());
+    }
+
+    @Test
+    public void phases() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, calculator.add(1, 2));
+        }
+
+        final InvocationTimings timings = timings();
+        for (final InvocationMetrics.Phase phase : new InvocationMetrics.Phase[]{
+            InvocationMetrics.Phase.PROXY, InvocationMetrics.Phase.SECURITY, InvocationMetrics.Phase.TRANSACTION,
+            InvocationMetrics.Phase.POOL, InvocationMetrics.Phase.INTERCEPTORS, InvocationMetrics.Phase.BEAN,
+            InvocationMetrics.Phase.TOTAL}) {
+            assertEquals(phase.name(), 3, timings.getCount(phase));
+        }
+        assertEquals(0, timings.getCount(InvocationMetrics.Phase.COPY)); // local view
+
+        // interceptors exclude the bean method
+        final double bean = timings.getMean(InvocationMetrics.Phase.BEAN);
+        final double interceptors = timings.getMean(InvocationMetrics.Phase.INTERCEPTORS);
+        assertTrue(bean >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertTrue(interceptors >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(interceptors < TimeUnit.MILLISECONDS.toNanos(40));
+        assertTrue(timings.getValueAtPercentile(InvocationMetrics.Phase.BEAN, 99) >= TimeUnit.MILLISECONDS.toNanos(38)); // ~3% precision
+        assertTrue(timings.getTotal(InvocationMetrics.Phase.TOTAL)
+            >= timings.getTotal(InvocationMetrics.Phase.BEAN) + timings.getTotal(InvocationMetrics.Phase.INTERCEPTORS));
+    }
+
+    @Test
+    public void jmx() throws Exception {
+        calculator.add(1, 1);
+
+        final ObjectName name = new ObjectName("openejb.management:ObjectType=invocations,name=phases");
+        final TabularData snapshot = (TabularData) LocalMBeanServer.get().getAttribute(name, "snapshot");
+        final CompositeData bean = snapshot.get(new Object[]{"Calculator", "add(int, int)", "BEAN"});
+        assertNotNull(bean);
+        assertEquals(1L, bean.get("count"));
+
+        LocalMBeanServer.get().setAttribute(name, new Attribute("enabled", false));
+        try {
+            calculator.add(1, 1);
+            assertEquals(1, timings().getCount(InvocationMetrics.Phase.TOTAL));
+        } finally {
+            LocalMBeanServer.get().setAttribute(name, new Attribute("enabled", true));
+        }
+    }
+
+    @Test
+    public void toggleAppliesToTheNextInvocations() throws Exception {
+        final InvocationMetrics.Invocation invocation = InvocationMetrics.enter();
+        assertNotNull(invocation);
+        InvocationMetrics.setActive(false);
+        try {
+            // the running invocation and the ones it triggers are still measured
+            assertTrue(InvocationMetrics.start() != 0);
+            final InvocationMetrics.Invocation nested = InvocationMetrics.enter();
+            assertNotNull(nested);
+            InvocationMetrics.exit(nested, null, null);
+            assertTrue(InvocationMetrics.start() != 0);
+            InvocationMetrics.exit(invocation, null, null);
+
+            assertEquals(0, InvocationMetrics.start());
+            assertNull(InvocationMetrics.enter());
+        } finally {
+            InvocationMetrics.setActive(true);
+        }
+
+        final InvocationMetrics.Invocation next = InvocationMetrics.enter();
+        assertNotNull(next);
+        InvocationMetrics.exit(next, null, null);
+    }
+
+    private static InvocationTimings timings() {
+        final BeanContext beanContext = SystemInstance.get().getComponent(ContainerSystem.class).getBeanContext("Calculator");
+        for (final Map.Entry<Method, InvocationTimings> timings : beanContext.getInvocationTimings().entrySet()) {
+            if ("add".equals(timings.getKey().getName())) {
+                return timings.getValue();
+            }
+        }
+        throw new AssertionError("add() not measured");
+    }
+
+    public static class Slow {
+        @AroundInvoke
+        public Object invoke(final InvocationContext context) throws Exception {
+            Thread.sleep(10);
+            return context.proceed();
+        }
+    }
+
+    @Interceptors(Slow.class)
+    public static class Calculator {
+        public int add(final int a, final int b) {
+            try {
+                Thread.sleep(40);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return a + b;
+        }
+    }
+}
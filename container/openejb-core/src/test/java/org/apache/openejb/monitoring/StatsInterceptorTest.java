@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.monitoring;
+
+import org.apache.openejb.api.Monitor;
+import org.apache.openejb.core.Operation;
+import org.apache.openejb.core.interceptor.InterceptorStack;
+import org.apache.openejb.loader.SystemInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanAttributeInfo;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatsInterceptorTest {
+
+    @Before
+    @After
+    public void reset() {
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void histogramBackend() throws Exception {
+        SystemInstance.get().setProperty("openejb.stats.interceptor.backend", "histogram");
+
+        final StatsInterceptor interceptor = new StatsInterceptor(Slow.class);
+        final Map<String, Object> instances = new HashMap<>();
+        instances.put(StatsInterceptor.class.getName(), interceptor);
+        final InterceptorStack stack = new InterceptorStack(new Slow(), Slow.class.getMethod("sleep", long.class),
+            Operation.BUSINESS, singletonList(StatsInterceptor.metadata), instances);
+        for (int i = 0; i < 20; i++) {
+            stack.invoke(2L);
+        }
+
+        final Collection<StatsInterceptor.MethodStats> stats = interceptor.stats();
+        assertEquals(1, stats.size());
+        final StatsInterceptor.HistogramStats histogram = (StatsInterceptor.HistogramStats) stats.iterator().next();
+        assertEquals(20, histogram.getCount());
+        assertEquals(20, interceptor.getInvocationCount());
+        assertTrue(histogram.getPercentile50() >= 1.5);
+        assertTrue(histogram.getPercentile99() >= histogram.getPercentile50());
+        assertTrue(histogram.getMax() >= histogram.getPercentile99() * 0.9);
+        assertTrue(histogram.getMin() >= 1.5);
+
+        final ManagedMBean mbean = new ManagedMBean(interceptor);
+        String percentile = null;
+        for (final MBeanAttributeInfo attribute : mbean.getMBeanInfo().getAttributes()) {
+            if (attribute.getName().startsWith("sleep(long)") && attribute.getName().endsWith("Percentile99")) {
+                percentile = attribute.getName();
+            }
+        }
+        assertTrue(percentile != null);
+        assertEquals(histogram.getPercentile99(), (Double) mbean.getAttribute(percentile), 0);
+    }
+
+    @Monitor
+    public static class Slow {
+        public void sleep(final long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.resource.jdbc.logging;
+
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.ContainerProperties;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Resource;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Classes
+@ContainerProperties({
+    @ContainerProperties.Property(name = "profiled", value = "new://Resource?type=DataSource"),
+    @ContainerProperties.Property(name = "profiled.ProfileSql", value = "true"),
+    @ContainerProperties.Property(name = "profiled.ProfileSqlSlowThreshold", value = "0"),
+    @ContainerProperties.Property(name = "profiled.LogSqlPackages", value = "org.apache.openejb.resource.jdbc.logging.SqlProfilerTest")
+})
+@RunWith(ApplicationComposer.class)
+public class SqlProfilerTest {
+    @Resource
+    private DataSource profiled;
+
+    @Test
+    public void normalize() {
+        assertEquals("select * from t where a = ? and b = ?", SqlProfiler.normalize("select *  from t\n where a = 'it''s' and b = 12.5"));
+        assertEquals("select col1 from t2 where id in (?)", SqlProfiler.normalize("select col1 from t2 where id in (1, 2, 3)"));
+        assertEquals("update t set a = ? where id = ?", SqlProfiler.normalize("update t set a = ? where id = ?"));
+    }
+
+    @Test
+    public void statementsAreBounded() {
+        final SqlProfiler profiler = new SqlProfiler("bounded", 2, 1000, null);
+        profiler.record("a", TimeUnit.MILLISECONDS.toNanos(1), -1, false);
+        profiler.record("b", TimeUnit.MILLISECONDS.toNanos(2), 3, false);
+        profiler.record("c", TimeUnit.MILLISECONDS.toNanos(3), -1, true);
+        profiler.record("d", TimeUnit.MILLISECONDS.toNanos(4), -1, false);
+        profiler.record("a", TimeUnit.MILLISECONDS.toNanos(5), -1, false);
+
+        assertEquals(3, profiler.getStatementCount());
+        assertEquals(5, profiler.getExecutionCount());
+        assertEquals(1, profiler.getErrorCount());
+
+        final TabularData top = profiler.topSlowStatements(1);
+        assertEquals(1, top.size());
+        final CompositeData slowest = (CompositeData) top.values().iterator().next();
+        assertEquals(SqlProfiler.OTHER, slowest.get("sql"));
+        assertEquals(2L, slowest.get("count"));
+        assertEquals(4., slowest.get("maxMs"));
+        assertEquals(4., slowest.get("p99Ms"));
+        assertEquals(3.5, (Double) slowest.get("averageMs"), 0.01);
+        assertEquals("", slowest.get("slowestStack")); // under the threshold
+    }
+
+    @Test
+    public void aggregatesExecutions() throws Exception {
+        try (final Connection c = profiled.getConnection()) {
+            try (final Statement statement = c.createStatement()) {
+                statement.execute("create table profiled(id int, name varchar(20))");
+                for (int i = 0; i < 3; i++) {
+                    statement.executeUpdate("insert into profiled values(" + i + ", 'name" + i + "')");
+                }
+            }
+            try (final PreparedStatement statement = c.prepareStatement("select name from profiled where id = ?")) {
+                for (int i = 0; i < 2; i++) {
+                    statement.setInt(1, i);
+                    statement.executeQuery().close();
+                }
+            }
+        }
+
+        final ObjectName name = new ObjectName("openejb.management:ObjectType=datasources,DataSource=profiled,name=sql-profiler");
+        assertEquals(3, LocalMBeanServer.get().getAttribute(name, "statementCount"));
+
+        final TabularData top = (TabularData) LocalMBeanServer.get().invoke(name, "topSlowStatements", new Object[]{10}, new String[]{int.class.getName()});
+        final CompositeData insert = top.get(new Object[]{"insert into profiled values(?, ?)"});
+        assertEquals(3L, insert.get("count"));
+        assertEquals(3L, insert.get("rows"));
+        assertTrue(String.class.cast(insert.get("slowestStack")).contains("SqlProfilerTest.aggregatesExecutions"));
+        assertEquals(2L, top.get(new Object[]{"select name from profiled where id = ?"}).get("count"));
+    }
+}
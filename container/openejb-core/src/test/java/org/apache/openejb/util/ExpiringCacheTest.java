@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExpiringCacheTest {
+    @Test
+    public void expiredEntriesAreNotReturned() {
+        final ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("a", "1", System.currentTimeMillis() - 1);
+        cache.put("b", "2", System.currentTimeMillis() + 60000);
+
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void fullCacheEvictsTheEntryExpiringFirst() {
+        final long now = System.currentTimeMillis();
+        final ExpiringCache<String, String> cache = new ExpiringCache<>(2);
+        cache.put("late", "1", now + 30000);
+        cache.put("soon", "2", now + 10000);
+        cache.put("later", "3", now + 60000);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("soon"));
+        assertEquals("1", cache.get("late"));
+        assertEquals("3", cache.get("later"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void replacedEntryUsesItsNewDeadline() {
+        final long now = System.currentTimeMillis();
+        final ExpiringCache<String, String> cache = new ExpiringCache<>(2);
+        cache.put("a", "1", now + 10000);
+        cache.put("b", "2", now + 30000);
+        cache.put("a", "3", now + 60000);
+        cache.put("c", "4", now + 90000);
+
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("a"));
+        assertEquals("4", cache.get("c"));
+    }
+
+    @Test
+    public void removeIf() {
+        final long deadline = System.currentTimeMillis() + 60000;
+        final ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("a", "x", deadline);
+        cache.put("b", "y", deadline);
+        cache.put("c", "x", deadline);
+        cache.removeIf("x"::equals);
+
+        assertEquals(1, cache.size());
+        assertEquals("y", cache.get("b"));
+
+        // the removed entries are not evicted again
+        cache.setMaxSize(1);
+        cache.put("d", "z", deadline + 1);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+}
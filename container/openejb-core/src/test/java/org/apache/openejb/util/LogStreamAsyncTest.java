@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.openejb.util;
+
+import org.apache.openejb.loader.SystemInstance;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// the buffer is static, the configuration only applies since each test class gets its own JVM
+public class LogStreamAsyncTest {
+
+    @BeforeClass
+    public static void configure() throws Exception {
+        System.setProperty("openejb.log.async.capacity", "16");
+        System.setProperty("openejb.log.async.overflow", "drop");
+        SystemInstance.reset();
+    }
+
+    @AfterClass
+    public static void reset() {
+        System.clearProperty("openejb.log.async.capacity");
+        System.clearProperty("openejb.log.async.overflow");
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void overflow() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final Collecting collecting = new Collecting() {
+            @Override
+            public void info(final String message) {
+                if (blocked.getCount() == 1) {
+                    blocked.countDown();
+                    try {
+                        release.await(1, TimeUnit.MINUTES);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.info(message);
+            }
+        };
+        final LogStreamAsync stream = new LogStreamAsync(collecting);
+
+        final long written = LogStreamAsync.getWrittenCount();
+        stream.info("first");
+        assertTrue(blocked.await(1, TimeUnit.MINUTES));
+        for (int i = 0; i < 100; i++) {
+            stream.info("info-" + i);
+        }
+        assertTrue(LogStreamAsync.getDroppedCount() >= 100 - 16);
+        assertEquals(16, LogStreamAsync.getQueuedCount());
+
+        // warn is not dropped, it waits for the writer
+        final Thread warn = new Thread(() -> stream.warn("warn"));
+        warn.start();
+        release.countDown();
+        warn.join(TimeUnit.MINUTES.toMillis(1));
+
+        final long expected = 1 + 100 - LogStreamAsync.getDroppedCount() + 1;
+        waitFor(() -> LogStreamAsync.getWrittenCount() - written == expected);
+        assertEquals("first", collecting.messages.get(0));
+        assertEquals("warn", collecting.messages.get(collecting.messages.size() - 1));
+        assertEquals(0, LogStreamAsync.getQueuedCount());
+    }
+
+    @Test
+    public void ordering() throws Exception {
+        final Collecting collecting = new Collecting();
+        final LogStreamAsync stream = new LogStreamAsync(collecting);
+        final long dropped = LogStreamAsync.getDroppedCount();
+
+        final int threads = 4;
+        final int messages = 2000;
+        final List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            final Thread producer = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    stream.error(id + ":" + i);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (final Thread producer : producers) {
+            producer.join(TimeUnit.MINUTES.toMillis(1));
+        }
+
+        waitFor(() -> collecting.messages.size() == threads * messages);
+        assertEquals(dropped, LogStreamAsync.getDroppedCount());
+
+        final Map<String, Integer> last = new HashMap<>();
+        for (final String message : collecting.messages) {
+            final String[] parts = message.split(":");
+            final int index = Integer.parseInt(parts[1]);
+            final Integer previous = last.put(parts[0], index);
+            assertEquals(previous == null ? 0 : previous + 1, index);
+        }
+    }
+
+    private static void waitFor(final Condition condition) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (!condition.done() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.done());
+    }
+
+    private interface Condition {
+        boolean done();
+    }
+
+    private static class Collecting implements LogStream {
+        protected final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public boolean isFatalEnabled() {
+            return true;
+        }
+
+        @Override
+        public void fatal(final String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void fatal(final String message, final Throwable t) {
+            messages.add(message);
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+
+        @Override
+        public void error(final String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void error(final String message, final Throwable t) {
+            messages.add(message);
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return true;
+        }
+
+        @Override
+        public void warn(final String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void warn(final String message, final Throwable t) {
+            messages.add(message);
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return true;
+        }
+
+        @Override
+        public void info(final String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void info(final String message, final Throwable t) {
+            messages.add(message);
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return true;
+        }
+
+        @Override
+        public void debug(final String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void debug(final String message, final Throwable t) {
+            messages.add(message);
+        }
+    }
+}
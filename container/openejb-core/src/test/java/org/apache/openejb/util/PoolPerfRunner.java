@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pop()/push() cycle of a stateless pool under contention, run the main with as many threads as cores.
+ */
+@State(Scope.Benchmark)
+public class PoolPerfRunner {
+
+    @Param({"false", "true"})
+    private boolean striped;
+
+    private Pool<Object> pool;
+
+    @Setup
+    public void setup() {
+        final Pool.Builder<Object> builder = new Pool.Builder<>();
+        builder.setMaxSize(Runtime.getRuntime().availableProcessors() * 2);
+        builder.setStrictPooling(true);
+        builder.setStripedPooling(striped);
+        builder.setSupplier(new Pool.Supplier<Object>() {
+            @Override
+            public void discard(final Object o, final Pool.Event reason) {
+                // no-op
+            }
+
+            @Override
+            public Object create() {
+                return new Object();
+            }
+        });
+        pool = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        pool.close(1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Object popPush() throws Exception {
+        final Pool<Object>.Entry entry = pool.pop(1, TimeUnit.MINUTES);
+        if (entry == null) {
+            final Object instance = new Object();
+            pool.push(instance);
+            return instance;
+        }
+        final Object instance = entry.get();
+        pool.push(entry);
+        return instance;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PoolPerfRunner.class.getSimpleName())
+                .forks(1)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build())
+                .run();
+    }
+}
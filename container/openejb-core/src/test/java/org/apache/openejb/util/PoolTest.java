@@ -48,6 +48,14 @@ public class PoolTest extends TestCase {
         if (pool != null) pool.stop();
     }
 
+    protected <T> Pool<T> newPool(final int max, final int min, final boolean strict) {
+        return new Pool<>(max, min, strict);
+    }
+
+    protected <T> Pool.Builder<T> newBuilder() {
+        return new Pool.Builder<>();
+    }
+
     public void testStrictBasics() throws Exception {
         System.out.println("PoolTest.testStrictBasics");
         exerciseStrictPool(1, 0);
@@ -60,7 +68,7 @@ public class PoolTest extends TestCase {
         System.out.println("PoolTest.testEmptyPool");
         final int max = 4;
         final int min = 2;
-        final Pool<Bean> pool = new Pool<>(max, min, true);
+        final Pool<Bean> pool = newPool(max, min, true);
 
         final List<Pool<Bean>.Entry> entries = drain(pool);
 
@@ -105,7 +113,7 @@ public class PoolTest extends TestCase {
     public void testNonStrictDiscard() throws Exception {
         System.out.println("PoolTest.testNonStrictDiscard");
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(0);
         builder.setMaxSize(1);
         builder.setStrictPooling(false);
@@ -167,7 +175,7 @@ public class PoolTest extends TestCase {
     private void exerciseStrictPool(final int max, final int min) throws InterruptedException {
         Bean.instances.set(0);
 
-        final Pool<String> pool = new Pool<>(max, min, true);
+        final Pool<String> pool = newPool(max, min, true);
 
         // Fill the pool
         for (int i = 0; i < max; i++) {
@@ -215,7 +223,7 @@ public class PoolTest extends TestCase {
         System.out.println("PoolTest.testStrictMultiThreaded");
         final int threadCount = 200;
 
-        final Pool pool = new Pool(10, 5, true);
+        final Pool pool = newPool(10, 5, true);
         final CountDownLatch startPistol = new CountDownLatch(1);
         final CountDownLatch startingLine = new CountDownLatch(10);
         final CountDownLatch finishingLine = new CountDownLatch(threadCount);
@@ -281,7 +289,7 @@ public class PoolTest extends TestCase {
 
         final List<Bean> discarded = new CopyOnWriteArrayList<>();
         final CountDownLatch discard = new CountDownLatch(max);
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setSweepInterval(new Duration(sweepInterval, TimeUnit.MILLISECONDS));
@@ -348,7 +356,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch discard = new CountDownLatch(max - min);
         final CountDownLatch hold = new CountDownLatch(1);
 
-        final Pool.Builder<Bean> builder = new Pool.Builder<>();
+        final Pool.Builder<Bean> builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setExecutor(Executors.newFixedThreadPool(5));
@@ -436,7 +444,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch created = new CountDownLatch(min);
         final CountDownLatch createInstances = new CountDownLatch(1);
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setSweepInterval(new Duration(sweepInterval, TimeUnit.MILLISECONDS));
@@ -571,7 +579,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch created = new CountDownLatch(min);
         final CountDownLatch createInstances = new CountDownLatch(1);
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setMaxAge(new Duration(maxAge, MILLISECONDS));
@@ -724,7 +732,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch created = new CountDownLatch(min);
         final CountDownLatch createInstances = new CountDownLatch(1);
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setSweepInterval(new Duration(poll, TimeUnit.MILLISECONDS));
@@ -880,7 +888,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch created = new CountDownLatch(min);
         final CountDownLatch createInstances = new CountDownLatch(1);
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setMaxAge(new Duration(maxAge, MILLISECONDS));
@@ -1041,7 +1049,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch created = new CountDownLatch(min);
         final CountDownLatch createInstances = new CountDownLatch(1);
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setSweepInterval(new Duration(sweepInterval, TimeUnit.MILLISECONDS));
@@ -1179,7 +1187,7 @@ public class PoolTest extends TestCase {
         final CountDownLatch created = new CountDownLatch(min);
         final CountDownLatch createInstances = new CountDownLatch(1);
 
-        final Pool.Builder builder = new Pool.Builder();
+        final Pool.Builder builder = newBuilder();
         builder.setMinSize(min);
         builder.setMaxSize(max);
         builder.setMaxAge(new Duration(maxAge, MILLISECONDS));
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.util;
+
+/**
+ * Runs the whole PoolTest against the lock free idle storage.
+ */
+public class StripedPoolTest extends PoolTest {
+
+    @Override
+    protected <T> Pool<T> newPool(final int max, final int min, final boolean strict) {
+        return new Pool<>(max, min, strict, 0, 0, 0, null, null, false, -1, false, false, true);
+    }
+
+    @Override
+    protected <T> Pool.Builder<T> newBuilder() {
+        final Pool.Builder<T> builder = super.newBuilder();
+        builder.setStripedPooling(true);
+        return builder;
+    }
+}
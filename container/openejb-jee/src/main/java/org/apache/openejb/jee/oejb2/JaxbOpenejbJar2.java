@@ -19,8 +19,8 @@ package org.apache.openejb.jee.oejb2;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
@@ -41,7 +41,7 @@ import org.apache.openejb.jee.JAXBContextFactory;
  */
 public class JaxbOpenejbJar2 {
 
-    private static final Map<Class<?>, JAXBContext> contexts = new HashMap<Class<?>, JAXBContext>();
+    private static final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
 
     private static JAXBContext getContext(final Class<?> type) throws JAXBException {
         JAXBContext jaxbContext = contexts.get(type);
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.apache.openejb.maven.plugin;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.openejb.config.AnnotationIndex;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes META-INF/tomee-annotations.idx in the compiled classes so the deployment
+ * reads this index instead of scanning the bytecode of the module.
+ */
+@Mojo(name = "annotation-index", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
+public class AnnotationIndexMojo extends AbstractMojo {
+    @Parameter(property = "tomee-plugin.annotation-index.classes", defaultValue = "${project.build.outputDirectory}")
+    protected File classes;
+
+    @Parameter(property = "tomee-plugin.annotation-index.skip", defaultValue = "false")
+    protected boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Annotation index skipped");
+            return;
+        }
+        if (!classes.isDirectory()) {
+            getLog().info(classes.getAbsolutePath() + " doesn't exist, no annotation index to write");
+            return;
+        }
+
+        try {
+            final File index = AnnotationIndex.write(classes);
+            getLog().info("Wrote " + index.getAbsolutePath());
+        } catch (final IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+}
@@ -16,23 +16,10 @@
  */
 package org.apache.tomee.microprofile.jwt;
 
-import org.apache.openejb.util.Logger;
 import org.apache.tomee.microprofile.jwt.config.JWTAuthConfiguration;
 import org.apache.tomee.microprofile.jwt.config.PublicKeyResolver;
-import org.apache.tomee.microprofile.jwt.principal.JWTCallerPrincipal;
-import org.eclipse.microprofile.jwt.Claims;
 import org.eclipse.microprofile.jwt.JsonWebToken;
-import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jwk.JsonWebKey;
-import org.jose4j.jws.AlgorithmIdentifiers;
-import org.jose4j.jwt.JwtClaims;
-import org.jose4j.jwt.MalformedClaimException;
-import org.jose4j.jwt.NumericDate;
-import org.jose4j.jwt.consumer.InvalidJwtException;
-import org.jose4j.jwt.consumer.JwtConsumer;
-import org.jose4j.jwt.consumer.JwtConsumerBuilder;
-import org.jose4j.jwt.consumer.JwtContext;
-import org.jose4j.keys.resolvers.JwksVerificationKeyResolver;
 
 import java.security.Key;
 import java.util.List;
@@ -41,13 +28,12 @@ import java.util.function.Predicate;
 
 public class JsonWebTokenValidator {
 
-    private static final Logger VALIDATION = Logger.getInstance(JWTLogCategories.CONSTRAINT, JsonWebTokenValidator.class);
-
     private final Predicate<JsonWebToken> validation;
     private final Key verificationKey;
     private final Map<String, Key> verificationKeys;
     private final String issuer;
     private boolean allowNoExpiryClaim = false;
+    private final JWTAuthConfiguration authConfiguration;
 
     public JsonWebTokenValidator(final Predicate<JsonWebToken> validation, final Key verificationKey, final String issuer, final Map<String, Key> verificationKeys, final boolean allowNoExpiryClaim) {
         this.validation = validation;
@@ -55,67 +41,22 @@ public class JsonWebTokenValidator {
         this.verificationKeys = verificationKeys;
         this.issuer = issuer;
         this.allowNoExpiryClaim = allowNoExpiryClaim;
+
+        // built once so the consumer and the verified tokens are reused by all the validations
+        if (verificationKey != null) {
+            this.authConfiguration = JWTAuthConfiguration.authConfiguration(verificationKey, issuer, allowNoExpiryClaim);
+        } else if (verificationKeys != null) {
+            this.authConfiguration = JWTAuthConfiguration.authConfiguration(verificationKeys, issuer, allowNoExpiryClaim);
+        } else {
+            this.authConfiguration = null;
+        }
     }
 
     public JsonWebToken validate(final String token) throws ParseException {
-        final JWTAuthConfiguration authConfiguration = verificationKey != null ? JWTAuthConfiguration.authConfiguration(verificationKey, issuer, allowNoExpiryClaim) : JWTAuthConfiguration.authConfiguration(verificationKeys, issuer, allowNoExpiryClaim);
-        JWTCallerPrincipal principal;
-
-        try {
-            final JwtConsumerBuilder builder = new JwtConsumerBuilder()
-                    .setRelaxVerificationKeyValidation()
-                    .setRequireSubject()
-                    .setSkipDefaultAudienceValidation()
-                    .setJwsAlgorithmConstraints(
-                            new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.WHITELIST,
-                                    AlgorithmIdentifiers.RSA_USING_SHA256,
-                                    AlgorithmIdentifiers.RSA_USING_SHA384,
-                                    AlgorithmIdentifiers.RSA_USING_SHA512
-                            ));
-
-            if (authConfiguration.getIssuer() != null) {
-                builder.setExpectedIssuer(authConfiguration.getIssuer());
-            }
-            if (authConfiguration.getExpGracePeriodSecs() > 0) {
-                builder.setAllowedClockSkewInSeconds(authConfiguration.getExpGracePeriodSecs());
-            } else {
-                builder.setEvaluationTime(NumericDate.fromSeconds(0));
-            }
-
-            if (authConfiguration.isSingleKey()) {
-                builder.setVerificationKey(authConfiguration.getPublicKey());
-            } else {
-                builder.setVerificationKeyResolver(new JwksVerificationKeyResolver(authConfiguration.getPublicKeys()));
-            }
-
-            final JwtConsumer jwtConsumer = builder.build();
-            final JwtContext jwtContext = jwtConsumer.process(token);
-            final String type = jwtContext.getJoseObjects().get(0).getHeader("typ");
-            //  Validate the JWT and process it to the Claims
-            jwtConsumer.processContext(jwtContext);
-            JwtClaims claimsSet = jwtContext.getJwtClaims();
-
-            // We have to determine the unique name to use as the principal name. It comes from upn, preferred_username, sub in that order
-            String principalName = claimsSet.getClaimValue("upn", String.class);
-            if (principalName == null) {
-                principalName = claimsSet.getClaimValue("preferred_username", String.class);
-                if (principalName == null) {
-                    principalName = claimsSet.getSubject();
-                }
-            }
-            claimsSet.setClaim(Claims.raw_token.name(), token);
-            principal = new JWTCallerPrincipal(token, type, claimsSet, principalName);
-
-        } catch (final InvalidJwtException e) {
-            VALIDATION.warning(e.getMessage());
-            throw new ParseException("Failed to verify token", e);
-
-        } catch (final MalformedClaimException e) {
-            VALIDATION.warning(e.getMessage());
-            throw new ParseException("Failed to verify token claims", e);
+        if (authConfiguration == null) {
+            throw new ParseException("No verification key configured");
         }
-
-        return principal;
+        return MPJWTFilter.ValidateJSonWebToken.parse(token, authConfiguration);
     }
 
     public static Builder builder() {
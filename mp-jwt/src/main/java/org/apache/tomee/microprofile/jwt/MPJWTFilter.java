@@ -25,19 +25,17 @@ import org.apache.tomee.catalina.TomcatSecurityService;
 import org.apache.tomee.microprofile.jwt.bval.ValidationInterceptor;
 import org.apache.tomee.microprofile.jwt.config.JWTAuthConfiguration;
 import org.apache.tomee.microprofile.jwt.config.JWTAuthConfigurationProperties;
+import org.apache.tomee.microprofile.jwt.config.VerifiedTokenCache;
 import org.apache.tomee.microprofile.jwt.principal.JWTCallerPrincipal;
 import org.eclipse.microprofile.jwt.Claims;
 import org.eclipse.microprofile.jwt.JsonWebToken;
-import org.jose4j.jwa.AlgorithmConstraints;
-import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.MalformedClaimException;
 import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.ErrorCodes;
 import org.jose4j.jwt.consumer.InvalidJwtException;
-import org.jose4j.jwt.consumer.JwtConsumer;
-import org.jose4j.jwt.consumer.JwtConsumerBuilder;
 import org.jose4j.jwt.consumer.JwtContext;
-import org.jose4j.keys.resolvers.JwksVerificationKeyResolver;
+import org.jose4j.lang.UnresolvableKeyException;
 
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
@@ -324,43 +322,26 @@ public class MPJWTFilter implements Filter {
         }
 
         public static JWTCallerPrincipal parse(final String token, final JWTAuthConfiguration authContextInfo) throws ParseException {
-            JWTCallerPrincipal principal;
+            final VerifiedTokenCache<JsonWebToken> verifiedTokens = authContextInfo.getVerifiedTokens();
+            final JsonWebToken verified = verifiedTokens.get(token);
+            if (verified != null) {
+                return JWTCallerPrincipal.class.cast(verified);
+            }
 
+            JWTCallerPrincipal principal;
             try {
-                final JwtConsumerBuilder builder = new JwtConsumerBuilder()
-                        .setRelaxVerificationKeyValidation()
-                        .setRequireSubject()
-                        .setSkipDefaultAudienceValidation()
-                        .setJwsAlgorithmConstraints(
-                                new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.WHITELIST,
-                                        AlgorithmIdentifiers.RSA_USING_SHA256,
-                                        AlgorithmIdentifiers.RSA_USING_SHA384,
-                                        AlgorithmIdentifiers.RSA_USING_SHA512
-                                ));
-
-                if (!authContextInfo.isAllowNoExpiryClaim()) {
-                    builder.setRequireExpirationTime();
-                }
-                if (authContextInfo.getIssuer() != null) {
-                    builder.setExpectedIssuer(authContextInfo.getIssuer());
-                }
-                if (authContextInfo.getExpGracePeriodSecs() > 0) {
-                    builder.setAllowedClockSkewInSeconds(authContextInfo.getExpGracePeriodSecs());
-                } else {
-                    builder.setEvaluationTime(NumericDate.fromSeconds(0));
-                }
-
-                if (authContextInfo.isSingleKey()) {
-                    builder.setVerificationKey(authContextInfo.getPublicKey());
-                } else {
-                    builder.setVerificationKeyResolver(new JwksVerificationKeyResolver(authContextInfo.getPublicKeys()));
+                JwtContext jwtContext;
+                try {
+                    //  Validate the JWT and process it to the Claims
+                    jwtContext = authContextInfo.getConsumer().process(token);
+                } catch (final InvalidJwtException e) {
+                    // the key set may have been rotated since we read it
+                    if (!isUnknownKey(e) || !authContextInfo.reloadPublicKeys()) {
+                        throw e;
+                    }
+                    jwtContext = authContextInfo.getConsumer().process(token);
                 }
-
-                final JwtConsumer jwtConsumer = builder.build();
-                final JwtContext jwtContext = jwtConsumer.process(token);
                 final String type = jwtContext.getJoseObjects().get(0).getHeader("typ");
-                //  Validate the JWT and process it to the Claims
-                jwtConsumer.processContext(jwtContext);
                 JwtClaims claimsSet = jwtContext.getJwtClaims();
 
                 // We have to determine the unique name to use as the principal name. It comes from upn, preferred_username, sub in that order
@@ -374,6 +355,12 @@ public class MPJWTFilter implements Filter {
                 claimsSet.setClaim(Claims.raw_token.name(), token);
                 principal = new JWTCallerPrincipal(token, type, claimsSet, principalName);
 
+                // without grace period the expiration is not enforced (evaluation time is 0), only the ttl applies
+                final NumericDate expiration = claimsSet.getExpirationTime();
+                final long expiresAt = expiration != null && authContextInfo.getExpGracePeriodSecs() > 0 ?
+                        (expiration.getValue() + authContextInfo.getExpGracePeriodSecs()) * 1000 : 0;
+                verifiedTokens.put(token, principal, expiresAt);
+
             } catch (final InvalidJwtException e) {
                 VALIDATION.warning(e.getMessage());
                 throw new ParseException("Failed to verify token", e);
@@ -385,5 +372,17 @@ public class MPJWTFilter implements Filter {
 
             return principal;
         }
+
+        private static boolean isUnknownKey(final InvalidJwtException e) {
+            if (e.hasErrorCode(ErrorCodes.SIGNATURE_INVALID)) { // single key, no kid lookup
+                return true;
+            }
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (UnresolvableKeyException.class.isInstance(cause)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
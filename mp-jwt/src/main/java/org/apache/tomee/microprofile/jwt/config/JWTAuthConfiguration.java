@@ -16,30 +16,50 @@
  */
 package org.apache.tomee.microprofile.jwt.config;
 
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.keys.resolvers.JwksVerificationKeyResolver;
 import org.jose4j.lang.JoseException;
 
 import java.security.Key;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
  * The public key and expected issuer needed to validate a token.
+ *
+ * The jose4j consumer is built once from these settings and rebuilt when one of them changes, including
+ * when the keys are reloaded from their location.
  */
 public class JWTAuthConfiguration {
     private static final Logger logger = Logger.getLogger(JWTAuthConfiguration.class.getName());
     public static final String DEFAULT_KEY = "DEFAULT";
 
-    private Map<String, Key> publicKeys;
+    private volatile Map<String, Key> publicKeys;
     private String issuer;
     private int expGracePeriodSecs = 60;
     private String headerName = "Authorization";
     private String headerScheme = "Bearer";
     private boolean allowNoExpiryClaim = false;
 
+    private volatile JwtConsumer consumer;
+    private final VerifiedTokenCache<JsonWebToken> verifiedTokens = new VerifiedTokenCache<>();
+    private volatile Supplier<Map<String, Key>> publicKeysLoader;
+    private volatile long publicKeysReloadInterval = TimeUnit.SECONDS.toMillis(30);
+    private final AtomicLong lastPublicKeysReload = new AtomicLong();
+
     private JWTAuthConfiguration(final Key publicKey, final String issuer, final boolean allowNoExpiryClaim) {
         this.publicKeys = Collections.singletonMap(DEFAULT_KEY, publicKey);
         this.issuer = issuer;
@@ -47,14 +67,17 @@ public class JWTAuthConfiguration {
     }
 
     private JWTAuthConfiguration(final Map<String, Key> publicKeys, final String issuer, final boolean allowNoExpiryClaim) {
+        this.publicKeys = normalize(publicKeys);
+        this.issuer = issuer;
+        this.allowNoExpiryClaim = allowNoExpiryClaim;
+    }
+
+    private static Map<String, Key> normalize(final Map<String, Key> publicKeys) {
         if (publicKeys.size() == 1) {
             final Key singleKey = publicKeys.values().iterator().next();
-            this.publicKeys = Collections.singletonMap(DEFAULT_KEY, singleKey);
-        } else {
-            this.publicKeys = Collections.unmodifiableMap(publicKeys);
+            return Collections.singletonMap(DEFAULT_KEY, singleKey);
         }
-        this.issuer = issuer;
-        this.allowNoExpiryClaim = allowNoExpiryClaim;
+        return Collections.unmodifiableMap(publicKeys);
     }
 
     public static JWTAuthConfiguration authConfiguration(final Key publicKey, final String issuer, final boolean allowNoExpiryClaim) {
@@ -86,6 +109,110 @@ public class JWTAuthConfiguration {
         }).collect(Collectors.toList());
     }
 
+    /**
+     * @return the consumer verifying the tokens against the current keys and settings, it is thread safe
+     */
+    public JwtConsumer getConsumer() {
+        JwtConsumer current = consumer;
+        if (current == null) {
+            synchronized (this) {
+                current = consumer;
+                if (current == null) {
+                    current = buildConsumer();
+                    consumer = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private JwtConsumer buildConsumer() {
+        final JwtConsumerBuilder builder = new JwtConsumerBuilder()
+                .setRelaxVerificationKeyValidation()
+                .setRequireSubject()
+                .setSkipDefaultAudienceValidation()
+                .setJwsAlgorithmConstraints(
+                        new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.WHITELIST,
+                                AlgorithmIdentifiers.RSA_USING_SHA256,
+                                AlgorithmIdentifiers.RSA_USING_SHA384,
+                                AlgorithmIdentifiers.RSA_USING_SHA512
+                        ));
+
+        if (!allowNoExpiryClaim) {
+            builder.setRequireExpirationTime();
+        }
+        if (issuer != null) {
+            builder.setExpectedIssuer(issuer);
+        }
+        if (expGracePeriodSecs > 0) {
+            builder.setAllowedClockSkewInSeconds(expGracePeriodSecs);
+        } else {
+            builder.setEvaluationTime(NumericDate.fromSeconds(0));
+        }
+
+        if (isSingleKey()) {
+            builder.setVerificationKey(getPublicKey());
+        } else {
+            builder.setVerificationKeyResolver(new JwksVerificationKeyResolver(getPublicKeys()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the tokens already verified with this configuration
+     */
+    public VerifiedTokenCache<JsonWebToken> getVerifiedTokens() {
+        return verifiedTokens;
+    }
+
+    /**
+     * @param loader         reads the keys again from their location
+     * @param reloadInterval the minimum time between two reloads, in milliseconds
+     */
+    public void setPublicKeysLoader(final Supplier<Map<String, Key>> loader, final long reloadInterval) {
+        this.publicKeysLoader = loader;
+        this.publicKeysReloadInterval = reloadInterval;
+        this.lastPublicKeysReload.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Reads the keys again from their location, at most once per reload interval.
+     * Called periodically and when a token is signed with a key id we don't know.
+     *
+     * @return true if the keys changed
+     */
+    public boolean reloadPublicKeys() {
+        final Supplier<Map<String, Key>> loader = publicKeysLoader;
+        if (loader == null) {
+            return false;
+        }
+
+        final long now = System.currentTimeMillis();
+        final long last = lastPublicKeysReload.get();
+        if (now - last < publicKeysReloadInterval || !lastPublicKeysReload.compareAndSet(last, now)) {
+            return false;
+        }
+
+        final Map<String, Key> keys;
+        try {
+            keys = normalize(loader.get());
+        } catch (final RuntimeException e) {
+            logger.log(Level.WARNING, "Can't reload the MicroProfile JWT public keys, keeping the current ones", e);
+            return false;
+        }
+        if (keys.equals(publicKeys)) {
+            return false;
+        }
+
+        synchronized (this) {
+            publicKeys = keys;
+            consumer = null;
+        }
+        // a removed key must not keep its tokens valid
+        verifiedTokens.clear();
+        return true;
+    }
+
     public String getIssuer() {
         return issuer;
     }
@@ -96,6 +223,8 @@ public class JWTAuthConfiguration {
 
     public void setExpGracePeriodSecs(final int expGracePeriodSecs) {
         this.expGracePeriodSecs = expGracePeriodSecs;
+        this.consumer = null;
+        this.verifiedTokens.clear();
     }
 
     public String getHeaderName() {
@@ -120,5 +249,7 @@ public class JWTAuthConfiguration {
 
     public void setAllowNoExpiryClaim(boolean allowNoExpiryClaim) {
         this.allowNoExpiryClaim = allowNoExpiryClaim;
+        this.consumer = null;
+        this.verifiedTokens.clear();
     }
 }
@@ -16,9 +16,11 @@
  */
 package org.apache.tomee.microprofile.jwt.config;
 
+import org.apache.openejb.util.DaemonThreadFactory;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
@@ -29,6 +31,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.eclipse.microprofile.jwt.config.Names.ISSUER;
 import static org.eclipse.microprofile.jwt.config.Names.VERIFIER_PUBLIC_KEY;
@@ -50,12 +55,20 @@ public class JWTAuthConfigurationProperties {
 
     private Config config;
     private JWTAuthConfiguration jwtAuthConfiguration;
+    private ScheduledExecutorService publicKeysRefresh;
 
     public void init(@Observes @Initialized(ApplicationScoped.class) ServletContext context) {
         this.config = ConfigProvider.getConfig();
         this.jwtAuthConfiguration = createJWTAuthConfiguration();
     }
 
+    @PreDestroy
+    public void destroy() {
+        if (publicKeysRefresh != null) {
+            publicKeysRefresh.shutdownNow();
+        }
+    }
+
     public Optional<JWTAuthConfiguration> getJWTAuthConfiguration() {
         return Optional.ofNullable(jwtAuthConfiguration);
     }
@@ -84,12 +97,41 @@ public class JWTAuthConfigurationProperties {
         final Optional<String> publicKeyContents = getVerifierPublicKey();
         final Optional<String> publicKeyLocation = getPublicKeyLocation();
 
-        final Optional<Map<String, Key>> first = new PublicKeyResolver().resolve(publicKeyContents, publicKeyLocation);
+        final PublicKeyResolver resolver = new PublicKeyResolver();
+        final Optional<Map<String, Key>> first = resolver.resolve(publicKeyContents, publicKeyLocation);
         final Boolean allowNoExp = config.getOptionalValue("mp.jwt.tomee.allow.no-exp", Boolean.class).orElse(false);
 
-        return first
+        final JWTAuthConfiguration configuration = first
                 .map(keys -> JWTAuthConfiguration.authConfiguration(keys, getIssuer().orElse(null), allowNoExp))
                 .orElse(null);
+        if (configuration == null) {
+            return null;
+        }
+
+        final VerifiedTokenCache<?> verifiedTokens = configuration.getVerifiedTokens();
+        verifiedTokens.setMaxSize(config.getOptionalValue("mp.jwt.tomee.token.cache.size", Integer.class)
+                .orElse(VerifiedTokenCache.DEFAULT_SIZE));
+        verifiedTokens.setTtl(config.getOptionalValue("mp.jwt.tomee.token.cache.ttl", Long.class)
+                .orElse(TimeUnit.MILLISECONDS.toSeconds(VerifiedTokenCache.DEFAULT_TTL)), TimeUnit.SECONDS);
+
+        // only remote key sets are rotated behind our back
+        if (publicKeyLocation.isPresent() && publicKeyLocation.get().startsWith("http")) {
+            final String location = publicKeyLocation.get();
+            final long minInterval = config.getOptionalValue("mp.jwt.tomee.jwks.refresh.min-interval", Long.class).orElse(30L);
+            final long interval = config.getOptionalValue("mp.jwt.tomee.jwks.refresh.interval", Long.class).orElse(300L);
+
+            configuration.setPublicKeysLoader(() -> resolver.readPublicKeysFromLocation(location), TimeUnit.SECONDS.toMillis(minInterval));
+            if (interval > 0) {
+                publicKeysRefresh = schedulePublicKeysRefresh(configuration, interval, TimeUnit.SECONDS);
+            }
+        }
+        return configuration;
+    }
+
+    static ScheduledExecutorService schedulePublicKeysRefresh(final JWTAuthConfiguration configuration, final long interval, final TimeUnit unit) {
+        final ScheduledExecutorService refresh = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("mp-jwt-keys-refresh"));
+        refresh.scheduleWithFixedDelay(configuration::reloadPublicKeys, interval, interval, unit);
+        return refresh;
     }
 
 }
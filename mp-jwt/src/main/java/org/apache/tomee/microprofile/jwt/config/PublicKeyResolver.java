@@ -35,6 +35,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
@@ -52,6 +53,8 @@ import static org.jose4j.jwk.JsonWebKeySet.JWK_SET_MEMBER_NAME;
 
 public class PublicKeyResolver {
 
+    private static final int HTTP_TIMEOUT = 10000;
+
     public Optional<Map<String, Key>> resolve(final Optional<String> publicKeyContents, final Optional<String> publicKeyLocation) {
         final Stream<Supplier<Optional<Map<String, Key>>>> possiblePublicKeys =
                 Stream.of(() -> publicKeyContents.map(this::readPublicKeys),
@@ -79,7 +82,7 @@ public class PublicKeyResolver {
                 .orElseThrow(() -> new DeploymentException(": " + publicKey));
     }
 
-    private Map<String, Key> readPublicKeysFromLocation(final String publicKeyLocation) {
+    public Map<String, Key> readPublicKeysFromLocation(final String publicKeyLocation) {
         final Stream<Supplier<Optional<String>>> possiblePublicKeysLocations =
                 Stream.of(() -> readPublicKeysFromClasspath(publicKeyLocation),
                         () -> readPublicKeysFromFile(publicKeyLocation),
@@ -138,8 +141,11 @@ public class PublicKeyResolver {
         }
 
         try {
-            final URL locationURL = new URL(publicKeyLocation);
-            return Optional.of(readPublicKeyFromInputStream(locationURL.openStream()));
+            // also read again by the key refresh, don't let a stuck server hang it
+            final URLConnection connection = new URL(publicKeyLocation).openConnection();
+            connection.setConnectTimeout(HTTP_TIMEOUT);
+            connection.setReadTimeout(HTTP_TIMEOUT);
+            return Optional.of(readPublicKeyFromInputStream(connection.getInputStream()));
         } catch (final IOException e) {
             throw new DeploymentException(
                     JWTAuthConfigurationProperties.PUBLIC_KEY_ERROR_LOCATION + publicKeyLocation, e);
@@ -0,0 +1,95 @@
+/*
+ *     Licensed to the Apache Software Foundation (ASF) under one or more
+ *     contributor license agreements.  See the NOTICE file distributed with
+ *     this work for additional information regarding copyright ownership.
+ *     The ASF licenses this file to You under the Apache License, Version 2.0
+ *     (the "License"); you may not use this file except in compliance with
+ *     the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt.config;
+
+import org.apache.openejb.util.ExpiringCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens which already went through the signature and claims verification, keyed by the SHA-256 of the raw token.
+ *
+ * An entry never outlives the token expiration nor the configured time to live, so a bearer token sent again
+ * costs a digest and a lookup instead of a RSA verification. A size of 0 disables the cache.
+ */
+public class VerifiedTokenCache<T> {
+
+    public static final int DEFAULT_SIZE = 1000;
+    public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private final ExpiringCache<ByteBuffer, T> entries = new ExpiringCache<>(DEFAULT_SIZE);
+    private volatile long ttl = DEFAULT_TTL;
+
+    public T get(final String token) {
+        if (entries.getMaxSize() <= 0) {
+            return null;
+        }
+        return entries.get(key(token));
+    }
+
+    /**
+     * @param expiresAt the token expiration in milliseconds, 0 if the token doesn't expire or it is not enforced
+     */
+    public void put(final String token, final T value, final long expiresAt) {
+        if (entries.getMaxSize() <= 0) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final long deadline = expiresAt > 0 ? Math.min(expiresAt, now + ttl) : now + ttl;
+        if (deadline <= now) {
+            return;
+        }
+        entries.put(key(token), value, deadline);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void setMaxSize(final int maxSize) {
+        entries.setMaxSize(Math.max(0, maxSize));
+    }
+
+    public int getMaxSize() {
+        return entries.getMaxSize();
+    }
+
+    public void setTtl(final long ttl, final TimeUnit unit) {
+        this.ttl = unit.toMillis(ttl);
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    private static ByteBuffer key(final String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // mandatory algorithm
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *     Licensed to the Apache Software Foundation (ASF) under one or more
+ *     contributor license agreements.  See the NOTICE file distributed with
+ *     this work for additional information regarding copyright ownership.
+ *     The ASF licenses this file to You under the Apache License, Version 2.0
+ *     (the "License"); you may not use this file except in compliance with
+ *     the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt.config;
+
+import org.apache.tomee.microprofile.jwt.MPJWTFilter;
+import org.apache.tomee.microprofile.jwt.ParseException;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JWTAuthConfigurationTest {
+
+    private static RsaJsonWebKey a;
+    private static RsaJsonWebKey b;
+    private static RsaJsonWebKey c;
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        a = key("a");
+        b = key("b");
+        c = key("c");
+    }
+
+    @Test
+    public void consumerIsBuiltOnce() throws Exception {
+        final JWTAuthConfiguration configuration = JWTAuthConfiguration.authConfiguration(a.getPublicKey(), null, false);
+
+        final JwtConsumer consumer = configuration.getConsumer();
+        assertEquals("jane", MPJWTFilter.ValidateJSonWebToken.parse(token(a, "jane"), configuration).getName());
+        assertEquals("john", MPJWTFilter.ValidateJSonWebToken.parse(token(a, "john"), configuration).getName());
+        assertSame(consumer, configuration.getConsumer());
+
+        configuration.setExpGracePeriodSecs(30);
+        assertNotSame(consumer, configuration.getConsumer());
+    }
+
+    @Test
+    public void unknownKeyIdReloadsTheKeys() throws Exception {
+        final JWTAuthConfiguration configuration = JWTAuthConfiguration.authConfiguration(keys(a, c), null, false);
+        final AtomicInteger loads = new AtomicInteger();
+        configuration.setPublicKeysLoader(() -> {
+            loads.incrementAndGet();
+            return keys(a, b);
+        }, 0);
+
+        assertEquals("jane", MPJWTFilter.ValidateJSonWebToken.parse(token(b, "jane"), configuration).getName());
+        assertEquals(1, loads.get());
+
+        // a known key id doesn't trigger a reload
+        MPJWTFilter.ValidateJSonWebToken.parse(token(a, "john"), configuration);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void unknownKeyIdReloadsAtMostOncePerInterval() throws Exception {
+        final JWTAuthConfiguration configuration = JWTAuthConfiguration.authConfiguration(keys(a, c), null, false);
+        final AtomicInteger loads = new AtomicInteger();
+        configuration.setPublicKeysLoader(() -> {
+            loads.incrementAndGet();
+            return keys(a, b);
+        }, TimeUnit.MINUTES.toMillis(1));
+
+        try {
+            MPJWTFilter.ValidateJSonWebToken.parse(token(b, "jane"), configuration);
+            fail("the keys were read less than a minute ago");
+        } catch (final ParseException e) {
+            // ok
+        }
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void keysAreRefreshedPeriodically() throws Exception {
+        final JWTAuthConfiguration configuration = JWTAuthConfiguration.authConfiguration(keys(a, c), null, false);
+        final CountDownLatch loaded = new CountDownLatch(2);
+        configuration.setPublicKeysLoader(() -> {
+            loaded.countDown();
+            return keys(a, b);
+        }, 0);
+        final JwtConsumer consumer = configuration.getConsumer();
+
+        final ScheduledExecutorService refresh = JWTAuthConfigurationProperties.schedulePublicKeysRefresh(configuration, 50, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue(loaded.await(1, TimeUnit.MINUTES));
+        } finally {
+            refresh.shutdownNow();
+        }
+
+        assertNotSame(consumer, configuration.getConsumer());
+        assertEquals("jane", MPJWTFilter.ValidateJSonWebToken.parse(token(b, "jane"), configuration).getName());
+    }
+
+    private static RsaJsonWebKey key(final String id) throws Exception {
+        final RsaJsonWebKey key = RsaJwkGenerator.generateJwk(2048);
+        key.setKeyId(id);
+        return key;
+    }
+
+    private static Map<String, Key> keys(final RsaJsonWebKey... keys) {
+        final Map<String, Key> map = new HashMap<>();
+        for (final RsaJsonWebKey key : keys) {
+            map.put(key.getKeyId(), key.getPublicKey());
+        }
+        return map;
+    }
+
+    private static String token(final RsaJsonWebKey key, final String subject) throws Exception {
+        final JwtClaims claims = new JwtClaims();
+        claims.setSubject(subject);
+        claims.setExpirationTime(NumericDate.fromSeconds(System.currentTimeMillis() / 1000 + 3600));
+
+        final JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(key.getPrivateKey());
+        jws.setKeyIdHeaderValue(key.getKeyId());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        return jws.getCompactSerialization();
+    }
+}
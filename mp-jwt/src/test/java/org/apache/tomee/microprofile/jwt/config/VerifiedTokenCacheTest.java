@@ -0,0 +1,67 @@
+/*
+ *     Licensed to the Apache Software Foundation (ASF) under one or more
+ *     contributor license agreements.  See the NOTICE file distributed with
+ *     this work for additional information regarding copyright ownership.
+ *     The ASF licenses this file to You under the Apache License, Version 2.0
+ *     (the "License"); you may not use this file except in compliance with
+ *     the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package org.apache.tomee.microprofile.jwt.config;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VerifiedTokenCacheTest {
+
+    @Test
+    public void hit() {
+        final VerifiedTokenCache<String> cache = new VerifiedTokenCache<>();
+        cache.put("a.b.c", "jane", 0);
+
+        assertEquals("jane", cache.get("a.b.c"));
+        assertNull(cache.get("a.b.d"));
+    }
+
+    @Test
+    public void expiredTokensAreNotServed() {
+        final VerifiedTokenCache<String> cache = new VerifiedTokenCache<>();
+        cache.put("expired", "jane", System.currentTimeMillis() - 1);
+        assertEquals(0, cache.size());
+
+        cache.setTtl(-1, TimeUnit.MILLISECONDS);
+        cache.put("no-ttl", "jane", 0);
+        assertNull(cache.get("no-ttl"));
+    }
+
+    @Test
+    public void bounded() {
+        final VerifiedTokenCache<String> cache = new VerifiedTokenCache<>();
+        cache.setMaxSize(10);
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, "user-" + i, 0);
+        }
+        assertTrue(cache.size() <= 10);
+        assertEquals("user-99", cache.get("token-99"));
+    }
+
+    @Test
+    public void disabled() {
+        final VerifiedTokenCache<String> cache = new VerifiedTokenCache<>();
+        cache.setMaxSize(0);
+        cache.put("a.b.c", "jane", 0);
+        assertNull(cache.get("a.b.c"));
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non blocking invocation of any business method of a remote proxy, @Asynchronous or not:
+ *
+ * <pre>
+ * CompletableFuture&lt;Integer&gt; sum = AsyncEJB.call(calculator, c -&gt; c.add(1, 2));
+ * </pre>
+ *
+ * The invocation done by the function on the proxy is captured and sent by the caller thread through the usual
+ * request path, so the connection strategy, failover and retries of the server apply, but nobody waits for the
+ * response: asynchronous requests share the multiplexed ejbd connections of the server, whatever
+ * openejb.client.multiplex is, and the reader thread of the connection completes the future. Dependent stages
+ * registered without an executor run in this thread, blocking work should use the *Async variants.
+ * Only the responses of the connections which can't be multiplexed (http, servers older than 4.7)
+ * are waited for by a thread.
+ *
+ * The number of calls in flight per server is limited by openejb.client.async.max-in-flight (100 by default).
+ * Calls over the limit are queued, up to openejb.client.async.max-queued (1000 by default), and sent by the
+ * thread completing a call. When the queue is full the returned future fails immediately
+ * with a RejectedExecutionException: the caller never blocks.
+ */
+public final class AsyncEJB {
+    public static final String MAX_IN_FLIGHT = "openejb.client.async.max-in-flight";
+    public static final String MAX_QUEUED = "openejb.client.async.max-queued";
+
+    private static final ThreadLocal<Capture> CAPTURE = new ThreadLocal<Capture>();
+    private static final Map<ServerMetaData, Limiter> LIMITERS = new ConcurrentHashMap<ServerMetaData, Limiter>();
+    // reads the responses of the connections which can't be multiplexed, at most the calls in flight
+    private static final ExecutorService BLOCKING = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger i = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "OpenEJB.Client.Async." + i.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private AsyncEJB() {
+        // no-op
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <P, R> CompletableFuture<R> call(final P proxy, final Function<P, R> invocation) {
+        final Capture capture = new Capture();
+        final Capture previous = CAPTURE.get();
+        CAPTURE.set(capture);
+        try {
+            invocation.apply(proxy);
+        } catch (final RuntimeException e) {
+            if (capture.future == null) {
+                final CompletableFuture<R> failed = new CompletableFuture<R>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            // the call was dispatched, the function failed on the placeholder result
+        } finally {
+            if (previous == null) {
+                CAPTURE.remove();
+            } else {
+                CAPTURE.set(previous);
+            }
+        }
+
+        if (capture.future == null) {
+            final CompletableFuture<R> failed = new CompletableFuture<R>();
+            failed.completeExceptionally(new IllegalArgumentException("No business method of a remote EJB proxy was invoked"));
+            return failed;
+        }
+        return (CompletableFuture<R>) capture.future;
+    }
+
+    public static <P> CompletableFuture<Void> run(final P proxy, final Consumer<P> invocation) {
+        return call(proxy, new Function<P, Void>() {
+            @Override
+            public Void apply(final P p) {
+                invocation.accept(p);
+                return null;
+            }
+        });
+    }
+
+    static boolean isCapturing() {
+        return CAPTURE.get() != null;
+    }
+
+    /**
+     * Called by the proxy handler instead of sending the request.
+     *
+     * @return the placeholder result handed to the capturing function
+     */
+    static Object dispatch(final EJBObjectHandler handler, final Object proxy, final Method method, final Object[] args) {
+        final Capture capture = CAPTURE.get();
+        if (capture.future != null) {
+            throw new IllegalStateException("Only one business method can be invoked asynchronously per call");
+        }
+
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        capture.future = future;
+
+        final Call call;
+        try {
+            call = new Call(handler, handler.asyncBusinessMethodRequest(method, args), method, Thread.currentThread().getContextClassLoader(), future);
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+            return placeholder(method);
+        }
+        limiter(handler.server).submit(call);
+        return placeholder(method);
+    }
+
+    private static Limiter limiter(final ServerMetaData server) {
+        Limiter limiter = LIMITERS.get(server);
+        if (limiter == null) {
+            final Options options = Client.getContext(server).getOptions();
+            final Limiter created = new Limiter(server, Math.max(1, options.get(MAX_IN_FLIGHT, 100)), Math.max(1, options.get(MAX_QUEUED, 1000)));
+            limiter = LIMITERS.putIfAbsent(server, created);
+            if (limiter == null) {
+                limiter = created;
+            }
+        }
+        return limiter;
+    }
+
+    private static Object placeholder(final Method method) {
+        final Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        return 0D;
+    }
+
+    private static final class Capture {
+        private CompletableFuture<?> future;
+    }
+
+    /**
+     * A request built by the caller thread, with its identity, which can be sent by any thread.
+     */
+    private static final class Call {
+        private final EJBObjectHandler handler;
+        private final EJBRequest request;
+        private final Method method;
+        private final ClassLoader loader;
+        private final CompletableFuture<Object> future;
+
+        private Call(final EJBObjectHandler handler, final EJBRequest request, final Method method, final ClassLoader loader,
+                     final CompletableFuture<Object> future) {
+            this.handler = handler;
+            this.request = request;
+            this.method = method;
+            this.loader = loader;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Sends the calls of a server while less than max-in-flight are waiting for their response and queues the others,
+     * the thread completing a call sends the next queued one.
+     */
+    private static final class Limiter {
+        private final ServerMetaData server;
+        private final int maxInFlight;
+        private final int maxQueued;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Queue<Call> waiting = new ConcurrentLinkedQueue<Call>();
+        // a call failing while it is sent completes in the draining thread, the loop sends the next one instead of recursing
+        private final ThreadLocal<Boolean> draining = new ThreadLocal<Boolean>();
+
+        private Limiter(final ServerMetaData server, final int maxInFlight, final int maxQueued) {
+            this.server = server;
+            this.maxInFlight = maxInFlight;
+            this.maxQueued = maxQueued;
+        }
+
+        private void submit(final Call call) {
+            if (tryAcquire()) {
+                send(call);
+                return;
+            }
+
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                call.future.completeExceptionally(new RejectedExecutionException(maxInFlight + " asynchronous calls in flight and "
+                    + maxQueued + " queued to " + server.getLocation()));
+                return;
+            }
+            waiting.add(call);
+            drain(); // a call may have completed before this one was queued
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                final int current = inFlight.get();
+                if (current >= maxInFlight) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            if (draining.get() != null) {
+                return;
+            }
+
+            draining.set(Boolean.TRUE);
+            try {
+                while (!waiting.isEmpty() && tryAcquire()) {
+                    final Call next = waiting.poll();
+                    if (next == null) {
+                        inFlight.decrementAndGet();
+                        continue;
+                    }
+                    queued.decrementAndGet();
+                    send(next);
+                }
+            } finally {
+                draining.remove();
+            }
+        }
+
+        private void send(final Call call) {
+            final Thread thread = Thread.currentThread();
+            final ClassLoader oldLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(call.loader);
+            try {
+                call.handler.asyncBusinessMethod(call.request, call.method, BLOCKING).whenComplete(new BiConsumer<Object, Throwable>() {
+                    @Override
+                    public void accept(final Object result, final Throwable error) {
+                        release();
+                        if (error != null) {
+                            call.future.completeExceptionally(error);
+                        } else {
+                            call.future.complete(result);
+                        }
+                    }
+                });
+            } finally {
+                thread.setContextClassLoader(oldLoader);
+            }
+        }
+    }
+}
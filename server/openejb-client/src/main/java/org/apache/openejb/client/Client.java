@@ -42,8 +42,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -58,6 +62,8 @@ public class Client {
     private boolean FINER = logger.isLoggable(Level.FINER);
 
     public static final ThreadLocal<Set<URI>> failed = new ThreadLocal<>();
+    // set while an asynchronous request gets its connection, see SocketConnectionFactory
+    private static final ThreadLocal<Boolean> ASYNCHRONOUS = new ThreadLocal<>();
     private static final ProtocolMetaData PROTOCOL_META_DATA = new ProtocolMetaData();
 
     private static Client client = new Client();
@@ -143,6 +149,25 @@ public class Client {
         }
     }
 
+    /**
+     * Sends the request from the calling thread and completes the returned future with the response, failover and
+     * retries being the ones of {@link #request}. A multiplexed ejbd connection, the one used for asynchronous
+     * requests when the server supports it, hands its response over from the thread reading its socket so no
+     * thread waits for it. Other connections are read by a thread of the given executor.
+     *
+     * Dependent stages without an executor run in the thread reading the socket, the response being
+     * deserialized with the context class loader of the calling thread.
+     */
+    public static CompletableFuture<Response> requestAsync(final Request req, final Response res, final ServerMetaData server, final Executor blocking) {
+        final CompletableFuture<Response> future = new CompletableFuture<Response>();
+        client.processRequestAsync(req, res, server, blocking, new HashSet<URI>(), future);
+        return future;
+    }
+
+    static boolean isAsynchronous() {
+        return ASYNCHRONOUS.get() != null;
+    }
+
     protected Response processRequest(final Request req, final Response res, final ServerMetaData server) throws RemoteException {
 
         if (server == null) {
@@ -171,88 +196,7 @@ public class Client {
 
         try {
 
-
-            /*----------------------------------*/
-            /* Get output streams */
-            /*----------------------------------*/
-            try {
-
-                out = conn.getOutputStream();
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot open output stream to server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write the protocol magic         */
-            /*----------------------------------*/
-            try {
-                protocolRequest.writeExternal(out);
-                out.flush();
-            } catch (final IOException e) {
-                throw newIOException("Cannot write the protocol metadata to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Get output streams */
-            /*----------------------------------*/
-            final ObjectOutput objectOut;
-            try {
-                objectOut = new ObjectOutputStream(out);
-            } catch (final IOException e) {
-                throw newIOException("Cannot open object output stream to server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write ServerMetaData */
-            /*----------------------------------*/
-            try {
-                server.setMetaData(protocolRequest);
-                server.writeExternal(objectOut);
-            } catch (final IOException e) {
-                throw newIOException("Cannot write the ServerMetaData to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write ClusterMetaData */
-            /*----------------------------------*/
-            try {
-
-                final ClusterRequest clusterRequest = new ClusterRequest(cluster);
-                clusterRequest.setMetaData(protocolRequest);
-                objectOut.write(clusterRequest.getRequestType().getCode());
-                clusterRequest.writeExternal(objectOut);
-            } catch (final Throwable e) {
-                throw newIOException("Cannot write the ClusterMetaData to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write request type */
-            /*----------------------------------*/
-            try {
-                objectOut.write(req.getRequestType().getCode());
-            } catch (final IOException e) {
-                throw newIOException("Cannot write the request type to the server: ", e);
-            }
-
-            /*----------------------------------*/
-            /* Write request */
-            /*----------------------------------*/
-            try {
-
-                req.setMetaData(protocolRequest);
-                req.writeExternal(objectOut);
-                objectOut.flush();
-                out.flush();
-
-            } catch (final java.io.NotSerializableException e) {
-
-                throw new IllegalArgumentException("Object is not serializable: " + e.getMessage());
-
-            } catch (final IOException e) {
-
-                throw newIOException("Cannot write the request to the server: " + e.getMessage(), e);
-            }
+            out = writeRequest(conn, req, server, cluster, protocolRequest);
 
             /*----------------------------------*/
             /* Get input streams               */
@@ -269,93 +213,7 @@ public class Client {
                 throw newIOException("Cannot open input stream to server: ", e);
             }
 
-            //Determine the server response protocol for reading
-            final ProtocolMetaData protocolResponse = new ProtocolMetaData();
-            try {
-
-                protocolResponse.readExternal(in);
-
-            } catch (final EOFException e) {
-
-                throw newIOException("Prematurely reached the end of the stream.  " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
-
-            } catch (final IOException e) {
-
-                throw newIOException("Cannot determine server protocol version: Received " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
-            }
-
-            final ObjectInput objectIn;
-            try {
-
-                objectIn = new EjbObjectInputStream(in);
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot open object input stream to server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-            }
-
-            /*----------------------------------*/
-            /* Read cluster response */
-            /*----------------------------------*/
-            try {
-                final ClusterResponse clusterResponse = new ClusterResponse();
-                clusterResponse.setMetaData(protocolResponse);
-                clusterResponse.readExternal(objectIn);
-                switch (clusterResponse.getResponseCode()) {
-                    case UPDATE: {
-                        setClusterMetaData(server, clusterResponse.getUpdatedMetaData());
-                    }
-                    break;
-                    case FAILURE: {
-                        throw clusterResponse.getFailure();
-                    }
-                }
-            } catch (final ClassNotFoundException e) {
-                throw new RemoteException("Cannot read the cluster response from the server.  The class for an object being returned is not located in this system:", e);
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot read the cluster response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-
-            } catch (final Throwable e) {
-                throw new RemoteException("Error reading cluster response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-            }
-
-            /*----------------------------------*/
-            /* Read response */
-            /*----------------------------------*/
-            try {
-                res.setMetaData(protocolResponse);
-                res.readExternal(objectIn);
-            } catch (final ClassNotFoundException e) {
-                throw new RemoteException("Cannot read the response from the server.  The class for an object being returned is not located in this system:", e);
-
-            } catch (final IOException e) {
-                throw newIOException("Cannot read the response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-
-            } catch (final Throwable e) {
-                throw new RemoteException("Error reading response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
-            }
-
-            if (retryConditions.size() > 0) {
-                if (res instanceof EJBResponse) {
-                    final EJBResponse ejbResponse = (EJBResponse) res;
-                    if (ejbResponse.getResult() instanceof ThrowableArtifact) {
-                        final ThrowableArtifact artifact = (ThrowableArtifact) ejbResponse.getResult();
-                        //noinspection ThrowableResultOfMethodCallIgnored
-                        if (retryConditions.contains(artifact.getThrowable().getClass())) {
-
-                            throw new RetryException(res);
-
-                            //                            if (? < maxConditionRetry) {
-                            //                                throw new RetryException(res);
-                            //                            } else {
-                            //                                if (FINER) {
-                            //                                    logger.log(Level.FINER, "Giving up on " + artifact.getThrowable().getClass().getName().toString());
-                            //                                }
-                            //                            }
-                        }
-                    }
-                }
-            }
+            readResponse(in, res, server);
 
             if (FINEST) {
                 final long time = System.nanoTime() - start;
@@ -399,33 +257,370 @@ public class Client {
             throw new RemoteException("Error while communicating with server: ", error);
 
         } finally {
+            close(out, in, conn);
+        }
+        return res;
+    }
+
+    private void processRequestAsync(final Request req, final Response res, final ServerMetaData server, final Executor blocking,
+                                     final Set<URI> failed, final CompletableFuture<Response> future) {
+
+        if (server == null) {
+            throw new IllegalArgumentException("Server instance cannot be null");
+        }
+
+        final long start = System.nanoTime();
+        final ClusterMetaData cluster = getClusterMetaData(server);
+        final ProtocolMetaData protocolRequest = (null != COMPATIBLE_META_DATA ? COMPATIBLE_META_DATA : PROTOCOL_META_DATA);
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+        // the connection strategy reads the servers which already failed for this request from the thread
+        final Set<URI> previousFailed = Client.failed.get();
+        Client.failed.set(failed);
+        ASYNCHRONOUS.set(Boolean.TRUE);
+        final Connection conn;
+        try {
+            conn = ConnectionManager.getConnection(cluster, server, req);
+        } catch (final IOException e) {
+            future.completeExceptionally(new RemoteException("Unable to connect", e));
+            return;
+        } finally {
+            ASYNCHRONOUS.remove();
+            if (previousFailed == null) {
+                Client.failed.remove();
+            } else {
+                Client.failed.set(previousFailed);
+            }
+        }
+
+        final OutputStream out;
+        final CompletableFuture<InputStream> response;
+        try {
+            out = writeRequest(conn, req, server, cluster, protocolRequest);
 
-            if (null != out) {
+            final CompletableFuture<InputStream> async = conn instanceof AsyncConnection ? ((AsyncConnection) conn).getInputStreamAsync() : null;
+            if (async != null) {
+                response = async;
+            } else {
+                response = new CompletableFuture<InputStream>();
                 try {
-                    out.close();
-                } catch (final Throwable e) {
-                    //Ignore
+                    blocking.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                response.complete(conn.getInputStream());
+                            } catch (final Throwable e) {
+                                response.completeExceptionally(e);
+                            }
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    // the request was sent, nobody will read its response
+                    conn.discard();
+                    throw new RemoteException("No thread to read the response from " + conn.getURI(), e);
                 }
             }
+        } catch (final Throwable e) {
+            failedAsync(req, res, server, blocking, failed, future, conn, null, null, protocolRequest, e);
+            return;
+        }
 
-            if (null != in) {
+        response.whenComplete(new BiConsumer<InputStream, Throwable>() {
+            @Override
+            public void accept(final InputStream in, final Throwable error) {
+                final Thread thread = Thread.currentThread();
+                final ClassLoader oldLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader(loader);
                 try {
-                    in.close();
-                } catch (final Throwable e) {
-                    //Ignore
+                    if (error != null) {
+                        Throwable failure = error;
+                        if (IOException.class.isInstance(error)) {
+                            failure = AuthenticationException.class.isInstance(error.getCause())
+                                ? error.getCause() : newIOException("Cannot open input stream to server: ", error);
+                        }
+                        failedAsync(req, res, server, blocking, failed, future, conn, out, null, protocolRequest, failure);
+                        return;
+                    }
+
+                    try {
+                        readResponse(in, res, server);
+                    } catch (final Throwable e) {
+                        failedAsync(req, res, server, blocking, failed, future, conn, out, in, protocolRequest, e);
+                        return;
+                    }
+
+                    if (FINEST) {
+                        final long time = System.nanoTime() - start;
+                        logger.log(Level.FINEST, String.format("Invocation %sns - %s - Request(%s) - Response(%s)", time, conn.getURI(), req, res));
+                    }
+                    close(out, in, conn);
+                    future.complete(res);
+                } finally {
+                    thread.setContextClassLoader(oldLoader);
                 }
             }
+        });
+    }
 
-            if (null != conn) {
-                try {
-                    conn.close();
-                } catch (final Throwable t) {
-                    logger.log(Level.WARNING, "Error closing connection with server: " + t.getMessage(), t);
+    /**
+     * Same failover as {@link #processRequest} once the request failed, the retry being sent from the current thread.
+     */
+    private void failedAsync(final Request req, final Response res, final ServerMetaData server, final Executor blocking, final Set<URI> failed,
+                             final CompletableFuture<Response> future, final Connection conn, final OutputStream out, final InputStream in,
+                             final ProtocolMetaData protocolRequest, final Throwable error) {
+
+        if (error instanceof RemoteException) {
+            close(out, in, conn);
+            future.completeExceptionally(error);
+            return;
+        }
+        if (!(error instanceof IOException)) {
+            close(out, in, conn);
+            future.completeExceptionally(new RemoteException("Error while communicating with server: ", error));
+            return;
+        }
+
+        final IOException e = (IOException) error;
+        final URI uri = conn.getURI();
+
+        Client.fireEvent(new RequestFailed(uri, req, e));
+
+        if (FINER) {
+            logger.log(Level.FINER, "Add Failed " + uri.toString());
+        }
+        failed.add(uri);
+        conn.discard();
+        close(out, in, conn);
+
+        if (!(e instanceof RetryException) && !getRetry()) {
+            future.completeExceptionally(new RemoteException("Cannot read the response from the server (" + protocolRequest.getSpec() + ") : " + e.getMessage(), e));
+            return;
+        }
+
+        Client.fireEvent(new RetryingRequest(req, server));
+
+        final CompletableFuture<Response> retry = new CompletableFuture<Response>();
+        retry.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(final Response response, final Throwable re) {
+                if (re == null) {
+                    future.complete(response);
+                } else if (re instanceof RemoteFailoverException) {
+                    future.completeExceptionally(re);
+                } else if (e instanceof RetryException) {
+                    future.complete(((RetryException) e).getResponse());
+                } else {
+                    future.completeExceptionally(new RemoteFailoverException("Cannot complete request.  Retry attempted on " + failed.size() + " servers", e));
                 }
             }
+        });
+        processRequestAsync(req, res, server, blocking, failed, retry);
+    }
+
+    private OutputStream writeRequest(final Connection conn, final Request req, final ServerMetaData server, final ClusterMetaData cluster,
+                                      final ProtocolMetaData protocolRequest) throws IOException {
+
+        /*----------------------------------*/
+        /* Get output streams */
+        /*----------------------------------*/
+        final OutputStream out;
+        try {
+
+            out = conn.getOutputStream();
 
+        } catch (final IOException e) {
+            throw newIOException("Cannot open output stream to server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write the protocol magic         */
+        /*----------------------------------*/
+        try {
+            protocolRequest.writeExternal(out);
+            out.flush();
+        } catch (final IOException e) {
+            throw newIOException("Cannot write the protocol metadata to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Get output streams */
+        /*----------------------------------*/
+        final ObjectOutput objectOut;
+        try {
+            objectOut = new ObjectOutputStream(out);
+        } catch (final IOException e) {
+            throw newIOException("Cannot open object output stream to server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write ServerMetaData */
+        /*----------------------------------*/
+        try {
+            server.setMetaData(protocolRequest);
+            server.writeExternal(objectOut);
+        } catch (final IOException e) {
+            throw newIOException("Cannot write the ServerMetaData to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write ClusterMetaData */
+        /*----------------------------------*/
+        try {
+
+            final ClusterRequest clusterRequest = new ClusterRequest(cluster);
+            clusterRequest.setMetaData(protocolRequest);
+            objectOut.write(clusterRequest.getRequestType().getCode());
+            clusterRequest.writeExternal(objectOut);
+        } catch (final Throwable e) {
+            throw newIOException("Cannot write the ClusterMetaData to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write request type */
+        /*----------------------------------*/
+        try {
+            objectOut.write(req.getRequestType().getCode());
+        } catch (final IOException e) {
+            throw newIOException("Cannot write the request type to the server: ", e);
+        }
+
+        /*----------------------------------*/
+        /* Write request */
+        /*----------------------------------*/
+        try {
+
+            req.setMetaData(protocolRequest);
+            req.writeExternal(objectOut);
+            objectOut.flush();
+            out.flush();
+
+        } catch (final java.io.NotSerializableException e) {
+
+            throw new IllegalArgumentException("Object is not serializable: " + e.getMessage());
+
+        } catch (final IOException e) {
+
+            throw newIOException("Cannot write the request to the server: " + e.getMessage(), e);
+        }
+        return out;
+    }
+
+    private void readResponse(final InputStream in, final Response res, final ServerMetaData server) throws IOException {
+
+        //Determine the server response protocol for reading
+        final ProtocolMetaData protocolResponse = new ProtocolMetaData();
+        try {
+
+            protocolResponse.readExternal(in);
+
+        } catch (final EOFException e) {
+
+            throw newIOException("Prematurely reached the end of the stream.  " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
+
+        } catch (final IOException e) {
+
+            throw newIOException("Cannot determine server protocol version: Received " + protocolResponse.getSpec() + " : " + e.getMessage(), e);
+        }
+
+        final ObjectInput objectIn;
+        try {
+
+            objectIn = new EjbObjectInputStream(in);
+
+        } catch (final IOException e) {
+            throw newIOException("Cannot open object input stream to server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+        }
+
+        /*----------------------------------*/
+        /* Read cluster response */
+        /*----------------------------------*/
+        try {
+            final ClusterResponse clusterResponse = new ClusterResponse();
+            clusterResponse.setMetaData(protocolResponse);
+            clusterResponse.readExternal(objectIn);
+            switch (clusterResponse.getResponseCode()) {
+                case UPDATE: {
+                    setClusterMetaData(server, clusterResponse.getUpdatedMetaData());
+                }
+                break;
+                case FAILURE: {
+                    throw clusterResponse.getFailure();
+                }
+            }
+        } catch (final ClassNotFoundException e) {
+            throw new RemoteException("Cannot read the cluster response from the server.  The class for an object being returned is not located in this system:", e);
+
+        } catch (final IOException e) {
+            throw newIOException("Cannot read the cluster response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+
+        } catch (final Throwable e) {
+            throw new RemoteException("Error reading cluster response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+        }
+
+        /*----------------------------------*/
+        /* Read response */
+        /*----------------------------------*/
+        try {
+            res.setMetaData(protocolResponse);
+            res.readExternal(objectIn);
+        } catch (final ClassNotFoundException e) {
+            throw new RemoteException("Cannot read the response from the server.  The class for an object being returned is not located in this system:", e);
+
+        } catch (final IOException e) {
+            throw newIOException("Cannot read the response from the server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+
+        } catch (final Throwable e) {
+            throw new RemoteException("Error reading response from server (" + protocolResponse.getSpec() + ") : " + e.getMessage(), e);
+        }
+
+        if (retryConditions.size() > 0) {
+            if (res instanceof EJBResponse) {
+                final EJBResponse ejbResponse = (EJBResponse) res;
+                if (ejbResponse.getResult() instanceof ThrowableArtifact) {
+                    final ThrowableArtifact artifact = (ThrowableArtifact) ejbResponse.getResult();
+                    //noinspection ThrowableResultOfMethodCallIgnored
+                    if (retryConditions.contains(artifact.getThrowable().getClass())) {
+
+                        throw new RetryException(res);
+
+                        //                            if (? < maxConditionRetry) {
+                        //                                throw new RetryException(res);
+                        //                            } else {
+                        //                                if (FINER) {
+                        //                                    logger.log(Level.FINER, "Giving up on " + artifact.getThrowable().getClass().getName().toString());
+                        //                                }
+                        //                            }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void close(final OutputStream out, final InputStream in, final Connection conn) {
+
+        if (null != out) {
+            try {
+                out.close();
+            } catch (final Throwable e) {
+                //Ignore
+            }
+        }
+
+        if (null != in) {
+            try {
+                in.close();
+            } catch (final Throwable e) {
+                //Ignore
+            }
+        }
+
+        if (null != conn) {
+            try {
+                conn.close();
+            } catch (final Throwable t) {
+                logger.log(Level.WARNING, "Error closing connection with server: " + t.getMessage(), t);
+            }
         }
-        return res;
     }
 
     public static Set<URI> getFailed() {
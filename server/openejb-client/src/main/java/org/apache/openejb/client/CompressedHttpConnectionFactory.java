@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opt-in http transport for the zhttp and zhttps schemes, the Java 8 adaptation of an HTTP/2
+ * (java.net.http.HttpClient) transport: the client has to run on Java 8 so instead of a multiplexed
+ * HTTP/2 connection it keeps to HttpURLConnection and gets the two gains which matter for ejb
+ * requests on HTTP/1.1:
+ * <ul>
+ *     <li>persistent connections: sockets are reused through the JVM keep-alive cache of HttpURLConnection,
+ *     the server has to keep them open (keep-alive=true for the embedded http server)</li>
+ *     <li>compressed bodies: requests are gzipped and responses are requested gzipped</li>
+ * </ul>
+ *
+ * zhttp://host:port/ejb talks to the same endpoint as http://host:port/ejb, the parameters are the same.
+ */
+public class CompressedHttpConnectionFactory extends HttpConnectionFactory {
+    private static final String GZIP = "gzip";
+
+    @Override
+    protected HttpConnection newConnection(final URI uri, final ConcurrentMap<URI, SSLSocketFactory> socketFactoryMap,
+                                           final byte[] buffer) throws IOException {
+        return new CompressedHttpConnection(uri, socketFactoryMap, buffer);
+    }
+
+    public static class CompressedHttpConnection extends HttpConnection {
+        private FlushableGZIPOutputStream gzipOutputStream;
+        private GZIPInputStream gzipInputStream;
+        private InputStream inputStream;
+
+        public CompressedHttpConnection(final URI uri, final ConcurrentMap<URI, SSLSocketFactory> socketFactoryMap,
+                                        final byte[] buffer) throws IOException {
+            super(uri, http(uri).toURL(), socketFactoryMap, buffer, headers());
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            if (gzipOutputStream == null) {
+                gzipOutputStream = new FlushableGZIPOutputStream(super.getOutputStream());
+            }
+            return gzipOutputStream;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                if (gzipOutputStream != null) { // the request is only complete once the gzip trailer is written
+                    gzipOutputStream.finish();
+                }
+                inputStream = super.getInputStream();
+                if (GZIP.equalsIgnoreCase(getHttpURLConnection().getContentEncoding())) {
+                    gzipInputStream = new GZIPInputStream(inputStream);
+                    inputStream = gzipInputStream;
+                }
+            }
+            return inputStream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close(); // drains the response so the socket can be reused
+            } finally {
+                // releases the native zlib streams, the underlying streams are already closed
+                if (gzipInputStream != null) {
+                    try {
+                        gzipInputStream.close();
+                    } catch (final IOException e) {
+                        // no-op
+                    }
+                }
+                if (gzipOutputStream != null) {
+                    try {
+                        gzipOutputStream.close();
+                    } catch (final IOException e) {
+                        // no-op
+                    }
+                }
+                gzipInputStream = null;
+                gzipOutputStream = null;
+                inputStream = null;
+            }
+        }
+
+        private static URI http(final URI uri) {
+            final String scheme = uri.getScheme();
+            if (scheme == null || !scheme.startsWith("z")) {
+                return uri;
+            }
+            try {
+                return new URI(uri.toString().substring(1));
+            } catch (final URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid uri " + uri, e);
+            }
+        }
+
+        private static Map<String, String> headers() {
+            final Map<String, String> headers = new HashMap<String, String>();
+            headers.put("Content-Encoding", GZIP);
+            headers.put("Accept-Encoding", GZIP);
+            return headers;
+        }
+    }
+}
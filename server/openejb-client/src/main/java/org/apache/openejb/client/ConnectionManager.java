@@ -45,6 +45,10 @@ public class ConnectionManager {
         registerFactory("http", httpFactory);
         registerFactory("https", httpFactory);
 
+        final HttpConnectionFactory compressedHttpFactory = new CompressedHttpConnectionFactory();
+        registerFactory("zhttp", compressedHttpFactory);
+        registerFactory("zhttps", compressedHttpFactory);
+
         registerFactory("multicast", new MulticastConnectionFactory());
         registerFactory("multipulse", new MulticastPulseClient());
         registerFactory("failover", new FailoverConnectionFactory());
@@ -56,6 +60,7 @@ public class ConnectionManager {
         registerStrategy("random", new RandomConnectionStrategy());
         registerStrategy("roundrobin", new RoundRobinConnectionStrategy());
         registerStrategy("round-robin", strategies.get("roundrobin"));
+        registerStrategy("latency-aware", new LatencyAwareConnectionStrategy());
         registerStrategy("default", strategies.get("sticky"));
     }
 
@@ -29,13 +29,16 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -203,15 +206,26 @@ public abstract class EJBObjectHandler extends EJBInvocationHandler {
 
             }
 
+        } catch (Throwable throwable) {
+            throw invocationFailure(throwable, m);
+        }
+    }
+
+    /**
+     * @return the exception the invocation of the method throws for the given failure
+     */
+    private Throwable invocationFailure(final Throwable failure, final Method m) {
+        try {
+            throw failure;
         } catch (SystemException e) {
             invalidateAllHandlers(getRegistryId());
-            throw convertException(getCause(e), m);
+            return convertException(getCause(e), m);
             /*
             * Application exceptions must be reported dirctly to the client. They
             * do not impact the viability of the proxy.
             */
         } catch (ApplicationException ae) {
-            throw convertException(getCause(ae), m);
+            return convertException(getCause(ae), m);
             /*
             * A system exception would be highly unusual and would indicate a sever
             * problem with the container system.
@@ -219,21 +233,21 @@ public abstract class EJBObjectHandler extends EJBInvocationHandler {
         } catch (SystemError se) {
             invalidateReference();
             if (remote) {
-                throw new RemoteException("Container has suffered a SystemException", getCause(se));
+                return new RemoteException("Container has suffered a SystemException", getCause(se));
             } else {
-                throw new EJBException("Container has suffered a SystemException").initCause(getCause(se));
+                return new EJBException("Container has suffered a SystemException").initCause(getCause(se));
             }
         } catch (Throwable throwable) {
             if (remote) {
                 if (throwable instanceof RemoteException) {
-                    throw throwable;
+                    return throwable;
                 }
-                throw new RemoteException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage(), getCause(throwable));
+                return new RemoteException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage(), getCause(throwable));
             } else {
                 if (throwable instanceof EJBException) {
-                    throw throwable;
+                    return throwable;
                 }
-                throw new EJBException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage()).initCause(getCause(throwable));
+                return new EJBException("Unknown Container Exception: " + throwable.getClass().getName() + ": " + throwable.getMessage()).initCause(getCause(throwable));
             }
         }
     }
@@ -260,7 +274,9 @@ public abstract class EJBObjectHandler extends EJBInvocationHandler {
     @SuppressWarnings("unchecked")
     protected Object businessMethod(final Method method, final Object[] args, final Object proxy) throws Throwable {
 
-        if (ejb.isAsynchronousMethod(method)) {
+        if (AsyncEJB.isCapturing()) {
+            return AsyncEJB.dispatch(this, proxy, method, args);
+        } else if (ejb.isAsynchronousMethod(method)) {
             try {
                 final String requestId = UUID.randomUUID().toString();
                 final EJBResponse response = new EJBResponse();
@@ -297,6 +313,49 @@ public abstract class EJBObjectHandler extends EJBInvocationHandler {
         return _handleBusinessMethodResponse(res);
     }
 
+    /**
+     * Builds the request of a business method in the calling thread, with the identity of its caller.
+     */
+    EJBRequest asyncBusinessMethodRequest(final Method method, final Object[] args) {
+        final EJBRequest req = new EJBRequest(RequestMethodCode.EJB_OBJECT_BUSINESS_METHOD, ejb, method, args, primaryKey, client.getSerializer());
+        req.getBody().setAuthentication(this.authenticationInfo);
+        req.setClientIdentity(getClientIdentity());
+        return req;
+    }
+
+    /**
+     * Sends a request built by {@link #asyncBusinessMethodRequest} without waiting for its response.
+     *
+     * @param blocking reads the response of the connections which can't hand it over asynchronously
+     * @return completed with the result of the method or with the exception a synchronous invocation throws
+     */
+    CompletableFuture<Object> asyncBusinessMethod(final EJBRequest req, final Method method, final Executor blocking) {
+        final CompletableFuture<Object> result = new CompletableFuture<Object>();
+        try {
+            req.setServerHash(server.buildHash());
+            Client.requestAsync(req, new EJBResponse(), server, blocking).whenComplete(new BiConsumer<Response, Throwable>() {
+                @Override
+                public void accept(final Response response, final Throwable error) {
+                    try {
+                        if (error != null) {
+                            throw error;
+                        }
+                        final EJBResponse res = (EJBResponse) response;
+                        if (null != res.getServer()) {
+                            server.merge(res.getServer());
+                        }
+                        result.complete(_handleBusinessMethodResponse(res));
+                    } catch (final Throwable e) {
+                        result.completeExceptionally(invocationFailure(e, method));
+                    }
+                }
+            });
+        } catch (final Throwable e) {
+            result.completeExceptionally(invocationFailure(e, method));
+        }
+        return result;
+    }
+
     private Object _handleBusinessMethodResponse(final EJBResponse res) throws Throwable {
         switch (res.getResponseCode()) {
             case ResponseCodes.EJB_ERROR:
@@ -29,6 +29,7 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -52,12 +53,17 @@ public class HttpConnectionFactory implements ConnectionFactory {
             buffer = new byte[Integer.getInteger("openejb.client.http.drain-buffer.size", 64)];
         }
         try {
-            return new HttpConnection(uri, socketFactoryMap, buffer);
+            return newConnection(uri, socketFactoryMap, buffer);
         } finally { // auto adjusting buffer caching, queue avoids leaks (!= ThreadLocal)
             drainBuffers.add(buffer);
         }
     }
 
+    protected HttpConnection newConnection(final URI uri, final ConcurrentMap<URI, SSLSocketFactory> socketFactoryMap,
+                                           final byte[] buffer) throws IOException {
+        return new HttpConnection(uri, socketFactoryMap, buffer);
+    }
+
     public static class HttpConnection implements Connection {
         private final byte[] buffer;
         private HttpURLConnection httpURLConnection;
@@ -67,9 +73,17 @@ public class HttpConnectionFactory implements ConnectionFactory {
 
         public HttpConnection(final URI uri, final ConcurrentMap<URI, SSLSocketFactory> socketFactoryMap,
                               final byte[] buffer) throws IOException {
+            this(uri, uri.toURL(), socketFactoryMap, buffer, Collections.<String, String>emptyMap());
+        }
+
+        /**
+         * @param url               the http(s) url to connect to for the uri
+         * @param requestProperties headers of the request
+         */
+        protected HttpConnection(final URI uri, final URL url, final ConcurrentMap<URI, SSLSocketFactory> socketFactoryMap,
+                                 final byte[] buffer, final Map<String, String> requestProperties) throws IOException {
             this.uri = uri;
             this.buffer = buffer;
-            final URL url = uri.toURL();
 
             final Map<String, String> params;
             try {
@@ -112,6 +126,9 @@ public class HttpConnectionFactory implements ConnectionFactory {
             if (params.containsKey("readTimeout")) {
                 httpURLConnection.setReadTimeout(Integer.parseInt(params.get("readTimeout")));
             }
+            for (final Map.Entry<String, String> property : requestProperties.entrySet()) {
+                httpURLConnection.setRequestProperty(property.getKey(), property.getValue());
+            }
             if (authorization != null) {
                 httpURLConnection.setRequestProperty(authorizationHeader == null ? "Authorization" : authorizationHeader, authorization);
             }
@@ -170,6 +187,10 @@ public class HttpConnectionFactory implements ConnectionFactory {
             return uri;
         }
 
+        protected HttpURLConnection getHttpURLConnection() {
+            return httpURLConnection;
+        }
+
         @Override
         public void close() throws IOException {
             IOException exception = null;
@@ -22,5 +22,11 @@ package org.apache.openejb.client;
 public enum KeepAliveStyle {
     PING,
     PING_PONG,
-    PING_PING
+    PING_PING,
+
+    /**
+     * Switches the connection to correlated frames, see {@link Multiplexer}.
+     * Never used as the keep alive style of a regular connection.
+     */
+    MULTIPLEX
 }
@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import org.apache.openejb.client.event.FailoverSelection;
+import org.apache.openejb.client.event.LatencyAwareFailoverSelection;
+import org.apache.openejb.client.event.ServerEjected;
+import org.apache.openejb.client.event.ServerReinstated;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the best of two random servers, the score of a server being its exponentially weighted moving
+ * average latency times its number of requests in flight. The latency of a request is the time its
+ * connection is used by the client, from the connection to the server to the reading of the response.
+ *
+ * A server whose average latency is ejection.factor times the median of the other servers (and at least
+ * ejection.min-delta milliseconds slower), or which failed, is only used when no other server works
+ * during ejection.time milliseconds. Its statistics are then reset so it gets a new chance.
+ *
+ * System properties (openejb.client.connection.latency. prefix):
+ * <ul>
+ *     <li>decay: 0.3, the weight of the last request in the average latency</li>
+ *     <li>ejection.factor: 3</li>
+ *     <li>ejection.min-delta: 10</li>
+ *     <li>ejection.time: 30000</li>
+ * </ul>
+ */
+public class LatencyAwareConnectionStrategy extends AbstractConnectionStrategy {
+
+    private static final String PREFIX = "openejb.client.connection.latency.";
+    private static final int MIN_SAMPLES = 5;
+
+    private final ConcurrentMap<URI, ServerStats> stats = new ConcurrentHashMap<URI, ServerStats>();
+    private final double decay;
+    private final double ejectionFactor;
+    private final long ejectionMinDelta;
+    private final long ejectionTime;
+
+    public LatencyAwareConnectionStrategy() {
+        this(Double.parseDouble(System.getProperty(PREFIX + "decay", "0.3")),
+            Double.parseDouble(System.getProperty(PREFIX + "ejection.factor", "3")),
+            Long.getLong(PREFIX + "ejection.min-delta", 10),
+            Long.getLong(PREFIX + "ejection.time", 30000));
+    }
+
+    /**
+     * @param ejectionMinDelta in milliseconds
+     * @param ejectionTime     in milliseconds
+     */
+    public LatencyAwareConnectionStrategy(final double decay, final double ejectionFactor, final long ejectionMinDelta, final long ejectionTime) {
+        if (decay <= 0 || decay > 1) {
+            throw new IllegalArgumentException("decay must be in ]0, 1]: " + decay);
+        }
+        this.decay = decay;
+        this.ejectionFactor = ejectionFactor;
+        this.ejectionMinDelta = TimeUnit.MILLISECONDS.toNanos(ejectionMinDelta);
+        this.ejectionTime = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+    }
+
+    @Override
+    protected FailoverSelection createFailureEvent(final Set<URI> remaining, final Set<URI> failed, final URI uri) {
+        return new LatencyAwareFailoverSelection(remaining, failed, uri);
+    }
+
+    @Override
+    protected Iterable<URI> createIterable(final ClusterMetaData cluster) {
+        return new LatencyAwareIterable(cluster);
+    }
+
+    @Override
+    protected Connection connect(final ClusterMetaData cluster, final URI uri) throws IOException {
+        final ServerStats server = stats(uri);
+        final Connection connection;
+        try {
+            connection = super.connect(cluster, uri);
+        } catch (final IOException e) {
+            failed(cluster, uri, server);
+            throw e;
+        }
+        server.inFlight.incrementAndGet();
+        return new TrackedConnection(connection, cluster, uri, server);
+    }
+
+    private ServerStats stats(final URI uri) {
+        ServerStats server = stats.get(uri);
+        if (server == null) {
+            server = new ServerStats();
+            final ServerStats existing = stats.putIfAbsent(uri, server);
+            if (existing != null) {
+                server = existing;
+            }
+        }
+        return server;
+    }
+
+    private void completed(final ClusterMetaData cluster, final URI uri, final ServerStats server, final long latency) {
+        final double average = server.record(latency, decay);
+        if (server.samples() < MIN_SAMPLES) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final double median = median(cluster, uri, now);
+        if (median >= 0 && average > ejectionFactor * median && average - median > ejectionMinDelta && server.eject(now + ejectionTime)) {
+            Client.fireEvent(new ServerEjected(uri, millis(average), millis(median), millis(ejectionTime)));
+        }
+    }
+
+    private void failed(final ClusterMetaData cluster, final URI uri, final ServerStats server) {
+        final long now = System.nanoTime();
+        if (!hasOtherServer(cluster, uri, now) || !server.eject(now + ejectionTime)) {
+            return;
+        }
+        final double median = median(cluster, uri, now);
+        Client.fireEvent(new ServerEjected(uri, -1, median < 0 ? -1 : millis(median), millis(ejectionTime)));
+    }
+
+    private boolean hasOtherServer(final ClusterMetaData cluster, final URI uri, final long now) {
+        for (final URI location : cluster.getLocations()) {
+            if (!location.equals(uri) && !stats(location).isEjected(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the median of the average latencies of the other servers in use, -1 if none is known
+     */
+    private double median(final ClusterMetaData cluster, final URI uri, final long now) {
+        final URI[] locations = cluster.getLocations();
+        final double[] latencies = new double[locations.length];
+        int count = 0;
+        for (final URI location : locations) {
+            if (location.equals(uri)) {
+                continue;
+            }
+            final ServerStats other = stats(location);
+            if (other.samples() >= MIN_SAMPLES && !other.isEjected(now)) {
+                latencies[count++] = other.latency();
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        Arrays.sort(latencies, 0, count);
+        return count % 2 == 1 ? latencies[count / 2] : (latencies[count / 2 - 1] + latencies[count / 2]) / 2;
+    }
+
+    private static long millis(final double nanos) {
+        return TimeUnit.NANOSECONDS.toMillis((long) nanos);
+    }
+
+    private class LatencyAwareIterable implements Iterable<URI> {
+
+        private final ClusterMetaData cluster;
+
+        private LatencyAwareIterable(final ClusterMetaData cluster) {
+            this.cluster = cluster;
+        }
+
+        /**
+         * The power of two choices winner first, then the other servers from the best to the worst score
+         * and the ejected servers last.
+         */
+        @Override
+        public Iterator<URI> iterator() {
+            final URI[] locations = cluster.getLocations();
+            final long now = System.nanoTime();
+
+            final List<Candidate> healthy = new ArrayList<Candidate>(locations.length);
+            final List<Candidate> ejected = new ArrayList<Candidate>();
+            for (final URI location : locations) {
+                final ServerStats server = stats(location);
+                if (server.reinstate(now)) {
+                    Client.fireEvent(new ServerReinstated(location));
+                }
+                final Candidate candidate = new Candidate(location, server.score());
+                if (server.isEjected(now)) {
+                    ejected.add(candidate);
+                } else {
+                    healthy.add(candidate);
+                }
+            }
+
+            Candidate best = null;
+            if (healthy.size() > 1) {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int first = random.nextInt(healthy.size());
+                int second = random.nextInt(healthy.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                final Candidate a = healthy.get(first);
+                final Candidate b = healthy.get(second);
+                best = a.score <= b.score ? a : b;
+                healthy.remove(best);
+            }
+            Collections.sort(healthy);
+            Collections.sort(ejected);
+
+            final List<URI> ordered = new ArrayList<URI>(locations.length);
+            if (best != null) {
+                ordered.add(best.uri);
+            }
+            for (final Candidate candidate : healthy) {
+                ordered.add(candidate.uri);
+            }
+            for (final Candidate candidate : ejected) {
+                ordered.add(candidate.uri);
+            }
+            return ordered.iterator();
+        }
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+
+        private final URI uri;
+        private final double score; // snapshot to keep the sort consistent
+
+        private Candidate(final URI uri, final double score) {
+            this.uri = uri;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final Candidate o) {
+            return Double.compare(score, o.score);
+        }
+    }
+
+    private static class ServerStats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double latency; // nanoseconds
+        private int samples;
+        private boolean ejected;
+        private long ejectedUntil;
+
+        private synchronized double record(final long nanos, final double decay) {
+            latency = samples++ == 0 ? nanos : latency + decay * (nanos - latency);
+            return latency;
+        }
+
+        private synchronized double latency() {
+            return latency;
+        }
+
+        private synchronized int samples() {
+            return samples;
+        }
+
+        // unknown servers have the best score so they get tried
+        private double score() {
+            return (latency() + 1) * (inFlight.get() + 1);
+        }
+
+        private synchronized boolean eject(final long until) {
+            if (ejected) {
+                return false;
+            }
+            ejected = true;
+            ejectedUntil = until;
+            return true;
+        }
+
+        private synchronized boolean isEjected(final long now) {
+            return ejected && now - ejectedUntil < 0;
+        }
+
+        private synchronized boolean reinstate(final long now) {
+            if (!ejected || now - ejectedUntil < 0) {
+                return false;
+            }
+            ejected = false;
+            latency = 0;
+            samples = 0;
+            return true;
+        }
+    }
+
+    private class TrackedConnection implements AsyncConnection {
+
+        private final Connection delegate;
+        private final ClusterMetaData cluster;
+        private final URI location;
+        private final ServerStats server;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private TrackedConnection(final Connection delegate, final ClusterMetaData cluster, final URI location, final ServerStats server) {
+            this.delegate = delegate;
+            this.cluster = cluster;
+            this.location = location;
+            this.server = server;
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public void discard() {
+            if (done.compareAndSet(false, true)) {
+                server.inFlight.decrementAndGet();
+                failed(cluster, location, server);
+            }
+            delegate.discard();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (done.compareAndSet(false, true)) {
+                server.inFlight.decrementAndGet();
+                completed(cluster, location, server, System.nanoTime() - start);
+            }
+            delegate.close();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return delegate.getInputStream();
+        }
+
+        @Override
+        public CompletableFuture<InputStream> getInputStreamAsync() throws IOException {
+            return delegate instanceof AsyncConnection ? ((AsyncConnection) delegate).getInputStreamAsync() : null;
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return delegate.getOutputStream();
+        }
+    }
+}
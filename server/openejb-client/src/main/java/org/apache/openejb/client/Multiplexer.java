@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shares a few sockets per server between all the concurrent requests (OEJP 4.7).
+ *
+ * The connection starts with the {@link KeepAliveStyle#MULTIPLEX} byte and both sides exchange their
+ * protocol version. Then each request is sent as a frame [correlation id][length][bytes], the bytes being
+ * exactly what a request writes on a regular connection. The server answers with frames tagged with the
+ * same id, in any order, and a reader thread per socket hands each of them to the waiting caller,
+ * or completes the future of an asynchronous request with it.
+ *
+ * A server answering an older protocol version is remembered and its requests use one connection each again.
+ * Servers not knowing the protocol at all hang up on the handshake, multiplexing is then retried after
+ * {@link #RETRY_DELAY} only, any other failure leaves the next request try again.
+ */
+class Multiplexer {
+
+    private static final Logger logger = Logger.getLogger("OpenEJB.client");
+
+    static final long RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    private final SocketConnectionFactory factory;
+    private final int size;
+    private final long timeout;
+    private final Map<URI, Channels> channels = new ConcurrentHashMap<URI, Channels>();
+    // until when each server is known not to support multiplexing
+    private final Map<URI, Long> unsupported = new ConcurrentHashMap<URI, Long>();
+    // expires the responses nobody waits for, created by the first asynchronous request
+    private static ScheduledExecutorService timeouts;
+
+    Multiplexer(final SocketConnectionFactory factory, final int size, final long timeout) {
+        this.factory = factory;
+        this.size = Math.max(1, size);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return null if the server doesn't support multiplexing
+     */
+    Connection getConnection(final URI uri) throws IOException {
+        final Long until = unsupported.get(uri);
+        if (until != null) {
+            if (System.currentTimeMillis() < until) {
+                return null;
+            }
+            unsupported.remove(uri, until);
+        }
+
+        Channels forUri = channels.get(uri);
+        if (forUri == null) {
+            forUri = new Channels(size);
+            final Channels existing = channels.putIfAbsent(uri, forUri);
+            if (existing != null) {
+                forUri = existing;
+            }
+        }
+
+        final Channel channel = forUri.get(uri);
+        return channel == null ? null : new MultiplexedConnection(uri, channel);
+    }
+
+    private class Channels {
+        private final AtomicReferenceArray<Channel> slots;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Channels(final int size) {
+            this.slots = new AtomicReferenceArray<Channel>(size);
+        }
+
+        private Channel get(final URI uri) throws IOException {
+            final int index = (next.getAndIncrement() & Integer.MAX_VALUE) % slots.length();
+            final Channel channel = slots.get(index);
+            if (channel != null && !channel.closed) {
+                return channel;
+            }
+
+            synchronized (this) {
+                final Channel current = slots.get(index);
+                if (current != null && !current.closed) {
+                    return current;
+                }
+
+                final Channel opened;
+                try {
+                    opened = Channel.open(factory, uri);
+                } catch (final UnsupportedProtocolException e) {
+                    unsupported.put(uri, e.permanent ? Long.MAX_VALUE : System.currentTimeMillis() + RETRY_DELAY);
+                    return null;
+                } catch (final IOException e) {
+                    // transient, a regular connection reports it if the server is really unreachable
+                    if (logger.isLoggable(Level.FINE)) {
+                        logger.log(Level.FINE, "Can't open a multiplexed connection to " + uri + ", using a connection per request", e);
+                    }
+                    return null;
+                }
+                slots.set(index, opened);
+                return opened;
+            }
+        }
+    }
+
+    private static final class Channel implements Runnable {
+        private final URI uri;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final AtomicInteger ids = new AtomicInteger();
+        private final Map<Integer, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<Integer, CompletableFuture<byte[]>>();
+        private volatile boolean closed;
+
+        private Channel(final URI uri, final Socket socket) throws IOException {
+            this.uri = uri;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * @throws UnsupportedProtocolException if the server doesn't multiplex, any other IOException being transient
+         */
+        private static Channel open(final SocketConnectionFactory factory, final URI uri) throws IOException {
+            final Channel channel = new Channel(uri, factory.openSocket(uri));
+            final ProtocolMetaData server = new ProtocolMetaData();
+            try {
+                channel.out.write(KeepAliveStyle.MULTIPLEX.ordinal());
+                new ProtocolMetaData(ProtocolMetaData.MULTIPLEX_VERSION).writeExternal(channel.out);
+
+                server.readExternal(channel.in);
+            } catch (final EOFException | SocketException e) {
+                // servers not knowing the MULTIPLEX style hang up on it, but so does a server going down
+                channel.close(e);
+                throw refused(uri, new UnsupportedProtocolException("No handshake from " + uri, false), e);
+            } catch (final IOException e) {
+                channel.close(e);
+                throw e;
+            }
+
+            if (!server.isAtLeast(4, 7)) {
+                final UnsupportedProtocolException e = new UnsupportedProtocolException("Server protocol " + server.getSpec() + " doesn't support multiplexing", true);
+                channel.close(e);
+                throw refused(uri, e, null);
+            }
+
+            final Thread reader = new Thread(channel, "OpenEJB Multiplexed Connection " + uri);
+            reader.setDaemon(true);
+            reader.start();
+            return channel;
+        }
+
+        private static UnsupportedProtocolException refused(final URI uri, final UnsupportedProtocolException e, final IOException cause) {
+            if (cause != null) {
+                e.initCause(cause);
+            }
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Multiplexing refused by " + uri + ", using a connection per request", e);
+            }
+            return e;
+        }
+
+        private CompletableFuture<byte[]> send(final byte[] request) throws IOException {
+            final int id = ids.incrementAndGet();
+            final CompletableFuture<byte[]> response = new CompletableFuture<byte[]>();
+            pending.put(id, response);
+            try {
+                synchronized (out) {
+                    out.writeInt(id);
+                    out.writeInt(request.length);
+                    out.write(request);
+                    out.flush();
+                }
+            } catch (final IOException e) {
+                pending.remove(id);
+                close(e);
+                throw e;
+            }
+            if (closed) { // the reader may have failed the pending requests before we registered
+                response.completeExceptionally(new IOException("Connection to " + uri + " closed"));
+            }
+            return response;
+        }
+
+        private void cancel(final CompletableFuture<byte[]> response) {
+            pending.values().remove(response);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    final int id = in.readInt();
+                    final int length = in.readInt();
+                    if (length < 0) {
+                        throw new IOException("Invalid frame length " + length + " from " + uri);
+                    }
+                    final byte[] response = new byte[length];
+                    in.readFully(response);
+
+                    final CompletableFuture<byte[]> waiting = pending.remove(id);
+                    if (waiting != null) {
+                        waiting.complete(response);
+                    }
+                }
+            } catch (final IOException e) {
+                close(e);
+            }
+        }
+
+        private void close(final IOException cause) {
+            closed = true;
+            try {
+                socket.close();
+            } catch (final Throwable e) {
+                //Ignore
+            }
+            for (final Integer id : pending.keySet()) {
+                final CompletableFuture<byte[]> waiting = pending.remove(id);
+                if (waiting != null) {
+                    waiting.completeExceptionally(cause);
+                }
+            }
+        }
+    }
+
+    private static final class UnsupportedProtocolException extends IOException {
+        /**
+         * true for an older protocol version, false when the server only hung up on the handshake
+         */
+        private final boolean permanent;
+
+        private UnsupportedProtocolException(final String message, final boolean permanent) {
+            super(message);
+            this.permanent = permanent;
+        }
+    }
+
+    private static synchronized ScheduledExecutorService timeouts() {
+        if (timeouts == null) {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "OpenEJB Multiplexed Response Timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            timeouts = executor;
+        }
+        return timeouts;
+    }
+
+    /**
+     * Buffers the request, sends it as a frame when the response is read and hands back the response frame,
+     * either to the caller waiting for it or through a future completed by the reader thread of the socket.
+     */
+    private class MultiplexedConnection implements AsyncConnection {
+        private final URI uri;
+        private final Channel channel;
+        private final ByteArrayOutputStream request = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                // no-op, the request is sent when the response is requested
+            }
+        };
+        private InputStream response;
+
+        private MultiplexedConnection(final URI uri, final Channel channel) {
+            this.uri = uri;
+            this.channel = channel;
+        }
+
+        @Override
+        public void discard() {
+            // the channel is closed by its reader when the socket fails, frames never leave it out of sync
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // no-op
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return request;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (response == null) {
+                final CompletableFuture<byte[]> future = channel.send(request.toByteArray());
+                try {
+                    response = new ByteArrayInputStream(future.get(timeout, TimeUnit.MILLISECONDS));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    channel.cancel(future);
+                    throw new IOException("Interrupted waiting for the response of " + uri, e);
+                } catch (final TimeoutException e) {
+                    channel.cancel(future);
+                    throw new IOException("No response from " + uri + " after " + timeout + "ms", e);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    throw IOException.class.isInstance(cause) ? IOException.class.cast(cause) : new IOException(cause);
+                }
+            }
+            return response;
+        }
+
+        @Override
+        public CompletableFuture<InputStream> getInputStreamAsync() throws IOException {
+            final CompletableFuture<byte[]> future = channel.send(request.toByteArray());
+            final ScheduledFuture<?> expiry = timeouts().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.completeExceptionally(new IOException("No response from " + uri + " after " + timeout + "ms"))) {
+                        channel.cancel(future);
+                    }
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+
+            final CompletableFuture<InputStream> stream = new CompletableFuture<InputStream>();
+            future.whenComplete(new BiConsumer<byte[], Throwable>() {
+                @Override
+                public void accept(final byte[] bytes, final Throwable error) {
+                    expiry.cancel(false);
+                    if (error != null) {
+                        stream.completeExceptionally(error);
+                    } else {
+                        stream.complete(new ByteArrayInputStream(bytes));
+                    }
+                }
+            });
+            return stream;
+        }
+    }
+}
@@ -39,6 +39,11 @@ public class ProtocolMetaData {
 
     public static final String VERSION = "4.6";
 
+    /**
+     * First version accepting {@link KeepAliveStyle#MULTIPLEX} connections, only negotiated on those.
+     */
+    public static final String MULTIPLEX_VERSION = "4.7";
+
     private static final String OEJB = "OEJP";
     private transient String id;
     private transient int major;
@@ -38,8 +38,6 @@ import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.GZIPInputStream;
 
 public class SocketConnectionFactory implements ConnectionFactory {
@@ -54,6 +52,8 @@ public class SocketConnectionFactory implements ConnectionFactory {
     private static final String PROPERTY_POOL_SIZE2 = "openejb.client.connectionpool.size";
     public static final String PROPERTY_KEEPALIVE = "openejb.client.keepalive";
     public static final String ENABLED_CIPHER_SUITES = "openejb.client.enabledCipherSuites";
+    public static final String PROPERTY_MULTIPLEX = "openejb.client.multiplex";
+    public static final String PROPERTY_MULTIPLEX_CONNECTIONS = "openejb.client.multiplex.connections";
 
     private static final Map<URI, Pool> connections = new ConcurrentHashMap<URI, Pool>();
     private int size = 5;
@@ -62,6 +62,9 @@ public class SocketConnectionFactory implements ConnectionFactory {
     private int timeoutRead = 14400000;
     private int timeoutLinger;
     private String[] enabledCipherSuites;
+    // all the requests are multiplexed, otherwise only the asynchronous ones
+    private final boolean multiplex;
+    private volatile Multiplexer multiplexer;
 
     public SocketConnectionFactory() {
 
@@ -72,17 +75,36 @@ public class SocketConnectionFactory implements ConnectionFactory {
         this.timeoutRead = this.getTimeoutRead();
         this.enabledCipherSuites = this.getEnabledCipherSuites();
 
+        this.multiplex = Boolean.parseBoolean(System.getProperty(PROPERTY_MULTIPLEX, "false"));
+
         try {
             String property = System.getProperty(PROPERTY_KEEPALIVE);
             if (property != null) {
                 property = property.toUpperCase();
                 this.keepAliveStyle = KeepAliveStyle.valueOf(property);
+                if (this.keepAliveStyle == KeepAliveStyle.MULTIPLEX) {
+                    this.keepAliveStyle = KeepAliveStyle.PING;
+                }
             }
         } catch (Throwable e) {
             //Ignore
         }
     }
 
+    private Multiplexer getMultiplexer() {
+        Multiplexer current = this.multiplexer;
+        if (current == null) {
+            synchronized (this) {
+                current = this.multiplexer;
+                if (current == null) {
+                    current = new Multiplexer(this, getInt(System.getProperties(), PROPERTY_MULTIPLEX_CONNECTIONS, 2), this.timeoutRead);
+                    this.multiplexer = current;
+                }
+            }
+        }
+        return current;
+    }
+
     private String[] getEnabledCipherSuites() {
         final String property = System.getProperty(ENABLED_CIPHER_SUITES);
         if (property != null) {
@@ -153,6 +175,14 @@ public class SocketConnectionFactory implements ConnectionFactory {
     @Override
     public Connection getConnection(final URI uri) throws java.io.IOException {
 
+        if ((this.multiplex || Client.isAsynchronous()) && !uri.getScheme().startsWith("z")) {
+            final Connection multiplexed = this.getMultiplexer().getConnection(uri);
+            if (null != multiplexed) {
+                return multiplexed;
+            }
+            // the server doesn't support it, one request per connection
+        }
+
         final Pool pool = this.getPool(uri);
 
         SocketConnection conn = pool.get();
@@ -170,7 +200,7 @@ public class SocketConnectionFactory implements ConnectionFactory {
         }
 
         try {
-            if (!conn.lock.tryLock(2, TimeUnit.SECONDS)) {
+            if (!conn.lock.tryAcquire(2, TimeUnit.SECONDS)) {
                 throw new InterruptedException();
             }
         } catch (InterruptedException e) {
@@ -209,6 +239,42 @@ public class SocketConnectionFactory implements ConnectionFactory {
         return conn;
     }
 
+    /**
+     * Connects a socket configured with the factory timeouts, ejbds and zejbds use SSL.
+     */
+    Socket openSocket(final URI uri) throws IOException {
+        final InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort());
+        final String scheme = uri.getScheme();
+
+        final Socket socket;
+        if (scheme.equalsIgnoreCase("ejbds") || scheme.equalsIgnoreCase("zejbds")) {
+            final SSLSocket sslSocket = (SSLSocket) SSLSocketFactory.getDefault().createSocket();
+            sslSocket.setEnabledCipherSuites(this.enabledCipherSuites);
+            socket = sslSocket;
+        } else {
+            socket = new Socket();
+        }
+
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoLinger(true, this.timeoutLinger);
+            socket.connect(address, this.timeoutConnect);
+
+            //Four hours default
+            socket.setSoTimeout(this.timeoutRead);
+        } catch (IOException | RuntimeException e) {
+            try {
+                socket.close();
+            } catch (Throwable ignored) {
+                //Ignore
+            }
+            throw e;
+        }
+
+        Client.fireEvent(new ConnectionOpened(uri));
+        return socket;
+    }
+
     private Pool getPool(final URI uri) {
         Pool pool = connections.get(uri);
         if (pool == null) {
@@ -225,7 +291,8 @@ public class SocketConnectionFactory implements ConnectionFactory {
 
         private boolean discarded;
         private final Pool pool;
-        private final Lock lock = new ReentrantLock();
+        // released by the thread closing the connection, not always the one which got it for an asynchronous request
+        private final Semaphore lock = new Semaphore(1);
         private OutputStream out;
         private InputStream in;
         private boolean gzip = false;
@@ -278,31 +345,12 @@ public class SocketConnectionFactory implements ConnectionFactory {
             /*-----------------------*/
             /* Open socket to server */
             /*-----------------------*/
-            final InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort());
-
             try {
-                final String scheme = uri.getScheme();
-                if (scheme.equalsIgnoreCase("ejbds") || scheme.equalsIgnoreCase("zejbds")) {
-                    final SSLSocket sslSocket = (SSLSocket) SSLSocketFactory.getDefault().createSocket();
-                    this.socket = sslSocket;
-                    sslSocket.setEnabledCipherSuites(SocketConnectionFactory.this.enabledCipherSuites);
-
-                } else {
-                    this.socket = new Socket();
-                }
-
-                if (scheme.startsWith("z")) {
+                if (uri.getScheme().startsWith("z")) {
                     this.gzip = true;
                 }
 
-                this.socket.setTcpNoDelay(true);
-                this.socket.setSoLinger(true, SocketConnectionFactory.this.timeoutLinger);
-                this.socket.connect(address, SocketConnectionFactory.this.timeoutConnect);
-
-                //Four hours default
-                this.socket.setSoTimeout(SocketConnectionFactory.this.timeoutRead);
-
-                Client.fireEvent(new ConnectionOpened(uri));
+                this.socket = SocketConnectionFactory.this.openSocket(uri);
 
             } catch (ConnectException e) {
                 throw this.failure("Cannot connect to server '" + uri.toString() + "'.  Check that the server is started and that the specified serverURL is correct.", e);
@@ -359,10 +407,8 @@ public class SocketConnectionFactory implements ConnectionFactory {
             }
 
             this.pool.put(this);
-            try {
-                this.lock.unlock();
-            } catch (IllegalMonitorStateException e) {
-                //Ignore
+            if (this.lock.availablePermits() == 0) {
+                this.lock.release();
             }
         }
 
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client.event;
+
+import java.net.URI;
+
+/**
+ * A server is skipped by the latency aware strategy until another one is needed or the ejection is over.
+ *
+ * @version $Rev$ $Date$
+ */
+@Log(Log.Level.WARNING)
+public class ServerEjected {
+
+    private final URI server;
+    private final long latency;
+    private final long clusterLatency;
+    private final long duration;
+
+    /**
+     * @param latency        the average latency of the server in milliseconds, -1 if it failed
+     * @param clusterLatency the median of the average latencies of the other servers in milliseconds
+     * @param duration       the ejection duration in milliseconds
+     */
+    public ServerEjected(final URI server, final long latency, final long clusterLatency, final long duration) {
+        this.server = server;
+        this.latency = latency;
+        this.clusterLatency = clusterLatency;
+        this.duration = duration;
+    }
+
+    public URI getServer() {
+        return server;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public long getClusterLatency() {
+        return clusterLatency;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerEjected{" +
+            "server=" + server +
+            ", latency=" + (latency < 0 ? "failed" : latency + "ms") +
+            ", clusterLatency=" + clusterLatency + "ms" +
+            ", duration=" + duration + "ms" +
+            '}';
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import org.apache.openejb.client.event.Observes;
+import org.apache.openejb.client.event.ServerEjected;
+import org.apache.openejb.client.event.ServerReinstated;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyAwareConnectionStrategyTest {
+
+    private final EventRecorder events = new EventRecorder();
+
+    @Before
+    public void register() {
+        ConnectionManager.registerFactory("latency", new ConnectionFactory() {
+            @Override
+            public Connection getConnection(final URI uri) throws IOException {
+                if ("down".equals(uri.getHost())) {
+                    throw new IOException("down");
+                }
+                return new NoopConnection(uri);
+            }
+        });
+        Client.addEventObserver(events);
+    }
+
+    @After
+    public void unregister() {
+        Client.removeEventObserver(events);
+        ConnectionManager.unregisterFactory("latency");
+    }
+
+    @Test
+    public void leastLoadedServerIsPreferred() throws Exception {
+        final URI[] uris = uris("latency://one:4201", "latency://two:4201");
+        final ClusterMetaData cluster = new ClusterMetaData(System.currentTimeMillis(), uris);
+        final LatencyAwareConnectionStrategy strategy = new LatencyAwareConnectionStrategy(0.3, 3, 5, 30000);
+
+        final List<Connection> busy = new ArrayList<Connection>();
+        for (int i = 0; i < 3; i++) {
+            busy.add(strategy.connect(cluster, uris[0]));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(uris[1], strategy.createIterable(cluster).iterator().next());
+        }
+        for (final Connection connection : busy) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void slowServerIsEjected() throws Exception {
+        final URI[] uris = uris("latency://one:4201", "latency://two:4201", "latency://slow:4201");
+        final ClusterMetaData cluster = new ClusterMetaData(System.currentTimeMillis(), uris);
+        final LatencyAwareConnectionStrategy strategy = new LatencyAwareConnectionStrategy(0.3, 3, 5, 30000);
+
+        for (int i = 0; i < 5; i++) {
+            for (final URI uri : uris) {
+                final Connection connection = strategy.connect(cluster, uri);
+                if (uri == uris[2]) {
+                    Thread.sleep(30);
+                }
+                connection.close();
+            }
+        }
+
+        assertEquals(1, events.ejected.size());
+        assertEquals(uris[2], events.ejected.get(0).getServer());
+        assertTrue(events.ejected.get(0).getLatency() >= 30);
+
+        for (int i = 0; i < 10; i++) {
+            final Iterator<URI> iterator = strategy.createIterable(cluster).iterator();
+            assertNotEquals(uris[2], iterator.next());
+            iterator.next();
+            assertEquals(uris[2], iterator.next());
+        }
+    }
+
+    @Test
+    public void failedServerIsReinstated() throws Exception {
+        final URI[] uris = uris("latency://one:4201", "latency://down:4201");
+        final ClusterMetaData cluster = new ClusterMetaData(System.currentTimeMillis(), uris);
+        final LatencyAwareConnectionStrategy strategy = new LatencyAwareConnectionStrategy(0.3, 3, 5, 100);
+
+        try {
+            strategy.connect(cluster, uris[1]);
+        } catch (final IOException e) {
+            // expected
+        }
+        assertEquals(1, events.ejected.size());
+        assertEquals(-1, events.ejected.get(0).getLatency());
+        assertEquals(uris[0], strategy.createIterable(cluster).iterator().next());
+
+        Thread.sleep(150);
+        strategy.createIterable(cluster).iterator();
+        assertEquals(1, events.reinstated.size());
+        assertEquals(uris[1], events.reinstated.get(0).getServer());
+    }
+
+    private static URI[] uris(final String... strings) {
+        final URI[] uris = new URI[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            uris[i] = URI.create(strings[i]);
+        }
+        return uris;
+    }
+
+    public static class EventRecorder {
+
+        private final List<ServerEjected> ejected = new ArrayList<ServerEjected>();
+        private final List<ServerReinstated> reinstated = new ArrayList<ServerReinstated>();
+
+        public void ejected(@Observes final ServerEjected event) {
+            ejected.add(event);
+        }
+
+        public void reinstated(@Observes final ServerReinstated event) {
+            reinstated.add(event);
+        }
+    }
+
+    private static class NoopConnection implements Connection {
+
+        private final URI uri;
+
+        private NoopConnection(final URI uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public void discard() {
+            // no-op
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
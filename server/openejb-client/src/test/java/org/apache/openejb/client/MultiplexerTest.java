@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.client;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MultiplexerTest {
+
+    private final List<Server> servers = new ArrayList<>();
+
+    @After
+    public void stop() {
+        for (final Server server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void slowHandshakeIsRetried() throws Exception {
+        final Server server = start("4.7", 1);
+        final URI uri = URI.create("ejbd://127.0.0.1:" + server.socket.getLocalPort());
+
+        final SocketConnectionFactory factory;
+        System.setProperty(SocketConnectionFactory.PROPERTY_SOCKET_READ, "200");
+        try {
+            factory = new SocketConnectionFactory();
+        } finally {
+            System.clearProperty(SocketConnectionFactory.PROPERTY_SOCKET_READ);
+        }
+        final Multiplexer multiplexer = new Multiplexer(factory, 1, 5000);
+
+        assertNull(multiplexer.getConnection(uri)); // read timeout
+        assertNotNull(multiplexer.getConnection(uri));
+        assertEquals(2, server.handshakes.get());
+    }
+
+    @Test
+    public void olderProtocolDisablesMultiplexing() throws Exception {
+        final Server server = start("4.6", 0);
+        final URI uri = URI.create("ejbd://127.0.0.1:" + server.socket.getLocalPort());
+        final Multiplexer multiplexer = new Multiplexer(new SocketConnectionFactory(), 1, 5000);
+
+        assertNull(multiplexer.getConnection(uri));
+        assertNull(multiplexer.getConnection(uri));
+        assertEquals(1, server.handshakes.get());
+    }
+
+    @Test
+    public void hangUpOnHandshakeBacksOff() throws Exception {
+        final Server server = start(null, 0);
+        final URI uri = URI.create("ejbd://127.0.0.1:" + server.socket.getLocalPort());
+        final Multiplexer multiplexer = new Multiplexer(new SocketConnectionFactory(), 1, 5000);
+
+        assertNull(multiplexer.getConnection(uri));
+        assertNull(multiplexer.getConnection(uri));
+        assertEquals(1, server.handshakes.get());
+    }
+
+    @Test
+    public void interruptedCallerKeepsItsInterruptStatus() throws Exception {
+        final Server server = start("4.7", 0);
+        final URI uri = URI.create("ejbd://127.0.0.1:" + server.socket.getLocalPort());
+        final Multiplexer multiplexer = new Multiplexer(new SocketConnectionFactory(), 1, 5000);
+
+        final Connection connection = multiplexer.getConnection(uri);
+        assertNotNull(connection);
+        connection.getOutputStream().write(1);
+
+        Thread.currentThread().interrupt();
+        try {
+            connection.getInputStream();
+            fail("the server never answers");
+        } catch (final IOException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        assertTrue(Thread.interrupted());
+    }
+
+    private Server start(final String version, final int silent) throws IOException {
+        final Server server = new Server(new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")), version, silent);
+        servers.add(server);
+
+        final Thread thread = new Thread(server, "multiplexer test server");
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    /**
+     * Answers the handshake with the given protocol version, or hangs up when it is null, then idles.
+     * The first silent handshakes are never answered.
+     */
+    private static class Server implements Runnable {
+        private final ServerSocket socket;
+        private final String version;
+        private final int silent;
+        private final AtomicInteger handshakes = new AtomicInteger();
+        private final List<Socket> accepted = new ArrayList<>();
+
+        private Server(final ServerSocket socket, final String version, final int silent) {
+            this.socket = socket;
+            this.version = version;
+            this.silent = silent;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Socket client = socket.accept();
+                    synchronized (accepted) {
+                        accepted.add(client);
+                    }
+                    if (handshakes.incrementAndGet() <= silent) {
+                        continue;
+                    }
+
+                    final InputStream in = client.getInputStream();
+                    final byte[] handshake = new byte[9]; // style and protocol
+                    for (int read = 0; read < handshake.length; ) {
+                        read += Math.max(0, in.read(handshake, read, handshake.length - read));
+                    }
+                    if (version == null) {
+                        client.close();
+                        continue;
+                    }
+                    final OutputStream out = client.getOutputStream();
+                    out.write(("OEJP/" + version).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (final IOException e) {
+                // closed
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // no-op
+            }
+            synchronized (accepted) {
+                for (final Socket client : accepted) {
+                    try {
+                        client.close();
+                    } catch (final IOException e) {
+                        // no-op
+                    }
+                }
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.openejb.server.ejbd;
 import org.apache.openejb.ProxyInfo;
 import org.apache.openejb.core.ServerFederation;
 import org.apache.openejb.server.ServiceException;
+import org.apache.openejb.server.ServicePool;
 
 import javax.ejb.EJBHome;
 import javax.ejb.EJBMetaData;
@@ -33,7 +34,7 @@ import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class EjbServer implements org.apache.openejb.server.ServerService, org.apache.openejb.spi.ApplicationServer {
+public class EjbServer implements org.apache.openejb.server.ServerService, org.apache.openejb.spi.ApplicationServer, ServicePool.ParkedConnectionListener {
 
     protected KeepAliveServer keepAlive;
     protected EjbDaemon server;
@@ -49,7 +50,15 @@ public class EjbServer implements org.apache.openejb.server.ServerService, org.a
             props.setProperty("name", getName());
         }
         server.init(props);
-        keepAlive = new KeepAliveServer(this, server.isGzip());
+        keepAlive = new KeepAliveServer(this, server.isGzip(), "true".equalsIgnoreCase(props.getProperty("nio", "false")));
+        final String multiplexThreads = props.getProperty("multiplex.threads");
+        if (multiplexThreads != null) {
+            keepAlive.setMultiplexThreads(Integer.parseInt(multiplexThreads.trim()));
+        }
+        final String maxFrameSize = props.getProperty("multiplex.maxFrameSize");
+        if (maxFrameSize != null) {
+            keepAlive.setMaxFrameSize(Integer.parseInt(maxFrameSize.trim()));
+        }
     }
 
     @Override
@@ -93,6 +102,13 @@ public class EjbServer implements org.apache.openejb.server.ServerService, org.a
         }
     }
 
+    @Override
+    public void onParkedConnectionClosed(final Socket socket) {
+        if (null != keepAlive) {
+            keepAlive.onParkedConnectionClosed(socket);
+        }
+    }
+
     @Override
     public void service(final InputStream inputStream, final OutputStream outputStream) throws ServiceException, IOException {
 
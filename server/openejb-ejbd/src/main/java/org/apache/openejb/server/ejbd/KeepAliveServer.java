@@ -18,16 +18,23 @@ package org.apache.openejb.server.ejbd;
 
 import org.apache.openejb.client.FlushableGZIPOutputStream;
 import org.apache.openejb.client.KeepAliveStyle;
+import org.apache.openejb.client.ProtocolMetaData;
 import org.apache.openejb.server.ServerService;
 import org.apache.openejb.server.ServiceException;
 import org.apache.openejb.server.ServicePool;
 import org.apache.openejb.server.Unwrappable;
 import org.apache.openejb.server.context.RequestInfos;
+import org.apache.openejb.util.DaemonThreadFactory;
 import org.apache.openejb.util.LogCategory;
 import org.apache.openejb.util.Logger;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
@@ -41,6 +48,10 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
@@ -57,10 +68,14 @@ public class KeepAliveServer implements ServerService {
     private final long timeout = (1000 * 10);
 
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private final ConcurrentHashMap<Thread, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Socket, Session> sessions = new ConcurrentHashMap<>();
     private BlockingQueue<Runnable> threadQueue;
     private Timer timer;
     private final boolean gzip;
+    private final boolean nio;
+    private int multiplexThreads = Runtime.getRuntime().availableProcessors() * 2;
+    private int maxFrameSize = 4 * 1024 * 1024;
+    private ThreadPoolExecutor multiplexExecutor;
 
     @SuppressWarnings("deprecation")
     public KeepAliveServer() {
@@ -73,8 +88,35 @@ public class KeepAliveServer implements ServerService {
     }
 
     public KeepAliveServer(final ServerService service, final boolean gzip) {
+        this(service, gzip, false);
+    }
+
+    /**
+     * @param nio if true a session returns its thread as soon as it has no buffered request left instead of
+     *            blocking on the next read, the connection stays open and is resumed by the ServicePool selector.
+     *            Only effective for channel backed sockets and without gzip (the inflater would hide pending bytes).
+     */
+    public KeepAliveServer(final ServerService service, final boolean gzip, final boolean nio) {
         this.service = service;
         this.gzip = gzip;
+        this.nio = nio;
+        if (nio && gzip) {
+            logger.warning("ejbd 'nio' mode is not supported with 'gzip', connections will use a thread each");
+        }
+    }
+
+    /**
+     * @param threads the number of threads serving the requests of multiplexed connections, shared by all of them
+     */
+    public void setMultiplexThreads(final int threads) {
+        this.multiplexThreads = Math.max(1, threads);
+    }
+
+    /**
+     * @param bytes the largest multiplexed request accepted, a longer frame closes the connection
+     */
+    public void setMaxFrameSize(final int bytes) {
+        this.maxFrameSize = Math.max(1, bytes);
     }
 
     private void closeInactiveSessions() {
@@ -100,6 +142,11 @@ public class KeepAliveServer implements ServerService {
 
         for (final Session session : current) {
 
+            if (session.parkable) {
+                // doesn't hold a thread while idle, the ServicePool selector closes it after its idle timeout
+                continue;
+            }
+
             final Lock l = session.lock;
 
             if (l.tryLock()) {
@@ -146,6 +193,10 @@ public class KeepAliveServer implements ServerService {
                     this.removeSession(session);
                     l.unlock();
                 }
+            } else if (session.multiplexed) {
+                // the lock is held by the frame reader for the whole connection life, in flight requests are lost anyway
+                session.close();
+                this.removeSession(session);
             } else if (logger.isDebugEnabled()) {
                 try {
                     logger.debug("Allowing graceful shutdown of " + session.socket.getInetAddress());
@@ -177,7 +228,7 @@ public class KeepAliveServer implements ServerService {
      * @return
      */
     public Session addSession(final Session session) {
-        return this.sessions.put(session.thread, session);
+        return this.sessions.put(session.socket, session);
     }
 
     /**
@@ -186,7 +237,21 @@ public class KeepAliveServer implements ServerService {
      * @return
      */
     public Session removeSession(final Session session) {
-        return this.sessions.remove(session.thread);
+        return this.sessions.remove(session.socket);
+    }
+
+    int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Drops the session of a connection the ServicePool selector closed while it was parked.
+     */
+    public void onParkedConnectionClosed(final Socket socket) {
+        final Session session = this.sessions.remove(socket);
+        if (null != session) {
+            session.close();
+        }
     }
 
     public class KeepAliveTimer extends TimerTask {
@@ -205,7 +270,6 @@ public class KeepAliveServer implements ServerService {
 
     private class Session {
 
-        private final Thread thread;
         private final KeepAliveServer kas;
         private final Lock lock = new ReentrantLock();
 
@@ -214,12 +278,14 @@ public class KeepAliveServer implements ServerService {
         private final Socket socket;
         private InputStream in = null;
         private OutputStream out = null;
+        private volatile boolean multiplexed;
+        private final boolean parkable;
 
-        private Session(final KeepAliveServer kas, final Socket socket) {
+        private Session(final KeepAliveServer kas, final Socket socket, final boolean parkable) {
             this.kas = kas;
             this.socket = socket;
+            this.parkable = parkable;
             this.lastRequest = new AtomicLong(System.currentTimeMillis());
-            this.thread = Thread.currentThread();
         }
 
         @Override
@@ -231,79 +297,187 @@ public class KeepAliveServer implements ServerService {
             }
         }
 
+        private void open() throws IOException {
+            final Lock l1 = this.lock;
+            l1.lock();
+
+            try {
+                if (!KeepAliveServer.this.gzip) {
+                    in = new BufferedInputStream(socket.getInputStream());
+                    out = new BufferedOutputStream(socket.getOutputStream());
+                } else {
+                    in = new GZIPInputStream(new BufferedInputStream(socket.getInputStream()));
+                    out = new BufferedOutputStream(new FlushableGZIPOutputStream(socket.getOutputStream()));
+                }
+            } finally {
+                l1.unlock();
+            }
+        }
+
         private void service() throws ServiceException, IOException {
             this.kas.addSession(this);
 
-            int i = -1;
+            try {
+                this.open();
+
+                while (KeepAliveServer.this.running.get()) {
+                    if (!this.serviceRequest()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedIOException e) {
+                Thread.interrupted();
+            } finally {
+
+                close();
+
+                this.kas.removeSession(this);
+            }
+        }
+
+        /**
+         * Services the requests already received on this connection then returns,
+         * leaving the connection open unless the client hung up.
+         */
+        private void serviceAvailable() throws ServiceException, IOException {
+            boolean open = false;
 
             try {
+                if (null == this.in) {
+                    this.kas.addSession(this);
+                    this.open();
+                }
 
-                final Lock l1 = this.lock;
-                l1.lock();
+                do {
+                    open = KeepAliveServer.this.running.get() && this.serviceRequest();
+                } while (open && this.in.available() > 0);
+            } catch (InterruptedIOException e) {
+                Thread.interrupted();
+            } finally {
+                if (!open) {
+                    close();
 
-                try {
-                    if (!KeepAliveServer.this.gzip) {
-                        in = new BufferedInputStream(socket.getInputStream());
-                        out = new BufferedOutputStream(socket.getOutputStream());
-                    } else {
-                        in = new GZIPInputStream(new BufferedInputStream(socket.getInputStream()));
-                        out = new BufferedOutputStream(new FlushableGZIPOutputStream(socket.getOutputStream()));
-                    }
-                } finally {
-                    l1.unlock();
+                    this.kas.removeSession(this);
                 }
+            }
+        }
 
-                while (KeepAliveServer.this.running.get()) {
-                    try {
+        /**
+         * @return false if the connection is gone
+         */
+        private boolean serviceRequest() throws ServiceException, IOException {
+            int i;
+            try {
+                i = in.read();
+            } catch (SocketException e) {
+                // Socket closed.
+                return false;
+            }
+            if (i == -1) {
+                // client hung up
+                return false;
+            }
+
+            final KeepAliveStyle style;
+            try {
+                style = KeepAliveStyle.values()[i];
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Unexpected byte " + i);
+            }
+
+            final Lock l2 = this.lock;
+            l2.lock();
+
+            try {
+
+                switch (style) {
+                    case PING_PING: {
                         i = in.read();
-                    } catch (SocketException e) {
-                        // Socket closed.
                         break;
                     }
-                    if (i == -1) {
-                        // client hung up
+                    case PING_PONG: {
+                        out.write(style.ordinal());
+                        out.flush();
                         break;
                     }
-                    final KeepAliveStyle style = KeepAliveStyle.values()[i];
-
-                    final Lock l2 = this.lock;
-                    l2.lock();
-
-                    try {
-
-                        switch (style) {
-                            case PING_PING: {
-                                i = in.read();
-                                break;
-                            }
-                            case PING_PONG: {
-                                out.write(style.ordinal());
-                                out.flush();
-                                break;
-                            }
-                        }
-
-                        try {
-                            KeepAliveServer.this.service.service(new Input(in), new Output(out));
-                            out.flush();
-                        } catch (SocketException e) {
-                            // Socket closed.
-                            break;
-                        }
-                    } finally {
-                        this.lastRequest.set(System.currentTimeMillis());
-                        l2.unlock();
+                    case MULTIPLEX: {
+                        this.multiplex();
+                        return false;
                     }
                 }
-            } catch (ArrayIndexOutOfBoundsException e) {
-                throw new IOException("Unexpected byte " + i);
-            } catch (InterruptedIOException e) {
-                Thread.interrupted();
+
+                try {
+                    KeepAliveServer.this.service.service(new Input(in), new Output(out));
+                    out.flush();
+                } catch (SocketException e) {
+                    // Socket closed.
+                    return false;
+                }
             } finally {
+                this.lastRequest.set(System.currentTimeMillis());
+                l2.unlock();
+            }
+            return true;
+        }
 
-                close();
+        /**
+         * Reads request frames until the client hangs up, each of them being serviced by the multiplex executor
+         * and answered with a frame carrying the same correlation id, in completion order.
+         */
+        private void multiplex() throws IOException {
+            final ProtocolMetaData client = new ProtocolMetaData();
+            client.readExternal(in);
+            new ProtocolMetaData(ProtocolMetaData.MULTIPLEX_VERSION).writeExternal(out);
+            out.flush();
+            this.multiplexed = true;
+
+            final DataInputStream frames = new DataInputStream(in);
+            final DataOutputStream responses = new DataOutputStream(out);
+            try {
+                while (KeepAliveServer.this.running.get()) {
+                    final int id = frames.readInt();
+                    final int length = frames.readInt();
+                    if (length < 0 || length > KeepAliveServer.this.maxFrameSize) {
+                        // the stream can't be trusted anymore, the client fails its pending requests
+                        throw new IOException("Invalid multiplexed frame length " + length
+                            + " (max " + KeepAliveServer.this.maxFrameSize + ") from " + this.socket);
+                    }
+                    final byte[] request = new byte[length];
+                    frames.readFully(request);
+                    this.lastRequest.set(System.currentTimeMillis());
+
+                    KeepAliveServer.this.multiplexExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            serviceFrame(id, request, responses);
+                        }
+                    });
+                }
+            } catch (EOFException | SocketException e) {
+                // client hung up
+            } catch (RejectedExecutionException e) {
+                // stopping
+            }
+        }
 
-                this.kas.removeSession(this);
+        private void serviceFrame(final int id, final byte[] request, final DataOutputStream responses) {
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            RequestInfos.initRequestInfo(this.socket);
+            try {
+                KeepAliveServer.this.service.service(new ByteArrayInputStream(request), response);
+
+                synchronized (responses) {
+                    responses.writeInt(id);
+                    responses.writeInt(response.size());
+                    response.writeTo(responses);
+                    responses.flush();
+                }
+            } catch (Throwable e) {
+                // the client fails all the requests of this connection and retries on a new one
+                logger.debug("Multiplexed request failed, closing " + this.socket, e);
+                this.close();
+            } finally {
+                RequestInfos.clearRequestInfo();
             }
         }
 
@@ -338,12 +512,25 @@ public class KeepAliveServer implements ServerService {
     public void service(final Socket socket) throws ServiceException, IOException {
         RequestInfos.initRequestInfo(socket);
         try {
-            new Session(this, socket).service();
+            if (this.isParkable(socket)) {
+                Session session = this.sessions.get(socket);
+                if (null == session) {
+                    session = new Session(this, socket, true);
+                }
+                session.serviceAvailable();
+            } else {
+                new Session(this, socket, false).service();
+            }
         } finally {
             RequestInfos.clearRequestInfo();
         }
     }
 
+    // nio is only in effect without gzip and for channel backed sockets, ServiceDaemon ignores it for secure ones
+    private boolean isParkable(final Socket socket) {
+        return this.nio && !this.gzip && null != socket.getChannel();
+    }
+
     @Override
     public void service(final InputStream in, final OutputStream out) throws ServiceException, IOException {
     }
@@ -368,6 +555,12 @@ public class KeepAliveServer implements ServerService {
         if (!this.running.getAndSet(true)) {
             this.timer = new Timer("KeepAliveTimer", true);
             this.timer.scheduleAtFixedRate(new KeepAliveTimer(this), this.timeout, (this.timeout / 2));
+
+            // a full queue makes the frame reader run the request itself, which stops reading the socket for a while
+            this.multiplexExecutor = new ThreadPoolExecutor(this.multiplexThreads, this.multiplexThreads, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(this.multiplexThreads * 64), new DaemonThreadFactory("ejbd-multiplex"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+            this.multiplexExecutor.allowCoreThreadTimeOut(true);
         }
     }
 
@@ -384,6 +577,11 @@ public class KeepAliveServer implements ServerService {
             } catch (Throwable e) {
                 //Ignore
             }
+            try {
+                this.multiplexExecutor.shutdownNow();
+            } catch (Throwable e) {
+                //Ignore
+            }
         }
     }
 
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.OpenEJB;
+import org.apache.openejb.assembler.classic.Assembler;
+import org.apache.openejb.client.AsyncEJB;
+import org.apache.openejb.config.ConfigurationFactory;
+import org.apache.openejb.core.ServerFederation;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.server.ServiceDaemon;
+import org.apache.openejb.server.ServicePool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ejb.EJBException;
+import javax.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncEJBTest {
+    private static ServiceDaemon serviceDaemon;
+    private static Calculator calculator;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        System.setProperty(AsyncEJB.MAX_IN_FLIGHT, "2");
+        System.setProperty(AsyncEJB.MAX_QUEUED, "20");
+
+        final Properties initProps = new Properties();
+        initProps.setProperty("openejb.deployments.classpath.include", "");
+        initProps.setProperty("openejb.deployments.classpath.filter.descriptors", "true");
+        OpenEJB.init(initProps, new ServerFederation());
+
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+
+        serviceDaemon = new ServiceDaemon(new ServicePool(new EjbServer(), 10, 10, 0, false, 0, true, true));
+        serviceDaemon.init(props);
+        serviceDaemon.start();
+
+        final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
+        final EjbJar ejbJar = new EjbJar();
+        ejbJar.addEnterpriseBean(new StatelessBean(CalculatorBean.class));
+        assembler.createApplication(new ConfigurationFactory().configureApplication(ejbJar));
+
+        final Properties clientProps = new Properties();
+        clientProps.put(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+        clientProps.put(Context.PROVIDER_URL, "ejbd://127.0.0.1:" + serviceDaemon.getPort());
+        calculator = (Calculator) new InitialContext(clientProps).lookup("CalculatorBeanRemote");
+    }
+
+    @AfterClass
+    public static void stop() throws Exception {
+        try {
+            serviceDaemon.stop();
+            OpenEJB.destroy();
+        } finally {
+            System.clearProperty(AsyncEJB.MAX_IN_FLIGHT);
+            System.clearProperty(AsyncEJB.MAX_QUEUED);
+        }
+    }
+
+    @Test
+    public void callsAreLimitedPerServer() throws Exception {
+        final String caller = Thread.currentThread().getName();
+        final int waiting = waitingThreads();
+        final List<CompletableFuture<Integer>> sums = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            sums.add(AsyncEJB.call(calculator, new Function<Calculator, Integer>() {
+                @Override
+                public Integer apply(final Calculator c) {
+                    return c.slowAdd(value, 1);
+                }
+            }));
+        }
+
+        for (int i = 0; i < sums.size(); i++) {
+            assertEquals(i + 1, sums.get(i).get(1, TimeUnit.MINUTES).intValue());
+        }
+        assertTrue(CalculatorBean.maxConcurrency.get() <= 2);
+
+        // the multiplexed connections hand the responses over, no thread waited for them
+        assertTrue(waitingThreads() <= waiting);
+
+        final String thread = completingThread(calculator);
+        assertNotEquals(caller, thread);
+        assertTrue(thread, thread.startsWith("OpenEJB Multiplexed Connection"));
+    }
+
+    @Test
+    public void overflowFailsFast() throws Exception {
+        final List<CompletableFuture<Integer>> sums = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                final int value = i;
+                sums.add(AsyncEJB.call(calculator, new Function<Calculator, Integer>() {
+                    @Override
+                    public Integer apply(final Calculator c) {
+                        return c.blockingAdd(value, 1);
+                    }
+                }));
+            }
+
+            // 2 in flight and 20 queued, the others are rejected without waiting
+            int rejected = 0;
+            for (int i = 22; i < sums.size(); i++) {
+                try {
+                    sums.get(i).getNow(null);
+                    fail("call " + i + " should be rejected");
+                } catch (final CompletionException e) {
+                    assertTrue(RejectedExecutionException.class.isInstance(e.getCause()));
+                    rejected++;
+                }
+            }
+            assertEquals(18, rejected);
+        } finally {
+            CalculatorBean.release.countDown();
+        }
+
+        for (int i = 0; i < 22; i++) {
+            assertEquals(i + 1, sums.get(i).get(1, TimeUnit.MINUTES).intValue());
+        }
+    }
+
+    @Test
+    public void failuresCompleteTheFuture() throws Exception {
+        try {
+            AsyncEJB.call(calculator, new Function<Calculator, Integer>() {
+                @Override
+                public Integer apply(final Calculator c) {
+                    return c.divide(1, 0);
+                }
+            }).get(1, TimeUnit.MINUTES);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause().toString(), EJBException.class.isInstance(e.getCause()));
+        }
+
+        try {
+            AsyncEJB.call(calculator, new Function<Calculator, String>() {
+                @Override
+                public String apply(final Calculator c) {
+                    return c.toString();
+                }
+            }).get(1, TimeUnit.MINUTES);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(IllegalArgumentException.class.isInstance(e.getCause()));
+        }
+    }
+
+    @Test
+    public void connectionsWhichCantMultiplexAreReadByAThread() throws Exception {
+        // compressed ejbd connections are never multiplexed
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+        props.setProperty("gzip", "true");
+        final ServiceDaemon gzipDaemon = new ServiceDaemon(new ServicePool(new EjbServer(), 10, 10, 0, false, 0, true, false));
+        gzipDaemon.init(props);
+        gzipDaemon.start();
+        try {
+            readByAThread(gzipDaemon.getPort());
+        } finally {
+            gzipDaemon.stop();
+        }
+    }
+
+    private void readByAThread(final int port) throws Exception {
+        final Properties clientProps = new Properties();
+        clientProps.put(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+        clientProps.put(Context.PROVIDER_URL, "zejbd://127.0.0.1:" + port);
+        final Calculator compressed = (Calculator) new InitialContext(clientProps).lookup("CalculatorBeanRemote");
+
+        final String thread = completingThread(compressed);
+        assertTrue(thread, thread.startsWith("OpenEJB.Client.Async."));
+
+        assertEquals(3, AsyncEJB.call(compressed, new Function<Calculator, Integer>() {
+            @Override
+            public Integer apply(final Calculator c) {
+                return c.slowAdd(1, 2);
+            }
+        }).get(1, TimeUnit.MINUTES).intValue());
+    }
+
+    private static int waitingThreads() {
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("OpenEJB.Client.Async.")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String completingThread(final Calculator proxy) throws Exception {
+        final CompletableFuture<String> completing = AsyncEJB.call(proxy, new Function<Calculator, String>() {
+            @Override
+            public String apply(final Calculator c) {
+                return c.thread();
+            }
+        }).thenApply(new Function<String, String>() {
+            @Override
+            public String apply(final String serverThread) {
+                return Thread.currentThread().getName();
+            }
+        });
+        // the bean answers once the dependent stage is registered, it can't run in the caller thread
+        CalculatorBean.answer.release();
+        return completing.get(1, TimeUnit.MINUTES);
+    }
+
+    @Remote
+    public interface Calculator {
+        int slowAdd(int a, int b);
+
+        int blockingAdd(int a, int b);
+
+        int divide(int a, int b);
+
+        String thread();
+    }
+
+    public static class CalculatorBean implements Calculator {
+        private static final AtomicInteger concurrency = new AtomicInteger();
+        private static final AtomicInteger maxConcurrency = new AtomicInteger();
+        private static final CountDownLatch release = new CountDownLatch(1);
+        private static final Semaphore answer = new Semaphore(0);
+
+        @Override
+        public int slowAdd(final int a, final int b) {
+            final int current = concurrency.incrementAndGet();
+            try {
+                int max = maxConcurrency.get();
+                while (current > max && !maxConcurrency.compareAndSet(max, current)) {
+                    max = maxConcurrency.get();
+                }
+                Thread.sleep(20);
+                return a + b;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                concurrency.decrementAndGet();
+            }
+        }
+
+        @Override
+        public int blockingAdd(final int a, final int b) {
+            try {
+                release.await(1, TimeUnit.MINUTES);
+                return a + b;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int divide(final int a, final int b) {
+            return a / b;
+        }
+
+        @Override
+        public String thread() {
+            try {
+                answer.tryAcquire(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.OpenEJB;
+import org.apache.openejb.assembler.classic.Assembler;
+import org.apache.openejb.config.ConfigurationFactory;
+import org.apache.openejb.core.ServerFederation;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.server.ServiceDaemon;
+import org.apache.openejb.server.ServicePool;
+import org.junit.Test;
+
+import javax.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeepAliveNioTest {
+
+    @Test
+    public void idleConnectionsDontHoldThreads() throws Exception {
+        final Properties initProps = new Properties();
+        initProps.setProperty("openejb.deployments.classpath.include", "");
+        initProps.setProperty("openejb.deployments.classpath.filter.descriptors", "true");
+        OpenEJB.init(initProps, new ServerFederation());
+
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+        props.setProperty("nio", "true");
+
+        // two threads and no caller-runs fallback, ten keep-alive clients can only pass if idle connections are parked
+        final ServicePool pool = new ServicePool(new EjbServer(), 2, 2, 0, false, 0, true, true);
+        final ServiceDaemon serviceDaemon = new ServiceDaemon(pool);
+        serviceDaemon.init(props);
+        serviceDaemon.start();
+
+        try {
+            assertTrue(serviceDaemon.isNio());
+
+            final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
+            final ConfigurationFactory config = new ConfigurationFactory();
+
+            final EjbJar ejbJar = new EjbJar();
+            ejbJar.addEnterpriseBean(new StatelessBean(KeepAilveTest.EchoBean.class));
+            assembler.createApplication(config.configureApplication(ejbJar));
+
+            final int clients = 10;
+            final CountDownLatch latch = new CountDownLatch(clients);
+            final AtomicInteger errors = new AtomicInteger();
+
+            for (int i = 0; i < clients; i++) {
+                final Properties clientProps = new Properties();
+                clientProps.put(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+                clientProps.put(Context.PROVIDER_URL, "ejbd://127.0.0.1:" + serviceDaemon.getPort() + "?" + i);
+                final KeepAilveTest.Echo echo = (KeepAilveTest.Echo) new InitialContext(clientProps).lookup("EchoBeanRemote");
+
+                KeepAilveTest.thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int count = 0; count < 20; count++) {
+                                final String message = count + " bottles of beer on the wall";
+                                assertEquals(new StringBuilder(message).reverse().toString(), echo.echo(message));
+                                Thread.sleep(20);
+                            }
+                        } catch (final Throwable e) {
+                            errors.incrementAndGet();
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                }, true);
+            }
+
+            assertTrue(latch.await(60, TimeUnit.SECONDS));
+            assertEquals(0, errors.get());
+            assertTrue(pool.getThreadPool().getLargestPoolSize() <= 2);
+        } finally {
+            serviceDaemon.stop();
+            OpenEJB.destroy();
+        }
+    }
+
+    @Test
+    public void idleConnectionsAreClosed() throws Exception {
+        final Properties initProps = new Properties();
+        initProps.setProperty("openejb.deployments.classpath.include", "");
+        initProps.setProperty("openejb.deployments.classpath.filter.descriptors", "true");
+        OpenEJB.init(initProps, new ServerFederation());
+
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+        props.setProperty("nio", "true");
+
+        final EjbServer ejbServer = new EjbServer();
+        final ServicePool pool = new ServicePool(ejbServer, 2, 2, 0, false, 0, true, true, 300);
+        final ServiceDaemon serviceDaemon = new ServiceDaemon(pool);
+        serviceDaemon.init(props);
+        serviceDaemon.start();
+
+        try {
+            final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
+            final ConfigurationFactory config = new ConfigurationFactory();
+
+            final EjbJar ejbJar = new EjbJar();
+            ejbJar.addEnterpriseBean(new StatelessBean(KeepAilveTest.EchoBean.class));
+            assembler.createApplication(config.configureApplication(ejbJar));
+
+            final Properties clientProps = new Properties();
+            clientProps.put(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+            clientProps.put(Context.PROVIDER_URL, "ejbd://127.0.0.1:" + serviceDaemon.getPort() + "?idle");
+            final KeepAilveTest.Echo echo = (KeepAilveTest.Echo) new InitialContext(clientProps).lookup("EchoBeanRemote");
+            assertEquals("olleh", echo.echo("hello"));
+            assertTrue(ejbServer.keepAlive.getSessionCount() > 0);
+
+            // the client pools the connection without using it anymore
+            final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (ejbServer.keepAlive.getSessionCount() > 0 && System.currentTimeMillis() < end) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, ejbServer.keepAlive.getSessionCount());
+        } finally {
+            serviceDaemon.stop();
+            OpenEJB.destroy();
+        }
+    }
+
+    @Test
+    public void readyConnectionsWaitForASaturatedPool() throws Exception {
+        final Properties initProps = new Properties();
+        initProps.setProperty("openejb.deployments.classpath.include", "");
+        initProps.setProperty("openejb.deployments.classpath.filter.descriptors", "true");
+        OpenEJB.init(initProps, new ServerFederation());
+
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+        props.setProperty("nio", "true");
+
+        // two threads, a queue of one and no blocking: the selector used to drop what the pool rejected
+        final ServicePool pool = new ServicePool(new EjbServer(), 2, 2, 1, false, 0, true, true);
+        final ServiceDaemon serviceDaemon = new ServiceDaemon(pool);
+        serviceDaemon.init(props);
+        serviceDaemon.start();
+
+        try {
+            final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
+            final ConfigurationFactory config = new ConfigurationFactory();
+
+            final EjbJar ejbJar = new EjbJar();
+            ejbJar.addEnterpriseBean(new StatelessBean(HoldBean.class));
+            assembler.createApplication(config.configureApplication(ejbJar));
+
+            // every client parks its connection once the lookup is done
+            final int clients = 6;
+            final Hold[] holds = new Hold[clients];
+            for (int i = 0; i < clients; i++) {
+                final Properties clientProps = new Properties();
+                clientProps.put(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+                clientProps.put(Context.PROVIDER_URL, "ejbd://127.0.0.1:" + serviceDaemon.getPort() + "?saturated" + i);
+                holds[i] = (Hold) new InitialContext(clientProps).lookup("HoldBeanRemote");
+            }
+
+            final CountDownLatch done = new CountDownLatch(clients);
+            final AtomicInteger errors = new AtomicInteger();
+            final Collection<String> threads = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < clients; i++) {
+                final Hold hold = holds[i];
+                KeepAilveTest.thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            threads.add(hold.hold());
+                        } catch (final Throwable e) {
+                            errors.incrementAndGet();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }, true);
+
+                if (i == 1) {
+                    // both workers are busy, the next parked connections become readable on a saturated pool
+                    assertTrue(HoldBean.ENTERED.await(30, TimeUnit.SECONDS));
+                }
+            }
+
+            Thread.sleep(500);
+            assertEquals(2, pool.getThreadPool().getActiveCount());
+
+            // the selector keeps selecting instead of waiting in the rejection handler for the queue
+            boolean selecting = false;
+            for (final Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+                if (thread.getKey().getName().startsWith("OpenEJB.") && thread.getKey().getName().endsWith(".selector")) {
+                    selecting = true;
+                    for (final StackTraceElement element : thread.getValue()) {
+                        assertFalse(element.toString(), ThreadPoolExecutor.class.getName().equals(element.getClassName()));
+                    }
+                }
+            }
+            assertTrue(selecting);
+            HoldBean.GATE.countDown();
+
+            assertTrue(done.await(60, TimeUnit.SECONDS));
+            assertEquals(0, errors.get());
+            assertEquals(clients, threads.size());
+            for (final String thread : threads) {
+                assertFalse(thread, thread.endsWith(".selector"));
+            }
+        } finally {
+            serviceDaemon.stop();
+            OpenEJB.destroy();
+        }
+    }
+
+    public static class HoldBean implements Hold {
+
+        private static final CountDownLatch ENTERED = new CountDownLatch(2);
+        private static final CountDownLatch GATE = new CountDownLatch(1);
+
+        @Override
+        public String hold() {
+            ENTERED.countDown();
+            try {
+                GATE.await(60, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Thread.currentThread().getName();
+        }
+    }
+
+    @Remote
+    public static interface Hold {
+        String hold();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.openejb.server.ejbd;
+
+import org.apache.openejb.OpenEJB;
+import org.apache.openejb.assembler.classic.Assembler;
+import org.apache.openejb.client.KeepAliveStyle;
+import org.apache.openejb.client.ProtocolMetaData;
+import org.apache.openejb.config.ConfigurationFactory;
+import org.apache.openejb.core.ServerFederation;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.StatelessBean;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.server.ServiceDaemon;
+import org.apache.openejb.server.ServicePool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiplexTest {
+
+    @BeforeClass
+    public static void multiplex() {
+        // read once by the client connection factory, each test class gets its own JVM
+        System.setProperty("openejb.client.multiplex", "true");
+        System.setProperty("openejb.client.multiplex.connections", "1");
+    }
+
+    @AfterClass
+    public static void reset() {
+        System.clearProperty("openejb.client.multiplex");
+        System.clearProperty("openejb.client.multiplex.connections");
+    }
+
+    @Test
+    public void concurrentRequestsShareOneConnection() throws Exception {
+        final Properties initProps = new Properties();
+        initProps.setProperty("openejb.deployments.classpath.include", "");
+        initProps.setProperty("openejb.deployments.classpath.filter.descriptors", "true");
+        OpenEJB.init(initProps, new ServerFederation());
+
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+        props.setProperty("multiplex.threads", "4");
+
+        // a single connection thread, the requests can only run concurrently through the multiplex executor
+        final ServicePool pool = new ServicePool(new EjbServer(), 1, 1, 0, false, 0, true, true);
+        final ServiceDaemon serviceDaemon = new ServiceDaemon(pool);
+        serviceDaemon.init(props);
+        serviceDaemon.start();
+
+        try {
+            final Assembler assembler = SystemInstance.get().getComponent(Assembler.class);
+            final ConfigurationFactory config = new ConfigurationFactory();
+
+            final EjbJar ejbJar = new EjbJar();
+            ejbJar.addEnterpriseBean(new StatelessBean(KeepAilveTest.EchoBean.class));
+            assembler.createApplication(config.configureApplication(ejbJar));
+
+            final Properties clientProps = new Properties();
+            clientProps.put(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+            clientProps.put(Context.PROVIDER_URL, "ejbd://127.0.0.1:" + serviceDaemon.getPort());
+            final KeepAilveTest.Echo echo = (KeepAilveTest.Echo) new InitialContext(clientProps).lookup("EchoBeanRemote");
+
+            final int clients = 10;
+            final CountDownLatch latch = new CountDownLatch(clients);
+            final AtomicInteger errors = new AtomicInteger();
+
+            for (int i = 0; i < clients; i++) {
+                final int client = i;
+                KeepAilveTest.thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int count = 0; count < 50; count++) {
+                                final String message = client + ":" + count + " bottles of beer on the wall";
+                                assertEquals(new StringBuilder(message).reverse().toString(), echo.echo(message));
+                            }
+                        } catch (final Throwable e) {
+                            e.printStackTrace();
+                            errors.incrementAndGet();
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                }, true);
+            }
+
+            assertTrue(latch.await(60, TimeUnit.SECONDS));
+            assertEquals(0, errors.get());
+            assertEquals(1, pool.getThreadPool().getLargestPoolSize());
+        } finally {
+            serviceDaemon.stop();
+            OpenEJB.destroy();
+        }
+    }
+
+    @Test
+    public void oversizedFrameClosesTheConnection() throws Exception {
+        final Properties initProps = new Properties();
+        initProps.setProperty("openejb.deployments.classpath.include", "");
+        initProps.setProperty("openejb.deployments.classpath.filter.descriptors", "true");
+        OpenEJB.init(initProps, new ServerFederation());
+
+        final Properties props = new Properties();
+        props.setProperty("bind", "127.0.0.1");
+        props.setProperty("port", "0");
+        props.setProperty("multiplex.maxFrameSize", "1024");
+
+        final ServiceDaemon serviceDaemon = new ServiceDaemon(new ServicePool(new EjbServer(), 2, 2, 0, false, 0, true, true));
+        serviceDaemon.init(props);
+        serviceDaemon.start();
+
+        try {
+            for (final int length : new int[]{1025, -1, Integer.MAX_VALUE}) {
+                try (final Socket socket = new Socket("127.0.0.1", serviceDaemon.getPort())) {
+                    socket.setSoTimeout(10000);
+                    final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.write(KeepAliveStyle.MULTIPLEX.ordinal());
+                    new ProtocolMetaData(ProtocolMetaData.MULTIPLEX_VERSION).writeExternal(out);
+                    final ProtocolMetaData server = new ProtocolMetaData();
+                    server.readExternal(socket.getInputStream());
+                    assertTrue(server.isAtLeast(4, 7));
+
+                    out.writeInt(1);
+                    out.writeInt(length);
+                    out.flush();
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+        } finally {
+            serviceDaemon.stop();
+            OpenEJB.destroy();
+        }
+    }
+}
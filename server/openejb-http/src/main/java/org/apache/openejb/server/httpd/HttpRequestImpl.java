@@ -102,6 +102,11 @@ public class HttpRequestImpl implements HttpRequest {
      */
     private URI uri;
 
+    /**
+     * 5.1.3    HTTP-Version
+     */
+    private String version;
+
     /**
      * the headers for this page
      */
@@ -135,6 +140,8 @@ public class HttpRequestImpl implements HttpRequest {
     private byte[] body;
     private ServletByteArrayIntputStream in;
     private int length;
+    // bytes of a body sent with a method not having one, left on the connection by readBody()
+    private int unread;
     private String contentType;
 
     /**
@@ -470,6 +477,8 @@ public class HttpRequestImpl implements HttpRequest {
         parseMethod(lineParts);
         /* [2] Parse the URI */
         parseURI(lineParts);
+        /* [3] Parse the version */
+        version = lineParts.hasMoreTokens() ? lineParts.nextToken() : "HTTP/1.0";
         return true;
     }
 
@@ -656,6 +665,39 @@ public class HttpRequestImpl implements HttpRequest {
         //end temp-debug---------------------------------------
     }
 
+    /**
+     * @return true if the client asked for a persistent connection and its body had a known length
+     */
+    protected boolean isKeepAlive() {
+        String connection = null;
+        for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Connection".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                connection = header.getValue().get(0);
+            }
+        }
+        if ("close".equalsIgnoreCase(connection) || !("HTTP/1.1".equals(version) || "keep-alive".equalsIgnoreCase(connection))) {
+            return false;
+        }
+        return !CHUNKED.equals(getHeader(TRANSFER_ENCODING)) && (length >= 0 || !hasBody());
+    }
+
+    /**
+     * Skips what readMessage() left of the body of the request so the next request of a persistent connection
+     * is read from its request line.
+     */
+    protected void drainBody(final InputStream input) throws IOException {
+        while (unread > 0) {
+            final long skipped = input.skip(unread);
+            if (skipped > 0) {
+                unread -= skipped;
+            } else if (input.read() >= 0) {
+                unread--;
+            } else {
+                throw new EOFException("Connection closed in the body of the request");
+            }
+        }
+    }
+
     private boolean hasBody() {
         return !method.equals(Method.GET.name()) && !method.equals(Method.DELETE.name())
             && !method.equals(Method.HEAD.name()) && !method.equals(Method.OPTIONS.name());
@@ -742,6 +784,7 @@ public class HttpRequestImpl implements HttpRequest {
         } else {
             body = new byte[0];
             this.in = new ServletByteArrayIntputStream(body);
+            unread = Math.max(0, length);
         }
 
     }
@@ -38,10 +38,12 @@ import javax.xml.transform.stream.StreamSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.Collection;
 import java.util.List;
@@ -63,6 +65,9 @@ public class OpenEJBHttpServer implements HttpServer {
     private Set<Output> print;
     private boolean indent;
     private boolean countStreams;
+    private boolean keepAlive;
+    private int keepAliveTimeout;
+    private int keepAliveMaxRequests;
 
     public OpenEJBHttpServer() {
         this(null);
@@ -126,10 +131,18 @@ public class OpenEJBHttpServer implements HttpServer {
                 in = socket.getInputStream();
                 out = socket.getOutputStream();
             }
+            if (keepAlive) {
+                in = new PushbackInputStream(in, 1);
+            }
 
             //TODO: if ssl change to https
             final URI socketURI = new URI("http://" + socket.getLocalAddress().getHostAddress() + ":" + socket.getLocalPort());
-            close = processRequest(socket, socketURI, in, out);
+            int served = 0;
+            Next next = processRequest(socket, socketURI, in, out, keepAlive && ++served < keepAliveMaxRequests);
+            while (next == Next.KEEP_ALIVE && hasNextRequest(socket, PushbackInputStream.class.cast(in))) {
+                next = processRequest(socket, socketURI, in, out, ++served < keepAliveMaxRequests);
+            }
+            close = next != Next.ASYNC;
 
         } catch (final Throwable e) {
             log.error("Unexpected error", e);
@@ -165,6 +178,29 @@ public class OpenEJBHttpServer implements HttpServer {
         }
     }
 
+    /**
+     * Waits for the next request of a persistent connection, the client closing it or staying idle
+     * longer than keep-alive.timeout ends the connection silently.
+     */
+    private boolean hasNextRequest(final Socket socket, final PushbackInputStream in) throws IOException {
+        final int timeout = socket.getSoTimeout();
+        socket.setSoTimeout(keepAliveTimeout);
+        try {
+            final int first = in.read();
+            if (first < 0) {
+                return false;
+            }
+            in.unread(first);
+            return true;
+        } catch (final SocketTimeoutException e) {
+            return false;
+        } finally {
+            if (!socket.isClosed()) {
+                socket.setSoTimeout(timeout);
+            }
+        }
+    }
+
     @Override
     public void service(final InputStream in, final OutputStream out) throws ServiceException, IOException {
         throw new UnsupportedOperationException("Method not implemented: service(InputStream in, OutputStream out)");
@@ -179,6 +215,9 @@ public class OpenEJBHttpServer implements HttpServer {
             "" +
             ".xml", false);
         countStreams = options.get("stream.count", false);
+        keepAlive = options.get("keep-alive", false);
+        keepAliveTimeout = options.get("keep-alive.timeout", 15000);
+        keepAliveMaxRequests = options.get("keep-alive.max-requests", 100);
     }
 
     public static enum Output {
@@ -186,6 +225,12 @@ public class OpenEJBHttpServer implements HttpServer {
         RESPONSE
     }
 
+    private enum Next {
+        CLOSE,
+        KEEP_ALIVE,
+        ASYNC
+    }
+
     @Override
     public void start() throws ServiceException {
     }
@@ -220,15 +265,18 @@ public class OpenEJBHttpServer implements HttpServer {
      * @param in  the input stream from the browser
      * @param out the output stream to the browser
      */
-    private boolean processRequest(final Socket socket, final URI socketURI, final InputStream in, final OutputStream out) {
+    private Next processRequest(final Socket socket, final URI socketURI, final InputStream in, final OutputStream out, final boolean mayKeepAlive) {
         HttpResponseImpl response = null;
         try {
-            response = process(socket, socketURI, in);
-            return response != null;
+            response = process(socket, socketURI, in, mayKeepAlive);
+            if (response == null) {
+                return Next.ASYNC;
+            }
+            return mayKeepAlive && !"close".equals(response.getHeader("Connection")) ? Next.KEEP_ALIVE : Next.CLOSE;
         } catch (final Throwable t) {
             log.error(t.getMessage(), t);
             response = HttpResponseImpl.createError(t.getMessage(), t);
-            return true;
+            return Next.CLOSE;
         } finally {
             try {
                 if (response != null) {
@@ -252,7 +300,7 @@ public class OpenEJBHttpServer implements HttpServer {
         }
     }
 
-    private HttpResponseImpl process(final Socket socket, final URI socketURI, final InputStream in) throws OpenEJBException {
+    private HttpResponseImpl process(final Socket socket, final URI socketURI, final InputStream in, final boolean mayKeepAlive) throws OpenEJBException {
         final HttpRequestImpl req = new HttpRequestImpl(socketURI);
         final HttpResponseImpl res = new HttpResponseImpl();
 
@@ -260,6 +308,10 @@ public class OpenEJBHttpServer implements HttpServer {
             if (!req.readMessage(in)) {
                 return res;
             }
+            if (mayKeepAlive && req.isKeepAlive()) { // responses default to Connection: close
+                req.drainBody(in); // else the rest of the body would be read as the next request
+                res.setHeader("Connection", "keep-alive");
+            }
 
             if (print.size() > 0 && print.contains(Output.REQUEST)) {
                 req.print(log, indent);
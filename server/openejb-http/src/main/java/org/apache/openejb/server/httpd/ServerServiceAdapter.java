@@ -17,7 +17,16 @@
 
 package org.apache.openejb.server.httpd;
 
+import org.apache.openejb.client.FlushableGZIPOutputStream;
 import org.apache.openejb.server.ServerService;
+import org.apache.openejb.server.ServiceException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
 /**
  * @version $Revision$ $Date$
@@ -31,6 +40,44 @@ public class ServerServiceAdapter implements HttpListener {
     }
 
     public void onMessage(HttpRequest request, HttpResponse response) throws Exception {
-        service.service(request.getInputStream(), response.getOutputStream());
+        service(service, request, response);
+    }
+
+    /**
+     * Serves the request with the service, a gzipped request gets a gzipped response when the client accepts it.
+     */
+    public static void service(final ServerService service, final HttpServletRequest request, final HttpServletResponse response)
+        throws ServiceException, IOException {
+        if (!"gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            service.service(request.getInputStream(), response.getOutputStream());
+            return;
+        }
+
+        final InputStream in = new GZIPInputStream(request.getInputStream());
+        final String accept = request.getHeader("Accept-Encoding");
+        if (accept == null || !accept.toLowerCase(Locale.ENGLISH).contains("gzip")) {
+            service.service(in, response.getOutputStream());
+            return;
+        }
+
+        response.setHeader("Content-Encoding", "gzip");
+        final FlushableGZIPOutputStream out = new FlushableGZIPOutputStream(response.getOutputStream());
+        Throwable error = null;
+        try {
+            service.service(in, out);
+        } catch (final Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            // what the service wrote, an error included, has to be a complete gzip stream for the client
+            try {
+                out.finish();
+            } catch (final IOException e) {
+                if (error == null) {
+                    throw e;
+                }
+                error.addSuppressed(e);
+            }
+        }
     }
 }
@@ -24,8 +24,6 @@ import org.apache.openejb.server.ejbd.EjbServer;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
-import javax.servlet.ServletInputStream;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -53,11 +51,9 @@ public class ServerServlet extends HttpServlet {
             return;
         }
 
-        ServletInputStream in = request.getInputStream();
-        ServletOutputStream out = response.getOutputStream();
         try {
             RequestInfos.initRequestInfo(request);
-            ejbServer.service(in, out);
+            ServerServiceAdapter.service(ejbServer, request, response);
         } catch (ServiceException e) {
             throw new ServletException("ServerService error: " + ejbServer.getClass().getName() + " -- " + e.getMessage(), e);
         } finally {
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.httpd;
+
+import org.apache.openejb.client.CompressedHttpConnectionFactory;
+import org.apache.openejb.client.Connection;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.jee.SingletonBean;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.testing.Configuration;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.apache.openejb.testng.PropertiesBuilder;
+import org.apache.openejb.util.NetworkUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ejb.Remote;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+@EnableServices({"httpejbd"})
+@RunWith(ApplicationComposer.class)
+public class HttpKeepAliveTest {
+    private int port = -1;
+
+    @Test
+    public void requestsShareTheConnection() throws IOException {
+        final HttpListenerRegistry registry = SystemInstance.get().getComponent(HttpListenerRegistry.class);
+        registry.addHttpListener(new HttpListener() {
+            @Override
+            public void onMessage(final HttpRequest request, final HttpResponse response) throws Exception {
+                IO.copy(request.getInputStream(), response.getOutputStream());
+            }
+        }, "/echo");
+        try (final Socket socket = new Socket("localhost", port)) {
+            final OutputStream out = socket.getOutputStream();
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.write(request("HTTP/1.1", "first"));
+            out.flush();
+            assertEquals("keep-alive", readResponse(in, "first"));
+
+            out.write(request("HTTP/1.1", "second"));
+            out.flush();
+            assertEquals("keep-alive", readResponse(in, "second"));
+
+            out.write(request("HTTP/1.0", "third"));
+            out.flush();
+            assertEquals("close", readResponse(in, "third"));
+            assertEquals(-1, in.read());
+        } finally {
+            registry.removeHttpListener("/echo");
+        }
+    }
+
+    @Test
+    public void unreadBodyIsDrained() throws IOException {
+        final HttpListenerRegistry registry = SystemInstance.get().getComponent(HttpListenerRegistry.class);
+        registry.addHttpListener(new HttpListener() {
+            @Override
+            public void onMessage(final HttpRequest request, final HttpResponse response) throws Exception {
+                IO.copy(request.getInputStream(), response.getOutputStream());
+            }
+        }, "/echo");
+        try (final Socket socket = new Socket("localhost", port)) {
+            final OutputStream out = socket.getOutputStream();
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // a GET body is not read as the request body, it must not be parsed as the next request either
+            final String body = "GET /nowhere X\r\n";
+            out.write(("GET /echo HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: " + body.length() + "\r\n" +
+                "\r\n" + body).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertEquals("keep-alive", readResponse(in, ""));
+
+            out.write(request("HTTP/1.1", "second"));
+            out.flush();
+            assertEquals("keep-alive", readResponse(in, "second"));
+        } finally {
+            registry.removeHttpListener("/echo");
+        }
+    }
+
+    @Test
+    public void compressedScheme() throws Exception {
+        final HttpListenerRegistry registry = SystemInstance.get().getComponent(HttpListenerRegistry.class);
+        final List<String> encodings = new ArrayList<>();
+        final ServerServiceAdapter echo = new ServerServiceAdapter(new ServerServiceAdapterTest.CopyService(null));
+        registry.addHttpListener(new HttpListener() {
+            @Override
+            public void onMessage(final HttpRequest request, final HttpResponse response) throws Exception {
+                encodings.add(request.getHeader("Content-Encoding"));
+                echo.onMessage(request, response);
+            }
+        }, "/gzip-echo");
+        try {
+            final CompressedHttpConnectionFactory factory = new CompressedHttpConnectionFactory();
+            for (int i = 0; i < 2; i++) {
+                final Connection connection = factory.getConnection(new URI("zhttp://localhost:" + port + "/gzip-echo"));
+                try {
+                    final OutputStream out = connection.getOutputStream();
+                    out.write(("hello #" + i).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    assertEquals("hello #" + i, IO.slurp(connection.getInputStream()));
+                } finally {
+                    connection.close();
+                }
+            }
+            assertEquals(asList("gzip", "gzip"), encodings);
+        } finally {
+            registry.removeHttpListener("/gzip-echo");
+        }
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.openejb.client.RemoteInitialContextFactory");
+        properties.setProperty(Context.PROVIDER_URL, "zhttp://localhost:" + port + "/ejb");
+        final Echo echo = Echo.class.cast(new InitialContext(properties).lookup("EchoBeanRemote"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("hello #" + i, echo.echo("hello #" + i));
+        }
+    }
+
+    private static byte[] request(final String version, final String body) {
+        return ("POST /echo " + version + "\r\n" +
+            "Host: localhost\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "Content-Length: " + body.length() + "\r\n" +
+            "\r\n" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // reads a response delimited by its Content-Length and returns its Connection header
+    private static String readResponse(final DataInputStream in, final String expectedBody) throws IOException {
+        assertEquals("HTTP/1.1 200 OK", readLine(in));
+        int length = -1;
+        String connection = null;
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            final int sep = line.indexOf(':');
+            final String name = line.substring(0, sep).trim();
+            final String value = line.substring(sep + 1).trim();
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                length = Integer.parseInt(value);
+            } else if ("Connection".equalsIgnoreCase(name)) {
+                connection = value;
+            }
+        }
+        final byte[] body = new byte[length];
+        in.readFully(body);
+        assertEquals(expectedBody, new String(body, StandardCharsets.UTF_8));
+        return connection;
+    }
+
+    private static String readLine(final DataInputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Configuration
+    public Properties props() {
+        port = NetworkUtil.getNextAvailablePort();
+        return new PropertiesBuilder()
+            .p("httpejbd.port", Integer.toString(port))
+            .p("httpejbd.keep-alive", "true")
+            .build();
+    }
+
+    @Module
+    public EjbJar jar() {
+        return new EjbJar().enterpriseBean(new SingletonBean(EchoBean.class));
+    }
+
+    @Remote
+    public interface Echo {
+        String echo(String value);
+    }
+
+    public static class EchoBean implements Echo {
+        @Override
+        public String echo(final String value) {
+            return value;
+        }
+    }
+}
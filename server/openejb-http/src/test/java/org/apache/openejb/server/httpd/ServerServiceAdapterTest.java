@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.openejb.server.httpd;
+
+import org.apache.openejb.loader.IO;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.server.ServerService;
+import org.apache.openejb.server.ServiceException;
+import org.apache.openejb.server.httpd.session.SessionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ServerServiceAdapterTest {
+    @Before
+    public void init() {
+        SystemInstance.get().setComponent(SessionManager.class, new SessionManager());
+    }
+
+    @After
+    public void reset() {
+        SystemInstance.reset();
+    }
+
+    @Test
+    public void gzippedResponseIsCompleteWhenTheServiceFails() throws Exception {
+        final HttpRequestImpl request = new HttpRequestImpl(new URI("http://localhost:1234/ejb"));
+        final byte[] body = gzip("partial response");
+        final ByteArrayOutputStream message = new ByteArrayOutputStream();
+        message.write(("POST /ejb HTTP/1.1\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Content-Encoding: gzip\r\n" +
+            "Accept-Encoding: gzip\r\n" +
+            "Content-Length: " + body.length + "\r\n" +
+            "\r\n").getBytes(StandardCharsets.UTF_8));
+        message.write(body);
+        request.readMessage(new ByteArrayInputStream(message.toByteArray()));
+
+        final HttpResponseImpl response = new HttpResponseImpl();
+        try {
+            ServerServiceAdapter.service(new CopyService("failed"), request, response);
+            fail();
+        } catch (final ServiceException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        final byte[] out = ((ServletByteArrayOutputStream) response.getOutputStream()).getOutputStream().toByteArray();
+        // reading up to the trailer fails with an EOFException if the stream was not finished
+        assertEquals("partial response", IO.slurp(new GZIPInputStream(new ByteArrayInputStream(out))));
+    }
+
+    private static byte[] gzip(final String value) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Copies the request to the response then fails if it has an error message.
+     */
+    static class CopyService implements ServerService {
+        private final String error;
+
+        CopyService(final String error) {
+            this.error = error;
+        }
+
+        @Override
+        public void service(final InputStream in, final OutputStream out) throws ServiceException, IOException {
+            IO.copy(in, out);
+            out.flush();
+            if (error != null) {
+                throw new ServiceException(error);
+            }
+        }
+
+        @Override
+        public void service(final Socket socket) throws ServiceException, IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void start() throws ServiceException {
+            // no-op
+        }
+
+        @Override
+        public void stop() throws ServiceException {
+            // no-op
+        }
+
+        @Override
+        public String getName() {
+            return "copy";
+        }
+
+        @Override
+        public String getIP() {
+            return null;
+        }
+
+        @Override
+        public int getPort() {
+            return 0;
+        }
+
+        @Override
+        public void init(final Properties props) throws Exception {
+            // no-op
+        }
+    }
+}
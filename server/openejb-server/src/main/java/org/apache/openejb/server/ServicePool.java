@@ -26,9 +26,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
@@ -42,10 +50,12 @@ public class ServicePool extends ServerServiceFilter {
 
     private static final Logger log = Logger.getInstance(LogCategory.SERVICEPOOL, "org.apache.openejb.util.resources");
     private static final int KEEP_ALIVE_TIME = 1000 * 60 * 1;
+    private static final long IDLE_TIMEOUT = 1000 * 60 * 1;
 
     private final ThreadPoolExecutor threadPool;
     private final AtomicBoolean stop = new AtomicBoolean();
     private boolean forceSocketClose = true;
+    private final KeepAliveSelector selector;
 
     public ServicePool(final ServerService next, final Properties properties) {
         /**Defaults.
@@ -61,7 +71,8 @@ public class ServicePool extends ServerServiceFilter {
         this(next, properties.get("threadsCore", 10), properties.get("threads", 150),
                 properties.get("queue", 0), properties.get("block", true),
                 properties.get("keepAliveTime", KEEP_ALIVE_TIME),
-                properties.get("forceSocketClose", true));
+                properties.get("forceSocketClose", true), properties.get("nio", false),
+                properties.get("nio.idleTimeout", IDLE_TIMEOUT));
     }
 
     public ServicePool(final ServerService next, final int threads) {
@@ -72,7 +83,25 @@ public class ServicePool extends ServerServiceFilter {
         this(next, threads, threads, queue, block, KEEP_ALIVE_TIME, true);
     }
 
-    public ServicePool(final ServerService next, int threadCore, int threads, int queue, final boolean block, long keepAliveTime, boolean forceClose) {
+    public ServicePool(final ServerService next, final int threadCore, final int threads, final int queue, final boolean block, final long keepAliveTime, final boolean forceClose) {
+        this(next, threadCore, threads, queue, block, keepAliveTime, forceClose, false);
+    }
+
+    /**
+     * @param nio if true an idle connection left open by the service is parked on a selector instead of being closed,
+     *            it is handed back to the thread pool once the client sends its next request. This requires the
+     *            service to be a keep-alive one returning as soon as it has no buffered request left (ejbd) and
+     *            the sockets to be backed by a channel (see the ServiceDaemon 'nio' property).
+     */
+    public ServicePool(final ServerService next, final int threadCore, final int threads, final int queue, final boolean block, final long keepAliveTime, final boolean forceClose, final boolean nio) {
+        this(next, threadCore, threads, queue, block, keepAliveTime, forceClose, nio, IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param idleTimeout the time in milliseconds a connection can stay parked before the selector closes it
+     */
+    public ServicePool(final ServerService next, int threadCore, int threads, int queue, final boolean block, long keepAliveTime, boolean forceClose, final boolean nio,
+                       final long idleTimeout) {
         super(next);
 
         this.forceSocketClose = forceClose;
@@ -130,6 +159,12 @@ public class ServicePool extends ServerServiceFilter {
                 @Override
                 public void rejectedExecution(final Runnable r, final ThreadPoolExecutor tpe) {
 
+                    if (r instanceof Resume) {
+                        // the selector thread never waits, the ready connections stay queued for the next free worker
+                        ((Resume) r).rejected(tpe);
+                        return;
+                    }
+
                     if (null == r || null == tpe || tpe.isShutdown() || tpe.isTerminated() || tpe.isTerminating()) {
                         return;
                     }
@@ -173,8 +208,19 @@ public class ServicePool extends ServerServiceFilter {
             SystemInstance.get().setComponent(Registry.class, registry);
         }
 
+        if (nio) {
+            try {
+                this.selector = new KeepAliveSelector(Selector.open(), idleTimeout > 0 ? idleTimeout : IDLE_TIMEOUT, unwrap(ParkedConnectionListener.class));
+            } catch (final IOException e) {
+                throw new IllegalStateException("ServicePool '" + getName() + "' can't open a selector", e);
+            }
+        } else {
+            this.selector = null;
+        }
+
         if (log.isInfoEnabled()) {
-            log.info(String.format("Created ServicePool '%1$s' with (%2$s) core threads, limited to (%3$s) threads with a queue of (%4$s)", getName(), c, t, q));
+            log.info(String.format("Created ServicePool '%1$s' with (%2$s) core threads, limited to (%3$s) threads with a queue of (%4$s)%5$s", getName(), c, t, q,
+                nio ? " and a selector for idle connections" : ""));
         }
     }
 
@@ -185,6 +231,11 @@ public class ServicePool extends ServerServiceFilter {
     @Override
     public void start() throws ServiceException {
         super.start();
+        if (selector != null) {
+            final Thread thread = new Thread(selector, "OpenEJB." + getName() + ".selector");
+            thread.setDaemon(true);
+            thread.start();
+        }
         final Registry registry = SystemInstance.get().getComponent(Registry.class);
         if (registry == null) {
             return;
@@ -197,6 +248,9 @@ public class ServicePool extends ServerServiceFilter {
     @Override
     public void stop() throws ServiceException {
         super.stop();
+        if (selector != null) {
+            selector.close();
+        }
         final Registry registry = SystemInstance.get().getComponent(Registry.class);
         if (registry == null) {
             return;
@@ -212,9 +266,11 @@ public class ServicePool extends ServerServiceFilter {
 
     @Override
     public void service(final Socket socket) throws ServiceException, IOException {
+        threadPool.execute(newTask(socket, Thread.currentThread().getContextClassLoader()));
+    }
 
-        final ClassLoader tccl = Thread.currentThread().getContextClassLoader();
-        final Runnable ctxCL = new Runnable() {
+    private Runnable newTask(final Socket socket, final ClassLoader tccl) {
+        return new Runnable() {
 
             @Override
             public String toString() {
@@ -223,63 +279,106 @@ public class ServicePool extends ServerServiceFilter {
 
             @Override
             public void run() {
+                serve(socket, tccl);
+                resumeReady();
+            }
+        };
+    }
 
-                ClassLoader cl = null;
+    private void serve(final Socket socket, final ClassLoader tccl) {
 
-                final Thread thread = Thread.currentThread();
-                try {
-                    cl = thread.getContextClassLoader();
-                    thread.setContextClassLoader(tccl);
+        ClassLoader cl = null;
 
-                    if (stop.get()) {
-                        return;
-                    }
+        final Thread thread = Thread.currentThread();
+        try {
+            cl = thread.getContextClassLoader();
+            thread.setContextClassLoader(tccl);
 
-                    ServicePool.super.service(socket);
+            if (stop.get()) {
+                return;
+            }
 
-                } catch (SecurityException e) {
-                    final String msg = "ServicePool '" + ServicePool.this.getName() + "': Security error: " + e.getMessage();
-                    if (log.isDebugEnabled()) {
-                        log.error(msg, e);
-                    } else {
-                        log.error(msg + " - Debug for StackTrace");
-                    }
-                } catch (IOException e) {
-                    final String msg = "ServicePool '" + ServicePool.this.getName() + "': Unexpected IO error: " + e.getMessage();
-                    if (log.isDebugEnabled()) {
-                        log.debug(msg, e);
-                    } else {
-                        log.warning(msg + " - Debug for StackTrace");
-                    }
-                } catch (Throwable e) {
-                    final String msg = "ServicePool '" + ServicePool.this.getName() + "': Unexpected error: " + e.getMessage();
-                    if (log.isDebugEnabled()) {
-                        log.error(msg, e);
-                    } else {
-                        log.error(msg + " - Debug for StackTrace");
-                    }
+            ServicePool.super.service(socket);
 
-                } finally {
+        } catch (SecurityException e) {
+            final String msg = "ServicePool '" + ServicePool.this.getName() + "': Security error: " + e.getMessage();
+            if (log.isDebugEnabled()) {
+                log.error(msg, e);
+            } else {
+                log.error(msg + " - Debug for StackTrace");
+            }
+        } catch (IOException e) {
+            final String msg = "ServicePool '" + ServicePool.this.getName() + "': Unexpected IO error: " + e.getMessage();
+            if (log.isDebugEnabled()) {
+                log.debug(msg, e);
+            } else {
+                log.warning(msg + " - Debug for StackTrace");
+            }
+        } catch (Throwable e) {
+            final String msg = "ServicePool '" + ServicePool.this.getName() + "': Unexpected error: " + e.getMessage();
+            if (log.isDebugEnabled()) {
+                log.error(msg, e);
+            } else {
+                log.error(msg + " - Debug for StackTrace");
+            }
 
-                    //Ensure delegated socket is closed here
+        } finally {
 
-                    try {
-                        if (forceSocketClose && socket != null) {
-                            socket.close();
-                        }
-                    } catch (Throwable t) {
+            //Ensure delegated socket is closed here, unless it is an idle keep-alive connection we can park
 
-                        if (log.isDebugEnabled()) {
-                            log.debug("ServicePool '" + ServicePool.this.getName() + "': Error closing socket", t);
-                        }
+            if (selector == null || stop.get() || !selector.park(socket, tccl)) {
+                try {
+                    if (forceSocketClose && socket != null) {
+                        socket.close();
                     }
+                } catch (Throwable t) {
 
-                    thread.setContextClassLoader(cl);
+                    if (log.isDebugEnabled()) {
+                        log.debug("ServicePool '" + ServicePool.this.getName() + "': Error closing socket", t);
+                    }
                 }
             }
-        };
 
-        threadPool.execute(ctxCL);
+            thread.setContextClassLoader(cl);
+        }
+    }
+
+    // serves the parked connections which became readable, a worker takes them over once it is done with its own socket
+    private void resumeReady() {
+        if (selector == null) {
+            return;
+        }
+
+        Parked parked;
+        while ((parked = selector.ready.poll()) != null) {
+            serve(parked.channel.socket(), parked.tccl);
+        }
+    }
+
+    /**
+     * Submitted by the selector thread for the connections it found readable, its rejection is not an error:
+     * the connections stay in the ready queue and are taken over by the busy workers once they are done.
+     */
+    private final class Resume implements Runnable {
+
+        @Override
+        public String toString() {
+            return "ServicePool." + ServicePool.this.getName() + ".Resume";
+        }
+
+        @Override
+        public void run() {
+            resumeReady();
+        }
+
+        private void rejected(final ThreadPoolExecutor tpe) {
+            // a full queue only holds tasks resuming the ready connections when done, a shut down pool runs none of them
+            if (tpe.isShutdown()) {
+                selector.closeReady();
+            } else if (log.isDebugEnabled()) {
+                log.debug("ServicePool '" + ServicePool.this.getName() + "' is busy, " + selector.ready.size() + " ready connections wait for a worker");
+            }
+        }
     }
 
     @Managed
@@ -348,6 +447,11 @@ public class ServicePool extends ServerServiceFilter {
             return getThreadPool().getCompletedTaskCount();
         }
 
+        @Managed
+        public int getParkedConnectionCount() {
+            return selector == null ? 0 : selector.getParkedCount();
+        }
+
         @Managed
         public void setMaximumPoolSize(final int maximumPoolSize) {
             getThreadPool().setMaximumPoolSize(maximumPoolSize);
@@ -385,6 +489,174 @@ public class ServicePool extends ServerServiceFilter {
         }
     }
 
+    /**
+     * Implemented by a service keeping a state per connection, the pool tells it when it closes a parked connection.
+     */
+    public interface ParkedConnectionListener {
+        void onParkedConnectionClosed(Socket socket);
+    }
+
+    /**
+     * Holds the idle keep-alive connections without tying up a pool thread, a connection is
+     * deregistered and handed back to the pool as soon as it is readable again, or closed
+     * once it has been parked longer than the idle timeout.
+     */
+    private final class KeepAliveSelector implements Runnable {
+
+        private final Selector selector;
+        private final long idleTimeout;
+        private final ParkedConnectionListener listener;
+        private final Queue<Parked> pending = new ConcurrentLinkedQueue<>();
+        private final Queue<Parked> ready = new ConcurrentLinkedQueue<>();
+
+        private KeepAliveSelector(final Selector selector, final long idleTimeout, final ParkedConnectionListener listener) {
+            this.selector = selector;
+            this.idleTimeout = idleTimeout;
+            this.listener = listener;
+        }
+
+        private boolean park(final Socket socket, final ClassLoader tccl) {
+            if (socket == null || socket.isClosed() || socket.isInputShutdown() || socket.getChannel() == null || !selector.isOpen()) {
+                return false;
+            }
+
+            // registration has to be done by the selector thread, select() holds the key set
+            pending.add(new Parked(socket.getChannel(), tccl, System.nanoTime()));
+            selector.wakeup();
+            return true;
+        }
+
+        private int getParkedCount() {
+            try {
+                return selector.keys().size() + pending.size() + ready.size();
+            } catch (final ClosedSelectorException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public void run() {
+            final List<Parked> selected = new ArrayList<>();
+            final long sweepInterval = Math.max(1, idleTimeout / 2);
+            long nextSweep = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sweepInterval);
+
+            while (selector.isOpen()) {
+                try {
+                    selector.select(sweepInterval);
+
+                    Parked parked;
+                    while ((parked = pending.poll()) != null) {
+                        try {
+                            parked.channel.configureBlocking(false);
+                            parked.channel.register(selector, SelectionKey.OP_READ, parked);
+                        } catch (final Exception e) {
+                            close(parked);
+                        }
+                    }
+
+                    final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        key.cancel();
+                        selected.add((Parked) key.attachment());
+                    }
+
+                    final long now = System.nanoTime();
+                    if (now - nextSweep >= 0) {
+                        closeIdle(now);
+                        nextSweep = now + TimeUnit.MILLISECONDS.toNanos(sweepInterval);
+                    }
+
+                    if (selected.isEmpty()) {
+                        continue;
+                    }
+
+                    // flushes the cancelled keys, a channel can't go back to blocking mode while registered
+                    selector.selectNow();
+
+                    for (final Parked p : selected) {
+                        try {
+                            p.channel.configureBlocking(true);
+                        } catch (final Exception e) {
+                            close(p);
+                            continue;
+                        }
+
+                        // never execute the connection here, a saturated pool would block or drop it on the selector thread
+                        ready.add(p);
+                        threadPool.execute(new Resume());
+                    }
+                    selected.clear();
+                } catch (final ClosedSelectorException e) {
+                    break;
+                } catch (final Throwable e) {
+                    log.error("ServicePool '" + ServicePool.this.getName() + "': Unexpected selector error: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        // an abandoned client would otherwise keep its socket forever, there is no blocking read honouring soTimeout anymore
+        private void closeIdle(final long now) {
+            final long timeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+            for (final SelectionKey key : selector.keys()) {
+                final Parked parked = (Parked) key.attachment();
+                if (key.isValid() && now - parked.since > timeout) {
+                    key.cancel();
+                    close(parked);
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                for (final SelectionKey key : selector.keys()) {
+                    close((Parked) key.attachment());
+                }
+                Parked parked;
+                while ((parked = pending.poll()) != null) {
+                    close(parked);
+                }
+                closeReady();
+                selector.close();
+            } catch (final Exception e) {
+                log.debug("ServicePool '" + ServicePool.this.getName() + "': Error closing selector", e);
+            }
+        }
+
+        private void closeReady() {
+            Parked parked;
+            while ((parked = ready.poll()) != null) {
+                close(parked);
+            }
+        }
+
+        private void close(final Parked parked) {
+            try {
+                parked.channel.close();
+            } catch (final IOException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("ServicePool '" + ServicePool.this.getName() + "': Error closing socket", e);
+                }
+            }
+            if (listener != null) {
+                listener.onParkedConnectionClosed(parked.channel.socket());
+            }
+        }
+    }
+
+    private static final class Parked {
+        private final SocketChannel channel;
+        private final ClassLoader tccl;
+        private final long since;
+
+        private Parked(final SocketChannel channel, final ClassLoader tccl, final long since) {
+            this.channel = channel;
+            this.tccl = tccl;
+            this.since = since;
+        }
+    }
+
     public static class Registry {
         private final Collection<ServicePool> pools = new ArrayList<>();
 
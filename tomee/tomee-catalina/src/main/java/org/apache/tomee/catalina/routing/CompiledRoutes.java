@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomee.catalina.routing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable index of a set of routes: each origin is stored in a trie under the literal
+ * prefix of its regex so only the routes which can match a uri are evaluated. Origins without
+ * a literal prefix (alternations, leading groups...) are always evaluated.
+ *
+ * The declaration order of the routes is kept, the first matching route wins.
+ */
+final class CompiledRoutes {
+    static final CompiledRoutes EMPTY = new CompiledRoutes(new Route[0]);
+
+    private static final String META = "\\[](){}.*+?^$|";
+
+    private final Route[] routes;
+    private final Node root = new Node();
+
+    CompiledRoutes(final Route[] routes) {
+        this.routes = routes;
+        for (int i = 0; i < routes.length; i++) {
+            final String literal = literalPrefix(routes[i].getOrigin());
+            Node node = root;
+            for (int c = 0; c < literal.length(); c++) {
+                node = node.child(literal.charAt(c));
+            }
+            node.add(i);
+        }
+    }
+
+    Route[] getRoutes() {
+        return routes;
+    }
+
+    /**
+     * @return the first route matching the uri, its matcher is bound to the current thread
+     * as with {@link Route#matches(String)}
+     */
+    Route match(final String uri) {
+        int[] candidates = root.routes;
+        int count = candidates.length;
+        boolean sorted = true;
+
+        Node node = root;
+        for (int c = 0; c < uri.length() && node.children != null; c++) {
+            node = node.children.get(uri.charAt(c));
+            if (node == null) {
+                break;
+            }
+            if (node.routes.length > 0) {
+                if (count == 0) {
+                    candidates = node.routes;
+                    count = candidates.length;
+                } else {
+                    final int[] merged = new int[count + node.routes.length];
+                    System.arraycopy(candidates, 0, merged, 0, count);
+                    System.arraycopy(node.routes, 0, merged, count, node.routes.length);
+                    candidates = merged;
+                    count = merged.length;
+                    sorted = false;
+                }
+            }
+        }
+
+        if (!sorted) {
+            Arrays.sort(candidates);
+        }
+        for (int i = 0; i < count; i++) {
+            final Route route = routes[candidates[i]];
+            if (route.matches(uri)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the characters every match of the regex starts with, a conservative approximation
+     */
+    static String literalPrefix(final String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+
+        int end = 0;
+        while (end < regex.length() && META.indexOf(regex.charAt(end)) < 0) {
+            end++;
+        }
+        if (end < regex.length() && end > 0 && "?*{".indexOf(regex.charAt(end)) >= 0) {
+            end--; // the last literal is optional
+        }
+        return regex.substring(0, end);
+    }
+
+    private static final class Node {
+        private static final int[] NONE = new int[0];
+
+        private Map<Character, Node> children;
+        private int[] routes = NONE;
+
+        private Node child(final char c) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node node = children.get(c);
+            if (node == null) {
+                node = new Node();
+                children.put(c, node);
+            }
+            return node;
+        }
+
+        private void add(final int route) {
+            routes = Arrays.copyOf(routes, routes.length + 1);
+            routes[routes.length - 1] = route;
+        }
+    }
+}
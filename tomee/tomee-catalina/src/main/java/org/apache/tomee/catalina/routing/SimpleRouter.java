@@ -17,9 +17,13 @@
 
 package org.apache.tomee.catalina.routing;
 
+import org.apache.openejb.loader.Files;
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.loader.SystemInstance;
 import org.apache.openejb.monitoring.DynamicMBeanWrapper;
 import org.apache.openejb.monitoring.LocalMBeanServer;
 import org.apache.openejb.monitoring.ObjectNameBuilder;
+import org.apache.openejb.util.DaemonThreadFactory;
 import org.apache.openejb.util.LogCategory;
 import org.apache.openejb.util.Logger;
 
@@ -38,31 +42,94 @@ import javax.management.openmbean.TabularType;
 import javax.servlet.ServletException;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Routes are indexed by {@link CompiledRoutes} and the resolved uris are cached until the routes change,
+ * the cache is bounded by dropping arbitrary entries once full.
+ * Options:
+ * <ul>
+ *     <li>tomee.router.cache.size: 1000 resolved uris, 0 to disable the cache</li>
+ *     <li>tomee.router.reload.interval: 5 seconds between two checks of the configuration file, 0 to not reload it</li>
+ * </ul>
+ *
+ * The configuration file is checked by a background thread shared by all the routers. When it changes
+ * the routes are replaced by the ones of the file, routes added through JMX are lost.
+ */
 public class SimpleRouter {
 
     private static Logger logger = Logger.getInstance(LogCategory.OPENEJB, SimpleRouter.class);
 
     private static final Pattern PATTERN = Pattern.compile("(.*)->(.*)");
+    private static final String NO_ROUTE = new String(); // compared by identity, caches misses
 
     private String prefix = "";
     private ObjectName objectName;
-    private Route[] routes = new Route[0];
-    private final Map<String, Route> cache = new ConcurrentHashMap<String, Route>();
+    private volatile Routing routing = new Routing(CompiledRoutes.EMPTY);
+    private final int cacheSize;
+
+    private final long reloadInterval;
+    private volatile URL configuration;
+    private volatile long configurationLastModified;
+    private ScheduledFuture<?> reloadTask;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong matchTime = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    public SimpleRouter() {
+        this(SystemInstance.get().getOptions());
+    }
+
+    public SimpleRouter(final Options options) {
+        cacheSize = options.get("tomee.router.cache.size", 1000);
+        reloadInterval = TimeUnit.SECONDS.toMillis(options.get("tomee.router.reload.interval", 5L));
+    }
 
     public SimpleRouter readConfiguration(final URL url) {
         if (url == null) {
             return this;
         }
 
+        final Collection<Route> read = readRoutes(url);
+        synchronized (this) {
+            final Collection<Route> all = new ArrayList<>(Arrays.asList(routing.routes.getRoutes()));
+            all.addAll(read);
+            setRoutes(all);
+
+            configuration = url;
+            configurationLastModified = lastModified(url);
+            if (reloadTask == null && reloadInterval > 0 && "file".equals(url.getProtocol())) {
+                reloadTask = Reloader.EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        reloadIfNeeded();
+                    }
+                }, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        return this;
+    }
+
+    private Collection<Route> readRoutes(final URL url) {
+        final Collection<Route> read = new ArrayList<>();
         BufferedReader reader = null;
         try {
             final InputStream is = new BufferedInputStream(url.openStream());
@@ -72,7 +139,10 @@ public class SimpleRouter {
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
                 if (!line.isEmpty() && !line.startsWith("#")) {
-                    parseRoute(line);
+                    final Route route = parseRoute(line);
+                    if (route != null) {
+                        read.add(route);
+                    }
                 }
             }
         } catch (final IOException e) {
@@ -86,16 +156,17 @@ public class SimpleRouter {
                 }
             }
         }
-        return this;
+        return read;
     }
 
-    private void parseRoute(final String line) {
+    private Route parseRoute(final String line) {
         final Matcher matcher = PATTERN.matcher(line);
         if (matcher.matches()) {
             final String from = prefix(matcher.group(1).trim());
             final String to = prefix(matcher.group(2).trim());
-            addRoute(new Route().from(from).to(to));
+            return new Route().from(from).to(to);
         }
+        return null;
     }
 
     public String route(final String uri) throws IOException, ServletException {
@@ -103,35 +174,83 @@ public class SimpleRouter {
             return null;
         }
 
-        final Route cachedRoute = cache.get(uri);
-        if (cachedRoute != null) {
-            cachedRoute.matches(uri);
-            return cachedRoute.cleanDestination(prefix);
+        // the routes and their cache are replaced together, a stale result never lands in the new cache
+        final Routing current = routing;
+        if (cacheSize > 0) {
+            final String cached = current.cache.get(uri);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached == NO_ROUTE ? null : cached;
+            }
         }
+        misses.incrementAndGet();
 
-        for (final Route route : routes) {
-            if (route.matches(uri)) {
-                if (route.getOrigin().equals(uri)) {
-                    cache.put(uri, route);
+        final long start = System.nanoTime();
+        final Route route = current.routes.match(uri);
+        final String destination = route == null ? null : route.cleanDestination(prefix);
+        matchTime.addAndGet(System.nanoTime() - start);
+
+        if (cacheSize > 0) {
+            current.cache(uri, destination == null ? NO_ROUTE : destination, cacheSize);
+        }
+        return destination;
+    }
+
+    public synchronized void addRoute(final Route route) {
+        final Route[] current = routing.routes.getRoutes();
+        final Route[] newRoutes = Arrays.copyOf(current, current.length + 1);
+        newRoutes[current.length] = route;
+        setRoutes(Arrays.asList(newRoutes));
+    }
+
+    private synchronized void setRoutes(final Collection<Route> newRoutes) {
+        routing = new Routing(new CompiledRoutes(newRoutes.toArray(new Route[newRoutes.size()])));
+    }
+
+    /**
+     * Replaces the routes by the ones of the configuration file if it changed, run by the reload thread.
+     */
+    void reloadIfNeeded() {
+        final URL url = configuration;
+        if (url == null) {
+            return;
+        }
+
+        final long lastModified = lastModified(url);
+        if (lastModified != configurationLastModified) {
+            configurationLastModified = lastModified;
+            try {
+                final Collection<Route> read = readRoutes(url);
+                synchronized (this) {
+                    if (configuration != url) { // cleaned up meanwhile
+                        return;
+                    }
+                    setRoutes(read);
                 }
-                return route.cleanDestination(prefix);
+                reloads.incrementAndGet();
+                logger.info("Reloaded routes from " + url.toExternalForm());
+            } catch (final RuntimeException e) { // keep the previous routes
+                logger.warning("Can't reload routes from " + url.toExternalForm() + ": " + e.getMessage(), e);
             }
         }
-
-        return null;
     }
 
-    public synchronized void addRoute(final Route route) {
-        final Route[] newRoutes = new Route[routes.length + 1];
-        System.arraycopy(routes, 0, newRoutes, 0, routes.length);
-        newRoutes[routes.length] = route;
-        routes = newRoutes;
+    private static long lastModified(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return 0; // packaged configuration, can't change
+        }
+        final File file = Files.toFile(url);
+        return file.lastModified();
     }
 
-    public void cleanUp() {
+    public synchronized void cleanUp() {
         JMXOff();
-        routes = null;
-        cache.clear();
+        if (reloadTask != null) {
+            reloadTask.cancel(false);
+            reloadTask = null;
+        }
+        configuration = null;
+        setRoutes(new ArrayList<Route>());
     }
 
     public void setPrefix(final String prefix) {
@@ -140,6 +259,7 @@ public class SimpleRouter {
         } else {
             this.prefix = prefix;
         }
+        clearCache();
     }
 
     private String prefix(final String value) {
@@ -175,6 +295,7 @@ public class SimpleRouter {
 
     @ManagedAttribute
     public TabularData getActiveRoutes() {
+        final Route[] routes = routing.routes.getRoutes();
         if (routes.length == 0) {
             return null;
         }
@@ -208,19 +329,48 @@ public class SimpleRouter {
     }
 
     @ManagedOperation
-    public void removeRoute(final String from, final String to) {
-        if (routes.length == 0) {
-            return;
-        }
-
-        for (int i = 0; i < routes.length; i++) {
-            if (routes[i].getOrigin().equals(from) && routes[i].getRawDestination().endsWith(to)) {
-                final Route[] newRoutes = new Route[routes.length - 1];
-                System.arraycopy(routes, 0, newRoutes, 0, i);
-                System.arraycopy(routes, i + 1, newRoutes, i, routes.length - i - 1);
-                routes = newRoutes;
+    public synchronized void removeRoute(final String from, final String to) {
+        final Route[] routes = routing.routes.getRoutes();
+        final Collection<Route> kept = new ArrayList<>();
+        for (final Route route : routes) {
+            if (!route.getOrigin().equals(from) || !route.getRawDestination().endsWith(to)) {
+                kept.add(route);
             }
         }
+        if (kept.size() != routes.length) {
+            setRoutes(kept);
+        }
+    }
+
+    @ManagedOperation
+    public void clearCache() {
+        routing.cache.clear();
+    }
+
+    @ManagedAttribute
+    public int getCacheSize() {
+        return routing.cache.size();
+    }
+
+    @ManagedAttribute
+    public double getCacheHitRate() {
+        final long hit = hits.get();
+        final long total = hit + misses.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return the average time to match a uri which was not cached, in nanoseconds
+     */
+    @ManagedAttribute
+    public long getAverageMatchTime() {
+        final long count = misses.get();
+        return count == 0 ? 0 : matchTime.get() / count;
+    }
+
+    @ManagedAttribute
+    public long getReloadCount() {
+        return reloads.get();
     }
 
     public boolean hasPrefix() {
@@ -230,4 +380,32 @@ public class SimpleRouter {
     public String getPrefix() {
         return prefix;
     }
+
+    /**
+     * A set of routes and the uris they resolved.
+     */
+    private static final class Routing {
+        private final CompiledRoutes routes;
+        private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
+        private Routing(final CompiledRoutes routes) {
+            this.routes = routes;
+        }
+
+        private void cache(final String uri, final String destination, final int max) {
+            if (cache.size() >= max) {
+                // approximate eviction, the iteration order is the one of the hashes so it drops an arbitrary entry
+                final Iterator<String> iterator = cache.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+            cache.put(uri, destination);
+        }
+    }
+
+    private static final class Reloader { // lazy
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("tomee-router-reload"));
+    }
 }
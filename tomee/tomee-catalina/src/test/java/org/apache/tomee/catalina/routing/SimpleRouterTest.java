@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomee.catalina.routing;
+
+import org.apache.openejb.loader.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SimpleRouterTest {
+
+    private File configuration;
+    private SimpleRouter router;
+
+    @Before
+    public void init() {
+        configuration = new File("target/router-" + UUID.randomUUID().toString() + ".conf");
+        configuration.getParentFile().mkdirs();
+    }
+
+    @After
+    public void cleanUp() {
+        if (router != null) {
+            router.cleanUp();
+        }
+        if (!configuration.delete()) {
+            configuration.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void firstDeclaredRouteWins() throws Exception {
+        router = newRouter("5", "1000");
+        router.addRoute(new Route().from("/api/.*").to("/v1"));
+        router.addRoute(new Route().from("/api/users").to("/users"));
+        router.addRoute(new Route().from("(/a|/b)/x").to("/ab"));
+        router.addRoute(new Route().from("/a/x").to("/a"));
+        router.addRoute(new Route().from("/old/(.*)").to("/new/$1"));
+
+        // a regex declared first wins over a longer literal prefix
+        assertEquals("/v1", router.route("/api/users"));
+        // and so does a route without literal prefix
+        assertEquals("/ab", router.route("/a/x"));
+        assertEquals("/new/page", router.route("/old/page"));
+        assertNull(router.route("/other"));
+
+        // the cached answers are the same
+        assertEquals("/v1", router.route("/api/users"));
+        assertEquals("/ab", router.route("/a/x"));
+        assertEquals("/new/page", router.route("/old/page"));
+        assertNull(router.route("/other"));
+    }
+
+    @Test
+    public void cachedMissIsInvalidatedByAddRoute() throws Exception {
+        router = newRouter("5", "1000");
+        assertNull(router.route("/missing"));
+        assertNull(router.route("/missing"));
+        assertEquals(0.5, router.getCacheHitRate(), 0.);
+
+        router.addRoute(new Route().from("/missing").to("/found"));
+        assertEquals("/found", router.route("/missing"));
+    }
+
+    @Test
+    public void reloadPicksUpFileChanges() throws Exception {
+        write("/a -> /b\n");
+        router = newRouter("0", "1000").readConfiguration(configuration.toURI().toURL());
+        assertEquals("/b", router.route("/a"));
+        assertNull(router.route("/c"));
+
+        write("/a -> /changed\n/c -> /d\n");
+        assertTrue(configuration.setLastModified(configuration.lastModified() + 10000));
+        router.reloadIfNeeded();
+
+        assertEquals(1, router.getReloadCount());
+        assertEquals("/changed", router.route("/a"));
+        assertEquals("/d", router.route("/c")); // the cached miss is gone
+    }
+
+    @Test
+    public void unchangedFileIsNotReloaded() throws Exception {
+        write("/a -> /b\n");
+        router = newRouter("0", "1000").readConfiguration(configuration.toURI().toURL());
+        router.reloadIfNeeded();
+        assertEquals(0, router.getReloadCount());
+    }
+
+    @Test
+    public void reloadRunsInTheBackground() throws Exception {
+        write("/a -> /b\n");
+        router = newRouter("1", "1000").readConfiguration(configuration.toURI().toURL());
+        assertEquals("/b", router.route("/a"));
+
+        write("/a -> /changed\n");
+        assertTrue(configuration.setLastModified(configuration.lastModified() + 10000));
+
+        final long end = System.currentTimeMillis() + 10000;
+        while (router.getReloadCount() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        assertEquals("/changed", router.route("/a"));
+    }
+
+    @Test
+    public void cacheIsBounded() throws Exception {
+        router = newRouter("0", "10");
+        router.addRoute(new Route().from("/page/(.*)").to("/$1"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("/" + i, router.route("/page/" + i));
+        }
+        assertTrue(router.getCacheSize() <= 10);
+    }
+
+    private static SimpleRouter newRouter(final String reloadInterval, final String cacheSize) {
+        final Properties properties = new Properties();
+        properties.setProperty("tomee.router.reload.interval", reloadInterval);
+        properties.setProperty("tomee.router.cache.size", cacheSize);
+        return new SimpleRouter(new Options(properties));
+    }
+
+    private void write(final String content) throws IOException {
+        try (final Writer writer = new FileWriter(configuration)) {
+            writer.write(content);
+        }
+    }
+}
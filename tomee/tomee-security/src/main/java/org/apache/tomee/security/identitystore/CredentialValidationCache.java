@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomee.security.identitystore;
+
+import org.apache.openejb.loader.Options;
+import org.apache.openejb.loader.SystemInstance;
+import org.apache.openejb.monitoring.DynamicMBeanWrapper;
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.apache.openejb.monitoring.ObjectNameBuilder;
+import org.apache.openejb.util.ExpiringCache;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.management.ManagedAttribute;
+import javax.management.ManagedOperation;
+import javax.management.ObjectName;
+import javax.security.enterprise.credential.UsernamePasswordCredential;
+import javax.security.enterprise.identitystore.CredentialValidationResult;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static javax.security.enterprise.identitystore.CredentialValidationResult.Status.INVALID;
+import static javax.security.enterprise.identitystore.CredentialValidationResult.Status.VALID;
+
+/**
+ * Remembers the result of the last validations of a caller and password, so the password hash or the LDAP bind
+ * is not done again for each request. Disabled by default, the options are:
+ * <ul>
+ *     <li>tomee.security.identitystore.cache.enabled: false</li>
+ *     <li>tomee.security.identitystore.cache.size: 1000 credentials</li>
+ *     <li>tomee.security.identitystore.cache.ttl: 60 seconds a valid credential is trusted</li>
+ *     <li>tomee.security.identitystore.cache.negative-ttl: 5 seconds an invalid one is rejected, 0 to not cache them</li>
+ * </ul>
+ *
+ * Entries are keyed by a HMAC of the caller and password with a random key generated at startup, no password
+ * is kept in memory. A password change is only seen when the entry expires or after {@link #invalidate(String)}.
+ * When the cache is full the entry expiring first is evicted. The hit, miss and eviction counts are exposed
+ * through JMX once {@link #JMXOn(String)} is called.
+ */
+public class CredentialValidationCache {
+
+    public static final String PREFIX = "tomee.security.identitystore.cache.";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final long ttl;
+    private final long negativeTtl;
+    private final SecretKeySpec salt;
+    private final ExpiringCache<ByteBuffer, Entry> entries;
+    private ObjectName objectName;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong validations = new AtomicLong();
+    private final AtomicLong validationTime = new AtomicLong();
+
+    public CredentialValidationCache() {
+        this(SystemInstance.get().getOptions());
+    }
+
+    public CredentialValidationCache(final Options options) {
+        this(options.get(PREFIX + "enabled", false), options.get(PREFIX + "size", 1000),
+                TimeUnit.SECONDS.toMillis(options.get(PREFIX + "ttl", 60L)),
+                TimeUnit.SECONDS.toMillis(options.get(PREFIX + "negative-ttl", 5L)));
+    }
+
+    public CredentialValidationCache(final boolean enabled, final int maxSize, final long ttl, final long negativeTtl) {
+        this.enabled = enabled && maxSize > 0 && ttl > 0;
+        this.entries = new ExpiringCache<>(maxSize);
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.salt = new SecretKeySpec(key, ALGORITHM);
+    }
+
+    /**
+     * @param credential the credential to validate
+     * @param validator  the actual validation, only called when the credential is not known
+     * @return the cached result if there is one, the result of the validator otherwise
+     */
+    public CredentialValidationResult validate(final UsernamePasswordCredential credential,
+                                               final Function<UsernamePasswordCredential, CredentialValidationResult> validator) {
+        if (!enabled) {
+            return timed(credential, validator);
+        }
+
+        final ByteBuffer key = key(credential);
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.result;
+        }
+        misses.incrementAndGet();
+
+        final CredentialValidationResult result = timed(credential, validator);
+
+        final long time = result.getStatus() == VALID ? ttl : result.getStatus() == INVALID ? negativeTtl : 0;
+        if (time > 0) {
+            entries.put(key, new Entry(credential.getCaller(), result), System.currentTimeMillis() + time);
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the results of a caller, to call when its password or groups change.
+     */
+    @ManagedOperation
+    public void invalidate(final String caller) {
+        entries.removeIf(entry -> entry.caller.equals(caller));
+    }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return entries.getEvictionCount();
+    }
+
+    @ManagedAttribute
+    public double getHitRate() {
+        final long hit = hits.get();
+        final long total = hit + misses.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return the average time of the validations which were not served by the cache, in microseconds
+     */
+    @ManagedAttribute
+    public long getAverageValidationTime() {
+        final long count = validations.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(validationTime.get() / count);
+    }
+
+    public void JMXOn(final String name) {
+        final ObjectNameBuilder jmxName = new ObjectNameBuilder("openejb.management");
+        jmxName.set("J2EEServer", "openejb");
+        jmxName.set("J2EEApplication", null);
+        jmxName.set("j2eeType", "CredentialValidationCache");
+        jmxName.set("name", name);
+
+        objectName = jmxName.build();
+        try {
+            LocalMBeanServer.get().registerMBean(new DynamicMBeanWrapper(this), objectName);
+        } catch (final Exception e) {
+            objectName = null;
+        }
+    }
+
+    public void JMXOff() {
+        if (objectName != null) {
+            try {
+                LocalMBeanServer.get().unregisterMBean(objectName);
+            } catch (final Exception e) {
+                // no-op
+            }
+            objectName = null;
+        }
+    }
+
+    private CredentialValidationResult timed(final UsernamePasswordCredential credential,
+                                             final Function<UsernamePasswordCredential, CredentialValidationResult> validator) {
+        final long start = System.nanoTime();
+        try {
+            return validator.apply(credential);
+        } finally {
+            validationTime.addAndGet(System.nanoTime() - start);
+            validations.incrementAndGet();
+        }
+    }
+
+    private ByteBuffer key(final UsernamePasswordCredential credential) {
+        final ByteBuffer password = StandardCharsets.UTF_8.encode(CharBuffer.wrap(credential.getPassword().getValue()));
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(salt);
+            mac.update(credential.getCaller().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(password);
+            return ByteBuffer.wrap(mac.doFinal());
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e); // mandatory algorithm
+        } finally {
+            if (password.hasArray()) {
+                Arrays.fill(password.array(), (byte) 0);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String caller;
+        private final CredentialValidationResult result;
+
+        private Entry(final String caller, final CredentialValidationResult result) {
+            this.caller = caller;
+            this.result = result;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.tomee.security.identitystore;
 import org.apache.tomee.security.TomEEELInvocationHandler;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.el.ELProcessor;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.spi.Bean;
@@ -66,10 +67,17 @@ public class TomEEDatabaseIdentityStore implements IdentityStore {
 
     private PasswordHash passwordHash;
 
+    private CredentialValidationCache credentialValidationCache;
+    private volatile DataSource dataSource;
+
     @PostConstruct
     private void init() throws Exception {
         definition = definitionSupplier.get();
         validationTypes = new HashSet<>(asList(definition.useFor()));
+        credentialValidationCache = new CredentialValidationCache();
+        if (credentialValidationCache.isEnabled()) {
+            credentialValidationCache.JMXOn("TomEEDatabaseIdentityStore " + System.identityHashCode(this));
+        }
 
         passwordHash = getInstance(definition.hashAlgorithm());
 
@@ -89,13 +97,21 @@ public class TomEEDatabaseIdentityStore implements IdentityStore {
                                );
     }
 
+    @PreDestroy
+    private void destroy() {
+        credentialValidationCache.JMXOff();
+    }
+
     @Override
     public CredentialValidationResult validate(final Credential credential) {
         if (!(credential instanceof UsernamePasswordCredential)) {
             return CredentialValidationResult.NOT_VALIDATED_RESULT;
         }
 
-        final UsernamePasswordCredential usernamePasswordCredential = (UsernamePasswordCredential) credential;
+        return credentialValidationCache.validate((UsernamePasswordCredential) credential, this::validateCredential);
+    }
+
+    private CredentialValidationResult validateCredential(final UsernamePasswordCredential usernamePasswordCredential) {
         final List<String> passwords = query(definition.callerQuery(), usernamePasswordCredential.getCaller());
 
         if (passwords.isEmpty()) {
@@ -114,6 +130,13 @@ public class TomEEDatabaseIdentityStore implements IdentityStore {
         return CredentialValidationResult.INVALID_RESULT;
     }
 
+    /**
+     * @return the results of the previous validations, to invalidate a caller when its password changes
+     */
+    public CredentialValidationCache getCredentialValidationCache() {
+        return credentialValidationCache;
+    }
+
     @Override
     public Set<String> getCallerGroups(final CredentialValidationResult validationResult) {
 
@@ -145,8 +168,7 @@ public class TomEEDatabaseIdentityStore implements IdentityStore {
     private List<String> query(final String query, final String parameter) {
         final List<String> result = new ArrayList<>();
 
-        final DataSource dataSource = lookup(definition.dataSourceLookup()); // todo instance field?
-        try (Connection connection = dataSource.getConnection()) {
+        try (Connection connection = getDataSource().getConnection()) {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 statement.setString(1, parameter);
                 try (ResultSet resultSet = statement.executeQuery()) {
@@ -162,6 +184,15 @@ public class TomEEDatabaseIdentityStore implements IdentityStore {
         return result;
     }
 
+    private DataSource getDataSource() {
+        DataSource current = dataSource;
+        if (current == null) { // racy but the lookup always returns the same resource
+            current = lookup(definition.dataSourceLookup());
+            dataSource = current;
+        }
+        return current;
+    }
+
     public static DataSource lookup(final String name) {
         if (name == null || name.trim().equals("")) {
             throw new RuntimeException(
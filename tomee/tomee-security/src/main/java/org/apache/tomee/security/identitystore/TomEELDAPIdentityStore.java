@@ -19,6 +19,7 @@ package org.apache.tomee.security.identitystore;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.naming.NamingException;
@@ -67,10 +68,21 @@ public class TomEELDAPIdentityStore implements IdentityStore {
 
     private Set<ValidationType> validationTypes;
 
+    private CredentialValidationCache credentialValidationCache;
+
     @PostConstruct
     private void init() throws Exception {
         definition = definitionSupplier.get();
         validationTypes = new HashSet<>(asList(definition.useFor()));
+        credentialValidationCache = new CredentialValidationCache();
+        if (credentialValidationCache.isEnabled()) {
+            credentialValidationCache.JMXOn("TomEELDAPIdentityStore " + System.identityHashCode(this));
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        credentialValidationCache.JMXOff();
     }
 
     @Override
@@ -78,8 +90,17 @@ public class TomEELDAPIdentityStore implements IdentityStore {
         if (!(credential instanceof UsernamePasswordCredential)) {
             return CredentialValidationResult.NOT_VALIDATED_RESULT;
         }
-        final UsernamePasswordCredential usernamePasswordCredential = (UsernamePasswordCredential) credential;
+        return credentialValidationCache.validate((UsernamePasswordCredential) credential, this::validateCredential);
+    }
+
+    /**
+     * @return the results of the previous validations, to invalidate a caller when its password changes
+     */
+    public CredentialValidationCache getCredentialValidationCache() {
+        return credentialValidationCache;
+    }
 
+    private CredentialValidationResult validateCredential(final UsernamePasswordCredential usernamePasswordCredential) {
         LdapContext ldapContext = null;
         try {
 
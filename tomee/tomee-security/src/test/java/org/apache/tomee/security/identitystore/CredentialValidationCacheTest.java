@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomee.security.identitystore;
+
+import org.apache.openejb.monitoring.LocalMBeanServer;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.security.enterprise.credential.UsernamePasswordCredential;
+import javax.security.enterprise.identitystore.CredentialValidationResult;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.Collections.singleton;
+import static javax.security.enterprise.identitystore.CredentialValidationResult.INVALID_RESULT;
+import static javax.security.enterprise.identitystore.CredentialValidationResult.NOT_VALIDATED_RESULT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CredentialValidationCacheTest {
+
+    private final AtomicInteger validations = new AtomicInteger();
+    private final Function<UsernamePasswordCredential, CredentialValidationResult> store = credential -> {
+        validations.incrementAndGet();
+        if (credential.getCaller().equals("unknown")) {
+            return NOT_VALIDATED_RESULT;
+        }
+        return credential.compareTo("jane", "secret") ?
+                new CredentialValidationResult("jane", singleton("admin")) : INVALID_RESULT;
+    };
+
+    @Test
+    public void validCredentialsAreCached() {
+        final CredentialValidationCache cache = new CredentialValidationCache(true, 10, TimeUnit.MINUTES.toMillis(1), 0);
+
+        final CredentialValidationResult first = cache.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        final CredentialValidationResult second = cache.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        assertSame(first, second);
+        assertEquals(1, validations.get());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+
+        // another password is another entry
+        assertSame(INVALID_RESULT, cache.validate(new UsernamePasswordCredential("jane", "wrong"), store));
+        assertEquals(2, validations.get());
+    }
+
+    @Test
+    public void negativeCaching() {
+        final CredentialValidationCache cache = new CredentialValidationCache(true, 10, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        cache.validate(new UsernamePasswordCredential("jane", "wrong"), store);
+        cache.validate(new UsernamePasswordCredential("jane", "wrong"), store);
+        assertEquals(1, validations.get());
+
+        // not validated results are never cached, another store may know the caller
+        cache.validate(new UsernamePasswordCredential("unknown", "secret"), store);
+        cache.validate(new UsernamePasswordCredential("unknown", "secret"), store);
+        assertEquals(3, validations.get());
+    }
+
+    @Test
+    public void invalidate() {
+        final CredentialValidationCache cache = new CredentialValidationCache(true, 10, TimeUnit.MINUTES.toMillis(1), 0);
+        cache.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        cache.invalidate("jane");
+        cache.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        assertEquals(2, validations.get());
+    }
+
+    @Test
+    public void boundedAndDisabled() {
+        final CredentialValidationCache cache = new CredentialValidationCache(true, 5, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        for (int i = 0; i < 50; i++) {
+            cache.validate(new UsernamePasswordCredential("jane", "wrong" + i), store);
+        }
+        assertTrue(cache.size() <= 5);
+        assertTrue(cache.getEvictionCount() > 0);
+
+        final CredentialValidationCache disabled = new CredentialValidationCache(false, 10, TimeUnit.MINUTES.toMillis(1), 0);
+        validations.set(0);
+        disabled.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        disabled.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        assertEquals(2, validations.get());
+        assertEquals(0, disabled.size());
+    }
+
+    @Test
+    public void metricsAreExposedThroughJmx() throws Exception {
+        final CredentialValidationCache cache = new CredentialValidationCache(true, 10, TimeUnit.MINUTES.toMillis(1), 0);
+        cache.validate(new UsernamePasswordCredential("jane", "secret"), store);
+        cache.validate(new UsernamePasswordCredential("jane", "secret"), store);
+
+        final MBeanServer server = LocalMBeanServer.get();
+        final ObjectName query = new ObjectName("openejb.management:j2eeType=CredentialValidationCache,name=test,*");
+        cache.JMXOn("test");
+        try {
+            final Set<ObjectName> names = server.queryNames(query, null);
+            assertEquals(1, names.size());
+            final ObjectName name = names.iterator().next();
+            assertEquals(1L, server.getAttribute(name, "hitCount"));
+            assertEquals(1L, server.getAttribute(name, "missCount"));
+            assertEquals(0L, server.getAttribute(name, "evictionCount"));
+        } finally {
+            cache.JMXOff();
+        }
+        assertFalse(server.queryNames(query, null).iterator().hasNext());
+    }
+}